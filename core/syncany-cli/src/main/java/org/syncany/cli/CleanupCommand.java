@@ -65,6 +65,7 @@ public class CleanupCommand extends Command {
 		OptionSpec<Void> optionNoOlderVersionRemoval = parser.acceptsAll(asList("O", "no-delete-older-than"));
 		OptionSpec<Void> optionNoVersionRemovalByInterval = parser.acceptsAll(asList("I", "no-delete-interval"));
 		OptionSpec<Void> optionNoRemoveTempFiles = parser.acceptsAll(asList("T", "no-temp-removal"));
+		OptionSpec<Void> optionNoRepack = parser.acceptsAll(asList("R", "no-repack"));
 		OptionSpec<String> optionKeepMinTime = parser.acceptsAll(asList("o", "delete-older-than"))
 				.withRequiredArg().ofType(String.class);
 
@@ -79,6 +80,9 @@ public class CleanupCommand extends Command {
 		// -T, --no-temp-removal
 		operationOptions.setRemoveUnreferencedTemporaryFiles(!options.has(optionNoRemoveTempFiles));
 		
+		// -R, --no-repack
+		operationOptions.setRepackMultiChunks(!options.has(optionNoRepack));
+
 		// -I, --no-delete-interval
 		operationOptions.setRemoveVersionsByInterval(!options.has(optionNoVersionRemovalByInterval));
 
@@ -143,6 +147,12 @@ public class CleanupCommand extends Command {
 						(double) concreteOperationResult.getRemovedMultiChunksSize() / 1024 / 1024);
 			}
 
+			if (concreteOperationResult.getRepackedMultiChunksCount() > 0) {
+				out.printf("%d multichunk(s) repacked on remote storage (freed %.2f MB)\n",
+						concreteOperationResult.getRepackedMultiChunksCount(),
+						(double) concreteOperationResult.getRepackedMultiChunksFreedSize() / 1024 / 1024);
+			}
+
 			if (concreteOperationResult.getRemovedOldVersionsCount() > 0) {
 				out.println(concreteOperationResult.getRemovedOldVersionsCount() + " file histories shortened.");
 				// TODO [low] This counts only the file histories, not file versions; not very helpful!
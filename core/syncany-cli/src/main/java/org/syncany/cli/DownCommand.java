@@ -68,6 +68,8 @@ public class DownCommand extends Command {
 
 		OptionSpec<String> optionConflictStrategy = parser.acceptsAll(asList("C", "conflict-strategy")).withRequiredArg();
 		OptionSpec<Void> optionNoApply = parser.acceptsAll(asList("A", "no-apply"));
+		OptionSpec<Integer> optionBatchSize = parser.acceptsAll(asList("batch-size")).withRequiredArg().ofType(Integer.class);
+		OptionSpec<Integer> optionParallelDownloads = parser.acceptsAll(asList("parallel-downloads")).withRequiredArg().ofType(Integer.class);
 
 		OptionSet options = parser.parse(operationArguments);
 
@@ -82,6 +84,16 @@ public class DownCommand extends Command {
 			operationOptions.setApplyChanges(false);
 		}
 
+		// --batch-size=<count>
+		if (options.has(optionBatchSize)) {
+			operationOptions.setBatchSize(options.valueOf(optionBatchSize));
+		}
+
+		// --parallel-downloads=<count>
+		if (options.has(optionParallelDownloads)) {
+			operationOptions.setParallelDownloads(options.valueOf(optionParallelDownloads));
+		}
+
 		return operationOptions;
 	}
 
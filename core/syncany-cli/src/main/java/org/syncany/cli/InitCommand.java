@@ -23,13 +23,21 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import org.syncany.chunk.AdaptiveTransformer;
+import org.syncany.chunk.CipherTransformer;
+import org.syncany.chunk.GzipTransformer;
+import org.syncany.chunk.Lz4Transformer;
 import org.syncany.config.to.ConfigTO;
 import org.syncany.config.to.DefaultRepoTOFactory;
 import org.syncany.config.to.RepoTO;
 import org.syncany.config.to.RepoTOFactory;
+import org.syncany.config.to.TransformerTO;
 import org.syncany.crypto.CipherSpec;
 import org.syncany.crypto.CipherSpecs;
 import org.syncany.crypto.CipherUtil;
+import org.syncany.crypto.MultiCipherOutputStream;
+import org.syncany.database.dao.DatabaseBinarySerializer;
+import org.syncany.database.dao.DatabaseXmlSerializer;
 import org.syncany.operations.OperationResult;
 import org.syncany.operations.init.GenlinkOperationOptions;
 import org.syncany.operations.init.InitOperation;
@@ -90,6 +98,7 @@ public class InitCommand extends AbstractInitCommand {
 		OptionSpec<Void> optionNoCreateTarget = parser.acceptsAll(asList("T", "no-create-target"));
 		OptionSpec<Void> optionAdvanced = parser.acceptsAll(asList("a", "advanced"));
 		OptionSpec<Void> optionNoCompression = parser.acceptsAll(asList("G", "no-compression"));
+		OptionSpec<String> optionCompression = parser.acceptsAll(asList("z", "compression")).withRequiredArg();
 		OptionSpec<Void> optionNoEncryption = parser.acceptsAll(asList("E", "no-encryption"));
 		OptionSpec<String> optionPlugin = parser.acceptsAll(asList("P", "plugin")).withRequiredArg();
 		OptionSpec<String> optionPluginOpts = parser.acceptsAll(asList("o", "plugin-option")).withRequiredArg();
@@ -97,6 +106,8 @@ public class InitCommand extends AbstractInitCommand {
 		OptionSpec<Void> optionShortUrl = parser.acceptsAll(asList("s", "short"));
 		OptionSpec<Void> optionHeadlessMode = parser.acceptsAll(asList("l", "headless"));
 		OptionSpec<String> optionPassword = parser.acceptsAll(asList("password")).withRequiredArg();
+		OptionSpec<String> optionDatabaseFormat = parser.acceptsAll(asList("database-format")).withRequiredArg();
+		OptionSpec<Void> optionSegmentedEncryption = parser.acceptsAll(asList("segmented-encryption"));
 
 		OptionSet options = parser.parse(operationArguments);
 
@@ -113,14 +124,14 @@ public class InitCommand extends AbstractInitCommand {
 		boolean createTargetPath = !options.has(optionNoCreateTarget);
 		boolean advancedModeEnabled = options.has(optionAdvanced);
 		boolean encryptionEnabled = !options.has(optionNoEncryption);
-		boolean compressionEnabled = !options.has(optionNoCompression);
+		String compressionType = getCompressionType(options, optionNoCompression, optionCompression);
 
 		// Cipher specs: --no-encryption, --advanced
 		List<CipherSpec> cipherSpecs = getCipherSpecs(encryptionEnabled, advancedModeEnabled);
 
-		// Compression: --no-compression
+		// Compression: --no-compression, --compression
 		// DefaultRepoTOFactory also creates default chunkers
-		RepoTOFactory repoTOFactory = new DefaultRepoTOFactory(compressionEnabled, cipherSpecs);
+		RepoTOFactory repoTOFactory = new DefaultRepoTOFactory(compressionType, cipherSpecs);
 
 		// Genlink options: --short
 		GenlinkOperationOptions genlinkOptions = new GenlinkOperationOptions();
@@ -134,6 +145,14 @@ public class InitCommand extends AbstractInitCommand {
 		ConfigTO configTO = createConfigTO(transferSettings);
 		RepoTO repoTO = repoTOFactory.createRepoTO();
 
+		// Database format: --database-format
+		repoTO.setDatabaseFormat(getDatabaseFormat(options, optionDatabaseFormat));
+
+		// Encrypted stream format: --segmented-encryption
+		if (options.has(optionSegmentedEncryption)) {
+			enableSegmentedEncryption(repoTO, encryptionEnabled);
+		}
+
 		operationOptions.setLocalDir(localDir);
 		operationOptions.setConfigTO(configTO);
 		operationOptions.setRepoTO(repoTO);
@@ -147,6 +166,59 @@ public class InitCommand extends AbstractInitCommand {
 		return operationOptions;
 	}
 
+	private String getCompressionType(OptionSet options, OptionSpec<Void> optionNoCompression, OptionSpec<String> optionCompression) {
+		if (options.has(optionNoCompression)) {
+			if (options.has(optionCompression)) {
+				throw new IllegalArgumentException("Cannot provide --compression and --no-compression. Conflicting options.");
+			}
+
+			return null;
+		}
+		else if (options.has(optionCompression)) {
+			String compressionType = options.valueOf(optionCompression);
+
+			if (!GzipTransformer.TYPE.equals(compressionType) && !Lz4Transformer.TYPE.equals(compressionType)
+					&& !AdaptiveTransformer.TYPE.equals(compressionType)) {
+
+				throw new IllegalArgumentException("Invalid compression '" + compressionType + "'. Must be " + GzipTransformer.TYPE + ", "
+						+ Lz4Transformer.TYPE + " or " + AdaptiveTransformer.TYPE + ".");
+			}
+
+			return compressionType;
+		}
+		else {
+			return GzipTransformer.TYPE;
+		}
+	}
+
+	private String getDatabaseFormat(OptionSet options, OptionSpec<String> optionDatabaseFormat) {
+		if (options.has(optionDatabaseFormat)) {
+			String databaseFormat = options.valueOf(optionDatabaseFormat);
+
+			if (!DatabaseXmlSerializer.TYPE.equals(databaseFormat) && !DatabaseBinarySerializer.TYPE.equals(databaseFormat)) {
+				throw new IllegalArgumentException("Invalid database format '" + databaseFormat + "'. Must be " + DatabaseXmlSerializer.TYPE + " or "
+						+ DatabaseBinarySerializer.TYPE + ".");
+			}
+
+			return databaseFormat;
+		}
+		else {
+			return null; // XML
+		}
+	}
+
+	private void enableSegmentedEncryption(RepoTO repoTO, boolean encryptionEnabled) {
+		if (!encryptionEnabled) {
+			throw new IllegalArgumentException("Cannot provide --segmented-encryption and --no-encryption. Conflicting options.");
+		}
+
+		for (TransformerTO transformerTO : repoTO.getTransformers()) {
+			if (CipherTransformer.TYPE.equals(transformerTO.getType())) {
+				transformerTO.getSettings().put(CipherTransformer.PROPERTY_STREAM_VERSION, Byte.toString(MultiCipherOutputStream.STREAM_VERSION_SEGMENTED));
+			}
+		}
+	}
+
 	private String validateAndGetPassword(OptionSet options, OptionSpec<Void> optionNoEncryption, OptionSpec<String> optionPassword) {
 		if (!isInteractive) {
 			if (options.has(optionPassword) && options.has(optionNoEncryption)) {
@@ -0,0 +1,545 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.chunk;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.io.PushbackInputStream;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Implements a {@link Transformer} that compresses the input/output stream block-wise,
+ * and stores blocks that do not compress well in their raw form. 
+ * 
+ * <p>Unlike the {@link GzipTransformer}, this transformer does not waste CPU cycles on data
+ * that is already compressed (JPEGs, videos, archives, or encrypted data). Each block is first
+ * sampled by compressing a small part of it. Only if the sample compresses beyond the configured
+ * threshold, the whole block is compressed -- and only if the compressed block also stays below
+ * the threshold, it is stored compressed. Otherwise, it is stored raw. 
+ * 
+ * <p>The stream format is as follows: 
+ * 
+ * <pre>
+ *   magic (4 bytes), version (1 byte),
+ *   { type (1 byte), raw length (4 bytes), [compressed length (4 bytes)], data }*,
+ *   end marker (1 byte)
+ * </pre>
+ * 
+ * <p>The transformer can be configured using the settings {@link #PROPERTY_CODEC} (block codec,
+ * either {@link #CODEC_DEFLATE} or {@link #CODEC_LZ4}, default is deflate), {@link #PROPERTY_LEVEL}
+ * (deflate level 1-9, default is {@link Deflater#BEST_SPEED}) and {@link #PROPERTY_THRESHOLD} (maximum
+ * compressed size in percent of the raw size, default is 90). The codec only affects writing;
+ * the reader decodes each block according to its type.
+ * 
+ * <p>To allow switching a repository from the {@link GzipTransformer} to this transformer, the
+ * reader also accepts plain gzip streams and decompresses them transparently.
+ * 
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class AdaptiveTransformer extends Transformer {
+	public static final String TYPE = "adaptive";
+	public static final String PROPERTY_CODEC = "codec";
+	public static final String PROPERTY_LEVEL = "level";
+	public static final String PROPERTY_THRESHOLD = "threshold";
+
+	public static final String CODEC_DEFLATE = "deflate";
+	public static final String CODEC_LZ4 = "lz4";
+
+	public static final int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+	public static final int DEFAULT_THRESHOLD = 90;
+
+	public static final byte[] STREAM_MAGIC = new byte[] { 0x53, 0x79, 0x02, 0x07 };
+	public static final byte STREAM_VERSION = 0x01;
+
+	public static final int BLOCK_SIZE = 128 * 1024;
+	public static final int SAMPLE_SIZE = 8 * 1024;
+
+	public static final byte BLOCK_TYPE_RAW = 0x00;
+	public static final byte BLOCK_TYPE_DEFLATED = 0x01;
+	public static final byte BLOCK_TYPE_LZ4 = 0x02;
+	public static final byte BLOCK_TYPE_END = (byte) 0xff;
+
+	private static final byte[] GZIP_MAGIC = new byte[] { (byte) 0x1f, (byte) 0x8b };
+
+	protected String codec;
+	protected int level;
+	protected int threshold;
+
+	public AdaptiveTransformer() {
+		this(CODEC_DEFLATE, DEFAULT_LEVEL, DEFAULT_THRESHOLD, null);
+	}
+
+	public AdaptiveTransformer(Transformer nextTransformer) {
+		this(CODEC_DEFLATE, DEFAULT_LEVEL, DEFAULT_THRESHOLD, nextTransformer);
+	}
+
+	public AdaptiveTransformer(int level, int threshold, Transformer nextTransformer) {
+		this(CODEC_DEFLATE, level, threshold, nextTransformer);
+	}
+
+	public AdaptiveTransformer(String codec, int level, int threshold, Transformer nextTransformer) {
+		super(nextTransformer);
+
+		this.codec = codec;
+		this.level = level;
+		this.threshold = threshold;
+	}
+
+	@Override
+	public void init(Map<String, String> settings) throws Exception {
+		String codecStr = settings.get(PROPERTY_CODEC);
+		String levelStr = settings.get(PROPERTY_LEVEL);
+		String thresholdStr = settings.get(PROPERTY_THRESHOLD);
+
+		if (codecStr != null) {
+			if (!CODEC_DEFLATE.equals(codecStr) && !CODEC_LZ4.equals(codecStr)) {
+				throw new Exception("Setting '" + PROPERTY_CODEC + "' must be '" + CODEC_DEFLATE + "' or '" + CODEC_LZ4 + "'.");
+			}
+
+			codec = codecStr;
+		}
+
+		if (levelStr != null) {
+			level = Integer.parseInt(levelStr);
+
+			if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+				throw new Exception("Setting '" + PROPERTY_LEVEL + "' must be between " + Deflater.BEST_SPEED + " and " + Deflater.BEST_COMPRESSION + ".");
+			}
+		}
+
+		if (thresholdStr != null) {
+			threshold = Integer.parseInt(thresholdStr);
+
+			if (threshold < 1 || threshold > 100) {
+				throw new Exception("Setting '" + PROPERTY_THRESHOLD + "' must be between 1 and 100 (percent).");
+			}
+		}
+	}
+
+	public String getCodec() {
+		return codec;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	@Override
+	public OutputStream createOutputStream(OutputStream out) throws IOException {
+		if (nextTransformer == null) {
+			return new AdaptiveOutputStream(out, codec, level, threshold);
+		}
+		else {
+			return new AdaptiveOutputStream(nextTransformer.createOutputStream(out), codec, level, threshold);
+		}
+	}
+
+	@Override
+	public InputStream createInputStream(InputStream in) throws IOException {
+		if (nextTransformer == null) {
+			return createAdaptiveInputStream(in);
+		}
+		else {
+			return createAdaptiveInputStream(nextTransformer.createInputStream(in));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return (nextTransformer == null) ? "Adaptive" : "Adaptive-" + nextTransformer;
+	}
+
+	/**
+	 * Creates an {@link AdaptiveInputStream}, or a {@link GZIPInputStream} if the
+	 * stream starts with the gzip magic bytes, i.e. if it was written by the {@link GzipTransformer}.
+	 */
+	private InputStream createAdaptiveInputStream(InputStream in) throws IOException {
+		PushbackInputStream pushbackInputStream = new PushbackInputStream(in, GZIP_MAGIC.length);
+
+		byte[] magic = new byte[GZIP_MAGIC.length];
+		int magicLength = 0;
+		int read;
+
+		while (magicLength < magic.length && (read = pushbackInputStream.read(magic, magicLength, magic.length - magicLength)) != -1) {
+			magicLength += read;
+		}
+
+		pushbackInputStream.unread(magic, 0, magicLength);
+
+		if (magicLength == GZIP_MAGIC.length && Arrays.equals(GZIP_MAGIC, magic)) {
+			return new GZIPInputStream(pushbackInputStream);
+		}
+		else {
+			return new AdaptiveInputStream(pushbackInputStream);
+		}
+	}
+
+	/**
+	 * Buffers written data in blocks of {@link AdaptiveTransformer#BLOCK_SIZE} bytes and
+	 * writes each block either compressed or raw, depending on how well it compresses.
+	 */
+	public static class AdaptiveOutputStream extends OutputStream {
+		private DataOutputStream underlyingOutputStream;
+		private Deflater deflater;
+		private Lz4Codec lz4Codec;
+		private int threshold;
+
+		private byte[] block;
+		private int blockLength;
+		private byte[] compressedBlock;
+
+		private boolean headerWritten;
+		private boolean closed;
+
+		public AdaptiveOutputStream(OutputStream out, int level, int threshold) {
+			this(out, CODEC_DEFLATE, level, threshold);
+		}
+
+		public AdaptiveOutputStream(OutputStream out, String codec, int level, int threshold) {
+			this.underlyingOutputStream = new DataOutputStream(out);
+			this.deflater = (CODEC_LZ4.equals(codec)) ? null : new Deflater(level);
+			this.lz4Codec = (CODEC_LZ4.equals(codec)) ? new Lz4Codec() : null;
+			this.threshold = threshold;
+
+			this.block = new byte[BLOCK_SIZE];
+			this.blockLength = 0;
+			this.compressedBlock = new byte[BLOCK_SIZE];
+
+			this.headerWritten = false;
+			this.closed = false;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed.");
+			}
+
+			while (len > 0) {
+				int copyLength = Math.min(len, block.length - blockLength);
+				System.arraycopy(b, off, block, blockLength, copyLength);
+
+				blockLength += copyLength;
+				off += copyLength;
+				len -= copyLength;
+
+				if (blockLength == block.length) {
+					writeBlock();
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			// Blocks are only written when they are full (or on close), to not hurt the compression ratio
+			underlyingOutputStream.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				writeBlock();
+				writeHeader();
+
+				underlyingOutputStream.writeByte(BLOCK_TYPE_END);
+				underlyingOutputStream.close();
+
+				if (deflater != null) {
+					deflater.end();
+				}
+
+				closed = true;
+			}
+		}
+
+		private void writeHeader() throws IOException {
+			if (!headerWritten) {
+				underlyingOutputStream.write(STREAM_MAGIC);
+				underlyingOutputStream.writeByte(STREAM_VERSION);
+
+				headerWritten = true;
+			}
+		}
+
+		private void writeBlock() throws IOException {
+			if (blockLength == 0) {
+				return;
+			}
+
+			writeHeader();
+
+			int maxCompressedLength = (int) ((long) blockLength * threshold / 100);
+			int compressedLength = (isSampleCompressible()) ? compress(block, blockLength, maxCompressedLength) : -1;
+
+			if (compressedLength > 0) {
+				underlyingOutputStream.writeByte((lz4Codec != null) ? BLOCK_TYPE_LZ4 : BLOCK_TYPE_DEFLATED);
+				underlyingOutputStream.writeInt(blockLength);
+				underlyingOutputStream.writeInt(compressedLength);
+				underlyingOutputStream.write(compressedBlock, 0, compressedLength);
+			}
+			else {
+				underlyingOutputStream.writeByte(BLOCK_TYPE_RAW);
+				underlyingOutputStream.writeInt(blockLength);
+				underlyingOutputStream.write(block, 0, blockLength);
+			}
+
+			blockLength = 0;
+		}
+
+		/**
+		 * Compresses a small sample of the current block and checks if it compresses beyond
+		 * the threshold. Blocks smaller than twice the sample size are not sampled.
+		 */
+		private boolean isSampleCompressible() {
+			if (blockLength < 2 * SAMPLE_SIZE) {
+				return true;
+			}
+
+			int sampleOffset = (blockLength - SAMPLE_SIZE) / 2;
+			int maxCompressedSampleLength = SAMPLE_SIZE * threshold / 100;
+
+			if (lz4Codec != null) {
+				return lz4Codec.compress(block, sampleOffset, SAMPLE_SIZE, compressedBlock, 0, maxCompressedSampleLength) >= 0;
+			}
+
+			deflater.reset();
+			deflater.setInput(block, sampleOffset, SAMPLE_SIZE);
+			deflater.finish();
+
+			int compressedSampleLength = 0;
+
+			while (!deflater.finished() && compressedSampleLength <= maxCompressedSampleLength) {
+				compressedSampleLength += deflater.deflate(compressedBlock, 0, compressedBlock.length);
+			}
+
+			return deflater.finished() && compressedSampleLength <= maxCompressedSampleLength;
+		}
+
+		/**
+		 * Compresses the given data to the compressed block buffer, and returns the compressed
+		 * length -- or -1 if the compressed data would exceed the given maximum length.
+		 */
+		private int compress(byte[] data, int length, int maxCompressedLength) {
+			if (lz4Codec != null) {
+				return lz4Codec.compress(data, 0, length, compressedBlock, 0, maxCompressedLength);
+			}
+
+			deflater.reset();
+			deflater.setInput(data, 0, length);
+			deflater.finish();
+
+			int compressedLength = 0;
+
+			while (!deflater.finished() && compressedLength < maxCompressedLength) {
+				compressedLength += deflater.deflate(compressedBlock, compressedLength, maxCompressedLength - compressedLength);
+			}
+
+			return (deflater.finished()) ? compressedLength : -1;
+		}
+	}
+
+	/**
+	 * Reads a stream written by the {@link AdaptiveOutputStream}, and decompresses
+	 * deflated and LZ4-compressed blocks as necessary.
+	 */
+	public static class AdaptiveInputStream extends InputStream {
+		private DataInputStream underlyingInputStream;
+		private Inflater inflater;
+
+		private byte[] block;
+		private int blockLength;
+		private int blockPosition;
+		private byte[] compressedBlock;
+
+		private boolean headerRead;
+		private boolean endReached;
+
+		public AdaptiveInputStream(InputStream in) {
+			this.underlyingInputStream = new DataInputStream(in);
+			this.inflater = new Inflater();
+
+			this.block = new byte[BLOCK_SIZE + 1];
+			this.blockLength = 0;
+			this.blockPosition = 0;
+			this.compressedBlock = new byte[BLOCK_SIZE];
+
+			this.headerRead = false;
+			this.endReached = false;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] singleByte = new byte[1];
+			int read = read(singleByte, 0, 1);
+
+			return (read == -1) ? -1 : singleByte[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+
+			while (blockPosition == blockLength) {
+				if (!readBlock()) {
+					return -1;
+				}
+			}
+
+			int readLength = Math.min(len, blockLength - blockPosition);
+			System.arraycopy(block, blockPosition, b, off, readLength);
+
+			blockPosition += readLength;
+			return readLength;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return blockLength - blockPosition;
+		}
+
+		@Override
+		public void close() throws IOException {
+			inflater.end();
+			underlyingInputStream.close();
+		}
+
+		private void readHeader() throws IOException {
+			if (!headerRead) {
+				byte[] streamMagic = new byte[STREAM_MAGIC.length];
+				underlyingInputStream.readFully(streamMagic);
+
+				if (!Arrays.equals(STREAM_MAGIC, streamMagic)) {
+					throw new IOException("Not an adaptively compressed stream, no magic!");
+				}
+
+				byte streamVersion = underlyingInputStream.readByte();
+
+				if (streamVersion != STREAM_VERSION) {
+					throw new IOException("Stream version not supported: " + streamVersion);
+				}
+
+				headerRead = true;
+			}
+		}
+
+		private boolean readBlock() throws IOException {
+			if (endReached) {
+				return false;
+			}
+
+			readHeader();
+
+			byte blockType;
+
+			try {
+				blockType = underlyingInputStream.readByte();
+			}
+			catch (EOFException e) {
+				throw new IOException("Unexpected end of stream; stream is truncated.", e);
+			}
+
+			if (blockType == BLOCK_TYPE_END) {
+				endReached = true;
+				return false;
+			}
+
+			int rawLength = underlyingInputStream.readInt();
+
+			if (rawLength < 0 || rawLength > BLOCK_SIZE) {
+				throw new IOException("Invalid block length: " + rawLength);
+			}
+
+			if (blockType == BLOCK_TYPE_RAW) {
+				underlyingInputStream.readFully(block, 0, rawLength);
+			}
+			else if (blockType == BLOCK_TYPE_DEFLATED || blockType == BLOCK_TYPE_LZ4) {
+				int compressedLength = underlyingInputStream.readInt();
+
+				if (compressedLength < 0 || compressedLength > BLOCK_SIZE) {
+					throw new IOException("Invalid compressed block length: " + compressedLength);
+				}
+
+				underlyingInputStream.readFully(compressedBlock, 0, compressedLength);
+
+				if (blockType == BLOCK_TYPE_DEFLATED) {
+					inflate(compressedLength, rawLength);
+				}
+				else {
+					Lz4Codec.decompress(compressedBlock, 0, compressedLength, block, 0, rawLength);
+				}
+			}
+			else {
+				throw new IOException("Invalid block type: " + blockType);
+			}
+
+			blockLength = rawLength;
+			blockPosition = 0;
+
+			return true;
+		}
+
+		private void inflate(int compressedLength, int rawLength) throws IOException {
+			try {
+				inflater.reset();
+				inflater.setInput(compressedBlock, 0, compressedLength);
+
+				int inflatedLength = 0;
+
+				// Note: The block buffer is one byte larger than necessary to detect blocks that
+				//       inflate to more than the raw length, and to let the inflater read the trailer 
+
+				while (!inflater.finished() && inflatedLength < block.length) {
+					int inflated = inflater.inflate(block, inflatedLength, block.length - inflatedLength);
+
+					if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+
+					inflatedLength += inflated;
+				}
+
+				if (inflatedLength != rawLength || !inflater.finished()) {
+					throw new IOException("Corrupt block: expected " + rawLength + " bytes, inflated " + inflatedLength + " bytes.");
+				}
+			}
+			catch (DataFormatException e) {
+				throw new IOException("Corrupt block: cannot inflate data.", e);
+			}
+		}
+	}
+}
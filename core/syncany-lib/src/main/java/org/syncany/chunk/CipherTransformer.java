@@ -29,6 +29,7 @@ import javax.crypto.spec.SecretKeySpec;
 import org.syncany.crypto.CipherSession;
 import org.syncany.crypto.CipherSpec;
 import org.syncany.crypto.CipherSpecs;
+import org.syncany.crypto.MasterKeyCache;
 import org.syncany.crypto.MultiCipherInputStream;
 import org.syncany.crypto.MultiCipherOutputStream;
 import org.syncany.crypto.SaltedSecretKey;
@@ -43,6 +44,16 @@ import org.syncany.util.StringUtil;
  * key. It can be instantiated using a property list (from a config file) or
  * by passing the dependencies to the constructor.
  * 
+ * The size and expiry time of the read key cache of the {@link CipherSession} 
+ * can be configured using the optional settings {@link #PROPERTY_KEY_CACHE_SIZE}
+ * and {@link #PROPERTY_KEY_CACHE_EXPIRY}. When initialized via {@link #init(Map)},
+ * the session is shared process-wide through the {@link MasterKeyCache}.
+ * 
+ * The optional setting {@link #PROPERTY_STREAM_VERSION} selects the stream version
+ * written by the {@link MultiCipherOutputStream}. If it is not set, the single message
+ * format (version 1) is written; the segmented format (version 2) has to be enabled
+ * explicitly for a repository.
+ * 
  * @author Philipp C. Heckel <philipp.heckel@gmail.com>
  */
 public class CipherTransformer extends Transformer {
@@ -50,18 +61,28 @@ public class CipherTransformer extends Transformer {
 	public static final String PROPERTY_CIPHER_SPECS = "cipherspecs";
 	public static final String PROPERTY_MASTER_KEY = "masterkey";
 	public static final String PROPERTY_MASTER_KEY_SALT = "mastersalt";
+	public static final String PROPERTY_KEY_CACHE_SIZE = "keycachesize";
+	public static final String PROPERTY_KEY_CACHE_EXPIRY = "keycacheexpiry";
+	public static final String PROPERTY_STREAM_VERSION = "streamversion";
 	
 	private List<CipherSpec> cipherSpecs;
 	private CipherSession cipherSession;
+	private byte streamVersion;
 	
 	public CipherTransformer() {
 		this.cipherSpecs = new ArrayList<CipherSpec>();
 		this.cipherSession = null;
+		this.streamVersion = MultiCipherOutputStream.STREAM_VERSION;
 	}
 	
     public CipherTransformer(List<CipherSpec> cipherSpecs, SaltedSecretKey masterKey) {
+    	this(cipherSpecs, masterKey, MultiCipherOutputStream.STREAM_VERSION);
+    }    
+	
+    public CipherTransformer(List<CipherSpec> cipherSpecs, SaltedSecretKey masterKey, byte streamVersion) {
     	this.cipherSpecs = cipherSpecs;
     	this.cipherSession = new CipherSession(masterKey);
+    	this.streamVersion = streamVersion;
     }    
     
     /**
@@ -80,7 +101,8 @@ public class CipherTransformer extends Transformer {
     	}
     	
     	initCipherSpecs(cipherSpecsListStr);
-    	initCipherSession(masterKeyStr, masterKeySaltStr);    	
+    	initStreamVersion(settings.get(PROPERTY_STREAM_VERSION));
+    	initCipherSession(masterKeyStr, masterKeySaltStr, settings.get(PROPERTY_KEY_CACHE_SIZE), settings.get(PROPERTY_KEY_CACHE_EXPIRY));    	
     }
     
     private void initCipherSpecs(String cipherSpecListStr) throws Exception {
@@ -98,12 +120,38 @@ public class CipherTransformer extends Transformer {
     	}
 	}
 
-	private void initCipherSession(String masterKeyStr, String masterKeySaltStr) {
+	private void initStreamVersion(String streamVersionStr) throws Exception {
+		if (streamVersionStr != null) {
+			streamVersion = Byte.parseByte(streamVersionStr);
+
+			if (streamVersion != MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE && streamVersion != MultiCipherOutputStream.STREAM_VERSION_SEGMENTED) {
+				throw new Exception("Setting '" + PROPERTY_STREAM_VERSION + "' must be " + MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE + " or "
+						+ MultiCipherOutputStream.STREAM_VERSION_SEGMENTED + ", but was " + streamVersionStr);
+			}
+		}
+	}
+
+	private void initCipherSession(String masterKeyStr, String masterKeySaltStr, String keyCacheSizeStr, String keyCacheExpiryStr) throws Exception {
 		byte[] masterKeySalt = StringUtil.fromHex(masterKeySaltStr);
 		byte[] masterKeyBytes = StringUtil.fromHex(masterKeyStr);
 		
+		int keyCacheSize = (keyCacheSizeStr != null) ? Integer.parseInt(keyCacheSizeStr) : CipherSession.DEFAULT_SECRET_KEY_READ_CACHE_SIZE;
+		int keyCacheExpiry = (keyCacheExpiryStr != null) ? Integer.parseInt(keyCacheExpiryStr) : CipherSession.DEFAULT_SECRET_KEY_READ_CACHE_EXPIRY;
+		
+		if (keyCacheSize < 1 || keyCacheExpiry < 1) {
+			throw new Exception("Settings '" + PROPERTY_KEY_CACHE_SIZE + "' and '" + PROPERTY_KEY_CACHE_EXPIRY + "' must be positive.");
+		}
+		
 		SaltedSecretKey masterKey = new SaltedSecretKey(new SecretKeySpec(masterKeyBytes, "RAW"), masterKeySalt);		
-		cipherSession = new CipherSession(masterKey);
+		cipherSession = MasterKeyCache.getCipherSession(masterKey, keyCacheSize, keyCacheExpiry, CipherSession.DEFAULT_SECRET_KEY_WRITE_REUSE_COUNT);
+	}
+	
+	public CipherSession getCipherSession() {
+		return cipherSession;
+	}
+
+	public byte getStreamVersion() {
+		return streamVersion;
 	}
 
 	@Override
@@ -112,7 +160,7 @@ public class CipherTransformer extends Transformer {
 			throw new RuntimeException("Cipher session is not initialized. Call init() before!");
 		}
 		
-    	return new MultiCipherOutputStream(out, cipherSpecs, cipherSession);    	
+    	return new MultiCipherOutputStream(out, cipherSpecs, cipherSession, streamVersion, MultiCipherOutputStream.DEFAULT_SEGMENT_SIZE);    	
     }
 
     @Override
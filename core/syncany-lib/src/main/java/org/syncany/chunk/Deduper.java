@@ -20,6 +20,7 @@ package org.syncany.chunk;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 import org.syncany.chunk.Chunker.ChunkEnumeration;
@@ -116,9 +117,13 @@ public class Deduper {
 						if (multiChunk == null) {
 							MultiChunkId newMultiChunkId = listener.createNewMultiChunkId(chunk);
 							File multiChunkFile = listener.getMultiChunkFile(newMultiChunkId);
-							
-							multiChunk = multiChunker.createMultiChunk(newMultiChunkId, 
-								transformer.createOutputStream(new FileOutputStream(multiChunkFile)));
+							OutputStream multiChunkOutputStream = new FileOutputStream(multiChunkFile);
+
+							if (!multiChunker.isTransformingChunks()) {
+								multiChunkOutputStream = transformer.createOutputStream(multiChunkOutputStream);
+							}
+
+							multiChunk = multiChunker.createMultiChunk(newMultiChunkId, multiChunkOutputStream);
 
 							listener.onMultiChunkOpen(multiChunk);
 						}
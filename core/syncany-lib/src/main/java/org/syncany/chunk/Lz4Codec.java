@@ -0,0 +1,302 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.chunk;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Pure Java implementation of the LZ4 block format. LZ4 is a fast LZ77-type
+ * compression algorithm that trades compression ratio for speed: it typically
+ * compresses several times faster than deflate, and decompresses even faster.
+ * 
+ * <p>The compressor implements the greedy single-probe match finder of the
+ * reference implementation's fast mode. The output is a valid LZ4 block (without
+ * frame header or checksums), and can be decompressed by any LZ4 implementation. 
+ * 
+ * <p>Instances of this class hold the compressor's hash table and are therefore
+ * not thread-safe. The decompressor is stateless.
+ * 
+ * @see <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md">LZ4 block format</a>
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class Lz4Codec {
+	private static final int MIN_MATCH = 4;
+	private static final int LAST_LITERALS = 5;
+	private static final int MF_LIMIT = 12;
+	private static final int MAX_DISTANCE = 65535;
+	private static final int RUN_MASK = 15;
+	private static final int ML_MASK = 15;
+
+	private static final int HASH_LOG = 12;
+	private static final int SKIP_TRIGGER = 6;
+
+	private int[] hashTable;
+
+	public Lz4Codec() {
+		this.hashTable = new int[1 << HASH_LOG];
+	}
+
+	/**
+	 * Compresses the given source bytes to the destination array. If the compressed
+	 * data does not fit into <tt>maxDestLength</tt> bytes, the method aborts and returns -1.
+	 * 
+	 * @return Returns the compressed length, or -1 if the compressed data exceeds <tt>maxDestLength</tt>
+	 */
+	public int compress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset, int maxDestLength) {
+		int srcEnd = srcOffset + srcLength;
+		int destEnd = destOffset + maxDestLength;
+		int matchFindLimit = srcEnd - MF_LIMIT;
+		int matchLimit = srcEnd - LAST_LITERALS;
+
+		int ip = srcOffset;
+		int anchor = srcOffset;
+		int op = destOffset;
+
+		if (srcLength >= MF_LIMIT + 1) {
+			Arrays.fill(hashTable, -1);
+			hashTable[hash(readInt(src, ip))] = ip++;
+
+			int searchCount = 1 << SKIP_TRIGGER;
+
+			while (ip < matchFindLimit) {
+				int hash = hash(readInt(src, ip));
+				int ref = hashTable[hash];
+				hashTable[hash] = ip;
+
+				if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(src, ref) != readInt(src, ip)) {
+					ip += searchCount++ >>> SKIP_TRIGGER;
+					continue;
+				}
+
+				searchCount = 1 << SKIP_TRIGGER;
+
+				// Extend match backwards
+				while (ip > anchor && ref > srcOffset && src[ip - 1] == src[ref - 1]) {
+					ip--;
+					ref--;
+				}
+
+				// Extend match forward
+				int matchLength = MIN_MATCH;
+
+				while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) {
+					matchLength++;
+				}
+
+				op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dest, op, destEnd);
+
+				if (op < 0) {
+					return -1;
+				}
+
+				ip += matchLength;
+				anchor = ip;
+
+				if (ip < matchFindLimit) {
+					hashTable[hash(readInt(src, ip - 2))] = ip - 2;
+				}
+			}
+		}
+
+		op = writeLastLiterals(src, anchor, srcEnd - anchor, dest, op, destEnd);
+		return (op < 0) ? -1 : op - destOffset;
+	}
+
+	/**
+	 * Decompresses the given LZ4 block to the destination array. The decompressed length
+	 * must be known, and must exactly match the given length.
+	 * 
+	 * @throws IOException If the compressed data is malformed, or does not decompress to <tt>destLength</tt> bytes
+	 */
+	public static void decompress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset, int destLength) throws IOException {
+		int srcEnd = srcOffset + srcLength;
+		int destEnd = destOffset + destLength;
+
+		int ip = srcOffset;
+		int op = destOffset;
+
+		while (true) {
+			if (ip >= srcEnd) {
+				throw new IOException("Malformed LZ4 block: unexpected end of input.");
+			}
+
+			int token = src[ip++] & 0xff;
+
+			// Literals
+			int literalLength = token >>> 4;
+
+			if (literalLength == RUN_MASK) {
+				int lengthByte;
+
+				do {
+					if (ip >= srcEnd || literalLength > srcLength) {
+						throw new IOException("Malformed LZ4 block: invalid literal length.");
+					}
+
+					lengthByte = src[ip++] & 0xff;
+					literalLength += lengthByte;
+				}
+				while (lengthByte == 255);
+			}
+
+			if (literalLength > srcEnd - ip || literalLength > destEnd - op) {
+				throw new IOException("Malformed LZ4 block: literals exceed block bounds.");
+			}
+
+			System.arraycopy(src, ip, dest, op, literalLength);
+
+			ip += literalLength;
+			op += literalLength;
+
+			// Last sequence has no match
+			if (ip == srcEnd) {
+				break;
+			}
+
+			// Match
+			if (ip + 2 > srcEnd) {
+				throw new IOException("Malformed LZ4 block: unexpected end of input.");
+			}
+
+			int offset = (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8);
+			ip += 2;
+
+			if (offset == 0 || offset > op - destOffset) {
+				throw new IOException("Malformed LZ4 block: invalid match offset " + offset + ".");
+			}
+
+			int matchLength = token & ML_MASK;
+
+			if (matchLength == ML_MASK) {
+				int lengthByte;
+
+				do {
+					if (ip >= srcEnd || matchLength > destLength) {
+						throw new IOException("Malformed LZ4 block: invalid match length.");
+					}
+
+					lengthByte = src[ip++] & 0xff;
+					matchLength += lengthByte;
+				}
+				while (lengthByte == 255);
+			}
+
+			matchLength += MIN_MATCH;
+
+			if (matchLength > destEnd - op) {
+				throw new IOException("Malformed LZ4 block: match exceeds block bounds.");
+			}
+
+			int matchPosition = op - offset;
+
+			if (offset >= matchLength) {
+				System.arraycopy(dest, matchPosition, dest, op, matchLength);
+				op += matchLength;
+			}
+			else {
+				// Overlapping copy, e.g. runs of the same byte
+				for (int i = 0; i < matchLength; i++) {
+					dest[op++] = dest[matchPosition++];
+				}
+			}
+		}
+
+		if (op != destEnd) {
+			throw new IOException("Malformed LZ4 block: expected " + destLength + " bytes, decompressed " + (op - destOffset) + " bytes.");
+		}
+	}
+
+	private static int writeSequence(byte[] src, int literalOffset, int literalLength, int matchOffset, int matchLength, byte[] dest, int op,
+			int destEnd) {
+
+		int extraMatchLength = matchLength - MIN_MATCH;
+		int requiredLength = 1 + literalLength / 255 + 1 + literalLength + 2 + extraMatchLength / 255 + 1;
+
+		if (requiredLength > destEnd - op) {
+			return -1;
+		}
+
+		int tokenPosition = op++;
+		int token;
+
+		// Literal length and literals
+		if (literalLength >= RUN_MASK) {
+			token = RUN_MASK << 4;
+			op = writeLength(literalLength - RUN_MASK, dest, op);
+		}
+		else {
+			token = literalLength << 4;
+		}
+
+		System.arraycopy(src, literalOffset, dest, op, literalLength);
+		op += literalLength;
+
+		// Match offset (little endian) and length
+		dest[op++] = (byte) matchOffset;
+		dest[op++] = (byte) (matchOffset >>> 8);
+
+		if (extraMatchLength >= ML_MASK) {
+			token |= ML_MASK;
+			op = writeLength(extraMatchLength - ML_MASK, dest, op);
+		}
+		else {
+			token |= extraMatchLength;
+		}
+
+		dest[tokenPosition] = (byte) token;
+		return op;
+	}
+
+	private static int writeLastLiterals(byte[] src, int literalOffset, int literalLength, byte[] dest, int op, int destEnd) {
+		int requiredLength = 1 + literalLength / 255 + 1 + literalLength;
+
+		if (requiredLength > destEnd - op) {
+			return -1;
+		}
+
+		if (literalLength >= RUN_MASK) {
+			dest[op++] = (byte) (RUN_MASK << 4);
+			op = writeLength(literalLength - RUN_MASK, dest, op);
+		}
+		else {
+			dest[op++] = (byte) (literalLength << 4);
+		}
+
+		System.arraycopy(src, literalOffset, dest, op, literalLength);
+		return op + literalLength;
+	}
+
+	private static int writeLength(int length, byte[] dest, int op) {
+		while (length >= 255) {
+			dest[op++] = (byte) 255;
+			length -= 255;
+		}
+
+		dest[op++] = (byte) length;
+		return op;
+	}
+
+	private static int readInt(byte[] buffer, int offset) {
+		return (buffer[offset] & 0xff) | ((buffer[offset + 1] & 0xff) << 8) | ((buffer[offset + 2] & 0xff) << 16) | ((buffer[offset + 3] & 0xff) << 24);
+	}
+
+	private static int hash(int sequence) {
+		return (sequence * -1640531535) >>> (32 - HASH_LOG);
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.chunk;
+
+import java.util.Map;
+
+/**
+ * Implements a {@link Transformer} that compresses the input/output stream using
+ * the LZ4 compression algorithm. LZ4 compresses slightly worse than gzip, but is
+ * many times faster both when compressing and when decompressing.
+ * 
+ * <p>The transformer uses the block format of the {@link AdaptiveTransformer}, i.e.
+ * blocks that do not compress well are stored raw. Like the adaptive transformer, it
+ * can read streams written by the {@link GzipTransformer}.
+ * 
+ * @see Lz4Codec
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class Lz4Transformer extends AdaptiveTransformer {
+	public static final String TYPE = "lz4";
+
+	public Lz4Transformer() {
+		this(null);
+	}
+
+	public Lz4Transformer(Transformer nextTransformer) {
+		super(CODEC_LZ4, DEFAULT_LEVEL, DEFAULT_THRESHOLD, nextTransformer);
+	}
+
+	@Override
+	public void init(Map<String, String> settings) throws Exception {
+		super.init(settings);
+		codec = CODEC_LZ4;
+	}
+
+	@Override
+	public String toString() {
+		return (nextTransformer == null) ? "Lz4" : "Lz4-" + nextTransformer;
+	}
+}
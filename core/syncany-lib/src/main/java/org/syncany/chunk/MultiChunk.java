@@ -20,6 +20,7 @@ package org.syncany.chunk;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.apache.commons.io.IOUtils;
 import org.syncany.database.MultiChunkEntry.MultiChunkId;
 
 /**
@@ -114,9 +115,36 @@ public abstract class MultiChunk {
 	 * @return Returns a chunk input stream (chunk data) if the chunk can be found in the multichunk, or <tt>null</tt> otherwise
 	 * @throws IOException If an exception occurs when reading from the multichunk
 	 */
-	// TODO [low] Method should be named 'read(checksum)' and return a Chunk object, not an input stream, right?!
 	public abstract InputStream getChunkInputStream(byte[] checksum) throws IOException;
 
+	/**
+	 * In read mode, this method can be used to read a single {@link Chunk} in <b>random access mode</b>,
+	 * using a chunk checksum as identifier. Unlike {@link #getChunkInputStream(byte[]) getChunkInputStream()},
+	 * this method reads the entire chunk data into memory.
+	 *
+	 * <p>The returned chunk's data is <b>not verified</b> against the given checksum. This is
+	 * up to the caller.
+	 *
+	 * @param checksum The checksum identifying a chunk instance
+	 * @return Returns the chunk if it can be found in the multichunk, or <tt>null</tt> otherwise
+	 * @throws IOException If an exception occurs when reading from the multichunk
+	 */
+	public Chunk read(byte[] checksum) throws IOException {
+		InputStream chunkInputStream = getChunkInputStream(checksum);
+
+		if (chunkInputStream == null) {
+			return null;
+		}
+
+		try {
+			byte[] chunkData = IOUtils.toByteArray(chunkInputStream);
+			return new Chunk(checksum, chunkData, chunkData.length, null);
+		}
+		finally {
+			chunkInputStream.close();
+		}
+	}
+
 	/**
 	 * Closes a multichunk after writing/reading.
 	 *
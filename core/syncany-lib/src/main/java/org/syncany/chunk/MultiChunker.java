@@ -143,6 +143,20 @@ public abstract class MultiChunker {
 	 */
 	public abstract MultiChunk createMultiChunk(File file) throws IOException;
 
+	/**
+	 * Returns whether or not this multichunker applies the repository's {@link Transformer}
+	 * to each chunk individually. If it does, the multichunk container itself must not be
+	 * transformed as a whole, neither when it is written by the {@link Deduper}, nor when it
+	 * is downloaded and stored in the local cache.
+	 *
+	 * <p>The default implementation returns <tt>false</tt>.
+	 *
+	 * @return Returns <tt>true</tt> if chunks are transformed individually, <tt>false</tt> otherwise
+	 */
+	public boolean isTransformingChunks() {
+		return false;
+	}
+
 	/**
 	 * Returns a comprehensive string representation of a multichunker
 	 */
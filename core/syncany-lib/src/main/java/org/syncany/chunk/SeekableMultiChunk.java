@@ -0,0 +1,421 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.chunk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.syncany.database.MultiChunkEntry.MultiChunkId;
+import org.syncany.util.StringUtil;
+
+/**
+ * The seekable multichunk is a multichunk container format in which every chunk
+ * is transformed (compressed/encrypted) individually. The resulting byte ranges
+ * ('records') are written one after the other, followed by the transformed chunk index
+ * and a fixed-size, untransformed trailer:
+ *
+ * <pre>
+ *   [record 1][record 2]...[record n][index][trailer]
+ *
+ *   index   = transformed(count, { checksum length, checksum, record offset, record length }*)
+ *   trailer = magic (4 bytes), version (1 byte), index offset (8 bytes), index length (4 bytes)
+ * </pre>
+ *
+ * <p>Since the index contains the offset and length of each record, and each record can
+ * be verified on its own (if an authenticating transformer is used), a client only needs
+ * to retrieve the trailer, the index and the records it needs -- instead of the whole
+ * multichunk. The chunk checksums are part of the transformed index, so they are not
+ * exposed to the storage backend.
+ *
+ * <p>Records are not decoded when a multichunk is opened, but only when a chunk is read
+ * via {@link #getChunkInputStream(byte[])} or {@link #read()}.
+ *
+ * @see SeekableMultiChunker
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class SeekableMultiChunk extends MultiChunk {
+	public static final byte[] TRAILER_MAGIC = new byte[] { 'S', 'y', 0x02, 0x06 };
+	public static final byte TRAILER_VERSION = 0x01;
+	public static final int TRAILER_SIZE = TRAILER_MAGIC.length + 1 + 8 + 4;
+
+	private Transformer transformer;
+
+	private OutputStream writeOutputStream;
+	private long writeOffset;
+
+	private RandomAccessFile readFile;
+	private InputStream readInputStream;
+	private byte[] readBuffer;
+	private Iterator<ChunkRange> readIterator;
+
+	private Map<String, ChunkRange> index;
+
+	/**
+	 * Opens an existing seekable multichunk from an input stream. The input stream
+	 * is not read until the first chunk is requested; it is then buffered in memory.
+	 */
+	public SeekableMultiChunk(InputStream is, Transformer transformer) {
+		super(0);
+
+		this.transformer = transformer;
+		this.readInputStream = is;
+	}
+
+	/**
+	 * Opens an existing seekable multichunk from a file. The trailer and the index
+	 * are read (and the index is decoded) immediately.
+	 */
+	public SeekableMultiChunk(File file, Transformer transformer) throws IOException {
+		super(0);
+
+		this.transformer = transformer;
+		this.readFile = new RandomAccessFile(file, "r");
+
+		try {
+			this.index = readIndex();
+		}
+		catch (IOException e) {
+			readFile.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates a new seekable multichunk in write mode.
+	 */
+	public SeekableMultiChunk(MultiChunkId id, int minSize, OutputStream os, Transformer transformer) {
+		super(id, minSize);
+
+		this.transformer = transformer;
+		this.writeOutputStream = os;
+		this.writeOffset = 0;
+		this.index = new LinkedHashMap<String, ChunkRange>();
+	}
+
+	@Override
+	public boolean isFull() {
+		return size >= minSize * 1024; // minSize is in KB!
+	}
+
+	@Override
+	public void write(Chunk chunk) throws IOException {
+		ByteArrayOutputStream transformedChunk = new ByteArrayOutputStream(chunk.getSize() + 256);
+		OutputStream transformingOutputStream = transformer.createOutputStream(transformedChunk);
+
+		transformingOutputStream.write(chunk.getContent(), 0, chunk.getSize());
+		transformingOutputStream.close();
+
+		writeTransformed(chunk.getChecksum(), transformedChunk.toByteArray());
+		size += chunk.getSize();
+	}
+
+	/**
+	 * Writes an already transformed record to the multichunk. This is used to
+	 * create partial copies of remote multichunks in the local cache, without having
+	 * to decode and re-encode the chunk data.
+	 *
+	 * @param checksum Checksum of the (untransformed) chunk
+	 * @param transformedChunkData Transformed chunk data, as read from another seekable multichunk
+	 */
+	public void writeTransformed(byte[] checksum, byte[] transformedChunkData) throws IOException {
+		writeOutputStream.write(transformedChunkData);
+
+		ChunkRange chunkRange = new ChunkRange(checksum, writeOffset, transformedChunkData.length);
+		index.put(StringUtil.toHex(checksum), chunkRange);
+
+		writeOffset += transformedChunkData.length;
+	}
+
+	@Override
+	public InputStream getChunkInputStream(byte[] checksum) throws IOException {
+		ChunkRange chunkRange = getIndex().get(StringUtil.toHex(checksum));
+
+		if (chunkRange == null) {
+			return null;
+		}
+
+		return createChunkInputStream(chunkRange);
+	}
+
+	@Override
+	public Chunk read() throws IOException {
+		if (readIterator == null) {
+			readIterator = getIndex().values().iterator();
+		}
+
+		if (!readIterator.hasNext()) {
+			return null;
+		}
+
+		ChunkRange chunkRange = readIterator.next();
+		byte[] chunkData = IOUtils.toByteArray(createChunkInputStream(chunkRange));
+
+		return new Chunk(chunkRange.getChecksum(), chunkData, chunkData.length, null);
+	}
+
+	/**
+	 * Returns whether the chunk with the given checksum is contained in this
+	 * multichunk. In partially downloaded multichunks, only a subset of the original
+	 * chunks might be present.
+	 */
+	public boolean containsChunk(byte[] checksum) throws IOException {
+		return getIndex().containsKey(StringUtil.toHex(checksum));
+	}
+
+	/**
+	 * Returns the list of records (chunk checksum, offset and length) of this
+	 * multichunk, ordered by their offset.
+	 */
+	public List<ChunkRange> getChunkRanges() throws IOException {
+		return new ArrayList<ChunkRange>(getIndex().values());
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (writeOutputStream != null) {
+			writeIndexAndTrailer();
+			writeOutputStream.close();
+			writeOutputStream = null;
+		}
+
+		if (readFile != null) {
+			readFile.close();
+		}
+
+		if (readInputStream != null) {
+			readInputStream.close();
+		}
+	}
+
+	private Map<String, ChunkRange> getIndex() throws IOException {
+		if (index == null) {
+			readBuffer = IOUtils.toByteArray(readInputStream);
+			index = readIndex();
+		}
+
+		return index;
+	}
+
+	private InputStream createChunkInputStream(ChunkRange chunkRange) throws IOException {
+		byte[] transformedChunkData = readBytes(chunkRange.getOffset(), chunkRange.getLength());
+		return transformer.createInputStream(new ByteArrayInputStream(transformedChunkData));
+	}
+
+	private Map<String, ChunkRange> readIndex() throws IOException {
+		long totalLength = (readFile != null) ? readFile.length() : readBuffer.length;
+
+		if (totalLength < TRAILER_SIZE) {
+			throw new IOException("Invalid seekable multichunk: File too small to contain trailer.");
+		}
+
+		ChunkRange indexRange = readTrailer(readBytes(totalLength - TRAILER_SIZE, TRAILER_SIZE));
+
+		if (indexRange.getOffset() + indexRange.getLength() > totalLength - TRAILER_SIZE) {
+			throw new IOException("Invalid seekable multichunk: Index range exceeds file size.");
+		}
+
+		byte[] transformedIndex = readBytes(indexRange.getOffset(), indexRange.getLength());
+		Map<String, ChunkRange> index = new LinkedHashMap<String, ChunkRange>();
+
+		for (ChunkRange chunkRange : readIndex(transformedIndex, transformer)) {
+			if (chunkRange.getOffset() + chunkRange.getLength() > indexRange.getOffset()) {
+				throw new IOException("Invalid seekable multichunk: Chunk range exceeds data section.");
+			}
+
+			index.put(StringUtil.toHex(chunkRange.getChecksum()), chunkRange);
+		}
+
+		return index;
+	}
+
+	private byte[] readBytes(long offset, int length) throws IOException {
+		if (readFile != null) {
+			byte[] bytes = new byte[length];
+
+			readFile.seek(offset);
+			readFile.readFully(bytes);
+
+			return bytes;
+		}
+		else {
+			return Arrays.copyOfRange(readBuffer, (int) offset, (int) offset + length);
+		}
+	}
+
+	private void writeIndexAndTrailer() throws IOException {
+		ByteArrayOutputStream transformedIndex = new ByteArrayOutputStream();
+		DataOutputStream indexOutputStream = new DataOutputStream(transformer.createOutputStream(transformedIndex));
+
+		indexOutputStream.writeInt(index.size());
+
+		for (ChunkRange chunkRange : index.values()) {
+			indexOutputStream.writeByte(chunkRange.getChecksum().length);
+			indexOutputStream.write(chunkRange.getChecksum());
+			indexOutputStream.writeLong(chunkRange.getOffset());
+			indexOutputStream.writeInt(chunkRange.getLength());
+		}
+
+		indexOutputStream.close();
+
+		long indexOffset = writeOffset;
+		int indexLength = transformedIndex.size();
+
+		ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+
+		trailer.put(TRAILER_MAGIC);
+		trailer.put(TRAILER_VERSION);
+		trailer.putLong(indexOffset);
+		trailer.putInt(indexLength);
+
+		writeOutputStream.write(transformedIndex.toByteArray());
+		writeOutputStream.write(trailer.array());
+	}
+
+	/**
+	 * Parses the fixed-size trailer of a seekable multichunk and returns the
+	 * byte range of the (transformed) index. The checksum of the returned range
+	 * is <tt>null</tt>.
+	 *
+	 * @param trailer The last {@link #TRAILER_SIZE} bytes of a seekable multichunk
+	 * @return Returns the offset and length of the transformed index
+	 * @throws IOException If the trailer is invalid
+	 */
+	public static ChunkRange readTrailer(byte[] trailer) throws IOException {
+		if (trailer.length != TRAILER_SIZE) {
+			throw new IOException("Invalid seekable multichunk trailer: Expected " + TRAILER_SIZE + " bytes, got " + trailer.length);
+		}
+
+		ByteBuffer trailerBuffer = ByteBuffer.wrap(trailer);
+		byte[] magic = new byte[TRAILER_MAGIC.length];
+
+		trailerBuffer.get(magic);
+
+		if (!Arrays.equals(TRAILER_MAGIC, magic)) {
+			throw new IOException("Invalid seekable multichunk trailer: Magic number does not match.");
+		}
+
+		byte version = trailerBuffer.get();
+
+		if (version != TRAILER_VERSION) {
+			throw new IOException("Invalid seekable multichunk trailer: Unsupported version " + version);
+		}
+
+		long indexOffset = trailerBuffer.getLong();
+		int indexLength = trailerBuffer.getInt();
+
+		if (indexOffset < 0 || indexLength < 0) {
+			throw new IOException("Invalid seekable multichunk trailer: Negative index offset or length.");
+		}
+
+		return new ChunkRange(null, indexOffset, indexLength);
+	}
+
+	/**
+	 * Decodes the transformed index of a seekable multichunk and returns the
+	 * list of records (checksum, offset and length) in the order they were written.
+	 *
+	 * @param transformedIndex Transformed index bytes, as located by {@link #readTrailer(byte[])}
+	 * @param transformer Transformer used to decode the index
+	 * @return Returns the list of chunk records
+	 * @throws IOException If the index cannot be decoded, e.g. because it has been tampered with
+	 */
+	public static List<ChunkRange> readIndex(byte[] transformedIndex, Transformer transformer) throws IOException {
+		DataInputStream indexInputStream = new DataInputStream(transformer.createInputStream(new ByteArrayInputStream(transformedIndex)));
+
+		try {
+			int chunkCount = indexInputStream.readInt();
+			List<ChunkRange> chunkRanges = new ArrayList<ChunkRange>();
+
+			if (chunkCount < 0) {
+				throw new IOException("Invalid seekable multichunk index: Negative chunk count.");
+			}
+
+			for (int i = 0; i < chunkCount; i++) {
+				byte[] checksum = new byte[indexInputStream.readUnsignedByte()];
+				indexInputStream.readFully(checksum);
+
+				long offset = indexInputStream.readLong();
+				int length = indexInputStream.readInt();
+
+				if (offset < 0 || length < 0) {
+					throw new IOException("Invalid seekable multichunk index: Negative chunk offset or length.");
+				}
+
+				chunkRanges.add(new ChunkRange(checksum, offset, length));
+			}
+
+			// Read until the end to make sure the index is fully authenticated
+			if (indexInputStream.read() != -1) {
+				throw new IOException("Invalid seekable multichunk index: Unexpected data after last entry.");
+			}
+
+			return chunkRanges;
+		}
+		finally {
+			indexInputStream.close();
+		}
+	}
+
+	/**
+	 * A chunk range describes the position of a transformed chunk ('record') within
+	 * a seekable multichunk.
+	 */
+	public static class ChunkRange {
+		private byte[] checksum;
+		private long offset;
+		private int length;
+
+		public ChunkRange(byte[] checksum, long offset, int length) {
+			this.checksum = checksum;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		public byte[] getChecksum() {
+			return checksum;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		public int getLength() {
+			return length;
+		}
+
+		@Override
+		public String toString() {
+			return "ChunkRange [checksum=" + StringUtil.toHex(checksum) + ", offset=" + offset + ", length=" + length + "]";
+		}
+	}
+}
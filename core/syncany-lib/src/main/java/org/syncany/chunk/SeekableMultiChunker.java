@@ -0,0 +1,89 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.chunk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.syncany.database.MultiChunkEntry.MultiChunkId;
+
+/**
+ * The seekable multichunker creates {@link SeekableMultiChunk}s. Unlike the
+ * {@link ZipMultiChunker}, it does not rely on the whole multichunk being transformed
+ * (compressed/encrypted) as a single stream. Instead, each chunk is transformed
+ * individually, and the (transformed) chunk index is appended to the multichunk.
+ *
+ * <p>Because each chunk is independently compressed and authenticated, single chunks
+ * can be downloaded and verified without downloading the whole multichunk -- given
+ * that the storage backend supports ranged downloads.
+ *
+ * <p>The transformer must be set via {@link #setTransformer(Transformer)} before
+ * any multichunks are created. If no transformer is set, chunks are stored as is.
+ *
+ * @see SeekableMultiChunk
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class SeekableMultiChunker extends MultiChunker {
+	public static final String TYPE = "seekable";
+
+	private Transformer transformer;
+
+	public SeekableMultiChunker() {
+		this.transformer = new NoTransformer();
+	}
+
+	public SeekableMultiChunker(int minMultiChunkSize, Transformer transformer) {
+		super(minMultiChunkSize);
+		this.transformer = transformer;
+	}
+
+	public Transformer getTransformer() {
+		return transformer;
+	}
+
+	public void setTransformer(Transformer transformer) {
+		this.transformer = transformer;
+	}
+
+	@Override
+	public boolean isTransformingChunks() {
+		return true;
+	}
+
+	@Override
+	public MultiChunk createMultiChunk(InputStream is) {
+		return new SeekableMultiChunk(is, transformer);
+	}
+
+	@Override
+	public MultiChunk createMultiChunk(File file) throws IOException {
+		return new SeekableMultiChunk(file, transformer);
+	}
+
+	@Override
+	public MultiChunk createMultiChunk(MultiChunkId id, OutputStream os) throws IOException {
+		return new SeekableMultiChunk(id, minMultiChunkSize, os, transformer);
+	}
+
+	@Override
+	public String toString() {
+		return "Seekable-" + minMultiChunkSize;
+	}
+}
@@ -77,6 +77,11 @@ public class ZipMultiChunk extends MultiChunk {
     @Override
     public InputStream getChunkInputStream(byte[] checksum) throws IOException {
     	ZipEntry chunkEntry = zipFile.getEntry(StringUtil.toHex(checksum));
+    	
+    	if (chunkEntry == null) {
+    		return null;
+    	}
+    	
     	InputStream chunkInputStream = zipFile.getInputStream(chunkEntry);
     	
     	return chunkInputStream;
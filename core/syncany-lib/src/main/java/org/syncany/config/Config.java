@@ -26,14 +26,21 @@ import org.syncany.chunk.CipherTransformer;
 import org.syncany.chunk.FixedChunker;
 import org.syncany.chunk.MultiChunker;
 import org.syncany.chunk.NoTransformer;
+import org.syncany.chunk.SeekableMultiChunker;
 import org.syncany.chunk.Transformer;
 import org.syncany.config.to.ConfigTO;
+import org.syncany.config.to.DatabaseTO;
 import org.syncany.config.to.RepoTO;
 import org.syncany.config.to.RepoTO.MultiChunkerTO;
 import org.syncany.config.to.RepoTO.TransformerTO;
 import org.syncany.crypto.SaltedSecretKey;
 import org.syncany.database.DatabaseConnectionFactory;
+import org.syncany.database.DatabaseProfile;
 import org.syncany.database.VectorClock;
+import org.syncany.database.dao.ChunkPositionLogStore;
+import org.syncany.database.dao.ChunkPositionSqlDao;
+import org.syncany.database.dao.DatabaseSerializer;
+import org.syncany.database.dao.DatabaseXmlSerializer;
 import org.syncany.plugins.Plugins;
 import org.syncany.plugins.transfer.TransferPlugin;
 import org.syncany.plugins.transfer.TransferSettings;
@@ -65,8 +72,9 @@ public class Config {
 	public static final String FILE_REPO = "syncany";
 	public static final String FILE_MASTER = "master";
 
-	// File in .syncany/db
+	// Files in .syncany/db
 	public static final String FILE_DATABASE = "local.db";
+	public static final String FILE_CHUNK_POSITION_LOG = "chunkposition.log";
 
 	// Files in .syncany/state
 	public static final String FILE_PORT = "port.xml";
@@ -87,6 +95,9 @@ public class Config {
 	private File stateDir;
 
 	private SaltedSecretKey masterKey;
+	private Integer cipherKeyCacheSize;
+	private String chunkPositionStore;
+	private DatabaseProfile databaseProfile;
 
 	private Cache cache;
 	private TransferPlugin plugin;
@@ -94,6 +105,7 @@ public class Config {
 	private Chunker chunker;
 	private MultiChunker multiChunker;
 	private Transformer transformer;
+	private String databaseFormat;
 	private IgnoredFiles ignoredFiles;
 
 	static {
@@ -110,6 +122,8 @@ public class Config {
 		initMasterKey(configTO);
 		initDirectories(aLocalDir);
 		initCache(configTO);
+		initChunkPositionStore(configTO);
+		initDatabaseProfile(configTO);
 		initIgnoredFile();
 		initRepo(repoTO);
 		initConnection(configTO);
@@ -122,6 +136,7 @@ public class Config {
 
 	private void initMasterKey(ConfigTO configTO) {
 		masterKey = configTO.getMasterKey(); // can be null
+		cipherKeyCacheSize = configTO.getCipherKeyCacheSize(); // can be null
 	}
 
 	private void initDirectories(File aLocalDir) throws ConfigException {
@@ -141,6 +156,60 @@ public class Config {
 		}
 	}
 
+	private void initChunkPositionStore(ConfigTO configTO) throws ConfigException {
+		chunkPositionStore = (configTO.getChunkPositionStore() != null) ? configTO.getChunkPositionStore() : ChunkPositionSqlDao.TYPE;
+
+		if (!ChunkPositionSqlDao.TYPE.equals(chunkPositionStore) && !ChunkPositionLogStore.TYPE.equals(chunkPositionStore)) {
+			throw new ConfigException("Invalid chunk position store: " + chunkPositionStore);
+		}
+	}
+
+	private void initDatabaseProfile(ConfigTO configTO) throws ConfigException {
+		DatabaseTO databaseTO = (configTO.getDatabase() != null) ? configTO.getDatabase() : new DatabaseTO();
+		String profileName = (databaseTO.getProfile() != null) ? databaseTO.getProfile() : DatabaseProfile.PROFILE_SAFE;
+
+		databaseProfile = DatabaseProfile.getProfile(profileName);
+
+		if (databaseProfile == null) {
+			throw new ConfigException("Invalid database profile: " + profileName);
+		}
+
+		if (databaseTO.getCacheRows() != null) {
+			databaseProfile.setCacheRows(databaseTO.getCacheRows());
+		}
+
+		if (databaseTO.getCacheSizeKb() != null) {
+			databaseProfile.setCacheSizeKb(databaseTO.getCacheSizeKb());
+		}
+
+		if (databaseTO.getNioDataFile() != null) {
+			databaseProfile.setNioDataFile(databaseTO.getNioDataFile());
+		}
+
+		if (databaseTO.getNioMaxSizeMb() != null) {
+			databaseProfile.setNioMaxSizeMb(databaseTO.getNioMaxSizeMb());
+		}
+
+		if (databaseTO.getWriteDelayMillis() != null) {
+			databaseProfile.setWriteDelayMillis(databaseTO.getWriteDelayMillis());
+		}
+
+		if (databaseTO.getLogSizeMb() != null) {
+			databaseProfile.setLogSizeMb(databaseTO.getLogSizeMb());
+		}
+
+		if (databaseTO.getDefragLimit() != null) {
+			databaseProfile.setDefragLimit(databaseTO.getDefragLimit());
+		}
+
+		if (databaseProfile.getCacheRows() <= 0 || databaseProfile.getCacheSizeKb() <= 0 || databaseProfile.getNioMaxSizeMb() <= 0
+				|| databaseProfile.getWriteDelayMillis() < 0 || databaseProfile.getLogSizeMb() < 0
+				|| databaseProfile.getDefragLimit() < 0 || databaseProfile.getDefragLimit() > 100) {
+
+			throw new ConfigException("Invalid database settings: " + databaseProfile);
+		}
+	}
+
 	private void initIgnoredFile() throws ConfigException {
 		File ignoreFile = new File(localDir, FILE_IGNORE);
 		ignoredFiles = new IgnoredFiles(ignoreFile);
@@ -152,6 +221,8 @@ public class Config {
 			initChunker(repoTO);
 			initMultiChunker(repoTO);
 			initTransformers(repoTO);
+			initMultiChunkerTransformer();
+			initDatabaseFormat(repoTO);
 		}
 		catch (Exception e) {
 			throw new ConfigException("Unable to initialize repository information from config.", e);
@@ -204,6 +275,10 @@ public class Config {
 				if (transformer instanceof CipherTransformer) { // Dirty workaround
 					transformerTO.getSettings().put(CipherTransformer.PROPERTY_MASTER_KEY, StringUtil.toHex(getMasterKey().getEncoded()));
 					transformerTO.getSettings().put(CipherTransformer.PROPERTY_MASTER_KEY_SALT, StringUtil.toHex(getMasterKey().getSalt()));
+
+					if (cipherKeyCacheSize != null) {
+						transformerTO.getSettings().put(CipherTransformer.PROPERTY_KEY_CACHE_SIZE, Integer.toString(cipherKeyCacheSize));
+					}
 				}
 
 				transformer.init(transformerTO.getSettings());
@@ -219,6 +294,20 @@ public class Config {
 		}
 	}
 
+	private void initMultiChunkerTransformer() {
+		if (multiChunker instanceof SeekableMultiChunker) { // Chunks are transformed individually
+			((SeekableMultiChunker) multiChunker).setTransformer(transformer);
+		}
+	}
+
+	private void initDatabaseFormat(RepoTO repoTO) throws ConfigException {
+		databaseFormat = (repoTO.getDatabaseFormat() != null) ? repoTO.getDatabaseFormat() : DatabaseXmlSerializer.TYPE;
+
+		if (DatabaseSerializer.getInstance(databaseFormat, null) == null) {
+			throw new ConfigException("Invalid database format: " + databaseFormat);
+		}
+	}
+
 	private void initConnection(ConfigTO configTO) throws ConfigException {
 		if (configTO.getTransferSettings() != null) {
 			plugin = Plugins.get(configTO.getTransferSettings().getType(), TransferPlugin.class);
@@ -237,11 +326,11 @@ public class Config {
 	}
 
 	public java.sql.Connection createDatabaseConnection() {
-		return DatabaseConnectionFactory.createConnection(getDatabaseFile(), false);
+		return DatabaseConnectionFactory.createConnection(getDatabaseFile(), false, databaseProfile);
 	}
 
 	public java.sql.Connection createDatabaseConnection(boolean readOnly) {
-		return DatabaseConnectionFactory.createConnection(getDatabaseFile(), readOnly);
+		return DatabaseConnectionFactory.createConnection(getDatabaseFile(), readOnly, databaseProfile);
 	}
 
 	public File getCacheDir() {
@@ -308,6 +397,38 @@ public class Config {
 		return transformer;
 	}
 
+	/**
+	 * Returns the type of the store for the local chunk positions, i.e. <tt>sql</tt>
+	 * for the {@link ChunkPositionSqlDao} or <tt>log</tt> for the {@link ChunkPositionLogStore}.
+	 */
+	public String getChunkPositionStore() {
+		return chunkPositionStore;
+	}
+
+	public void setChunkPositionStore(String chunkPositionStore) {
+		this.chunkPositionStore = chunkPositionStore;
+	}
+
+	/**
+	 * Returns the storage settings of the local database, i.e. the selected
+	 * {@link DatabaseProfile} including the overrides from the config file.
+	 */
+	public DatabaseProfile getDatabaseProfile() {
+		return databaseProfile;
+	}
+
+	public void setDatabaseProfile(DatabaseProfile databaseProfile) {
+		this.databaseProfile = databaseProfile;
+	}
+
+	/**
+	 * Returns the format in which new database files are written, i.e. the
+	 * type of the {@link DatabaseSerializer} to use (e.g. <tt>xml</tt> or <tt>binary</tt>).
+	 */
+	public String getDatabaseFormat() {
+		return databaseFormat;
+	}
+
 	public void setCache(Cache cache) {
 		this.cache = cache;
 	}
@@ -336,6 +457,10 @@ public class Config {
 		return new File(databaseDir, FILE_DATABASE);
 	}
 
+	public File getChunkPositionLogFile() {
+		return new File(databaseDir, FILE_CHUNK_POSITION_LOG);
+	}
+
 	public File getPortFile() {
 		return new File(stateDir, FILE_PORT);
 	}
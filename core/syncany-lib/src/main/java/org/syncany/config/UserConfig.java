@@ -26,6 +26,7 @@ import java.util.Map;
 
 import org.syncany.config.to.UserConfigTO;
 import org.syncany.crypto.CipherException;
+import org.syncany.crypto.CipherProviders;
 import org.syncany.crypto.CipherUtil;
 import org.syncany.crypto.SaltedSecretKey;
 import org.syncany.util.EnvironmentUtil;
@@ -186,6 +187,9 @@ public class UserConfig {
 			// Other options
 			preventStandby = userConfigTO.isPreventStandby();
 			configEncryptionKey = userConfigTO.getConfigEncryptionKey();
+
+			// Crypto provider (null = automatic selection)
+			CipherProviders.setPreferredProvider(userConfigTO.getCryptoProvider());
 		}
 		catch (ConfigException e) {
 			System.err.println("ERROR: " + e.getMessage());
@@ -63,6 +63,15 @@ public class ConfigTO {
 	@Element(name = "cacheKeepBytes", required = false)
 	private Long cacheKeepBytes;
 
+	@Element(name = "cipherKeyCacheSize", required = false)
+	private Integer cipherKeyCacheSize;
+
+	@Element(name = "chunkPositionStore", required = false)
+	private String chunkPositionStore;
+
+	@Element(name = "database", required = false)
+	private DatabaseTO database;
+
 	public static ConfigTO load(File file) throws ConfigException {
 		try {
 			Registry registry = new Registry();
@@ -144,4 +153,27 @@ public class ConfigTO {
 		this.cacheKeepBytes = cacheKeepBytes;
 	}
 
+	public Integer getCipherKeyCacheSize() {
+		return cipherKeyCacheSize;
+	}
+
+	public void setCipherKeyCacheSize(Integer cipherKeyCacheSize) {
+		this.cipherKeyCacheSize = cipherKeyCacheSize;
+	}
+
+	public String getChunkPositionStore() {
+		return chunkPositionStore;
+	}
+
+	public void setChunkPositionStore(String chunkPositionStore) {
+		this.chunkPositionStore = chunkPositionStore;
+	}
+
+	public DatabaseTO getDatabase() {
+		return database;
+	}
+
+	public void setDatabase(DatabaseTO database) {
+		this.database = database;
+	}
 }
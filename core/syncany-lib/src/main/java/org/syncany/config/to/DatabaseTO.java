@@ -0,0 +1,132 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.config.to;
+
+import org.simpleframework.xml.Element;
+import org.simpleframework.xml.Root;
+
+/**
+ * The database transfer object is part of the {@link ConfigTO} and defines the
+ * storage settings of the local HSQLDB database. It selects a named profile (e.g.
+ * <tt>safe</tt> or <tt>throughput</tt>) and optionally overrides individual settings
+ * of that profile:
+ *
+ * <pre>
+ * &lt;database&gt;
+ *   &lt;profile&gt;throughput&lt;/profile&gt;
+ *   &lt;cacheRows&gt;500000&lt;/cacheRows&gt;
+ * &lt;/database&gt;
+ * </pre>
+ *
+ * <p>It uses the Simple framework for XML serialization, and its corresponding
+ * annotation-based configuration.
+ *
+ * @see org.syncany.database.DatabaseProfile
+ * @see <a href="http://simple.sourceforge.net/">Simple framework</a>
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+@Root(name = "database", strict = false)
+public class DatabaseTO {
+	@Element(name = "profile", required = false)
+	private String profile;
+
+	@Element(name = "cacheRows", required = false)
+	private Integer cacheRows;
+
+	@Element(name = "cacheSizeKb", required = false)
+	private Integer cacheSizeKb;
+
+	@Element(name = "nioDataFile", required = false)
+	private Boolean nioDataFile;
+
+	@Element(name = "nioMaxSizeMb", required = false)
+	private Integer nioMaxSizeMb;
+
+	@Element(name = "writeDelayMillis", required = false)
+	private Integer writeDelayMillis;
+
+	@Element(name = "logSizeMb", required = false)
+	private Integer logSizeMb;
+
+	@Element(name = "defragLimit", required = false)
+	private Integer defragLimit;
+
+	public String getProfile() {
+		return profile;
+	}
+
+	public void setProfile(String profile) {
+		this.profile = profile;
+	}
+
+	public Integer getCacheRows() {
+		return cacheRows;
+	}
+
+	public void setCacheRows(Integer cacheRows) {
+		this.cacheRows = cacheRows;
+	}
+
+	public Integer getCacheSizeKb() {
+		return cacheSizeKb;
+	}
+
+	public void setCacheSizeKb(Integer cacheSizeKb) {
+		this.cacheSizeKb = cacheSizeKb;
+	}
+
+	public Boolean getNioDataFile() {
+		return nioDataFile;
+	}
+
+	public void setNioDataFile(Boolean nioDataFile) {
+		this.nioDataFile = nioDataFile;
+	}
+
+	public Integer getNioMaxSizeMb() {
+		return nioMaxSizeMb;
+	}
+
+	public void setNioMaxSizeMb(Integer nioMaxSizeMb) {
+		this.nioMaxSizeMb = nioMaxSizeMb;
+	}
+
+	public Integer getWriteDelayMillis() {
+		return writeDelayMillis;
+	}
+
+	public void setWriteDelayMillis(Integer writeDelayMillis) {
+		this.writeDelayMillis = writeDelayMillis;
+	}
+
+	public Integer getLogSizeMb() {
+		return logSizeMb;
+	}
+
+	public void setLogSizeMb(Integer logSizeMb) {
+		this.logSizeMb = logSizeMb;
+	}
+
+	public Integer getDefragLimit() {
+		return defragLimit;
+	}
+
+	public void setDefragLimit(Integer defragLimit) {
+		this.defragLimit = defragLimit;
+	}
+}
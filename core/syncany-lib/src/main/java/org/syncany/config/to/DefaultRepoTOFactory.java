@@ -39,7 +39,7 @@ import org.syncany.util.StringUtil.StringJoinListener;
 /**
  * This class produces {@link RepoTO}s with some sensible defaults for the Chunkers and
  * MultiChunkers. The transformers are configurable, namely whether or not compression is used
- * and how it is encrypted.
+ * (and which compression transformer), and how it is encrypted.
  * 
  * @author Pim Otte <otte.pim@gmail.com>
  */
@@ -49,9 +49,17 @@ public class DefaultRepoTOFactory implements RepoTOFactory {
 	private List<TransformerTO> transformersTO;
 
 	public DefaultRepoTOFactory(boolean gzipEnabled, List<CipherSpec> cipherSpecs) {
+		this((gzipEnabled) ? GzipTransformer.TYPE : null, cipherSpecs);
+	}
+
+	/**
+	 * Creates a factory using the given compression transformer type (e.g. <tt>gzip</tt> or
+	 * <tt>lz4</tt>), or no compression if <tt>compressionType</tt> is <tt>null</tt>.
+	 */
+	public DefaultRepoTOFactory(String compressionType, List<CipherSpec> cipherSpecs) {
 		chunkerTO = getDefaultChunkerTO();
 		multiChunkerTO = getDefaultMultiChunkerTO();
-		transformersTO = getTransformersTO(gzipEnabled, cipherSpecs);
+		transformersTO = getTransformersTO(compressionType, cipherSpecs);
 	}
 
 	public RepoTO createRepoTO() {
@@ -59,10 +67,14 @@ public class DefaultRepoTOFactory implements RepoTOFactory {
 	}
 
 	public List<TransformerTO> getTransformersTO(boolean gzipEnabled, List<CipherSpec> cipherSpecs) {
+		return getTransformersTO((gzipEnabled) ? GzipTransformer.TYPE : null, cipherSpecs);
+	}
+
+	public List<TransformerTO> getTransformersTO(String compressionType, List<CipherSpec> cipherSpecs) {
 		List<TransformerTO> transformersTO = new ArrayList<TransformerTO>();
 
-		if (gzipEnabled) {
-			transformersTO.add(getGzipTransformerTO());
+		if (compressionType != null) {
+			transformersTO.add(getCompressionTransformerTO(compressionType));
 		}
 
 		if (cipherSpecs.size() > 0) {
@@ -112,10 +124,14 @@ public class DefaultRepoTOFactory implements RepoTOFactory {
 	}
 
 	protected TransformerTO getGzipTransformerTO() {
-		TransformerTO gzipTransformerTO = new TransformerTO();
-		gzipTransformerTO.setType(GzipTransformer.TYPE);
+		return getCompressionTransformerTO(GzipTransformer.TYPE);
+	}
+
+	protected TransformerTO getCompressionTransformerTO(String compressionType) {
+		TransformerTO compressionTransformerTO = new TransformerTO();
+		compressionTransformerTO.setType(compressionType);
 
-		return gzipTransformerTO;
+		return compressionTransformerTO;
 	}
 
 	protected TransformerTO getCipherTransformerTO(List<CipherSpec> cipherSpec) {
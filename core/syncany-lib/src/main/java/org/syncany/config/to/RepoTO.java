@@ -65,6 +65,9 @@ public class RepoTO {
 	@ElementList(name = "transformers", required = false, entry = "transformer")
 	private ArrayList<TransformerTO> transformers;
 
+	@Element(name = "databaseFormat", required = false)
+	private String databaseFormat;
+
 	public byte[] getRepoId() {
 		return repoId;
 	}
@@ -136,6 +139,19 @@ public class RepoTO {
 		this.transformers = (transformers != null) ? new ArrayList<TransformerTO>(transformers) : null;
 	}
 
+	/**
+	 * Returns the format of the database files written to the repository,
+	 * e.g. <tt>xml</tt> or <tt>binary</tt>. If <tt>null</tt>, the XML format
+	 * is used.
+	 */
+	public String getDatabaseFormat() {
+		return databaseFormat;
+	}
+
+	public void setDatabaseFormat(String databaseFormat) {
+		this.databaseFormat = databaseFormat;
+	}
+
 	/**
 	 * Configuration object for the deduplication chunker. As of
 	 * today, this is a key/value based configuration.
@@ -49,6 +49,9 @@ public class UserConfigTO {
 	@Element(name = "preventStandby", required = false)
 	private boolean preventStandby;
 
+	@Element(name = "cryptoProvider", required = false)
+	private String cryptoProvider;
+
 	@Element(name = "configEncryptionKey", required = true)
 	@Convert(SaltedSecretKeyConverter.class)
 	private SaltedSecretKey configEncryptionKey;
@@ -70,6 +73,14 @@ public class UserConfigTO {
 		this.preventStandby = preventStandby;
 	}
 
+	public String getCryptoProvider() {
+		return cryptoProvider;
+	}
+
+	public void setCryptoProvider(String cryptoProvider) {
+		this.cryptoProvider = cryptoProvider;
+	}
+
 	public SaltedSecretKey getConfigEncryptionKey() {
 		return configEncryptionKey;
 	}
@@ -0,0 +1,176 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.crypto;
+
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.Cipher;
+
+import org.bouncycastle.crypto.modes.AEADBlockCipher;
+
+/**
+ * Selects the security provider used to encrypt and decrypt the segments of the
+ * {@link MultiCipherOutputStream} and {@link MultiCipherInputStream} for each {@link CipherSpec}.
+ * The provider is also used to encrypt single-message (version 1) streams. Single messages are
+ * always decrypted using Bouncy Castle, because JCE providers buffer the entire message until its
+ * tag is verified (see {@link CipherSpec#newAeadCipherOutputStream(java.io.OutputStream, byte[], byte[])}).
+ *
+ * <p>The JDK's own provider (<tt>SunJCE</tt>) uses hardware-accelerated AES-GCM (AES-NI and
+ * CLMUL intrinsics) on modern CPUs, and is typically several times faster than the pure-Java
+ * Bouncy Castle implementation. A provider is only selected if it supports the algorithm and
+ * key size (unlimited strength policy!), and if it produces exactly the same ciphertext as the
+ * Bouncy Castle reference implementation. If no JCE provider qualifies, the Bouncy Castle
+ * lightweight API is used, which is not subject to any key size restrictions.
+ *
+ * <p>The automatic selection can be overridden by setting a preferred provider name
+ * using {@link #setPreferredProvider(String)}, e.g. from the user config.
+ *
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class CipherProviders {
+	private static final Logger logger = Logger.getLogger(CipherProviders.class.getSimpleName());
+
+	/**
+	 * Provider name to select the Bouncy Castle lightweight API, i.e. to not
+	 * use any JCE provider.
+	 */
+	public static final String PROVIDER_BC_LIGHTWEIGHT = "BC-lightweight";
+
+	/**
+	 * Provider name to select the fastest available provider automatically.
+	 */
+	public static final String PROVIDER_AUTO = "auto";
+
+	private static final List<String> DEFAULT_PROVIDER_ORDER = Arrays.asList(new String[] { "SunJCE", CipherParams.CRYPTO_PROVIDER_ID });
+	private static final String NO_PROVIDER = "";
+
+	private static String preferredProvider = null;
+	private static Map<CipherSpec, String> selectedProviders = new ConcurrentHashMap<CipherSpec, String>();
+
+	/**
+	 * Sets the preferred provider to be used for all cipher specs. If the preferred provider
+	 * does not support a cipher spec, the automatic selection is used for this spec. The provider
+	 * is used for encrypting all streams and decrypting segmented streams; single-message
+	 * (version 1) streams are always decrypted with Bouncy Castle.
+	 *
+	 * @param provider JCE provider name, {@link #PROVIDER_BC_LIGHTWEIGHT}, or {@link #PROVIDER_AUTO} (or <tt>null</tt>) for automatic selection
+	 */
+	public static synchronized void setPreferredProvider(String provider) {
+		preferredProvider = (provider == null || PROVIDER_AUTO.equalsIgnoreCase(provider)) ? null : provider;
+		selectedProviders.clear();
+	}
+
+	/**
+	 * Returns the name of the JCE provider to be used for the given cipher spec, or <tt>null</tt>
+	 * if the Bouncy Castle lightweight API (see {@link CipherSpec#newAeadCipher(boolean, byte[], byte[])})
+	 * must be used.
+	 */
+	public static String getProvider(CipherSpec cipherSpec) {
+		String provider = selectedProviders.get(cipherSpec);
+
+		if (provider == null) {
+			provider = selectProvider(cipherSpec);
+			selectedProviders.put(cipherSpec, provider);
+		}
+
+		return (NO_PROVIDER.equals(provider)) ? null : provider;
+	}
+
+	/**
+	 * Returns the provider names that are tried in order when selecting a provider.
+	 */
+	public static synchronized List<String> getCandidateProviders() {
+		List<String> candidateProviders = new ArrayList<String>();
+
+		if (preferredProvider != null) {
+			candidateProviders.add(preferredProvider);
+		}
+
+		for (String provider : DEFAULT_PROVIDER_ORDER) {
+			if (!candidateProviders.contains(provider)) {
+				candidateProviders.add(provider);
+			}
+		}
+
+		return candidateProviders;
+	}
+
+	/**
+	 * Checks whether the given JCE provider can be used for the given cipher spec, i.e. whether
+	 * it is installed, allows the key size, and produces the same ciphertext as Bouncy Castle.
+	 */
+	public static boolean isProviderUsable(CipherSpec cipherSpec, String provider) {
+		try {
+			if (Security.getProvider(provider) == null) {
+				return false;
+			}
+
+			if (Cipher.getMaxAllowedKeyLength(cipherSpec.getAlgorithm()) < cipherSpec.getKeySize()) {
+				logger.log(Level.FINE, "- Provider " + provider + " cannot be used for " + cipherSpec + "; restricted key length.");
+				return false;
+			}
+
+			byte[] key = new byte[cipherSpec.getKeySize() / 8];
+			byte[] nonce = new byte[cipherSpec.getIvSize() / 8];
+			byte[] plaintext = new byte[100];
+
+			Arrays.fill(key, (byte) 0x11);
+			Arrays.fill(nonce, (byte) 0x22);
+			Arrays.fill(plaintext, (byte) 0x33);
+
+			// Expected ciphertext (reference implementation)
+			AEADBlockCipher referenceCipher = cipherSpec.newAeadCipher(true, key, nonce);
+			byte[] expectedCiphertext = new byte[referenceCipher.getOutputSize(plaintext.length)];
+
+			int expectedLength = referenceCipher.processBytes(plaintext, 0, plaintext.length, expectedCiphertext, 0);
+			expectedLength += referenceCipher.doFinal(expectedCiphertext, expectedLength);
+
+			// Actual ciphertext and plaintext
+			byte[] actualCiphertext = cipherSpec.newJceCipher(true, key, nonce, provider).doFinal(plaintext);
+			byte[] actualPlaintext = cipherSpec.newJceCipher(false, key, nonce, provider).doFinal(actualCiphertext);
+
+			return Arrays.equals(Arrays.copyOf(expectedCiphertext, expectedLength), actualCiphertext) && Arrays.equals(plaintext, actualPlaintext);
+		}
+		catch (Exception e) {
+			logger.log(Level.FINE, "- Provider " + provider + " cannot be used for " + cipherSpec + ".", e);
+			return false;
+		}
+	}
+
+	private static String selectProvider(CipherSpec cipherSpec) {
+		for (String provider : getCandidateProviders()) {
+			if (PROVIDER_BC_LIGHTWEIGHT.equalsIgnoreCase(provider)) {
+				break;
+			}
+			else if (isProviderUsable(cipherSpec, provider)) {
+				logger.log(Level.INFO, "Using provider " + provider + " for " + cipherSpec + ".");
+				return provider;
+			}
+		}
+
+		logger.log(Level.INFO, "Using provider " + PROVIDER_BC_LIGHTWEIGHT + " for " + cipherSpec + ".");
+		return NO_PROVIDER;
+	}
+}
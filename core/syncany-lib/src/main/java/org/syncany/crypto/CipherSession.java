@@ -22,8 +22,10 @@ import java.security.NoSuchProviderException;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -31,6 +33,10 @@ import javax.crypto.SecretKey;
 
 import org.syncany.util.StringUtil;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
 /**
  * The cipher session is used by the {@link MultiCipherOutputStream} and the
  * {@link MultiCipherInputStream} to reference the application's master key,
@@ -49,23 +55,33 @@ import org.syncany.util.StringUtil;
  *
  *   <li>Keys used by {@link MultiCipherInputStream} (when reading files) are
  *       cached in order to minimize the amount of keys that have to be created when
- *       files are processed.
+ *       files are processed. The read cache is a least-recently-used cache, bounded
+ *       by size and by the time since a key was last used. 
  * </ul>
  *
+ * <p>A cipher session is thread-safe, i.e. it can be shared by many threads encrypting
+ * and decrypting at the same time. If multiple threads request the same read key
+ * concurrently, the key is only derived once. 
+ *
+ * <p>Once a session is no longer needed, {@link #destroy()} overwrites all derived keys
+ * held by the session with zeros.
+ *
  * @author Philipp C. Heckel <philipp.heckel@gmail.com>
  */
 public class CipherSession {
 	private static final Logger logger = Logger.getLogger(CipherSession.class.getSimpleName());
-	private static final int DEFAULT_SECRET_KEY_READ_CACHE_SIZE = 20;
-	private static final int DEFAULT_SECRET_KEY_WRITE_REUSE_COUNT = 100;
+	public static final int DEFAULT_SECRET_KEY_READ_CACHE_SIZE = 1000;
+	public static final int DEFAULT_SECRET_KEY_READ_CACHE_EXPIRY = 30 * 60; // in seconds
+	public static final int DEFAULT_SECRET_KEY_WRITE_REUSE_COUNT = 100;
 
 	private SecretKey masterKey;
 
-	private Map<CipherSpecWithSalt, SecretKeyCacheEntry> secretKeyReadCache;
+	private Cache<CipherSpecWithSalt, SaltedSecretKey> secretKeyReadCache;
 	private int secretKeyReadCacheSize;
 
 	private Map<CipherSpec, SecretKeyCacheEntry> secretKeyWriteCache;
 	private int secretKeyWriteReuseCount;
+	private long secretKeyWriteCreateCount;
 
 	/**
 	 * Creates a new cipher session, using the given master key. Derived keys will be created
@@ -93,13 +109,35 @@ public class CipherSession {
 	 * @param secretKeyWriteReuseCount Number of times to reuse a write key (higher means more performance, but lower security)
 	 */
 	public CipherSession(SaltedSecretKey masterKey, int secretKeyReadCacheSize, int secretKeyWriteReuseCount) {
+		this(masterKey, secretKeyReadCacheSize, DEFAULT_SECRET_KEY_READ_CACHE_EXPIRY, secretKeyWriteReuseCount);
+	}
+
+	/**
+	 * Creates a new cipher session, using the given master key. Derived keys will be created
+	 * from that master key.
+	 *
+	 * <p>This method expects a reuse-count for write keys, and a cache size and expiry time for
+	 * the read-key cache. Refer to {@link CipherSession the class description} for more details.
+	 *
+	 * @param masterKey The master key, used for deriving new read/write
+	 * @param secretKeyReadCacheSize Number of read keys to store in the cache (higher means more performance, but more memory usage)
+	 * @param secretKeyReadCacheExpiry Number of seconds after which an unused read key is removed from the cache
+	 * @param secretKeyWriteReuseCount Number of times to reuse a write key (higher means more performance, but lower security)
+	 */
+	public CipherSession(SaltedSecretKey masterKey, int secretKeyReadCacheSize, int secretKeyReadCacheExpiry, int secretKeyWriteReuseCount) {
 		this.masterKey = masterKey;
 
-		this.secretKeyReadCache = new LinkedHashMap<CipherSpecWithSalt, SecretKeyCacheEntry>();
+		this.secretKeyReadCache = CacheBuilder.newBuilder()
+				.maximumSize(secretKeyReadCacheSize)
+				.expireAfterAccess(secretKeyReadCacheExpiry, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+
 		this.secretKeyReadCacheSize = secretKeyReadCacheSize;
 
 		this.secretKeyWriteCache = new HashMap<CipherSpec, SecretKeyCacheEntry>();
 		this.secretKeyWriteReuseCount = secretKeyWriteReuseCount;
+		this.secretKeyWriteCreateCount = 0;
 	}
 
 	/**
@@ -124,6 +162,12 @@ public class CipherSession {
 	 * @throws Exception If an error occurs with key creation
 	 */
 	public SaltedSecretKey getWriteSecretKey(CipherSpec cipherSpec) throws Exception {
+		synchronized (secretKeyWriteCache) {
+			return getWriteSecretKeyNoLock(cipherSpec);
+		}
+	}
+
+	private SaltedSecretKey getWriteSecretKeyNoLock(CipherSpec cipherSpec) throws Exception {
 		SecretKeyCacheEntry secretKeyCacheEntry = secretKeyWriteCache.get(cipherSpec);
 
 		// Remove key if use more than X times
@@ -147,6 +191,7 @@ public class CipherSession {
 
 			secretKeyCacheEntry = new SecretKeyCacheEntry(saltedSecretKey);
 			secretKeyWriteCache.put(cipherSpec, secretKeyCacheEntry);
+			secretKeyWriteCreateCount++;
 
 			logger.log(Level.FINE, "- Created NEW WRITE secret key " + secretKeyCacheEntry.getSaltedSecretKey().getAlgorithm()
 					+ ", and added to cache, with salt " + StringUtil.toHex(saltedSecretKey.getSalt()));
@@ -156,9 +201,10 @@ public class CipherSession {
 
 	/**
 	 * Creates a new secret key or retrieves it from the read cache. If the given cipher spec / salt combination
-	 * is found in the cache, the cached secret key is returned. If not, a new key is created. Keys are removed
-	 * from the cache when the cache reached the size defined by {@link #secretKeyReadCacheSize} (as set in
-	 * {@link #CipherSession(SaltedSecretKey, int, int) the constructor}.
+	 * is found in the cache, the cached secret key is returned. If not, a new key is created. The least recently
+	 * used keys are removed from the cache when the cache reached the size defined by {@link #secretKeyReadCacheSize},
+	 * and keys are removed if they have not been used for the configured expiry time (as set in
+	 * {@link #CipherSession(SaltedSecretKey, int, int, int) the constructor}.
 	 *
 	 * <p>If a new key needs to be created, {@link CipherUtil} is used to do so.
 	 *
@@ -170,32 +216,113 @@ public class CipherSession {
 	 * @return Returns a newly created secret key or a cached key
 	 * @throws Exception If an error occurs with key creation
 	 */
-	public SaltedSecretKey getReadSecretKey(CipherSpec cipherSpec, byte[] salt) throws Exception {
+	public SaltedSecretKey getReadSecretKey(final CipherSpec cipherSpec, final byte[] salt) throws Exception {
 		CipherSpecWithSalt cipherSpecWithSalt = new CipherSpecWithSalt(cipherSpec, salt);
-		SecretKeyCacheEntry secretKeyCacheEntry = secretKeyReadCache.get(cipherSpecWithSalt);
 
-		if (secretKeyCacheEntry != null) {
-			logger.log(Level.FINE, "- Using CACHED READ secret key " + secretKeyCacheEntry.getSaltedSecretKey().getAlgorithm() + ", with salt "
-					+ StringUtil.toHex(salt));
-			return secretKeyCacheEntry.getSaltedSecretKey();
+		try {
+			// Returns the cached key, or creates it -- only once, even if multiple threads request it at the same time
+			return secretKeyReadCache.get(cipherSpecWithSalt, new Callable<SaltedSecretKey>() {
+				@Override
+				public SaltedSecretKey call() throws Exception {
+					logger.log(Level.FINE, "- Creating NEW READ secret key " + cipherSpec.getAlgorithm() + ", and adding to cache, with salt "
+							+ StringUtil.toHex(salt));
+
+					return createSaltedSecretKey(cipherSpec, salt);
+				}
+			});
 		}
-		else {
-			if (secretKeyReadCache.size() >= secretKeyReadCacheSize) {
-				CipherSpecWithSalt firstKey = secretKeyReadCache.keySet().iterator().next();
-				secretKeyReadCache.remove(firstKey);
+		catch (ExecutionException e) {
+			throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+		}
+	}
 
-				logger.log(Level.FINE, "- Removed oldest READ secret key from cache.");
-			}
+	/**
+	 * Returns the number of read key lookups that were answered from the read cache.
+	 */
+	public long getReadCacheHitCount() {
+		return secretKeyReadCache.stats().hitCount();
+	}
 
-			SaltedSecretKey saltedSecretKey = createSaltedSecretKey(cipherSpec, salt);
-			secretKeyCacheEntry = new SecretKeyCacheEntry(saltedSecretKey);
+	/**
+	 * Returns the number of read key lookups that were not answered from the read cache.
+	 */
+	public long getReadCacheMissCount() {
+		return secretKeyReadCache.stats().missCount();
+	}
+
+	/**
+	 * Returns the number of read keys that were derived. This may be lower than the
+	 * miss count, because threads waiting for a key that is being derived by another
+	 * thread count as misses.
+	 */
+	public long getReadKeyCreateCount() {
+		return secretKeyReadCache.stats().loadSuccessCount();
+	}
 
-			secretKeyReadCache.put(cipherSpecWithSalt, secretKeyCacheEntry);
+	/**
+	 * Returns the number of read keys that were removed from the read cache,
+	 * because the cache was full or the keys expired.
+	 */
+	public long getReadCacheEvictionCount() {
+		return secretKeyReadCache.stats().evictionCount();
+	}
 
-			logger.log(Level.FINE, "- Created NEW READ secret key " + secretKeyCacheEntry.getSaltedSecretKey().getAlgorithm()
-					+ ", and added to cache, with salt " + StringUtil.toHex(salt));
-			return saltedSecretKey;
+	/**
+	 * Returns the current number of keys in the read cache.
+	 */
+	public long getReadCacheSize() {
+		return secretKeyReadCache.size();
+	}
+
+	/**
+	 * Returns the maximum number of keys in the read cache.
+	 */
+	public int getReadCacheCapacity() {
+		return secretKeyReadCacheSize;
+	}
+
+	/**
+	 * Returns the number of write keys that were derived by this session.
+	 */
+	public long getWriteKeyCreateCount() {
+		synchronized (secretKeyWriteCache) {
+			return secretKeyWriteCreateCount;
+		}
+	}
+
+	/**
+	 * Overwrites all derived read and write keys held by this session with zeros, and
+	 * empties the read and write caches. The session itself remains usable, i.e. new keys
+	 * are derived on the next request.
+	 *
+	 * <p>Keys handed out by this session become unusable, so this method must only
+	 * be called when no streams using the session are active anymore (e.g. on shutdown).
+	 * Keys that are rotated or evicted from the caches are not overwritten, because they
+	 * might still be used by a running stream.
+	 */
+	public void destroy() {
+		synchronized (secretKeyWriteCache) {
+			for (SecretKeyCacheEntry secretKeyCacheEntry : secretKeyWriteCache.values()) {
+				destroySaltedSecretKey(secretKeyCacheEntry.getSaltedSecretKey());
+			}
+
+			secretKeyWriteCache.clear();
 		}
+
+		for (SaltedSecretKey readSecretKey : secretKeyReadCache.asMap().values()) {
+			destroySaltedSecretKey(readSecretKey);
+		}
+
+		secretKeyReadCache.invalidateAll();
+	}
+
+	@Override
+	public String toString() {
+		CacheStats readCacheStats = secretKeyReadCache.stats();
+
+		return "CipherSession[readCache: " + secretKeyReadCache.size() + "/" + secretKeyReadCacheSize + " keys, " + readCacheStats.hitCount()
+				+ " hits, " + readCacheStats.missCount() + " misses, " + readCacheStats.evictionCount() + " evictions; writeKeys: "
+				+ getWriteKeyCreateCount() + " created]";
 	}
 
 	private SaltedSecretKey createSaltedSecretKey(CipherSpec cipherSpec) throws InvalidKeySpecException, NoSuchAlgorithmException,
@@ -206,7 +333,56 @@ public class CipherSession {
 
 	private SaltedSecretKey createSaltedSecretKey(CipherSpec cipherSpec, byte[] salt) throws InvalidKeySpecException, NoSuchAlgorithmException,
 	NoSuchProviderException {
-		return CipherUtil.createDerivedKey(masterKey, salt, cipherSpec);
+		byte[] encodedMasterKey = masterKey.getEncoded();
+
+		try {
+			byte[] derivedKey = CipherUtil.createDerivedKeyBytes(encodedMasterKey, salt, cipherSpec.getKeySize());
+			return new SaltedSecretKey(new DestroyableSecretKey(derivedKey, CipherUtil.toKeyAlgorithm(cipherSpec.getAlgorithm())), salt);
+		}
+		finally {
+			Arrays.fill(encodedMasterKey, (byte) 0);
+		}
+	}
+
+	private void destroySaltedSecretKey(SaltedSecretKey saltedSecretKey) {
+		if (saltedSecretKey.getSecretKey() instanceof DestroyableSecretKey) {
+			((DestroyableSecretKey) saltedSecretKey.getSecretKey()).destroy();
+		}
+	}
+
+	/**
+	 * Raw secret key for derived keys. Contrary to a {@link javax.crypto.spec.SecretKeySpec},
+	 * the key material can be overwritten by {@link CipherSession#destroy()}.
+	 */
+	private static class DestroyableSecretKey implements SecretKey {
+		private static final long serialVersionUID = -3914621427389123513L;
+
+		private byte[] encodedKey;
+		private String algorithm;
+
+		public DestroyableSecretKey(byte[] encodedKey, String algorithm) {
+			this.encodedKey = encodedKey;
+			this.algorithm = algorithm;
+		}
+
+		@Override
+		public String getAlgorithm() {
+			return algorithm;
+		}
+
+		@Override
+		public String getFormat() {
+			return "RAW";
+		}
+
+		@Override
+		public byte[] getEncoded() {
+			return encodedKey.clone();
+		}
+
+		public void destroy() {
+			Arrays.fill(encodedKey, (byte) 0);
+		}
 	}
 
 	private static class SecretKeyCacheEntry {
@@ -17,10 +17,15 @@
  */
 package org.syncany.crypto;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.regex.Pattern;
 
+import javax.crypto.Cipher;
+
+import org.bouncycastle.crypto.modes.AEADBlockCipher;
+
 /**
  * A cipher spec represents the definition of a cipher/encryption algorithm and the
  * corresponding settings required to instantiate a new cipher object.
@@ -81,6 +86,81 @@ public abstract class CipherSpec {
 
 	public abstract InputStream newCipherInputStream(InputStream underlyingInputStream, byte[] secretKey, byte[] iv) throws CipherException;
 
+	/**
+	 * Creates a new authenticated block cipher, initialized for encryption or decryption
+	 * using the given key and nonce. This is used to encrypt/decrypt the individual segments
+	 * of a segmented {@link MultiCipherOutputStream}.
+	 *
+	 * <p>The default implementation throws an exception. Cipher specs of authenticated
+	 * ciphers must override this method.
+	 */
+	public AEADBlockCipher newAeadCipher(boolean forEncryption, byte[] secretKey, byte[] nonce) throws CipherException {
+		throw new CipherException("Cipher spec " + algorithm + " does not support authenticated segment encryption.");
+	}
+
+	/**
+	 * Creates a new JCE cipher using the given provider, initialized for encryption or decryption
+	 * using the given key and nonce. The cipher must produce exactly the same output as the cipher
+	 * returned by {@link #newAeadCipher(boolean, byte[], byte[]) newAeadCipher()}.
+	 *
+	 * <p>The default implementation throws an exception. Cipher specs of authenticated
+	 * ciphers must override this method.
+	 */
+	public Cipher newJceCipher(boolean forEncryption, byte[] secretKey, byte[] nonce, String provider) throws CipherException {
+		throw new CipherException("Cipher spec " + algorithm + " does not support authenticated segment encryption.");
+	}
+
+	/**
+	 * Creates an output stream that encrypts a single message (version 1 of the {@link MultiCipherOutputStream}),
+	 * using the provider selected by {@link CipherProviders}. Cipher specs of authenticated ciphers can use this
+	 * method to implement {@link #newCipherOutputStream(OutputStream, byte[], byte[]) newCipherOutputStream()}.
+	 *
+	 * <p>There is no equivalent for decryption: JCE providers (e.g. <tt>SunJCE</tt>) do not return any plaintext
+	 * of an AEAD message before its tag has been verified, i.e. they would buffer the entire message. Single
+	 * messages are therefore always decrypted using the Bouncy Castle lightweight API.
+	 */
+	protected OutputStream newAeadCipherOutputStream(OutputStream underlyingOutputStream, byte[] secretKey, byte[] iv) throws CipherException {
+		String provider = CipherProviders.getProvider(this);
+
+		if (provider != null) {
+			return new JceCipherOutputStream(underlyingOutputStream, newJceCipher(true, secretKey, iv, provider));
+		}
+		else {
+			return new org.bouncycastle.crypto.io.CipherOutputStream(underlyingOutputStream, newAeadCipher(true, secretKey, iv));
+		}
+	}
+
+	/**
+	 * Encrypts or decrypts (and verifies) a single segment of a segmented {@link MultiCipherOutputStream},
+	 * using the provider selected by {@link CipherProviders}.
+	 *
+	 * @return Returns the number of bytes written to the output buffer
+	 * @throws CipherException If the segment cannot be encrypted, or if it cannot be authenticated
+	 */
+	public int processSegment(boolean forEncryption, byte[] secretKey, byte[] nonce, byte[] input, int inputLength, byte[] output) throws CipherException {
+		String provider = CipherProviders.getProvider(this);
+
+		try {
+			if (provider != null) {
+				return newJceCipher(forEncryption, secretKey, nonce, provider).doFinal(input, 0, inputLength, output, 0);
+			}
+			else {
+				AEADBlockCipher cipher = newAeadCipher(forEncryption, secretKey, nonce);
+
+				int outputLength = cipher.processBytes(input, 0, inputLength, output, 0);
+				outputLength += cipher.doFinal(output, outputLength);
+
+				return outputLength;
+			}
+		}
+		catch (CipherException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new CipherException("Cannot " + (forEncryption ? "encrypt" : "decrypt") + " segment with " + algorithm + ".", e);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return algorithm + ", " + keySize + " bit";
@@ -138,4 +218,24 @@ public abstract class CipherSpec {
 		}
 		return true;
 	}
+
+	/**
+	 * JCE cipher output stream that passes large writes to the cipher in small updates. A single
+	 * large update is several times slower with <tt>SunJCE</tt>, because the JIT does not get the
+	 * chance to compile the (hardware-accelerated) cipher code.
+	 */
+	private static class JceCipherOutputStream extends javax.crypto.CipherOutputStream {
+		private static final int MAX_UPDATE_SIZE = 16 * 1024;
+
+		public JceCipherOutputStream(OutputStream underlyingOutputStream, Cipher cipher) {
+			super(underlyingOutputStream, cipher);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			for (int updateOffset = 0; updateOffset < len; updateOffset += MAX_UPDATE_SIZE) {
+				super.write(b, off + updateOffset, Math.min(MAX_UPDATE_SIZE, len - updateOffset));
+			}
+		}
+	}
 }
@@ -230,22 +230,44 @@ public class CipherUtil {
 	public static SaltedSecretKey createDerivedKey(byte[] inputKeyMaterial, byte[] inputSalt, String outputKeyAlgorithm, int outputKeySize)
 			throws InvalidKeySpecException, NoSuchAlgorithmException, NoSuchProviderException {
 
+		byte[] derivedKey = createDerivedKeyBytes(inputKeyMaterial, inputSalt, outputKeySize);
+		return toSaltedSecretKey(derivedKey, inputSalt, outputKeyAlgorithm);
+	}
+
+	/**
+	 * Derives raw key material from the given input key material and input salt, using the
+	 * same HKDF-based algorithm as {@link #createDerivedKey(byte[], byte[], String, int) createDerivedKey()}.
+	 * Unlike a {@link SecretKeySpec}, the returned array can be overwritten by the caller
+	 * once the key is no longer needed.
+	 *
+	 * @param inputKeyMaterial The input key material as raw data bytes
+	 * @param inputSalt Input salt used to generate the new key (a non-secret random value!)
+	 * @param outputKeySize Defines the key size of the new output key (in bits)
+	 * @return Returns the derived key material
+	 */
+	public static byte[] createDerivedKeyBytes(byte[] inputKeyMaterial, byte[] inputSalt, int outputKeySize) {
 		HKDFBytesGenerator hkdf = new HKDFBytesGenerator(KEY_DERIVATION_DIGEST);
 		hkdf.init(new HKDFParameters(inputKeyMaterial, inputSalt, KEY_DERIVATION_INFO));
 
 		byte[] derivedKey = new byte[outputKeySize / 8];
 		hkdf.generateBytes(derivedKey, 0, derivedKey.length);
 
-		return toSaltedSecretKey(derivedKey, inputSalt, outputKeyAlgorithm);
+		return derivedKey;
 	}
 
 	public static SecretKey toSecretKey(byte[] secretKeyBytes, String algorithm) {
-		String plainAlgorithm = (algorithm.indexOf('/') != -1) ? algorithm.substring(0, algorithm.indexOf('/')) : algorithm;
-		SecretKey secretKey = new SecretKeySpec(secretKeyBytes, plainAlgorithm);
-
+		SecretKey secretKey = new SecretKeySpec(secretKeyBytes, toKeyAlgorithm(algorithm));
 		return secretKey;
 	}
 
+	/**
+	 * Returns the key algorithm for the given cipher algorithm, i.e. the algorithm
+	 * without mode and padding (e.g. <tt>AES</tt> for <tt>AES/GCM/NoPadding</tt>).
+	 */
+	public static String toKeyAlgorithm(String algorithm) {
+		return (algorithm.indexOf('/') != -1) ? algorithm.substring(0, algorithm.indexOf('/')) : algorithm;
+	}
+
 	public static SaltedSecretKey toSaltedSecretKey(byte[] secretKeyBytes, byte[] saltBytes, String algorithm) {
 		return new SaltedSecretKey(toSecretKey(secretKeyBytes, algorithm), saltBytes);
 	}
@@ -255,7 +277,17 @@ public class CipherUtil {
 		return createMasterKey(password, salt);
 	}
 
+	/**
+	 * Derives the master key from the given password and salt, or returns it from the
+	 * process-wide {@link MasterKeyCache} if it has already been derived in this process.
+	 */
 	public static SaltedSecretKey createMasterKey(String password, byte[] salt) throws CipherException {
+		SaltedSecretKey cachedMasterKey = MasterKeyCache.getMasterKey(password, salt);
+
+		if (cachedMasterKey != null) {
+			return cachedMasterKey;
+		}
+
 		try {
 			logger.log(Level.FINE, "- Creating secret key using {0} with {1} rounds, key size {2} bit ...", new Object[] {
 					MASTER_KEY_DERIVATION_FUNCTION,
@@ -264,8 +296,10 @@ public class CipherUtil {
 			SecretKeyFactory factory = SecretKeyFactory.getInstance(MASTER_KEY_DERIVATION_FUNCTION);
 			KeySpec pbeKeySpec = new PBEKeySpec(password.toCharArray(), salt, MASTER_KEY_DERIVATION_ROUNDS, MASTER_KEY_SIZE);
 			SecretKey masterKey = factory.generateSecret(pbeKeySpec);
+			SaltedSecretKey saltedMasterKey = new SaltedSecretKey(masterKey, salt);
 
-			return new SaltedSecretKey(masterKey, salt);
+			MasterKeyCache.putMasterKey(password, saltedMasterKey);
+			return saltedMasterKey;
 		}
 		catch (Exception e) {
 			throw new CipherException(e);
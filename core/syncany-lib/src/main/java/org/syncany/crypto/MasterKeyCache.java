@@ -0,0 +1,209 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.crypto;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.syncany.util.StringUtil;
+
+/**
+ * Process-wide cache for master keys and the {@link CipherSession}s created from them.
+ *
+ * <p>Deriving a master key from a password (see {@link CipherUtil#createMasterKey(String, byte[])})
+ * runs PBKDF2 with a very high number of rounds and takes several seconds. Similarly, a new
+ * {@link CipherSession} has to re-derive all of its read/write keys. Since the daemon re-creates
+ * configs, transformers and sessions on every reload, this class keeps both for the lifetime of
+ * the process:
+ *
+ * <ul>
+ *  <li>Master keys are keyed by an HMAC of password and salt, using a random per-process key, so
+ *      that no passwords are held in memory. The salt uniquely identifies a repository's master key.</li>
+ *  <li>Cipher sessions are keyed by an HMAC of master key and salt (using the same per-process key)
+ *      and the read cache parameters, so that the master key is never copied into a string. At most
+ *      {@link #MAX_CIPHER_SESSIONS} sessions are kept; the least recently used session is dropped
+ *      if the limit is exceeded.</li>
+ * </ul>
+ *
+ * <p>The cache must be cleared with {@link #clear()} when the daemon shuts down. This overwrites
+ * the cached master keys and the keys derived by the cached sessions with zeros, and drops all
+ * cached sessions.
+ *
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class MasterKeyCache {
+	private static final Logger logger = Logger.getLogger(MasterKeyCache.class.getSimpleName());
+
+	private static final String CACHE_KEY_MAC_ALGORITHM = "HmacSHA256";
+	private static final int CACHE_KEY_MAC_KEY_SIZE = 32;
+
+	public static final int MAX_CIPHER_SESSIONS = 32;
+
+	private static final Map<String, MasterKeyEntry> masterKeys = new HashMap<String, MasterKeyEntry>();
+	private static final Map<String, CipherSession> cipherSessions = new LinkedHashMap<String, CipherSession>(16, 0.75f, true) {
+		private static final long serialVersionUID = 6297478151338452371L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CipherSession> eldestEntry) {
+			// Evicted sessions are not destroyed, because transformers might still use them
+			return size() > MAX_CIPHER_SESSIONS;
+		}
+	};
+	private static byte[] cacheKeyMacKey = null;
+
+	/**
+	 * Returns a previously derived master key for the given password and salt, or
+	 * <tt>null</tt> if it has not been derived (or cached) in this process.
+	 */
+	public static synchronized SaltedSecretKey getMasterKey(String password, byte[] salt) throws CipherException {
+		MasterKeyEntry masterKeyEntry = masterKeys.get(getMasterKeyCacheKey(password, salt));
+
+		if (masterKeyEntry == null) {
+			return null;
+		}
+
+		logger.log(Level.FINE, "- Using cached master key for salt {0}", StringUtil.toHex(salt));
+		return masterKeyEntry.toSaltedSecretKey();
+	}
+
+	/**
+	 * Adds a freshly derived master key for the given password to the cache. The
+	 * key material is copied, so the given key remains untouched by {@link #clear()}.
+	 */
+	public static synchronized void putMasterKey(String password, SaltedSecretKey masterKey) throws CipherException {
+		masterKeys.put(getMasterKeyCacheKey(password, masterKey.getSalt()), new MasterKeyEntry(masterKey));
+	}
+
+	/**
+	 * Returns a shared {@link CipherSession} for the given master key and read cache parameters,
+	 * creating it if necessary. Since sessions are thread-safe, transformers of the same repository
+	 * can share one session, and keep the already derived keys across daemon reloads.
+	 */
+	public static synchronized CipherSession getCipherSession(SaltedSecretKey masterKey, int secretKeyReadCacheSize,
+			int secretKeyReadCacheExpiry, int secretKeyWriteReuseCount) throws CipherException {
+
+		byte[] encodedMasterKey = masterKey.getEncoded();
+		String sessionCacheKey;
+
+		try {
+			sessionCacheKey = createCacheKey(masterKey.getSalt(), encodedMasterKey) + "/" + secretKeyReadCacheSize + "/"
+					+ secretKeyReadCacheExpiry + "/" + secretKeyWriteReuseCount;
+		}
+		finally {
+			Arrays.fill(encodedMasterKey, (byte) 0);
+		}
+
+		CipherSession cipherSession = cipherSessions.get(sessionCacheKey);
+
+		if (cipherSession == null) {
+			cipherSession = new CipherSession(masterKey, secretKeyReadCacheSize, secretKeyReadCacheExpiry, secretKeyWriteReuseCount);
+			cipherSessions.put(sessionCacheKey, cipherSession);
+		}
+
+		return cipherSession;
+	}
+
+	public static synchronized int getMasterKeyCount() {
+		return masterKeys.size();
+	}
+
+	public static synchronized int getCipherSessionCount() {
+		return cipherSessions.size();
+	}
+
+	/**
+	 * Overwrites all cached master keys and the keys derived by the cached cipher sessions
+	 * (see {@link CipherSession#destroy()}) with zeros, and removes all cached master keys
+	 * and cipher sessions.
+	 */
+	public static synchronized void clear() {
+		logger.log(Level.INFO, "Clearing master key cache ({0} master key(s), {1} cipher session(s)) ...",
+				new Object[] { masterKeys.size(), cipherSessions.size() });
+
+		for (MasterKeyEntry masterKeyEntry : masterKeys.values()) {
+			masterKeyEntry.destroy();
+		}
+
+		for (CipherSession cipherSession : cipherSessions.values()) {
+			cipherSession.destroy();
+		}
+
+		masterKeys.clear();
+		cipherSessions.clear();
+
+		if (cacheKeyMacKey != null) {
+			Arrays.fill(cacheKeyMacKey, (byte) 0);
+			cacheKeyMacKey = null;
+		}
+	}
+
+	private static String getMasterKeyCacheKey(String password, byte[] salt) throws CipherException {
+		return createCacheKey(salt, password.getBytes(Charset.forName("UTF-8")));
+	}
+
+	/**
+	 * Creates a cache key from the given salt and secret (password or master key), using
+	 * an HMAC with a random per-process key. The secret itself never ends up in the cache.
+	 */
+	private static String createCacheKey(byte[] salt, byte[] secret) throws CipherException {
+		try {
+			if (cacheKeyMacKey == null) {
+				cacheKeyMacKey = CipherUtil.createRandomArray(CACHE_KEY_MAC_KEY_SIZE);
+			}
+
+			Mac mac = Mac.getInstance(CACHE_KEY_MAC_ALGORITHM);
+			mac.init(new SecretKeySpec(cacheKeyMacKey, CACHE_KEY_MAC_ALGORITHM));
+
+			mac.update(salt);
+			mac.update(secret);
+
+			return StringUtil.toHex(mac.doFinal());
+		}
+		catch (Exception e) {
+			throw new CipherException(e);
+		}
+	}
+
+	private static class MasterKeyEntry {
+		private byte[] encodedKey;
+		private byte[] salt;
+		private String algorithm;
+
+		public MasterKeyEntry(SaltedSecretKey masterKey) {
+			this.encodedKey = masterKey.getEncoded();
+			this.salt = masterKey.getSalt().clone();
+			this.algorithm = masterKey.getAlgorithm();
+		}
+
+		public SaltedSecretKey toSaltedSecretKey() {
+			return new SaltedSecretKey(new SecretKeySpec(encodedKey, algorithm), salt.clone());
+		}
+
+		public void destroy() {
+			Arrays.fill(encodedKey, (byte) 0);
+		}
+	}
+}
@@ -21,22 +21,49 @@ import static org.syncany.crypto.CipherParams.CRYPTO_PROVIDER_ID;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 
+/**
+ * Implements an input stream that decrypts a stream written by the 
+ * {@link MultiCipherOutputStream}. Both the single-message format (version 1)
+ * and the segmented format (version 2) can be read. 
+ * 
+ * <p>For segmented streams, each segment is authenticated before any of its data
+ * is returned to the caller. Skipped segments are not decrypted (unless it is 
+ * the final segment, which is always verified to detect truncation).
+ * 
+ * @see MultiCipherOutputStream
+ */
 public class MultiCipherInputStream extends InputStream {
-	private InputStream underlyingInputStream;
+	private PushbackInputStream underlyingInputStream;
 
 	private InputStream cipherInputStream;
 	private CipherSession cipherSession;
 	
+	private byte streamVersion;
 	private boolean headerRead;
 	private Mac headerHmac;
+
+	private List<CipherSpec> segmentCipherSpecs;
+	private List<byte[]> segmentKeys;
+	private List<byte[]> segmentIvs;
+	private int segmentSize;
+	private byte[] ciphertextSegment;
+	private byte[][] segmentCipherBuffers;
+	private byte[] segment;
+	private int segmentLength;
+	private int segmentPosition;
+	private long segmentIndex;
+	private boolean finalSegmentRead;
 		
 	public MultiCipherInputStream(InputStream in, CipherSession cipherSession) throws IOException {
-		this.underlyingInputStream = in;		
+		this.underlyingInputStream = new PushbackInputStream(in, 1);		
 
 		this.cipherInputStream = null;
 		this.cipherSession = cipherSession;
@@ -48,34 +75,118 @@ public class MultiCipherInputStream extends InputStream {
 	@Override
 	public int read() throws IOException {
 		readHeader();
-		return cipherInputStream.read();
+		
+		if (streamVersion == MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE) {
+			return cipherInputStream.read();
+		}
+		else {
+			byte[] singleByte = new byte[1];
+			int read = read(singleByte, 0, 1);
+			
+			return (read == -1) ? -1 : singleByte[0] & 0xff;
+		}
 	}
 	
 	@Override
 	public int read(byte[] b) throws IOException {
-		readHeader();
-		return cipherInputStream.read(b, 0, b.length);
+		return read(b, 0, b.length);
 	}
 	
 	@Override
 	public int read(byte[] b, int off, int len) throws IOException {
 		readHeader();
-		return cipherInputStream.read(b, off, len);
+		
+		if (streamVersion == MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE) {
+			return cipherInputStream.read(b, off, len);
+		}
+		else if (len == 0) {
+			return 0;
+		}
+		else {
+			while (segmentPosition == segmentLength) {
+				if (!readSegment(true)) {
+					return -1;
+				}
+			}
+
+			int readLength = Math.min(len, segmentLength - segmentPosition);
+			System.arraycopy(segment, segmentPosition, b, off, readLength);
+
+			segmentPosition += readLength;
+			return readLength;
+		}
+	}
+	
+	/**
+	 * Skips over the given number of plaintext bytes. For segmented streams, whole segments
+	 * are skipped without being decrypted, which allows cheap access to arbitrary offsets.
+	 */
+	@Override
+	public long skip(long n) throws IOException {
+		readHeader();
+		
+		if (streamVersion == MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE) {
+			return cipherInputStream.skip(n);
+		}
+		else {
+			long skipped = 0;
+			
+			while (skipped < n) {
+				if (segmentPosition == segmentLength) {
+					boolean decryptSegment = n - skipped < segmentSize;
+					
+					if (!readSegment(decryptSegment)) {
+						break;
+					}
+				}
+				
+				int skipLength = (int) Math.min(n - skipped, segmentLength - segmentPosition);
+				
+				segmentPosition += skipLength;
+				skipped += skipLength;
+			}
+			
+			return skipped;
+		}
+	}
+	
+	@Override
+	public int available() throws IOException {
+		if (headerRead && streamVersion == MultiCipherOutputStream.STREAM_VERSION_SEGMENTED) {
+			return segmentLength - segmentPosition;
+		}
+		else {
+			return 0;
+		}
 	}
 	
 	@Override
 	public void close() throws IOException {
-		cipherInputStream.close();
+		if (cipherInputStream != null) {
+			cipherInputStream.close();
+		}
+		else {
+			underlyingInputStream.close();
+		}
 	}	
 	
 	private void readHeader() throws IOException {
 		if (!headerRead) {
 			try {
 				readAndVerifyMagicNoHmac(underlyingInputStream);
-				readAndVerifyVersionNoHmac(underlyingInputStream);
+				streamVersion = readAndVerifyVersionNoHmac(underlyingInputStream);
 
 				headerHmac = readHmacSaltAndInitHmac(underlyingInputStream, cipherSession);				
+
+				if (streamVersion == MultiCipherOutputStream.STREAM_VERSION_SEGMENTED) {
+					headerHmac.update(streamVersion);
+				}
+
 				cipherInputStream = readCipherSpecsAndUpdateHmac(underlyingInputStream, headerHmac, cipherSession);
+				
+				if (streamVersion == MultiCipherOutputStream.STREAM_VERSION_SEGMENTED) {
+					readSegmentSizeAndUpdateHmac(underlyingInputStream, headerHmac);
+				}
 
 				readAndVerifyHmac(underlyingInputStream, headerHmac);			
 			}
@@ -88,20 +199,21 @@ public class MultiCipherInputStream extends InputStream {
 	}
 
 	private void readAndVerifyMagicNoHmac(InputStream inputStream) throws IOException {
-		byte[] streamMagic = new byte[MultiCipherOutputStream.STREAM_MAGIC.length];
-		inputStream.read(streamMagic);
+		byte[] streamMagic = readNoHmac(inputStream, MultiCipherOutputStream.STREAM_MAGIC.length);
 		
 		if (!Arrays.equals(MultiCipherOutputStream.STREAM_MAGIC, streamMagic)) {
 			throw new IOException("Not a Syncany-encrypted file, no magic!");
 		}
 	}
 
-	private void readAndVerifyVersionNoHmac(InputStream inputStream) throws IOException {
+	private byte readAndVerifyVersionNoHmac(InputStream inputStream) throws IOException {
 		byte streamVersion = (byte) inputStream.read();
 		
-		if (streamVersion != MultiCipherOutputStream.STREAM_VERSION) {
+		if (streamVersion != MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE && streamVersion != MultiCipherOutputStream.STREAM_VERSION_SEGMENTED) {
 			throw new IOException("Stream version not supported: "+streamVersion);
 		}		
+		
+		return streamVersion;
 	}
 	
 	private Mac readHmacSaltAndInitHmac(InputStream inputStream, CipherSession cipherSession) throws Exception {
@@ -118,6 +230,10 @@ public class MultiCipherInputStream extends InputStream {
 		int cipherSpecCount = readByteAndUpdateHmac(underlyingInputStream, hmac);		
 		InputStream nestedCipherInputStream = underlyingInputStream;
 		
+		segmentCipherSpecs = new ArrayList<CipherSpec>();
+		segmentKeys = new ArrayList<byte[]>();
+		segmentIvs = new ArrayList<byte[]>();
+		
 		for (int i=0; i<cipherSpecCount; i++) {
 			int cipherSpecId = readByteAndUpdateHmac(underlyingInputStream, hmac);				
 			CipherSpec cipherSpec = CipherSpecs.getCipherSpec(cipherSpecId);
@@ -130,10 +246,40 @@ public class MultiCipherInputStream extends InputStream {
 			byte[] iv = readAndUpdateHmac(underlyingInputStream, cipherSpec.getIvSize()/8, hmac);
 			
 			SecretKey secretKey = cipherSession.getReadSecretKey(cipherSpec, salt);			
-			nestedCipherInputStream = cipherSpec.newCipherInputStream(nestedCipherInputStream, secretKey.getEncoded(), iv);		
+			
+			if (streamVersion == MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE) {
+				nestedCipherInputStream = cipherSpec.newCipherInputStream(nestedCipherInputStream, secretKey.getEncoded(), iv);
+			}
+			else {
+				segmentCipherSpecs.add(cipherSpec);
+				segmentKeys.add(secretKey.getEncoded());
+				segmentIvs.add(iv);
+			}
 		}	 
 		
-		return nestedCipherInputStream;
+		return (streamVersion == MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE) ? nestedCipherInputStream : null;
+	}
+
+	private void readSegmentSizeAndUpdateHmac(InputStream inputStream, Mac hmac) throws Exception {
+		byte[] segmentSizeBytes = readAndUpdateHmac(inputStream, 4, hmac);
+		segmentSize = ((segmentSizeBytes[0] & 0xff) << 24) | ((segmentSizeBytes[1] & 0xff) << 16) | ((segmentSizeBytes[2] & 0xff) << 8)
+				| (segmentSizeBytes[3] & 0xff);
+		
+		if (segmentSize <= 0 || segmentSize > MultiCipherOutputStream.MAX_SEGMENT_SIZE) {
+			throw new IOException("Invalid segment size: " + segmentSize);
+		}
+
+		byte[][] keys = segmentKeys.toArray(new byte[0][]);
+		byte[][] ivs = segmentIvs.toArray(new byte[0][]);
+		int ciphertextSegmentSize = MultiCipherOutputStream.getCiphertextSegmentSize(segmentSize, segmentCipherSpecs, keys, ivs);
+
+		ciphertextSegment = new byte[ciphertextSegmentSize];
+		segmentCipherBuffers = new byte[][] { new byte[ciphertextSegmentSize], new byte[ciphertextSegmentSize] };
+		segment = null;
+		segmentLength = 0;
+		segmentPosition = 0;
+		segmentIndex = 0;
+		finalSegmentRead = false;
 	}
 
 	private void readAndVerifyHmac(InputStream inputStream, Mac hmac) throws Exception {
@@ -145,9 +291,78 @@ public class MultiCipherInputStream extends InputStream {
 		}			
 	}
 
+	/**
+	 * Reads the next ciphertext segment and (if requested) decrypts and authenticates it. 
+	 * A segment is the final segment if it is shorter than a full segment, or if it is
+	 * followed by the end of the stream. The final segment is always decrypted. 
+	 */
+	private boolean readSegment(boolean decrypt) throws IOException {
+		if (finalSegmentRead) {
+			return false;
+		}
+		
+		int ciphertextLength = readFully(underlyingInputStream, ciphertextSegment, ciphertextSegment.length);
+		boolean finalSegment = ciphertextLength < ciphertextSegment.length;
+		
+		if (!finalSegment) {
+			int nextByte = underlyingInputStream.read();
+			
+			if (nextByte == -1) {
+				finalSegment = true;
+			}
+			else {
+				underlyingInputStream.unread(nextByte);
+			}
+		}
+
+		if (decrypt || finalSegment) {
+			decryptSegment(ciphertextLength, finalSegment);
+		}
+		else {
+			segment = null;
+			segmentLength = segmentSize;
+		}
+		
+		segmentPosition = 0;
+		segmentIndex++;
+		finalSegmentRead = finalSegment;
+		
+		return true;
+	}
+
+	private void decryptSegment(int ciphertextLength, boolean finalSegment) throws IOException {
+		try {
+			byte[] data = ciphertextSegment;
+			int dataLength = ciphertextLength;
+			
+			for (int i = 0; i < segmentCipherSpecs.size(); i++) {
+				byte[] nonce = MultiCipherOutputStream.deriveSegmentNonce(segmentIvs.get(i), segmentIndex, finalSegment);
+				byte[] plaintextBuffer = segmentCipherBuffers[i % 2];
+				
+				int plaintextLength = segmentCipherSpecs.get(i).processSegment(false, segmentKeys.get(i), nonce, data, dataLength, plaintextBuffer);
+				
+				data = plaintextBuffer;
+				dataLength = plaintextLength;
+			}
+			
+			if (dataLength > segmentSize || (!finalSegment && dataLength != segmentSize)) {
+				throw new IOException("Integrity exception: Invalid length of segment " + segmentIndex);
+			}
+			
+			segment = data;
+			segmentLength = dataLength;
+		}
+		catch (CipherException e) {
+			throw new IOException("Integrity exception: Segment " + segmentIndex + " cannot be authenticated; stream is corrupt or truncated.", e);
+		}
+	}
+
 	private byte[] readNoHmac(InputStream inputStream, int size) throws IOException {
 		byte[] bytes = new byte[size];		
-		inputStream.read(bytes);	
+		
+		if (readFully(inputStream, bytes, size) != size) {
+			throw new IOException("Unexpected end of stream; header is truncated.");
+		}
 		
 		return bytes;
 	}
@@ -165,4 +380,15 @@ public class MultiCipherInputStream extends InputStream {
 		
 		return abyte;
 	}
-}
\ No newline at end of file
+	
+	private int readFully(InputStream inputStream, byte[] buffer, int length) throws IOException {
+		int totalRead = 0;
+		int read;
+		
+		while (totalRead < length && (read = inputStream.read(buffer, totalRead, length - totalRead)) != -1) {
+			totalRead += read;
+		}
+		
+		return totalRead;
+	}
+}
@@ -36,7 +36,7 @@ import org.syncany.crypto.specs.HmacSha256CipherSpec;
  *    Length           HMAC'd           Description
  *    ----------------------------------------------
  *    04               no               "Sy" 0x02 0x05 (4 bytes)
- *    01               no               Version (1 byte)
+ *    01               no / yes         Version (1 byte, HMAC'd in header in version 2 only)
  *    12               no               HMAC salt             
  *    01               yes (in header)  Cipher count (=n, 1 byte)
  *    
@@ -45,10 +45,25 @@ import org.syncany.crypto.specs.HmacSha256CipherSpec;
  *      12             yes (in header)  Salt for cipher i (12 bytes)
  *      aa             yes (in header)  IV for cipher i (cipher specific length, 0..x)
  *      
+ *    04               yes (in header)  Segment size (4 bytes, version 2 only)
  *    20               no               Header HMAC (20 bytes, for "HmacSHA1")
  *    bb               yes (in mode)    Ciphertext (HMAC'd by mode, e.g. GCM)
  * </pre>
  * 
+ * In version 1, the ciphertext is a single message per cipher, i.e. it can only be
+ * decrypted sequentially and is only authenticated at the very end of the stream. 
+ * 
+ * In version 2 (segmented), the plaintext is split into segments of the given segment 
+ * size, and each segment is encrypted and authenticated individually (using all ciphers,
+ * and adding one MAC per cipher). The nonce of each segment is derived from the cipher's IV,
+ * the segment index and a final-segment flag, so segments cannot be reordered, and the stream
+ * cannot be truncated at a segment boundary without being detected. Segments can be verified
+ * incrementally, decrypted independently, and skipped without decrypting them.
+ * 
+ * Version 1 is written by default. Version 2 is opt-in per repository (see
+ * {@link org.syncany.chunk.CipherTransformer#PROPERTY_STREAM_VERSION}); both versions
+ * are always readable by the {@link MultiCipherInputStream}.
+ * 
  * It follows a few Do's and Don'ts:
  * - http://blog.cryptographyengineering.com/2011/11/how-not-to-use-symmetric-encryption.html
  * - http://security.stackexchange.com/questions/30170/after-how-much-data-encryption-aes-256-we-should-change-key
@@ -62,10 +77,15 @@ import org.syncany.crypto.specs.HmacSha256CipherSpec;
  */
 public class MultiCipherOutputStream extends OutputStream {
 	public static final byte[] STREAM_MAGIC = new byte[] { 0x53, 0x79, 0x02, 0x05 };
-	public static final byte STREAM_VERSION = 1;
+	public static final byte STREAM_VERSION_SINGLE_MESSAGE = 1;
+	public static final byte STREAM_VERSION_SEGMENTED = 2;
+	public static final byte STREAM_VERSION = STREAM_VERSION_SINGLE_MESSAGE;
 
 	public static final int SALT_SIZE = 12;	
 	public static final CipherSpec HMAC_SPEC = new HmacSha256CipherSpec();
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+	public static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
 	
 	private OutputStream underlyingOutputStream;
 	
@@ -73,41 +93,106 @@ public class MultiCipherOutputStream extends OutputStream {
 	private CipherSession cipherSession;
 	private OutputStream cipherOutputStream;
 
+	private byte streamVersion;
 	private boolean headerWritten;	
 	private Mac headerHmac;
+
+	private int segmentSize;
+	private byte[][] segmentKeys;
+	private byte[][] segmentIvs;
+	private byte[] segmentBuffer;
+	private int segmentLength;
+	private byte[][] segmentCipherBuffers;
+	private long segmentIndex;
+	private boolean closed;
 	
 	public MultiCipherOutputStream(OutputStream out, List<CipherSpec> cipherSpecs, CipherSession cipherSession) throws IOException {
+		this(out, cipherSpecs, cipherSession, STREAM_VERSION, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public MultiCipherOutputStream(OutputStream out, List<CipherSpec> cipherSpecs, CipherSession cipherSession, byte streamVersion, int segmentSize) throws IOException {
+		if (streamVersion != STREAM_VERSION_SINGLE_MESSAGE && streamVersion != STREAM_VERSION_SEGMENTED) {
+			throw new IllegalArgumentException("Stream version not supported: " + streamVersion);
+		}
+		
+		if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+			throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+		}
+		
 		this.underlyingOutputStream = out;	
 		
 		this.cipherSpecs = cipherSpecs;		
 		this.cipherSession = cipherSession;		
 		this.cipherOutputStream = null;
 		
+		this.streamVersion = streamVersion;
 		this.headerWritten = false;
 		this.headerHmac = null;		
+
+		this.segmentSize = segmentSize;
+		this.segmentIndex = 0;
+		this.closed = false;
 	}
 	
 	@Override
 	public void write(int b) throws IOException {
-		writeHeader();
-		cipherOutputStream.write(b);		
+		write(new byte[] { (byte) b }, 0, 1);		
 	}
 	
 	@Override
 	public void write(byte[] b) throws IOException {
-		writeHeader();
-		cipherOutputStream.write(b, 0, b.length);
+		write(b, 0, b.length);
 	}
 	
 	@Override
 	public void write(byte[] b, int off, int len) throws IOException {
 		writeHeader();
-		cipherOutputStream.write(b, off, len);
+		
+		if (streamVersion == STREAM_VERSION_SINGLE_MESSAGE) {
+			cipherOutputStream.write(b, off, len);
+		}
+		else {
+			while (len > 0) {
+				// Only write a full segment once more data follows; the last segment is written on close
+				if (segmentLength == segmentSize) {
+					writeSegment(false);
+				}
+
+				int copyLength = Math.min(len, segmentSize - segmentLength);
+				System.arraycopy(b, off, segmentBuffer, segmentLength, copyLength);
+
+				segmentLength += copyLength;
+				off += copyLength;
+				len -= copyLength;
+			}
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (streamVersion == STREAM_VERSION_SINGLE_MESSAGE && cipherOutputStream != null) {
+			cipherOutputStream.flush();
+		}
+		else {
+			underlyingOutputStream.flush();
+		}
 	}
 	
 	@Override
 	public void close() throws IOException {
-		cipherOutputStream.close();
+		if (!closed) {
+			writeHeader();
+			
+			if (streamVersion == STREAM_VERSION_SINGLE_MESSAGE) {
+				cipherOutputStream.close();
+			}
+			else {
+				writeSegment(true);
+				underlyingOutputStream.close();
+			}
+			
+			closed = true;
+		}
 	}
 		
 	private void writeHeader() throws IOException {
@@ -119,15 +204,24 @@ public class MultiCipherOutputStream extends OutputStream {
 				headerHmac = Mac.getInstance(HMAC_SPEC.getAlgorithm(), CRYPTO_PROVIDER_ID);
 				headerHmac.init(hmacSecretKey);
 
+				// Authenticate version (segmented streams only, to keep version 1 readable)
+				if (streamVersion == STREAM_VERSION_SEGMENTED) {
+					headerHmac.update(streamVersion);
+				}
+
 				// Write header
 				writeNoHmac(underlyingOutputStream, STREAM_MAGIC);
-				writeNoHmac(underlyingOutputStream, STREAM_VERSION);
+				writeNoHmac(underlyingOutputStream, streamVersion);
 				writeNoHmac(underlyingOutputStream, hmacSecretKey.getSalt());			
 				writeAndUpdateHmac(underlyingOutputStream, cipherSpecs.size());
 
 				cipherOutputStream = underlyingOutputStream;
+				
+				segmentKeys = new byte[cipherSpecs.size()][];
+				segmentIvs = new byte[cipherSpecs.size()][];
 
-				for (CipherSpec cipherSpec : cipherSpecs) { 
+				for (int i = 0; i < cipherSpecs.size(); i++) { 
+					CipherSpec cipherSpec = cipherSpecs.get(i);
 					SaltedSecretKey saltedSecretKey = cipherSession.getWriteSecretKey(cipherSpec);				
 					byte[] iv = CipherUtil.createRandomArray(cipherSpec.getIvSize()/8);
 
@@ -135,8 +229,24 @@ public class MultiCipherOutputStream extends OutputStream {
 					writeAndUpdateHmac(underlyingOutputStream, saltedSecretKey.getSalt());
 					writeAndUpdateHmac(underlyingOutputStream, iv);
 
-					cipherOutputStream = cipherSpec.newCipherOutputStream(cipherOutputStream, saltedSecretKey.getEncoded(), iv);	        
+					if (streamVersion == STREAM_VERSION_SINGLE_MESSAGE) {
+						cipherOutputStream = cipherSpec.newCipherOutputStream(cipherOutputStream, saltedSecretKey.getEncoded(), iv);
+					}
+					else {
+						segmentKeys[i] = saltedSecretKey.getEncoded();
+						segmentIvs[i] = iv;
+					}
 				}	
+				
+				if (streamVersion == STREAM_VERSION_SEGMENTED) {
+					writeAndUpdateHmac(underlyingOutputStream, toBytes(segmentSize));
+					
+					segmentBuffer = new byte[segmentSize];
+					segmentLength = 0;
+
+					int ciphertextSegmentSize = getCiphertextSegmentSize(segmentSize, cipherSpecs, segmentKeys, segmentIvs);
+					segmentCipherBuffers = new byte[][] { new byte[ciphertextSegmentSize], new byte[ciphertextSegmentSize] };
+				}
 
 				writeNoHmac(underlyingOutputStream, headerHmac.doFinal());
 			}
@@ -147,6 +257,71 @@ public class MultiCipherOutputStream extends OutputStream {
 		}
 	}	
 
+	/**
+	 * Encrypts the current segment with all ciphers (last cipher first, like the nested
+	 * cipher streams of version 1), and writes it to the underlying output stream.
+	 */
+	private void writeSegment(boolean finalSegment) throws IOException {
+		try {
+			byte[] data = segmentBuffer;
+			int dataLength = segmentLength;
+
+			for (int i = cipherSpecs.size() - 1; i >= 0; i--) {
+				byte[] nonce = deriveSegmentNonce(segmentIvs[i], segmentIndex, finalSegment);
+				byte[] cipherBuffer = segmentCipherBuffers[i % 2];
+
+				int cipherLength = cipherSpecs.get(i).processSegment(true, segmentKeys[i], nonce, data, dataLength, cipherBuffer);
+
+				data = cipherBuffer;
+				dataLength = cipherLength;
+			}
+
+			underlyingOutputStream.write(data, 0, dataLength);
+
+			segmentIndex++;
+			segmentLength = 0;
+		}
+		catch (CipherException e) {
+			throw new IOException("Cannot encrypt segment " + segmentIndex, e);
+		}
+	}
+
+	/**
+	 * Derives the nonce of a segment from the cipher's IV: The segment index is XOR'ed into
+	 * the eight bytes before the last byte, and the final-segment flag into the last byte.
+	 */
+	static byte[] deriveSegmentNonce(byte[] iv, long segmentIndex, boolean finalSegment) {
+		byte[] nonce = iv.clone();
+		
+		for (int i = 0; i < 8; i++) {
+			nonce[nonce.length - 2 - i] ^= (byte) (segmentIndex >>> (8 * i));
+		}
+		
+		if (finalSegment) {
+			nonce[nonce.length - 1] ^= 0x01;
+		}
+		
+		return nonce;
+	}
+
+	/**
+	 * Returns the size of a full ciphertext segment, i.e. the segment size plus the
+	 * MAC of each cipher.
+	 */
+	static int getCiphertextSegmentSize(int segmentSize, List<CipherSpec> cipherSpecs, byte[][] keys, byte[][] ivs) throws CipherException {
+		int ciphertextSegmentSize = segmentSize;
+		
+		for (int i = 0; i < cipherSpecs.size(); i++) {
+			ciphertextSegmentSize += cipherSpecs.get(i).newAeadCipher(true, keys[i], ivs[i]).getOutputSize(0);
+		}
+		
+		return ciphertextSegmentSize;
+	}
+
+	static byte[] toBytes(int value) {
+		return new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
+	}
+
 	private void writeNoHmac(OutputStream outputStream, byte[] bytes) throws IOException {
 		outputStream.write(bytes);
 	}
@@ -164,4 +339,4 @@ public class MultiCipherOutputStream extends OutputStream {
 		writeNoHmac(outputStream, abyte);
 		headerHmac.update((byte) abyte);
 	}	
-}
\ No newline at end of file
+}
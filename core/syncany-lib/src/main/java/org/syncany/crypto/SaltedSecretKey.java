@@ -45,6 +45,10 @@ public class SaltedSecretKey implements SecretKey {
 		return salt;
 	}
 
+	public SecretKey getSecretKey() {
+		return secretKey;
+	}
+
 	@Override
 	public String getAlgorithm() {
 		return secretKey.getAlgorithm();
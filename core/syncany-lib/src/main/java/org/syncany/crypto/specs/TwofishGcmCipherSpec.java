@@ -20,6 +20,9 @@ package org.syncany.crypto.specs;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+
 import org.bouncycastle.crypto.engines.TwofishEngine;
 import org.bouncycastle.crypto.modes.AEADBlockCipher;
 import org.bouncycastle.crypto.modes.GCMBlockCipher;
@@ -27,6 +30,7 @@ import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.syncany.crypto.CipherException;
 import org.syncany.crypto.CipherSpec;
+import org.syncany.crypto.CipherUtil;
 
 public abstract class TwofishGcmCipherSpec extends CipherSpec {
 	private static final int MAC_SIZE = 128;		
@@ -37,17 +41,33 @@ public abstract class TwofishGcmCipherSpec extends CipherSpec {
 		
 	@Override
 	public OutputStream newCipherOutputStream(OutputStream underlyingOutputStream, byte[] secretKey, byte[] iv) throws CipherException {
-		AEADBlockCipher cipher = new GCMBlockCipher(new TwofishEngine()); 
-		cipher.init(true, new AEADParameters(new KeyParameter(secretKey), MAC_SIZE, iv));
-		
-		return new org.bouncycastle.crypto.io.CipherOutputStream(underlyingOutputStream, cipher);
+		return newAeadCipherOutputStream(underlyingOutputStream, secretKey, iv);
 	}
 
 	@Override
 	public InputStream newCipherInputStream(InputStream underlyingInputStream, byte[] secretKey, byte[] iv) throws CipherException {
+		return new org.bouncycastle.crypto.io.CipherInputStream(underlyingInputStream, newAeadCipher(false, secretKey, iv));
+	}
+
+	@Override
+	public AEADBlockCipher newAeadCipher(boolean forEncryption, byte[] secretKey, byte[] nonce) throws CipherException {
 		AEADBlockCipher cipher = new GCMBlockCipher(new TwofishEngine()); 
-		cipher.init(false, new AEADParameters(new KeyParameter(secretKey), MAC_SIZE, iv));
+		cipher.init(forEncryption, new AEADParameters(new KeyParameter(secretKey), MAC_SIZE, nonce));
 		
-		return new org.bouncycastle.crypto.io.CipherInputStream(underlyingInputStream, cipher);
+		return cipher;
+	}
+
+	@Override
+	public Cipher newJceCipher(boolean forEncryption, byte[] secretKey, byte[] nonce, String provider) throws CipherException {
+		try {
+			Cipher cipher = Cipher.getInstance(getAlgorithm(), provider);
+			cipher.init(forEncryption ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, CipherUtil.toSecretKey(secretKey, getAlgorithm()), 
+					new GCMParameterSpec(MAC_SIZE, nonce));
+			
+			return cipher;
+		}
+		catch (Exception e) {
+			throw new CipherException("Cannot create cipher " + getAlgorithm() + " with provider " + provider + ".", e);
+		}
 	}
 }
@@ -0,0 +1,91 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database;
+
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+
+/**
+ * The chunk position represents the location of a chunk's data in a local file,
+ * i.e. the file path (relative to the local directory), the offset within the
+ * file and the chunk size. 
+ * 
+ * <p>Chunk positions are recorded by the indexer when a file is chunked, and when
+ * a file is reconstructed during the down operation. Since the local file can 
+ * be changed at any time, a chunk position is only a hint: the file size and 
+ * last modified date are stored to detect stale positions early, and the chunk
+ * data must always be verified using the chunk checksum before it is used. 
+ * 
+ * <p>Unlike the other database entities, chunk positions are never shared with
+ * other clients.
+ *
+ * @see ChunkEntry
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class ChunkPosition {
+	private ChunkChecksum checksum;
+	private String path;
+	private long offset;
+	private int size;
+	
+	private long fileSize;
+	private long fileLastModified;
+
+	public ChunkPosition(ChunkChecksum checksum, String path, long offset, int size) {
+		this.checksum = checksum;
+		this.path = path;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	public ChunkChecksum getChecksum() {
+		return checksum;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	public void setFileSize(long fileSize) {
+		this.fileSize = fileSize;
+	}
+
+	public long getFileLastModified() {
+		return fileLastModified;
+	}
+
+	public void setFileLastModified(long fileLastModified) {
+		this.fileLastModified = fileLastModified;
+	}
+
+	@Override
+	public String toString() {
+		return "ChunkPosition [checksum=" + checksum + ", path=" + path + ", offset=" + offset + ", size=" + size + "]";
+	}
+}
@@ -0,0 +1,336 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.syncany.database.VectorClock.VectorClockComparison;
+
+/**
+ * Immutable, compact representation of a {@link VectorClock}. Instead of a map of
+ * client names to boxed values, a compact vector clock stores interned client identifiers
+ * and the clock values in two primitive arrays, sorted by client identifier.
+ *
+ * <p>Client names are interned process-wide: each distinct client name is mapped to a small
+ * integer identifier exactly once (see {@link #internClientName(String)}). Since the arrays are
+ * sorted by these identifiers, two compact clocks can be compared by walking both arrays
+ * simultaneously, without any lookups or allocations. The hash code is calculated once,
+ * and is identical to the hash code of the equivalent {@link VectorClock} map.
+ *
+ * <p>Unlike {@link VectorClock#compare(VectorClock, VectorClock) compare()}, {@link #equals(Object)}
+ * does not consider missing entries to be zero, i.e. <tt>(A1)</tt> and <tt>(A1,B0)</tt> are
+ * not equal (but their comparison is {@link VectorClockComparison#EQUAL EQUAL}). This matches the
+ * map semantics of the {@link VectorClock}.
+ *
+ * <p>The string representation is identical to the one of {@link VectorClock#toString()}, so
+ * compact clocks can be parsed from and serialized to the existing formats.
+ *
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public final class CompactVectorClock {
+	private static final ConcurrentMap<String, Integer> clientIdentifiers = new ConcurrentHashMap<String, Integer>();
+	private static final List<String> clientNames = new CopyOnWriteArrayList<String>();
+
+	private final int[] clients;
+	private final long[] values;
+	private final int hashCode;
+
+	private CompactVectorClock(int[] clients, long[] values) {
+		this.clients = clients;
+		this.values = values;
+		this.hashCode = calculateHashCode();
+	}
+
+	/**
+	 * Creates a compact vector clock from the given {@link VectorClock}.
+	 */
+	public static CompactVectorClock fromVectorClock(VectorClock vectorClock) {
+		int[] clients = new int[vectorClock.size()];
+		long[] values = new long[vectorClock.size()];
+		int size = 0;
+
+		for (Map.Entry<String, Long> vectorClockEntry : vectorClock.entrySet()) {
+			size = insertSorted(clients, values, size, internClientName(vectorClockEntry.getKey()), vectorClockEntry.getValue());
+		}
+
+		return new CompactVectorClock(clients, values);
+	}
+
+	/**
+	 * Parses a serialized vector clock (as created by {@link VectorClock#toString()}, e.g.
+	 * <tt>(A5,B2)</tt>) into a compact vector clock, without creating an intermediate map.
+	 *
+	 * @throws IllegalArgumentException If the given string is not a valid vector clock
+	 */
+	public static CompactVectorClock parseCompactVectorClock(String serializedVectorClock) {
+		int length = serializedVectorClock.length();
+
+		if (length < 2 || serializedVectorClock.charAt(0) != '(' || serializedVectorClock.charAt(length - 1) != ')') {
+			throw new IllegalArgumentException("Not a valid vector clock: " + serializedVectorClock);
+		}
+
+		int entryCount = (length == 2) ? 0 : 1;
+
+		for (int i = 1; i < length - 1; i++) {
+			if (serializedVectorClock.charAt(i) == ',') {
+				entryCount++;
+			}
+		}
+
+		int[] clients = new int[entryCount];
+		long[] values = new long[entryCount];
+		int size = 0;
+		int position = 1;
+
+		while (position < length - 1) {
+			int nameStart = position;
+
+			while (position < length - 1 && isClientNameChar(serializedVectorClock.charAt(position))) {
+				position++;
+			}
+
+			int valueStart = position;
+
+			while (position < length - 1 && isDigit(serializedVectorClock.charAt(position))) {
+				position++;
+			}
+
+			boolean validEntry = nameStart < valueStart && valueStart < position
+					&& (position == length - 1 || serializedVectorClock.charAt(position) == ',');
+
+			if (!validEntry) {
+				throw new IllegalArgumentException("Not a valid vector clock, entry does not match pattern: " + serializedVectorClock);
+			}
+
+			String clientName = serializedVectorClock.substring(nameStart, valueStart);
+			long value = Long.parseLong(serializedVectorClock.substring(valueStart, position));
+
+			size = insertSorted(clients, values, size, internClientName(clientName), value);
+			position++; // Skip ','
+		}
+
+		if (size < entryCount) { // Duplicate entries, last one wins
+			clients = Arrays.copyOf(clients, size);
+			values = Arrays.copyOf(values, size);
+		}
+
+		return new CompactVectorClock(clients, values);
+	}
+
+	/**
+	 * Returns the process-wide identifier of the given client name, and registers
+	 * the name if it has not been seen before. Identifiers are assigned in the order
+	 * in which client names are first seen; they are not persisted anywhere.
+	 */
+	public static int internClientName(String clientName) {
+		Integer clientIdentifier = clientIdentifiers.get(clientName);
+
+		if (clientIdentifier != null) {
+			return clientIdentifier;
+		}
+
+		synchronized (clientNames) {
+			clientIdentifier = clientIdentifiers.get(clientName);
+
+			if (clientIdentifier == null) {
+				clientIdentifier = clientNames.size();
+
+				clientNames.add(clientName);
+				clientIdentifiers.put(clientName, clientIdentifier);
+			}
+
+			return clientIdentifier;
+		}
+	}
+
+	/**
+	 * Returns the canonical (interned) instance of the given client name.
+	 */
+	public static String getInternedClientName(String clientName) {
+		return getClientName(internClientName(clientName));
+	}
+
+	private static String getClientName(int clientIdentifier) {
+		return clientNames.get(clientIdentifier);
+	}
+
+	public int size() {
+		return clients.length;
+	}
+
+	/**
+	 * Returns the value of the given client, or 0 if the client is not part of this clock.
+	 */
+	public long getClock(String clientName) {
+		Integer clientIdentifier = clientIdentifiers.get(clientName);
+
+		if (clientIdentifier != null) {
+			int index = Arrays.binarySearch(clients, clientIdentifier);
+
+			if (index >= 0) {
+				return values[index];
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Converts this compact vector clock into a regular (mutable) {@link VectorClock}.
+	 */
+	public VectorClock toVectorClock() {
+		VectorClock vectorClock = new VectorClock();
+
+		for (int i = 0; i < clients.length; i++) {
+			vectorClock.put(getClientName(clients[i]), values[i]);
+		}
+
+		vectorClock.compactVectorClock = this;
+		return vectorClock;
+	}
+
+	/**
+	 * Compares two compact vector clocks. Entries that only exist in one of the clocks are
+	 * treated as zero in the other clock. The semantics are identical to
+	 * {@link VectorClock#compare(VectorClock, VectorClock)}, but this method does not
+	 * allocate any objects.
+	 *
+	 * @return {@link VectorClockComparison} value indicating how clock1 relates to clock2
+	 */
+	public static VectorClockComparison compare(CompactVectorClock clock1, CompactVectorClock clock2) {
+		boolean isGreater = false;
+		boolean isSmaller = false;
+
+		int index1 = 0;
+		int index2 = 0;
+
+		while (index1 < clock1.clients.length || index2 < clock2.clients.length) {
+			long value1;
+			long value2;
+
+			if (index2 >= clock2.clients.length || (index1 < clock1.clients.length && clock1.clients[index1] < clock2.clients[index2])) {
+				value1 = clock1.values[index1++];
+				value2 = 0;
+			}
+			else if (index1 >= clock1.clients.length || clock2.clients[index2] < clock1.clients[index1]) {
+				value1 = 0;
+				value2 = clock2.values[index2++];
+			}
+			else {
+				value1 = clock1.values[index1++];
+				value2 = clock2.values[index2++];
+			}
+
+			if (value1 > value2) {
+				isGreater = true;
+			}
+			else if (value1 < value2) {
+				isSmaller = true;
+			}
+
+			if (isGreater && isSmaller) {
+				return VectorClockComparison.SIMULTANEOUS;
+			}
+		}
+
+		if (isGreater) {
+			return VectorClockComparison.GREATER;
+		}
+		else if (isSmaller) {
+			return VectorClockComparison.SMALLER;
+		}
+		else {
+			return VectorClockComparison.EQUAL;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CompactVectorClock)) {
+			return false;
+		}
+		CompactVectorClock other = (CompactVectorClock) obj;
+		return hashCode == other.hashCode && Arrays.equals(clients, other.clients) && Arrays.equals(values, other.values);
+	}
+
+	/**
+	 * Returns the string representation of this clock, in the same format as
+	 * {@link VectorClock#toString()}, e.g. <tt>(A5,B2)</tt>.
+	 */
+	@Override
+	public String toString() {
+		return toVectorClock().toString();
+	}
+
+	/**
+	 * Calculates the hash code in the same way as {@link java.util.AbstractMap#hashCode()}
+	 * does for the equivalent {@link VectorClock}, so that both are interchangeable in hash maps.
+	 */
+	private int calculateHashCode() {
+		int hashCode = 0;
+
+		for (int i = 0; i < clients.length; i++) {
+			hashCode += getClientName(clients[i]).hashCode() ^ (int) (values[i] ^ (values[i] >>> 32)); // = Long.hashCode()
+		}
+
+		return hashCode;
+	}
+
+	private static int insertSorted(int[] clients, long[] values, int size, int client, long value) {
+		int position = size;
+
+		for (int i = 0; i < size; i++) {
+			if (clients[i] == client) {
+				values[i] = value;
+				return size;
+			}
+		}
+
+		while (position > 0 && clients[position - 1] > client) {
+			clients[position] = clients[position - 1];
+			values[position] = values[position - 1];
+			position--;
+		}
+
+		clients[position] = client;
+		values[position] = value;
+
+		return size + 1;
+	}
+
+	private static boolean isClientNameChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
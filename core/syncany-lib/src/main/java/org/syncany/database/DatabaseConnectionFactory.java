@@ -27,7 +27,10 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -49,9 +52,36 @@ public class DatabaseConnectionFactory {
 	private static final Logger logger = Logger.getLogger(DatabaseConnectionFactory.class.getSimpleName());
 
 	public static final String DATABASE_DRIVER = "org.hsqldb.jdbcDriver";
-	public static final String DATABASE_CONNECTION_FILE_STRING = "jdbc:hsqldb:file:%DATABASEFILE%;user=sa;password=;create=true;write_delay=false;hsqldb.write_delay=false";
+	public static final String DATABASE_CONNECTION_FILE_STRING = "jdbc:hsqldb:file:%DATABASEFILE%;user=sa;password=;create=true;write_delay=false;hsqldb.write_delay=false;hsqldb.tx=locks";
 	public static final String DATABASE_RESOURCE_PATTERN = "/org/syncany/database/sql/%s";
 	public static final String DATABASE_RESOURCE_CREATE_ALL = "script.create.all.sql";
+	public static final String DATABASE_RESOURCE_CREATE_CHUNKPOSITION = "script.create.chunkposition.sql";
+	public static final String DATABASE_RESOURCE_MIGRATE_BINARYKEYS_BEFORE = "script.migrate.binarykeys.before.sql";
+	public static final String DATABASE_RESOURCE_MIGRATE_BINARYKEYS_AFTER = "script.migrate.binarykeys.after.sql";
+	public static final String DATABASE_RESOURCE_MIGRATE_BINARYKEYS_CLEANUP = "script.migrate.binarykeys.cleanup.sql";
+	public static final String DATABASE_RESOURCE_MIGRATE_CURRENTFILEVERSION = "script.migrate.currentfileversion.sql";
+	public static final String DATABASE_RESOURCE_MIGRATE_PATHDEPTH_VIEWS = "script.migrate.pathdepth.views.sql";
+	public static final String DATABASE_RESOURCE_MIGRATE_PATHDEPTH = "script.migrate.pathdepth.sql";
+	public static final String DATABASE_RESOURCE_MIGRATE_REFCOUNT_TRIGGERS = "script.migrate.refcount.triggers.sql";
+	public static final String DATABASE_RESOURCE_MIGRATE_REFCOUNT = "script.migrate.refcount.sql";
+
+	private static final String[] DATABASE_MIGRATE_BINARYKEYS_TABLES = new String[] { "CHUNK", "FILECONTENT", "FILECONTENT_CHUNK", "FILEHISTORY",
+			"FILEVERSION", "MULTICHUNK", "MULTICHUNK_CHUNK", "MULTICHUNK_MUDDY" };
+
+	/**
+	 * Version of the database schema created by {@link #DATABASE_RESOURCE_CREATE_ALL}. The version
+	 * is stored in the <i>general_settings</i> table. Databases without a version are version 1.
+	 *
+	 * <ul>
+	 *  <li>Version 1: Chunk, multichunk, file content and file history identifiers stored as hex varchar(40)</li>
+	 *  <li>Version 2: Identifiers stored as varbinary(20)</li>
+	 *  <li>Version 3: Current file versions materialized in the <i>fileversion_current</i> table</li>
+	 *  <li>Version 4: Path depth stored and indexed for file versions</li>
+	 *  <li>Version 5: Reference counts stored for chunks, file contents and multichunks</li>
+	 * </ul>
+	 */
+	public static final int DATABASE_SCHEMA_VERSION = 5;
+	public static final String DATABASE_SCHEMA_VERSION_KEY = "schemaversion";
 
 	public static final Map<String, String> DATABASE_STATEMENTS = new HashMap<String, String>();
 
@@ -75,6 +105,22 @@ public class DatabaseConnectionFactory {
 	 * @return Returns a valid database connection
 	 */
 	public static Connection createConnection(File databaseFile, boolean readOnly) {
+		return createConnection(databaseFile, readOnly, null);
+	}
+
+	/**
+	 * Creates a database connection using the given database file (see {@link #createConnection(File, boolean)}),
+	 * and applies the storage settings of the given database profile to the database.
+	 *
+	 * <p>The profile settings are persistent database properties. They are only changed if they
+	 * differ from the current settings of the database.
+	 *
+	 * @param databaseFile File at which to create/load the database
+	 * @param readOnly True if this connection is only used for reading.
+	 * @param databaseProfile Storage settings to apply, or <tt>null</tt> to keep the current settings
+	 * @return Returns a valid database connection
+	 */
+	public static Connection createConnection(File databaseFile, boolean readOnly, DatabaseProfile databaseProfile) {
 		String databaseFilePath = FileUtil.getDatabasePath(databaseFile.toString());
 		String connectionString = DATABASE_CONNECTION_FILE_STRING.replaceAll("%DATABASEFILE%", databaseFilePath);
 
@@ -82,7 +128,7 @@ public class DatabaseConnectionFactory {
 			connectionString += ";hsqldb.sqllog=3";
 		}
 
-		return createConnection(connectionString, readOnly);
+		return createConnection(connectionString, readOnly, databaseProfile);
 	}
 
 	/**
@@ -123,11 +169,10 @@ public class DatabaseConnectionFactory {
 		return statementInputStream;
 	}
 
-	private static Connection createConnection(String connectionString, boolean readOnly) {
+	private static Connection createConnection(String connectionString, boolean readOnly, DatabaseProfile databaseProfile) {
 		try {
 			Connection connection = DriverManager.getConnection(connectionString);
 			connection.setAutoCommit(false);
-			connection.setReadOnly(readOnly);
 
 			// We use UNCOMMITTED read to enable operations to alter the database and continue
 			// with those changes, but still roll back the database if something goes wrong later.
@@ -136,8 +181,32 @@ public class DatabaseConnectionFactory {
 			// Test and create tables
 			if (!tablesExist(connection)) {
 				createTables(connection);
+				writeSchemaVersion(connection, DATABASE_SCHEMA_VERSION);
+			}
+
+			// The local chunk position table was added later; create it for existing databases
+			if (!tableExists(connection, "CHUNKPOSITION")) {
+				createChunkPositionTable(connection);
+			}
+
+			// Migrate databases created with an older schema
+			if (readSchemaVersion(connection) < DATABASE_SCHEMA_VERSION) {
+				migrateSchema(connection);
+			}
+
+			// Databases that were switched to MVCC transaction control must be switched back (see below)
+			if (!lockingEnabled(connection)) {
+				enableLocking(connection);
+			}
+
+			// Apply cache, log and defragmentation settings
+			if (databaseProfile != null) {
+				applyProfile(connection, databaseProfile);
 			}
 
+			// Set read-only after the tables have been created
+			connection.setReadOnly(readOnly);
+
 			return connection;
 		}
 		catch (Exception e) {
@@ -164,6 +233,277 @@ public class DatabaseConnectionFactory {
 		}
 	}
 
+	private static boolean columnExists(Connection connection, String tableName, String columnName) throws SQLException {
+		try (PreparedStatement preparedStatement = connection.prepareStatement(
+				"SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_COLUMNS WHERE TABLE_NAME=? AND COLUMN_NAME=?")) {
+
+			preparedStatement.setString(1, tableName);
+			preparedStatement.setString(2, columnName);
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				return resultSet.next() && resultSet.getInt(1) > 0;
+			}
+		}
+	}
+
+	private static boolean tableExists(Connection connection, String tableName) throws SQLException {
+		try (PreparedStatement preparedStatement = connection.prepareStatement(
+				"SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_TABLES WHERE TABLE_TYPE='TABLE' AND TABLE_NAME=?")) {
+
+			preparedStatement.setString(1, tableName);
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				return resultSet.next() && resultSet.getInt(1) > 0;
+			}
+		}
+	}
+
+	private static void createChunkPositionTable(Connection connection) throws SQLException, IOException {
+		logger.log(Level.INFO, "Database has no chunk position table. Creating table from " + DATABASE_RESOURCE_CREATE_CHUNKPOSITION);
+
+		connection.setAutoCommit(true);
+		SqlRunner.runScript(connection, getStatementInputStream(DATABASE_RESOURCE_CREATE_CHUNKPOSITION));
+		connection.setAutoCommit(false);
+	}
+
+	private static boolean lockingEnabled(Connection connection) throws SQLException {
+		try (ResultSet resultSet = connection.prepareStatement(
+				"SELECT PROPERTY_VALUE FROM INFORMATION_SCHEMA.SYSTEM_PROPERTIES WHERE PROPERTY_NAME='hsqldb.tx'")
+				.executeQuery()) {
+
+			return !resultSet.next() || "locks".equalsIgnoreCase(resultSet.getString(1));
+		}
+	}
+
+	/**
+	 * Switches the transaction control of the database back to the default (locking) transaction
+	 * control. The setting is persistent, i.e. this is only done once for databases that were
+	 * switched to multi-version concurrency control (MVCC).
+	 *
+	 * <p>In the multi-version modes (MVCC and MVLOCKS), HSQLDB 2.3.1 does not properly roll back
+	 * a transaction that updated the same row of a cached table more than once: The rolled back
+	 * row versions are written to the data file and show up as duplicate rows after the database
+	 * is reopened. Since the reference count triggers and the current file versions update the same
+	 * rows many times per transaction (e.g. when 'down' applies several database versions), any
+	 * rollback would corrupt the database.
+	 */
+	private static synchronized void enableLocking(Connection connection) throws SQLException {
+		logger.log(Level.INFO, "Database uses multi-version transaction control. Switching to LOCKS ...");
+
+		connection.setAutoCommit(true);
+
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("SET DATABASE TRANSACTION CONTROL LOCKS");
+		}
+
+		connection.setAutoCommit(false);
+	}
+
+	/**
+	 * Applies the storage settings of the given database profile, using <tt>SET FILES</tt> statements.
+	 * Only settings that differ from the current database properties are changed. Unlike the
+	 * <tt>hsqldb.*</tt> properties in the connection string, which are only used when the database
+	 * is created, these statements also change the settings of an existing database.
+	 */
+	private static synchronized void applyProfile(Connection connection, DatabaseProfile databaseProfile) throws SQLException {
+		Map<String, String> properties = readDatabaseProperties(connection);
+		List<String> settingStatements = new ArrayList<String>();
+
+		boolean writeDelay = databaseProfile.getWriteDelayMillis() > 0;
+
+		if (!Integer.toString(databaseProfile.getCacheRows()).equals(properties.get("hsqldb.cache_rows"))) {
+			settingStatements.add("SET FILES CACHE ROWS " + databaseProfile.getCacheRows());
+		}
+
+		if (!Integer.toString(databaseProfile.getCacheSizeKb()).equals(properties.get("hsqldb.cache_size"))) {
+			settingStatements.add("SET FILES CACHE SIZE " + databaseProfile.getCacheSizeKb());
+		}
+
+		if (!Boolean.toString(databaseProfile.isNioDataFile()).equals(properties.get("hsqldb.nio_data_file"))) {
+			settingStatements.add("SET FILES NIO " + (databaseProfile.isNioDataFile() ? "TRUE" : "FALSE"));
+		}
+
+		if (!Integer.toString(databaseProfile.getNioMaxSizeMb()).equals(properties.get("hsqldb.nio_max_size"))) {
+			settingStatements.add("SET FILES NIO SIZE " + databaseProfile.getNioMaxSizeMb());
+		}
+
+		if (!Boolean.toString(writeDelay).equals(properties.get("hsqldb.write_delay"))
+				|| (writeDelay && !Integer.toString(databaseProfile.getWriteDelayMillis()).equals(properties.get("hsqldb.write_delay_millis")))) {
+
+			settingStatements.add("SET FILES WRITE DELAY " + (writeDelay ? databaseProfile.getWriteDelayMillis() + " MILLIS" : "FALSE"));
+		}
+
+		if (!Integer.toString(databaseProfile.getLogSizeMb()).equals(properties.get("hsqldb.log_size"))) {
+			settingStatements.add("SET FILES LOG SIZE " + databaseProfile.getLogSizeMb());
+		}
+
+		if (!Integer.toString(databaseProfile.getDefragLimit()).equals(properties.get("hsqldb.defrag_limit"))) {
+			settingStatements.add("SET FILES DEFRAG " + databaseProfile.getDefragLimit());
+		}
+
+		if (settingStatements.size() > 0) {
+			logger.log(Level.INFO, "Applying database profile " + databaseProfile + " ...");
+
+			connection.setAutoCommit(true);
+
+			try (Statement statement = connection.createStatement()) {
+				for (String settingStatement : settingStatements) {
+					logger.log(Level.FINE, "- " + settingStatement);
+					statement.execute(settingStatement);
+				}
+			}
+
+			connection.setAutoCommit(false);
+		}
+	}
+
+	private static Map<String, String> readDatabaseProperties(Connection connection) throws SQLException {
+		Map<String, String> properties = new HashMap<String, String>();
+
+		try (ResultSet resultSet = connection.prepareStatement(
+				"SELECT PROPERTY_NAME, PROPERTY_VALUE FROM INFORMATION_SCHEMA.SYSTEM_PROPERTIES WHERE PROPERTY_NAME LIKE 'hsqldb.%'")
+				.executeQuery()) {
+
+			while (resultSet.next()) {
+				properties.put(resultSet.getString(1), resultSet.getString(2));
+			}
+		}
+
+		return properties;
+	}
+
+	private static int readSchemaVersion(Connection connection) throws SQLException {
+		try (PreparedStatement preparedStatement = connection.prepareStatement(getStatement("application.select.all.readGeneralSettings.sql"))) {
+			preparedStatement.setString(1, DATABASE_SCHEMA_VERSION_KEY);
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				if (resultSet.next()) {
+					return Integer.parseInt(resultSet.getString(1));
+				}
+				else {
+					return 1;
+				}
+			}
+		}
+	}
+
+	private static void writeSchemaVersion(Connection connection, int schemaVersion) throws SQLException {
+		try (PreparedStatement preparedStatement = connection.prepareStatement(getStatement("application.insert.all.writeGeneralSettings.sql"))) {
+			preparedStatement.setString(1, DATABASE_SCHEMA_VERSION_KEY);
+			preparedStatement.setString(2, Integer.toString(schemaVersion));
+
+			preparedStatement.executeUpdate();
+			connection.commit();
+		}
+	}
+
+	/**
+	 * Migrates a database created with an older schema version to the current version. Each
+	 * migration step runs one or many scripts and updates the schema version only if all scripts
+	 * of that step succeed.
+	 *
+	 * <p>Schema changes cannot be rolled back, so each step can be repeated if the process died
+	 * in the middle of it: Objects are only created or altered if they do not exist yet, or are 
+	 * dropped and re-created.
+	 *
+	 * <ul>
+	 *  <li>Version 1 to 2: The tables with identifier columns are renamed (unless they have been
+	 *      renamed before), re-created with the current create script, and the data is copied to 
+	 *      the new tables in the same transaction that updates the schema version.</li>
+	 *  <li>Version 2 to 3: The renamed version 1 tables are dropped (if they exist). The 
+	 *      <i>fileversion_current</i> table is created (if it does not exist) and filled from the
+	 *      <i>fileversion_master_last</i> view.</li>
+	 *  <li>Version 3 to 4: The <i>depth</i> column is added to the file version tables (if it does not
+	 *      exist) and calculated from the path.</li>
+	 *  <li>Version 4 to 5: The <i>refcount</i> columns are added to the chunk, file content and 
+	 *      multichunk tables (if they do not exist), their triggers are re-created, and the counts 
+	 *      are calculated.</li>
+	 * </ul>
+	 */
+	private static synchronized void migrateSchema(Connection connection) throws SQLException, IOException {
+		int schemaVersion = readSchemaVersion(connection); // Might have been migrated by another connection
+
+		if (schemaVersion < 2) {
+			migrateBinaryKeys(connection);
+		}
+
+		if (schemaVersion < 3) {
+			migrateSchema(connection, 3, DATABASE_RESOURCE_MIGRATE_BINARYKEYS_CLEANUP, DATABASE_RESOURCE_MIGRATE_CURRENTFILEVERSION);
+		}
+
+		if (schemaVersion < 4) {
+			addColumnIfNotExists(connection, "FILEVERSION", "DEPTH", "int DEFAULT 0 NOT NULL"); // Created by the version 1 migration
+			addColumnIfNotExists(connection, "FILEVERSION_CURRENT", "DEPTH", "int DEFAULT 0 NOT NULL");
+
+			migrateSchema(connection, 4, DATABASE_RESOURCE_MIGRATE_PATHDEPTH_VIEWS, DATABASE_RESOURCE_MIGRATE_PATHDEPTH);
+		}
+
+		if (schemaVersion < 5) {
+			for (String tableName : new String[] { "CHUNK", "FILECONTENT", "MULTICHUNK" }) {
+				addColumnIfNotExists(connection, tableName, "REFCOUNT", "int DEFAULT 0 NOT NULL"); // Created by the version 1 migration
+			}
+
+			migrateSchema(connection, 5, DATABASE_RESOURCE_MIGRATE_REFCOUNT_TRIGGERS, DATABASE_RESOURCE_MIGRATE_REFCOUNT);
+		}
+	}
+
+	private static void migrateSchema(Connection connection, int targetSchemaVersion, String... migrationScripts) throws SQLException, IOException {
+		logger.log(Level.INFO, "Migrating database to schema version " + targetSchemaVersion + " ...");
+
+		connection.setAutoCommit(true);
+
+		for (String migrationScript : migrationScripts) {
+			SqlRunner.runScript(connection, getStatementInputStream(migrationScript));
+		}
+
+		connection.setAutoCommit(false);
+
+		writeSchemaVersion(connection, targetSchemaVersion);
+		logger.log(Level.INFO, "Database migration to schema version " + targetSchemaVersion + " successful.");
+	}
+
+	private static void migrateBinaryKeys(Connection connection) throws SQLException, IOException {
+		logger.log(Level.INFO, "Migrating database to schema version 2 ...");
+
+		connection.setAutoCommit(true);
+		SqlRunner.runScript(connection, getStatementInputStream(DATABASE_RESOURCE_MIGRATE_BINARYKEYS_BEFORE));
+
+		// Tables renamed by an interrupted migration must not be renamed again: The table 
+		// with the original name (if any) is then one of the new tables
+		for (String tableName : DATABASE_MIGRATE_BINARYKEYS_TABLES) {
+			if (!tableExists(connection, tableName + "_V1")) {
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("ALTER TABLE " + tableName + " RENAME TO " + tableName + "_V1");
+				}
+			}
+		}
+
+		SqlRunner.runScript(connection, getStatementInputStream(DATABASE_RESOURCE_CREATE_ALL));
+		connection.setAutoCommit(false);
+
+		// Copy the data and update the version in one transaction (the old tables are dropped by the next step)
+		try {
+			SqlRunner.runScript(connection, getStatementInputStream(DATABASE_RESOURCE_MIGRATE_BINARYKEYS_AFTER));
+			writeSchemaVersion(connection, 2);
+		}
+		catch (SQLException | IOException e) {
+			connection.rollback();
+			throw e;
+		}
+
+		logger.log(Level.INFO, "Database migration to schema version 2 successful.");
+	}
+
+	private static void addColumnIfNotExists(Connection connection, String tableName, String columnName, String columnDefinition) throws SQLException {
+		if (!columnExists(connection, tableName, columnName)) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("ALTER TABLE " + tableName + " ADD COLUMN " + columnName + " " + columnDefinition);
+			}
+
+			connection.commit();
+		}
+	}
+
 	private static void createTables(Connection connection) throws SQLException, IOException {
 		logger.log(Level.INFO, "Database has no tables. Creating tables from " + DATABASE_RESOURCE_CREATE_ALL);
 
@@ -0,0 +1,176 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database;
+
+/**
+ * A database profile defines the storage settings of the local HSQLDB database,
+ * i.e. the sizes of the row cache, the file access method, when the transaction log
+ * is synced to disk, and when the data file is defragmented. The settings are
+ * persistent database properties; they are applied by the {@link DatabaseConnectionFactory}
+ * whenever a connection is created with a profile.
+ *
+ * <p>There are two predefined profiles:
+ *
+ * <ul>
+ *  <li><tt>safe</tt> (default): The log is synced to disk on every commit, so a committed
+ *      transaction survives a crash of the application or the operating system. Cache and
+ *      log sizes are the HSQLDB defaults.</li>
+ *  <li><tt>throughput</tt>: The log is synced to disk every 500 ms, so the transactions
+ *      committed shortly before a crash may be lost, even though the corresponding files have
+ *      already been uploaded. This trades durability for speed and is therefore not the
+ *      default. The row cache holds up to 250,000 rows (100 MB), which requires a
+ *      correspondingly larger Java heap. The larger log is checkpointed less often, and the
+ *      data file is defragmented at a checkpoint if more than 20% of it is unused (e.g.
+ *      after a large cleanup).</li>
+ * </ul>
+ *
+ * <p>Individual settings of a profile can be overridden in the config file, see
+ * {@link org.syncany.config.to.DatabaseTO DatabaseTO}.
+ *
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class DatabaseProfile {
+	public static final String PROFILE_SAFE = "safe";
+	public static final String PROFILE_THROUGHPUT = "throughput";
+
+	private String name;
+	private int cacheRows;
+	private int cacheSizeKb;
+	private boolean nioDataFile;
+	private int nioMaxSizeMb;
+	private int writeDelayMillis;
+	private int logSizeMb;
+	private int defragLimit;
+
+	public DatabaseProfile(String name, int cacheRows, int cacheSizeKb, boolean nioDataFile, int nioMaxSizeMb, int writeDelayMillis,
+			int logSizeMb, int defragLimit) {
+
+		this.name = name;
+		this.cacheRows = cacheRows;
+		this.cacheSizeKb = cacheSizeKb;
+		this.nioDataFile = nioDataFile;
+		this.nioMaxSizeMb = nioMaxSizeMb;
+		this.writeDelayMillis = writeDelayMillis;
+		this.logSizeMb = logSizeMb;
+		this.defragLimit = defragLimit;
+	}
+
+	/**
+	 * Returns a new instance of the predefined profile with the given name,
+	 * or <tt>null</tt> if no such profile exists.
+	 */
+	public static DatabaseProfile getProfile(String name) {
+		if (PROFILE_SAFE.equals(name)) {
+			return new DatabaseProfile(PROFILE_SAFE, 50000, 10000, true, 256, 0, 50, 0);
+		}
+		else if (PROFILE_THROUGHPUT.equals(name)) {
+			return new DatabaseProfile(PROFILE_THROUGHPUT, 250000, 102400, true, 1024, 500, 200, 20);
+		}
+		else {
+			return null;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the maximum number of rows of cached tables held in memory.
+	 */
+	public int getCacheRows() {
+		return cacheRows;
+	}
+
+	public void setCacheRows(int cacheRows) {
+		this.cacheRows = cacheRows;
+	}
+
+	/**
+	 * Returns the maximum total size (in KB) of the rows of cached tables held in memory.
+	 */
+	public int getCacheSizeKb() {
+		return cacheSizeKb;
+	}
+
+	public void setCacheSizeKb(int cacheSizeKb) {
+		this.cacheSizeKb = cacheSizeKb;
+	}
+
+	/**
+	 * Returns whether the data file is accessed using memory-mapped (NIO) access, up to
+	 * a data file size of {@link #getNioMaxSizeMb()}.
+	 */
+	public boolean isNioDataFile() {
+		return nioDataFile;
+	}
+
+	public void setNioDataFile(boolean nioDataFile) {
+		this.nioDataFile = nioDataFile;
+	}
+
+	public int getNioMaxSizeMb() {
+		return nioMaxSizeMb;
+	}
+
+	public void setNioMaxSizeMb(int nioMaxSizeMb) {
+		this.nioMaxSizeMb = nioMaxSizeMb;
+	}
+
+	/**
+	 * Returns the interval (in milliseconds) in which the transaction log is synced to disk.
+	 * If this is zero, the log is synced on every commit.
+	 */
+	public int getWriteDelayMillis() {
+		return writeDelayMillis;
+	}
+
+	public void setWriteDelayMillis(int writeDelayMillis) {
+		this.writeDelayMillis = writeDelayMillis;
+	}
+
+	/**
+	 * Returns the size (in MB) of the transaction log at which a checkpoint is performed.
+	 */
+	public int getLogSizeMb() {
+		return logSizeMb;
+	}
+
+	public void setLogSizeMb(int logSizeMb) {
+		this.logSizeMb = logSizeMb;
+	}
+
+	/**
+	 * Returns the percentage of unused space in the data file above which the data file
+	 * is defragmented at a checkpoint. If this is zero, the data file is never defragmented
+	 * automatically.
+	 */
+	public int getDefragLimit() {
+		return defragLimit;
+	}
+
+	public void setDefragLimit(int defragLimit) {
+		this.defragLimit = defragLimit;
+	}
+
+	@Override
+	public String toString() {
+		return name + " [cacheRows=" + cacheRows + ", cacheSizeKb=" + cacheSizeKb + ", nioDataFile=" + nioDataFile + ", nioMaxSizeMb="
+				+ nioMaxSizeMb + ", writeDelayMillis=" + writeDelayMillis + ", logSizeMb=" + logSizeMb + ", defragLimit=" + defragLimit + "]";
+	}
+}
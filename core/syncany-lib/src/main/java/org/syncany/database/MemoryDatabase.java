@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -126,30 +127,74 @@ public class MemoryDatabase {
 		databaseVersions.add(databaseVersion);
 
 		// Populate caches
-		// WARNING: Do NOT reorder, order important!!
-		updateDatabaseVersionIdCache(databaseVersion);
-		updateFullDatabaseVersionCache(databaseVersion);
-		updateFilenameHistoryCache();
-		updateContentChecksumCache();
+		updateCaches(databaseVersion);
 	}
 
+	/**
+	 * Removes the given database version and updates the caches accordingly.
+	 *
+	 * <p>Unlike {@link #addDatabaseVersion(DatabaseVersion) addDatabaseVersion()}, this
+	 * method rebuilds the full database cache from the remaining database versions: Chunks,
+	 * multichunks and file contents may be contained in more than one database version, so
+	 * they cannot simply be removed. The rebuild is linear in the size of the database.
+	 */
 	public void removeDatabaseVersion(DatabaseVersion databaseVersion) {
 		databaseVersions.remove(databaseVersion);
+		databaseVersionIdCache.remove(databaseVersion.getVectorClock());
+
+		// Rebuild caches
+		fullDatabaseVersionCache = new DatabaseVersion();
+		filenameHistoryCache.clear();
+		contentChecksumFileHistoriesCache.clear();
+
+		for (DatabaseVersion remainingDatabaseVersion : databaseVersions) {
+			updateCaches(remainingDatabaseVersion);
+		}
+	}
+
+	/**
+	 * Incrementally updates all caches with the contents of the given (newly added)
+	 * database version. Only the file histories touched by the database version are
+	 * updated in the filename and checksum caches, so adding a database version does
+	 * not depend on the overall number of file histories.
+	 */
+	private void updateCaches(DatabaseVersion newDatabaseVersion) {
+		// Remember last versions of the changed histories before merging the new versions
+		Map<FileHistoryId, FileVersion> previousLastFileVersions = getLastFileVersions(newDatabaseVersion);
 
-		// Populate caches
 		// WARNING: Do NOT reorder, order important!!
-		updateFullDatabaseVersionCache();
-		updateDatabaseVersionIdCache();
-		updateFilenameHistoryCache();
-		updateContentChecksumCache();
+		updateDatabaseVersionIdCache(newDatabaseVersion);
+		updateFullDatabaseVersionCache(newDatabaseVersion);
+		updateFilenameHistoryCache(newDatabaseVersion, previousLastFileVersions);
+		updateContentChecksumCache(newDatabaseVersion, previousLastFileVersions);
 	}
 
-	// TODO [medium] Very inefficient. Always updates whole cache
-	private void updateContentChecksumCache() {
-		contentChecksumFileHistoriesCache.clear();
+	private Map<FileHistoryId, FileVersion> getLastFileVersions(DatabaseVersion newDatabaseVersion) {
+		Map<FileHistoryId, FileVersion> lastFileVersions = new HashMap<FileHistoryId, FileVersion>();
+
+		for (PartialFileHistory sourceFileHistory : newDatabaseVersion.getFileHistories()) {
+			PartialFileHistory cacheFileHistory = fullDatabaseVersionCache.getFileHistory(sourceFileHistory.getFileHistoryId());
+
+			if (cacheFileHistory != null) {
+				lastFileVersions.put(cacheFileHistory.getFileHistoryId(), cacheFileHistory.getLastVersion());
+			}
+		}
+
+		return lastFileVersions;
+	}
 
-		for (PartialFileHistory fullFileHistory : fullDatabaseVersionCache.getFileHistories()) {
-			FileChecksum lastVersionChecksum = fullFileHistory.getLastVersion().getChecksum();
+	private void updateContentChecksumCache(DatabaseVersion newDatabaseVersion, Map<FileHistoryId, FileVersion> previousLastFileVersions) {
+		for (PartialFileHistory sourceFileHistory : newDatabaseVersion.getFileHistories()) {
+			PartialFileHistory cacheFileHistory = fullDatabaseVersionCache.getFileHistory(sourceFileHistory.getFileHistoryId());
+			FileVersion previousLastVersion = previousLastFileVersions.get(cacheFileHistory.getFileHistoryId());
+
+			// Remove history from the list of its previous checksum
+			if (previousLastVersion != null && previousLastVersion.getChecksum() != null) {
+				removeFromContentChecksumCache(previousLastVersion.getChecksum(), cacheFileHistory);
+			}
+
+			// Add history to the list of its current checksum
+			FileChecksum lastVersionChecksum = cacheFileHistory.getLastVersion().getChecksum();
 
 			if (lastVersionChecksum != null) {
 				List<PartialFileHistory> historiesWithVersionsWithSameChecksum = contentChecksumFileHistoriesCache.get(lastVersionChecksum);
@@ -157,48 +202,55 @@ public class MemoryDatabase {
 				// Create if it does not exist
 				if (historiesWithVersionsWithSameChecksum == null) {
 					historiesWithVersionsWithSameChecksum = new ArrayList<PartialFileHistory>();
+					contentChecksumFileHistoriesCache.put(lastVersionChecksum, historiesWithVersionsWithSameChecksum);
 				}
 
 				// Add to cache
-				historiesWithVersionsWithSameChecksum.add(fullFileHistory);
-				contentChecksumFileHistoriesCache.put(lastVersionChecksum, historiesWithVersionsWithSameChecksum);
+				historiesWithVersionsWithSameChecksum.add(cacheFileHistory);
 			}
 		}
-
 	}
 
-	private void updateFilenameHistoryCache() {
-		// TODO [medium] Performance: This throws away the unchanged entries. It should only update new database version
-		filenameHistoryCache.clear();
+	private void removeFromContentChecksumCache(FileChecksum checksum, PartialFileHistory cacheFileHistory) {
+		List<PartialFileHistory> historiesWithVersionsWithSameChecksum = contentChecksumFileHistoriesCache.get(checksum);
 
-		for (PartialFileHistory cacheFileHistory : fullDatabaseVersionCache.getFileHistories()) {
-			FileVersion lastVersion = cacheFileHistory.getLastVersion();
-			String fileName = lastVersion.getPath();
+		if (historiesWithVersionsWithSameChecksum != null) {
+			Iterator<PartialFileHistory> historyIterator = historiesWithVersionsWithSameChecksum.iterator();
 
-			if (lastVersion.getStatus() != FileStatus.DELETED) {
-				filenameHistoryCache.put(fileName, cacheFileHistory);
+			while (historyIterator.hasNext()) {
+				if (historyIterator.next() == cacheFileHistory) {
+					historyIterator.remove();
+					break;
+				}
+			}
+
+			if (historiesWithVersionsWithSameChecksum.isEmpty()) {
+				contentChecksumFileHistoriesCache.remove(checksum);
 			}
 		}
 	}
 
-	private void updateDatabaseVersionIdCache(DatabaseVersion newDatabaseVersion) {
-		databaseVersionIdCache.put(newDatabaseVersion.getVectorClock(), newDatabaseVersion);
-	}
+	private void updateFilenameHistoryCache(DatabaseVersion newDatabaseVersion, Map<FileHistoryId, FileVersion> previousLastFileVersions) {
+		for (PartialFileHistory sourceFileHistory : newDatabaseVersion.getFileHistories()) {
+			PartialFileHistory cacheFileHistory = fullDatabaseVersionCache.getFileHistory(sourceFileHistory.getFileHistoryId());
+			FileVersion previousLastVersion = previousLastFileVersions.get(cacheFileHistory.getFileHistoryId());
+
+			// Remove previous filename, unless another history has already taken it over
+			if (previousLastVersion != null && filenameHistoryCache.get(previousLastVersion.getPath()) == cacheFileHistory) {
+				filenameHistoryCache.remove(previousLastVersion.getPath());
+			}
 
-	private void updateDatabaseVersionIdCache() {
-		databaseVersionIdCache.clear();
+			// Add current filename
+			FileVersion lastVersion = cacheFileHistory.getLastVersion();
 
-		for (DatabaseVersion databaseVersion : databaseVersions) {
-			updateDatabaseVersionIdCache(databaseVersion);
+			if (lastVersion.getStatus() != FileStatus.DELETED) {
+				filenameHistoryCache.put(lastVersion.getPath(), cacheFileHistory);
+			}
 		}
 	}
 
-	private void updateFullDatabaseVersionCache() {
-		fullDatabaseVersionCache = new DatabaseVersion();
-
-		for (DatabaseVersion databaseVersion : databaseVersions) {
-			updateFullDatabaseVersionCache(databaseVersion);
-		}
+	private void updateDatabaseVersionIdCache(DatabaseVersion newDatabaseVersion) {
+		databaseVersionIdCache.put(newDatabaseVersion.getVectorClock(), newDatabaseVersion);
 	}
 
 	private void updateFullDatabaseVersionCache(DatabaseVersion newDatabaseVersion) {
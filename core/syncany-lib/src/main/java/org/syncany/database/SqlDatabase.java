@@ -17,6 +17,7 @@
  */
 package org.syncany.database;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
@@ -25,6 +26,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,12 +37,17 @@ import org.syncany.database.FileVersion.FileType;
 import org.syncany.database.MultiChunkEntry.MultiChunkId;
 import org.syncany.database.PartialFileHistory.FileHistoryId;
 import org.syncany.database.dao.ApplicationSqlDao;
+import org.syncany.database.dao.ChunkPositionLog;
+import org.syncany.database.dao.ChunkPositionLogStore;
+import org.syncany.database.dao.ChunkPositionSqlDao;
+import org.syncany.database.dao.ChunkPositionStore;
 import org.syncany.database.dao.ChunkSqlDao;
 import org.syncany.database.dao.DatabaseVersionSqlDao;
 import org.syncany.database.dao.FileContentSqlDao;
 import org.syncany.database.dao.FileHistorySqlDao;
 import org.syncany.database.dao.FileVersionSqlDao;
 import org.syncany.database.dao.MultiChunkSqlDao;
+import org.syncany.database.dao.PreparedStatementCache;
 import org.syncany.operations.cleanup.CleanupOperationOptions.TimeUnit;
 import org.syncany.operations.down.DatabaseBranch;
 import org.syncany.plugins.transfer.files.DatabaseRemoteFile;
@@ -49,10 +56,16 @@ import org.syncany.plugins.transfer.files.DatabaseRemoteFile;
  * Represents the single entry point for all SQL database queries.
  * 
  * <p>This class combines all specific SQL database data access objects (DAOs) into
- * a single class, and forwards all method calls to the responsible DAO.  
+ * a single class, and forwards all method calls to the responsible DAO. All DAOs 
+ * share the connection and its {@link PreparedStatementCache}.
+ * 
+ * <p>The local chunk positions are an exception: They are stored by the {@link ChunkPositionStore}
+ * selected in the config, which is either the {@link ChunkPositionSqlDao} or a {@link ChunkPositionLogStore}
+ * on the process-wide {@link ChunkPositionLog}. Both are committed and rolled back with the database.
  * 
  * @see ApplicationSqlDao
  * @see ChunkSqlDao
+ * @see ChunkPositionStore
  * @see FileContentSqlDao
  * @see FileVersionSqlDao
  * @see FileHistorySqlDao
@@ -64,8 +77,10 @@ public class SqlDatabase {
 	protected static final Logger logger = Logger.getLogger(SqlDatabase.class.getSimpleName());
 
 	protected Connection connection;
+	protected PreparedStatementCache statementCache;
 	protected ApplicationSqlDao applicationDao;
 	protected ChunkSqlDao chunkDao;
+	protected ChunkPositionStore chunkPositionStore;
 	protected FileContentSqlDao fileContentDao;
 	protected FileVersionSqlDao fileVersionDao;
 	protected FileHistorySqlDao fileHistoryDao;
@@ -78,14 +93,30 @@ public class SqlDatabase {
 
 	public SqlDatabase(Config config, boolean readOnly) {
 		this.connection = config.createDatabaseConnection(readOnly);
-		this.applicationDao = new ApplicationSqlDao(connection);
-		this.chunkDao = new ChunkSqlDao(connection);
-		this.fileContentDao = new FileContentSqlDao(connection);
-		this.fileVersionDao = new FileVersionSqlDao(connection);
-		this.fileHistoryDao = new FileHistorySqlDao(connection, fileVersionDao);
-		this.multiChunkDao = new MultiChunkSqlDao(connection);
-		this.databaseVersionDao = new DatabaseVersionSqlDao(connection, chunkDao, fileContentDao, fileVersionDao, fileHistoryDao, multiChunkDao);
-
+		this.statementCache = new PreparedStatementCache(connection);
+		this.applicationDao = new ApplicationSqlDao(statementCache);
+		this.chunkDao = new ChunkSqlDao(statementCache);
+		this.chunkPositionStore = createChunkPositionStore(config);
+		this.fileContentDao = new FileContentSqlDao(statementCache);
+		this.fileVersionDao = new FileVersionSqlDao(statementCache);
+		this.fileHistoryDao = new FileHistorySqlDao(statementCache, fileVersionDao);
+		this.multiChunkDao = new MultiChunkSqlDao(statementCache);
+		this.databaseVersionDao = new DatabaseVersionSqlDao(statementCache, chunkDao, fileContentDao, fileVersionDao, fileHistoryDao, multiChunkDao);
+
+	}
+
+	private ChunkPositionStore createChunkPositionStore(Config config) {
+		if (ChunkPositionLogStore.TYPE.equals(config.getChunkPositionStore())) {
+			try {
+				return new ChunkPositionLogStore(ChunkPositionLog.getInstance(config.getChunkPositionLogFile()));
+			}
+			catch (IOException e) {
+				throw new RuntimeException("Cannot open chunk position log " + config.getChunkPositionLogFile(), e);
+			}
+		}
+		else {
+			return new ChunkPositionSqlDao(statementCache);
+		}
 	}
 
 	// General
@@ -95,24 +126,45 @@ public class SqlDatabase {
 	}
 
 	public void commit() throws SQLException {
+		fileVersionDao.writeCurrentFileVersions();
 		connection.commit();
-	}
-
-	@Override
-	public void finalize() {
+		chunkPositionStore.commit();
+	}
+
+	/**
+	 * Commits all changes, closes the database connection and releases the chunk
+	 * position store (and thereby the lock on a shared chunk position log). Closing 
+	 * an already closed database does nothing.
+	 * 
+	 * <p>Databases must be closed by whoever opened them (e.g. at the end of an operation),
+	 * rather than being left to {@link #finalize()}: Closing the connection writes to the
+	 * database files, and the garbage collector may do that at any time from its own thread.
+	 */
+	public void close() {
 		try {
 			if (!connection.isClosed()) {
+				fileVersionDao.writeCurrentFileVersions();
 				connection.commit();
 				connection.close();
 			}
+
+			chunkPositionStore.commit();
+			chunkPositionStore.close();
 		}
 		catch (SQLException e) {
 			logger.log(Level.WARNING, "Failed to close database connection. Possible resource leak.", e);
 		}
 	}
 
+	@Override
+	public void finalize() {
+		close();
+	}
+
 	public void rollback() throws SQLException {
+		fileVersionDao.clearOutdatedCurrentFileVersions();
 		connection.rollback();
+		chunkPositionStore.rollback();
 	}
 
 	public void removeUnreferencedDatabaseEntities() {
@@ -181,6 +233,10 @@ public class SqlDatabase {
 		return databaseVersionDao.getDatabaseVersionsTo(machineName, maxLocalClientVersion);
 	}
 
+	public Iterator<DatabaseVersion> getDatabaseVersionsTo(String machineName, long maxLocalClientVersion, int batchSize) {
+		return databaseVersionDao.getDatabaseVersionsTo(machineName, maxLocalClientVersion, batchSize);
+	}
+
 	public Iterator<DatabaseVersion> getLastDatabaseVersions(int maxDatabaseVersionCount, int startDatabaseVersionIndex, int maxFileHistoryCount) {
 		return databaseVersionDao.getLastDatabaseVersions(maxDatabaseVersionCount, startDatabaseVersionIndex, maxFileHistoryCount);
 	}
@@ -331,6 +387,15 @@ public class SqlDatabase {
 		return multiChunkDao.getMultiChunks();
 	}
 
+	public SortedMap<Long, List<MultiChunkEntry>> getRepackMultiChunks(double maxLiveRatio, long maxTotalSize) {
+		return multiChunkDao.getRepackMultiChunks(maxLiveRatio, maxTotalSize);
+	}
+
+	public void replaceMultiChunks(long databaseVersionId, Collection<MultiChunkEntry> oldMultiChunks, Collection<MultiChunkEntry> newMultiChunks)
+			throws SQLException {
+		multiChunkDao.replaceMultiChunks(databaseVersionId, oldMultiChunks, newMultiChunks);
+	}
+
 	public void writeMuddyMultiChunks(Map<DatabaseVersionHeader, Collection<MultiChunkEntry>> muddyMultiChunks) throws SQLException {
 		multiChunkDao.writeMuddyMultiChunks(muddyMultiChunks);
 	}
@@ -357,6 +422,20 @@ public class SqlDatabase {
 		chunkDao.removeUnreferencedChunks();
 	}
 
+	// Chunk Position
+
+	public void writeChunkPositions(String path, long fileSize, long fileLastModified, List<ChunkPosition> chunkPositions) throws SQLException {
+		chunkPositionStore.writeChunkPositions(path, fileSize, fileLastModified, chunkPositions);
+	}
+
+	public void removeChunkPositions(String path) throws SQLException {
+		chunkPositionStore.removeChunkPositions(path);
+	}
+
+	public Map<ChunkChecksum, List<ChunkPosition>> getChunkPositions(Collection<ChunkChecksum> chunkChecksums) {
+		return chunkPositionStore.getChunkPositions(chunkChecksums);
+	}
+
 	// File Content
 
 	public FileContent getFileContent(FileChecksum fileChecksum, boolean includeChunkChecksums) {
@@ -0,0 +1,163 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.syncany.config.Config;
+
+/**
+ * The SQL database pool hands out read-only {@link SqlDatabase} instances for a single
+ * local folder. It is used by the daemon to serve read requests (e.g. 'ls', 'log' or
+ * 'status') concurrently with each other and with a running sync.
+ *
+ * <p>Each pooled database has its own connection with READ COMMITTED isolation, so it only
+ * sees committed data. Since the database uses locking transaction control, pooled reads
+ * run concurrently with each other, but a read of a table that is changed by an uncommitted
+ * write transaction (e.g. an in-progress 'up' or 'down') waits until that transaction is
+ * committed or rolled back. Reads do not hold their locks after the statement, i.e. an idle
+ * borrowed database never blocks a writer.
+ *
+ * <p>Connections are created lazily, up to the given maximum pool size. If all connections
+ * are in use, {@link #borrow()} waits until one is released.
+ *
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class SqlDatabasePool {
+	private static final Logger logger = Logger.getLogger(SqlDatabasePool.class.getSimpleName());
+
+	public static final int DEFAULT_MAX_POOL_SIZE = 4;
+
+	private Config config;
+	private int maxPoolSize;
+	private List<SqlDatabase> databases;
+	private BlockingQueue<SqlDatabase> idleDatabases;
+	private boolean closed;
+
+	public SqlDatabasePool(Config config) {
+		this(config, DEFAULT_MAX_POOL_SIZE);
+	}
+
+	public SqlDatabasePool(Config config, int maxPoolSize) {
+		this.config = config;
+		this.maxPoolSize = maxPoolSize;
+		this.databases = new ArrayList<SqlDatabase>();
+		this.idleDatabases = new LinkedBlockingQueue<SqlDatabase>();
+		this.closed = false;
+	}
+
+	/**
+	 * Returns an idle read-only database from the pool, or creates a new one if the
+	 * maximum pool size has not been reached. If all databases are in use, this
+	 * method blocks until one is released. Every borrowed database must be
+	 * returned using {@link #release(SqlDatabase)}.
+	 */
+	public SqlDatabase borrow() throws SQLException, InterruptedException {
+		SqlDatabase sqlDatabase = idleDatabases.poll();
+
+		if (sqlDatabase == null) {
+			sqlDatabase = createDatabaseIfPossible();
+
+			if (sqlDatabase == null) {
+				sqlDatabase = idleDatabases.take();
+			}
+		}
+
+		return sqlDatabase;
+	}
+
+	/**
+	 * Ends the transaction of a borrowed database and returns it to the pool.
+	 */
+	public void release(SqlDatabase sqlDatabase) {
+		try {
+			sqlDatabase.rollback();
+
+			if (!isClosed()) {
+				idleDatabases.add(sqlDatabase);
+			}
+			else {
+				sqlDatabase.close();
+			}
+		}
+		catch (SQLException e) {
+			logger.log(Level.WARNING, "Cannot release pooled database; discarding connection.", e);
+			discardDatabase(sqlDatabase);
+		}
+	}
+
+	/**
+	 * Closes all idle databases. Databases that are currently borrowed are closed when
+	 * they are released.
+	 */
+	public synchronized void close() {
+		closed = true;
+
+		for (SqlDatabase sqlDatabase : databases) {
+			if (idleDatabases.remove(sqlDatabase)) {
+				sqlDatabase.close();
+			}
+		}
+
+		databases.clear();
+	}
+
+	public synchronized int getPoolSize() {
+		return databases.size();
+	}
+
+	public int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+	private synchronized boolean isClosed() {
+		return closed;
+	}
+
+	private synchronized SqlDatabase createDatabaseIfPossible() throws SQLException {
+		if (closed) {
+			throw new SQLException("Database pool is closed.");
+		}
+		else if (databases.size() >= maxPoolSize) {
+			return null;
+		}
+
+		logger.log(Level.INFO, "Creating pooled read-only database connection " + (databases.size() + 1) + "/" + maxPoolSize + " ...");
+
+		SqlDatabase sqlDatabase = new SqlDatabase(config, true);
+		Connection connection = sqlDatabase.getConnection();
+
+		connection.commit(); // Isolation cannot be changed within a transaction
+		connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+
+		databases.add(sqlDatabase);
+		return sqlDatabase;
+	}
+
+	private synchronized void discardDatabase(SqlDatabase sqlDatabase) {
+		databases.remove(sqlDatabase);
+		sqlDatabase.close();
+	}
+}
@@ -17,8 +17,8 @@
  */
 package org.syncany.database;
 
+import java.util.Map;
 import java.util.TreeMap;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -35,6 +35,10 @@ import java.util.regex.Pattern;
  *  <li>Event A and B happened simultaneously (no cause/effect relationship)</li>
  * </ul>
  *
+ * <p>Comparisons, {@link #equals(Object)} and {@link #hashCode()} are performed on a lazily created
+ * {@link CompactVectorClock}, which is cached until the clock is modified. Client names are
+ * interned, so that the many clocks of a large database share the same name instances.
+ *
  * @author Frits de Nijs
  * @author Peter Dijkshoorn
  * @author Philipp C. Heckel <philipp.heckel@gmail.com>
@@ -42,15 +46,10 @@ import java.util.regex.Pattern;
 public class VectorClock extends TreeMap<String, Long> {
 	private static final long serialVersionUID = 109876543L;	
 	
-	private static final Pattern CLOCK_PATTERN = Pattern.compile("\\(([^)]*)\\)");
-	private static final int CLOCK_PATTERN_GROUP_CONTENT = 1;
-	
-	private static final Pattern ENTRY_PATTERN = Pattern.compile("([a-zA-Z]+)(\\d+)");
-	private static final int ENTRY_PATTERN_GROUP_NAME = 1;
-	private static final int ENTRY_PATTERN_GROUP_TIME = 2;
-
 	public static final Pattern MACHINE_PATTERN = Pattern.compile("[a-zA-Z]+");	
 
+	transient CompactVectorClock compactVectorClock;
+
 	public enum VectorClockComparison {
 		SMALLER, GREATER, EQUAL, SIMULTANEOUS;
 	}
@@ -71,7 +70,14 @@ public class VectorClock extends TreeMap<String, Long> {
 	}
 
 	private void validateUnitName(String unit) {
-		if (!MACHINE_PATTERN.matcher(unit).matches()) {
+		boolean validUnitName = !unit.isEmpty();
+
+		for (int i = 0; validUnitName && i < unit.length(); i++) {
+			char c = unit.charAt(i);
+			validUnitName = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'); // = MACHINE_PATTERN
+		}
+
+		if (!validUnitName) {
 			throw new RuntimeException("Machine name cannot be empty and must be only characters (A-Z).");
 		}
 	}
@@ -108,6 +114,74 @@ public class VectorClock extends TreeMap<String, Long> {
 		return lResult;
 	}
 
+	@Override
+	public Long put(String unit, Long value) {
+		compactVectorClock = null;
+		return super.put(CompactVectorClock.getInternedClientName(unit), value);
+	}
+
+	@Override
+	public void putAll(Map<? extends String, ? extends Long> map) {
+		compactVectorClock = null;
+		super.putAll(map);
+	}
+
+	@Override
+	public Long remove(Object unit) {
+		compactVectorClock = null;
+		return super.remove(unit);
+	}
+
+	@Override
+	public void clear() {
+		compactVectorClock = null;
+		super.clear();
+	}
+
+	@Override
+	public Map.Entry<String, Long> pollFirstEntry() {
+		compactVectorClock = null;
+		return super.pollFirstEntry();
+	}
+
+	@Override
+	public Map.Entry<String, Long> pollLastEntry() {
+		compactVectorClock = null;
+		return super.pollLastEntry();
+	}
+
+	/**
+	 * Returns the compact representation of this vector clock. The compact clock is
+	 * created on first access and cached until this clock is modified via one of the
+	 * map methods. Modifications through map views (e.g. {@link #entrySet()}) are not
+	 * tracked and must not be used.
+	 */
+	public CompactVectorClock toCompactVectorClock() {
+		CompactVectorClock currentCompactVectorClock = compactVectorClock;
+
+		if (currentCompactVectorClock == null) {
+			currentCompactVectorClock = CompactVectorClock.fromVectorClock(this);
+			compactVectorClock = currentCompactVectorClock;
+		}
+
+		return currentCompactVectorClock;
+	}
+
+	@Override
+	public int hashCode() {
+		return toCompactVectorClock().hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof VectorClock) {
+			return toCompactVectorClock().equals(((VectorClock) obj).toCompactVectorClock());
+		}
+		else {
+			return super.equals(obj);
+		}
+	}
+
 	@Override
 	public VectorClock clone() {
 		return (VectorClock) super.clone();
@@ -144,33 +218,7 @@ public class VectorClock extends TreeMap<String, Long> {
 	 * @see #toString()
 	 */
 	public static VectorClock parseVectorClock(String serializedVectorClock) {
-		VectorClock vectorClock = new VectorClock();
-		
-		Matcher clockMatcher = CLOCK_PATTERN.matcher(serializedVectorClock);
-		
-		if (clockMatcher.matches()) {
-			String clockContents = clockMatcher.group(CLOCK_PATTERN_GROUP_CONTENT);
-			String[] clockEntries = clockContents.split(",");
-			
-			for (String clockEntry : clockEntries) {
-				Matcher clockEntryMatcher = ENTRY_PATTERN.matcher(clockEntry);
-				
-				if (clockEntryMatcher.matches()) {
-					String machineName = clockEntryMatcher.group(ENTRY_PATTERN_GROUP_NAME);
-					Long clockValue = Long.parseLong(clockEntryMatcher.group(ENTRY_PATTERN_GROUP_TIME));
-					
-					vectorClock.put(machineName, clockValue);
-				}
-				else {
-					throw new IllegalArgumentException("Not a valid vector clock, entry does not match pattern: " + clockEntry);
-				}
-			}
-			
-			return vectorClock;
-		}
-		else {
-			throw new IllegalArgumentException("Not a valid vector clock: " + serializedVectorClock);
-		}
+		return CompactVectorClock.parseCompactVectorClock(serializedVectorClock).toVectorClock();
 	}
 
 	/**
@@ -186,54 +234,6 @@ public class VectorClock extends TreeMap<String, Long> {
 	 * @return VectorComparison value indicating how One relates to Two.
 	 */
 	public static VectorClockComparison compare(VectorClock clock1, VectorClock clock2) {
-		// Initially we assume it is all possible things.
-		boolean isEqual = true;
-		boolean isGreater = true;
-		boolean isSmaller = true;
-
-		// Go over all elements in Clock one.
-		for (String lEntry : clock1.keySet()) {
-			// Compare if also present in clock two.
-			if (clock2.containsKey(lEntry)) {
-				// If there is a difference, it can never be equal.
-				// Greater / smaller depends on the difference.
-				if (clock1.get(lEntry) < clock2.get(lEntry)) {
-					isEqual = false;
-					isGreater = false;
-				}
-				if (clock1.get(lEntry) > clock2.get(lEntry)) {
-					isEqual = false;
-					isSmaller = false;
-				}
-			}
-			// Else assume zero (default value is 0).
-			else if (clock1.get(lEntry) != 0) {
-				isEqual = false;
-				isSmaller = false;
-			}
-		}
-
-		// Go over all elements in Clock two.
-		for (String lEntry : clock2.keySet()) {
-			// Only elements we have not found in One still need to be checked.
-			if (!clock1.containsKey(lEntry) && (clock2.get(lEntry) != 0)) {
-				isEqual = false;
-				isGreater = false;
-			}
-		}
-
-		// Return based on determined information.
-		if (isEqual) {
-			return VectorClockComparison.EQUAL;
-		}
-		else if (isGreater && !isSmaller) {
-			return VectorClockComparison.GREATER;
-		}
-		else if (isSmaller && !isGreater) {
-			return VectorClockComparison.SMALLER;
-		}
-		else {
-			return VectorClockComparison.SIMULTANEOUS;
-		}
+		return CompactVectorClock.compare(clock1.toCompactVectorClock(), clock2.toCompactVectorClock());
 	}
 }
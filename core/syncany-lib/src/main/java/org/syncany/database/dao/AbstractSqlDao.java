@@ -29,13 +29,24 @@ import org.syncany.util.SqlRunner;
  * Small helper class to implement common tasks for the inheriting 
  * SQL data access objects.
  * 
+ * <p>Statements for the DAO's own connection are served from a {@link PreparedStatementCache},
+ * so that frequently used queries are only parsed once per connection. DAOs working on the
+ * same connection should share one cache (see {@link org.syncany.database.SqlDatabase SqlDatabase}).
+ * Callers must still close the statements after use.
+ * 
  * @author Philipp C. Heckel <philipp.heckel@gmail.com>
  */
 public abstract class AbstractSqlDao {
 	protected Connection connection;
+	protected PreparedStatementCache statementCache;
 	
 	public AbstractSqlDao(Connection connection) {
-		this.connection = connection;
+		this(new PreparedStatementCache(connection));
+	}
+	
+	public AbstractSqlDao(PreparedStatementCache statementCache) {
+		this.connection = statementCache.getConnection();
+		this.statementCache = statementCache;
 	}
 	
 	public Connection getConnection() {
@@ -47,7 +58,12 @@ public abstract class AbstractSqlDao {
 	}
 	
 	protected PreparedStatement getStatement(Connection overrideConnection, String resourceId) throws SQLException {
-		return overrideConnection.prepareStatement(DatabaseConnectionFactory.getStatement(resourceId));
+		if (overrideConnection == connection) {
+			return statementCache.getStatement(resourceId);
+		}
+		else {
+			return overrideConnection.prepareStatement(DatabaseConnectionFactory.getStatement(resourceId));
+		}
 	}
 	
 	protected void runScript(String resourceId) throws SQLException, IOException {
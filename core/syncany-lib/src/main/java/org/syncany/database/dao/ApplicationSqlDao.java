@@ -42,6 +42,10 @@ public class ApplicationSqlDao extends AbstractSqlDao {
 		super(connection);
 	}
 
+	public ApplicationSqlDao(PreparedStatementCache statementCache) {
+		super(statementCache);
+	}
+
 	/**
 	 * Writes a list of {@link DatabaseRemoteFile}s to the database using the given connection.
 	 * <p><b>Note:</b> This method executes, but does not commit the query.
@@ -0,0 +1,152 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.ChunkPosition;
+
+/**
+ * In-memory index of {@link ChunkPosition}s by path and by chunk checksum. It is used by
+ * the {@link ChunkPositionLog} for the committed positions, and by the {@link ChunkPositionLogStore}
+ * for the uncommitted positions of a single database.
+ *
+ * <p>This class is not thread-safe; callers must synchronize access.
+ *
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+class ChunkPositionIndex {
+	private Map<String, List<ChunkPosition>> pathPositions;
+	private Map<ChunkChecksum, List<ChunkPosition>> checksumPositions;
+
+	public ChunkPositionIndex() {
+		this.pathPositions = new HashMap<String, List<ChunkPosition>>();
+		this.checksumPositions = new HashMap<ChunkChecksum, List<ChunkPosition>>();
+	}
+
+	/**
+	 * Replaces all positions of the given path with the given positions. Returns
+	 * the previous positions of the path, or <tt>null</tt> if there were none. 
+	 */
+	public List<ChunkPosition> put(String path, List<ChunkPosition> positions) {
+		List<ChunkPosition> oldPositions = remove(path);
+
+		pathPositions.put(path, positions);
+
+		for (ChunkPosition chunkPosition : positions) {
+			List<ChunkPosition> positionsForChunk = checksumPositions.get(chunkPosition.getChecksum());
+
+			if (positionsForChunk == null) {
+				positionsForChunk = new ArrayList<ChunkPosition>(1);
+				checksumPositions.put(chunkPosition.getChecksum(), positionsForChunk);
+			}
+
+			positionsForChunk.add(chunkPosition);
+		}
+
+		return oldPositions;
+	}
+
+	/**
+	 * Removes all positions of the given path. Returns the removed positions, 
+	 * or <tt>null</tt> if there were none. 
+	 */
+	public List<ChunkPosition> remove(String path) {
+		List<ChunkPosition> oldPositions = pathPositions.remove(path);
+
+		if (oldPositions != null) {
+			for (ChunkPosition chunkPosition : oldPositions) {
+				List<ChunkPosition> positionsForChunk = checksumPositions.get(chunkPosition.getChecksum());
+
+				if (positionsForChunk != null) {
+					removeByIdentity(positionsForChunk, chunkPosition);
+
+					if (positionsForChunk.isEmpty()) {
+						checksumPositions.remove(chunkPosition.getChecksum());
+					}
+				}
+			}
+		}
+
+		return oldPositions;
+	}
+
+	/**
+	 * Adds copies of the position lists of the given chunks to the given result map. Positions 
+	 * in the excluded paths are skipped, and chunks without any positions are not added.
+	 */
+	public void getChunkPositions(Collection<ChunkChecksum> chunkChecksums, Set<String> excludedPaths,
+			Map<ChunkChecksum, List<ChunkPosition>> chunkPositions) {
+
+		for (ChunkChecksum chunkChecksum : chunkChecksums) {
+			List<ChunkPosition> positionsForChunk = checksumPositions.get(chunkChecksum);
+
+			if (positionsForChunk != null) {
+				for (ChunkPosition chunkPosition : positionsForChunk) {
+					if (!excludedPaths.contains(chunkPosition.getPath())) {
+						List<ChunkPosition> resultPositionsForChunk = chunkPositions.get(chunkChecksum);
+
+						if (resultPositionsForChunk == null) {
+							resultPositionsForChunk = new ArrayList<ChunkPosition>(positionsForChunk.size());
+							chunkPositions.put(chunkChecksum, resultPositionsForChunk);
+						}
+
+						resultPositionsForChunk.add(chunkPosition);
+					}
+				}
+			}
+		}
+	}
+
+	public boolean containsPath(String path) {
+		return pathPositions.containsKey(path);
+	}
+
+	public Map<String, List<ChunkPosition>> getPathPositions() {
+		return pathPositions;
+	}
+
+	public int getPathCount() {
+		return pathPositions.size();
+	}
+
+	public int getChunkCount() {
+		return checksumPositions.size();
+	}
+
+	public void clear() {
+		pathPositions.clear();
+		checksumPositions.clear();
+	}
+
+	private void removeByIdentity(List<ChunkPosition> positions, ChunkPosition position) {
+		for (Iterator<ChunkPosition> positionIterator = positions.iterator(); positionIterator.hasNext();) {
+			if (positionIterator.next() == position) {
+				positionIterator.remove();
+				return;
+			}
+		}
+	}
+}
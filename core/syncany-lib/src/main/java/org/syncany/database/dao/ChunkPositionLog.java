@@ -0,0 +1,481 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.ChunkPosition;
+import org.syncany.util.FileUtil;
+
+/**
+ * Append-only log file of {@link ChunkPosition}s, used by the {@link ChunkPositionLogStore}. 
+ * The log holds the committed chunk positions in memory, indexed by path and by chunk 
+ * checksum. Lookups by checksum therefore never touch the disk, and committing the positions 
+ * of a file costs a single append.
+ * 
+ * <p>When the log is opened, the log file is locked, memory-mapped and replayed. Each record 
+ * carries a CRC32 checksum; a torn or corrupt record at the end of the log (e.g. after a 
+ * crash) ends the replay, and the log is truncated to the last valid record. Once more than
+ * half of the log consists of overwritten or removed records, {@link #commit(Map)} compacts it 
+ * by writing the current positions to a new log file.
+ * 
+ * <p>Changes are only written and applied to the index by {@link #commit(Map)}; uncommitted 
+ * changes are kept by each {@link ChunkPositionLogStore}. Commits do not force the log file 
+ * to disk. This is sufficient because chunk positions are only hints that are verified 
+ * before they are used (see {@link ChunkPosition}).
+ * 
+ * <p>All databases of a process share one log per log file, see {@link #getInstance(File)}.
+ * The log counts its users, and is closed (and its lock released) when the last user
+ * calls {@link #release()}.
+ *
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class ChunkPositionLog {
+	private static final Logger logger = Logger.getLogger(ChunkPositionLog.class.getSimpleName());
+
+	private static final byte[] LOG_MAGIC = new byte[] { 'S', 'y', 'C', 'P' };
+	private static final int LOG_VERSION = 1;
+	private static final int LOG_HEADER_SIZE = LOG_MAGIC.length + 4;
+	private static final int RECORD_HEADER_SIZE = 4 + 8; // Length and CRC32
+
+	private static final byte RECORD_TYPE_WRITE = 1;
+	private static final byte RECORD_TYPE_REMOVE = 2;
+
+	private static final long COMPACT_MIN_LOG_SIZE = 1024 * 1024;
+	private static final Charset PATH_CHARSET = Charset.forName("UTF-8");
+
+	private static final Map<File, ChunkPositionLog> instances = new HashMap<File, ChunkPositionLog>();
+
+	private File logFile;
+	private RandomAccessFile logRandomAccessFile;
+	private FileChannel logChannel;
+	private FileLock logLock;
+	private int referenceCount;
+	private boolean closed;
+	private long logSize;
+	private long liveSize;
+	private boolean compactionEnabled;
+
+	private ChunkPositionIndex index;
+	private Map<String, Integer> pathRecordSizes;
+
+	public ChunkPositionLog(File logFile) throws IOException {
+		this.logFile = logFile;
+		this.index = new ChunkPositionIndex();
+		this.pathRecordSizes = new HashMap<String, Integer>();
+		this.compactionEnabled = true;
+		this.referenceCount = 1;
+		this.closed = false;
+
+		open();
+	}
+
+	/**
+	 * Returns the log for the given log file, and opens it if this is the first
+	 * request for this file in this process. Each call must be matched by a call 
+	 * to {@link #release()}.
+	 */
+	public static synchronized ChunkPositionLog getInstance(File logFile) throws IOException {
+		File canonicalLogFile = FileUtil.getCanonicalFile(logFile);
+		ChunkPositionLog log = instances.get(canonicalLogFile);
+
+		if (log == null) {
+			log = new ChunkPositionLog(canonicalLogFile);
+			instances.put(canonicalLogFile, log);
+		}
+		else {
+			synchronized (log) {
+				log.referenceCount++;
+			}
+		}
+
+		return log;
+	}
+
+	/**
+	 * Adds the committed positions of the given chunks to the given result map, 
+	 * skipping all positions in the given excluded paths.
+	 */
+	public synchronized void getChunkPositions(Collection<ChunkChecksum> chunkChecksums, Set<String> excludedPaths,
+			Map<ChunkChecksum, List<ChunkPosition>> chunkPositions) {
+
+		index.getChunkPositions(chunkChecksums, excludedPaths, chunkPositions);
+	}
+
+	/**
+	 * Appends the given changes to the log file, and applies them to the index. Changes map
+	 * a path to its new positions, or to <tt>null</tt> if the positions of the path were removed.
+	 * The changes are only applied if they were written successfully.
+	 */
+	public synchronized void commit(Map<String, List<ChunkPosition>> changes) throws IOException {
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		Map<String, Integer> recordSizes = new HashMap<String, Integer>();
+
+		for (Map.Entry<String, List<ChunkPosition>> change : changes.entrySet()) {
+			String path = change.getKey();
+			List<ChunkPosition> positions = change.getValue();
+
+			if (positions != null) {
+				ChunkPosition firstPosition = positions.get(0);
+				byte[] record = createWriteRecord(path, firstPosition.getFileSize(), firstPosition.getFileLastModified(), positions);
+
+				records.write(record);
+				recordSizes.put(path, record.length);
+			}
+			else if (index.containsPath(path)) {
+				records.write(createRemoveRecord(path));
+			}
+		}
+
+		if (records.size() > 0) {
+			logChannel.write(ByteBuffer.wrap(records.toByteArray()), logSize);
+			logSize += records.size();
+		}
+
+		for (Map.Entry<String, List<ChunkPosition>> change : changes.entrySet()) {
+			if (change.getValue() != null) {
+				applyWrite(change.getKey(), change.getValue(), recordSizes.get(change.getKey()));
+			}
+			else {
+				applyRemove(change.getKey());
+			}
+		}
+
+		if (compactionEnabled && logSize > COMPACT_MIN_LOG_SIZE && liveSize < logSize / 2) {
+			try {
+				compact();
+			}
+			catch (IOException e) {
+				// E.g. on Windows, the log cannot be replaced while the buffer used for
+				// replaying it is still mapped; it will be compacted next time it is opened.
+				logger.log(Level.WARNING, "Cannot compact chunk position log " + logFile + ". Skipping compaction until it is re-opened.", e);
+				compactionEnabled = false;
+			}
+		}
+	}
+
+	/**
+	 * Ends one use of the log (see {@link #getInstance(File)}), and closes the log 
+	 * if it is no longer used.
+	 */
+	public void release() throws IOException {
+		synchronized (ChunkPositionLog.class) {
+			synchronized (this) {
+				if (--referenceCount <= 0) {
+					close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Releases the lock and closes the log file, regardless of whether the log is
+	 * still used. Closing an already closed log does nothing.
+	 */
+	public void close() throws IOException {
+		synchronized (ChunkPositionLog.class) {
+			synchronized (this) {
+				if (instances.get(logFile) == this) {
+					instances.remove(logFile);
+				}
+
+				if (!closed) {
+					closed = true;
+					logRandomAccessFile.close(); // Releases lock
+				}
+			}
+		}
+	}
+
+	public File getLogFile() {
+		return logFile;
+	}
+
+	public synchronized long getLogSize() {
+		return logSize;
+	}
+
+	private void open() throws IOException {
+		openAndLock();
+
+		if (logChannel.size() < LOG_HEADER_SIZE) {
+			logger.log(Level.INFO, "Creating new chunk position log at " + logFile);
+			createLog();
+		}
+		else {
+			replayLog();
+		}
+	}
+
+	private void openAndLock() throws IOException {
+		logRandomAccessFile = new RandomAccessFile(logFile, "rw");
+		logChannel = logRandomAccessFile.getChannel();
+
+		try {
+			logLock = logChannel.tryLock();
+		}
+		catch (OverlappingFileLockException e) {
+			logLock = null; // Locked by another instance in this process
+		}
+
+		if (logLock == null) {
+			logRandomAccessFile.close();
+			throw new IOException("Chunk position log " + logFile + " is locked by another process or instance.");
+		}
+	}
+
+	private void createLog() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+
+		header.put(LOG_MAGIC);
+		header.putInt(LOG_VERSION);
+		header.flip();
+
+		logChannel.truncate(0);
+		logChannel.write(header, 0);
+
+		logSize = LOG_HEADER_SIZE;
+		liveSize = LOG_HEADER_SIZE;
+	}
+
+	private void replayLog() throws IOException {
+		MappedByteBuffer log = logChannel.map(FileChannel.MapMode.READ_ONLY, 0, logChannel.size());
+
+		byte[] magic = new byte[LOG_MAGIC.length];
+		log.get(magic);
+
+		if (!Arrays.equals(LOG_MAGIC, magic) || log.getInt() != LOG_VERSION) {
+			logger.log(Level.WARNING, "Invalid chunk position log " + logFile + "; discarding chunk positions.");
+
+			createLog();
+			return;
+		}
+
+		logSize = LOG_HEADER_SIZE;
+		liveSize = LOG_HEADER_SIZE;
+
+		while (log.remaining() >= RECORD_HEADER_SIZE) {
+			int recordLength = log.getInt();
+			long recordChecksum = log.getLong();
+
+			if (recordLength <= 0 || recordLength > log.remaining()) {
+				break;
+			}
+
+			byte[] recordBody = new byte[recordLength];
+			log.get(recordBody);
+
+			if (recordChecksum != getCrc32(recordBody)) {
+				break;
+			}
+
+			applyRecord(ByteBuffer.wrap(recordBody), RECORD_HEADER_SIZE + recordLength);
+			logSize += RECORD_HEADER_SIZE + recordLength;
+		}
+
+		if (logSize < logChannel.size()) {
+			logger.log(Level.WARNING, "Chunk position log " + logFile + " has an invalid record at offset " + logSize + "; truncating log.");
+
+			try {
+				logChannel.truncate(logSize);
+			}
+			catch (IOException e) {
+				// Not possible on some platforms while the file is mapped; the next
+				// records simply overwrite the invalid ones
+				logger.log(Level.FINE, "Cannot truncate chunk position log " + logFile, e);
+			}
+		}
+
+		logger.log(Level.INFO, "Replayed chunk position log " + logFile + ": " + index.getPathCount() + " files, " + index.getChunkCount()
+				+ " chunks, " + logSize + " bytes (" + liveSize + " bytes live)");
+	}
+
+	private void applyRecord(ByteBuffer record, int recordSize) {
+		byte recordType = record.get();
+		String path = readPath(record);
+
+		if (recordType == RECORD_TYPE_WRITE) {
+			long fileSize = record.getLong();
+			long fileLastModified = record.getLong();
+			int positionCount = record.getInt();
+
+			List<ChunkPosition> positions = new ArrayList<ChunkPosition>(positionCount);
+
+			for (int i = 0; i < positionCount; i++) {
+				byte[] checksum = new byte[record.get()];
+				record.get(checksum);
+
+				ChunkPosition chunkPosition = new ChunkPosition(new ChunkChecksum(checksum), path, record.getLong(), record.getInt());
+
+				chunkPosition.setFileSize(fileSize);
+				chunkPosition.setFileLastModified(fileLastModified);
+
+				positions.add(chunkPosition);
+			}
+
+			applyWrite(path, positions, recordSize);
+		}
+		else {
+			applyRemove(path);
+		}
+	}
+
+	private void applyWrite(String path, List<ChunkPosition> positions, int recordSize) {
+		applyRemove(path);
+
+		index.put(path, positions);
+		pathRecordSizes.put(path, recordSize);
+		liveSize += recordSize;
+	}
+
+	private void applyRemove(String path) {
+		if (index.remove(path) != null) {
+			liveSize -= pathRecordSizes.remove(path);
+		}
+	}
+
+	private void compact() throws IOException {
+		logger.log(Level.INFO, "Compacting chunk position log " + logFile + " (" + logSize + " bytes, " + liveSize + " bytes live) ...");
+
+		File tempLogFile = new File(logFile.getParentFile(), logFile.getName() + ".compact");
+
+		try (RandomAccessFile tempLogRandomAccessFile = new RandomAccessFile(tempLogFile, "rw")) {
+			FileChannel tempLogChannel = tempLogRandomAccessFile.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+
+			header.put(LOG_MAGIC);
+			header.putInt(LOG_VERSION);
+			header.flip();
+
+			tempLogChannel.truncate(0);
+			tempLogChannel.write(header);
+
+			for (Map.Entry<String, List<ChunkPosition>> pathPositionsEntry : index.getPathPositions().entrySet()) {
+				List<ChunkPosition> positions = pathPositionsEntry.getValue();
+				ChunkPosition firstPosition = positions.get(0);
+
+				byte[] record = createWriteRecord(pathPositionsEntry.getKey(), firstPosition.getFileSize(), firstPosition.getFileLastModified(), positions);
+				tempLogChannel.write(ByteBuffer.wrap(record));
+			}
+
+			tempLogChannel.force(true);
+		}
+
+		logRandomAccessFile.close(); // Releases lock
+
+		try {
+			Files.move(tempLogFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e) {
+			Files.deleteIfExists(tempLogFile.toPath());
+			throw e;
+		}
+		finally {
+			openAndLock();
+			logSize = logChannel.size();
+		}
+
+		liveSize = logSize;
+	}
+
+	private byte[] createWriteRecord(String path, long fileSize, long fileLastModified, List<ChunkPosition> positions) {
+		byte[] pathBytes = path.getBytes(PATH_CHARSET);
+		int recordBodySize = 1 + 2 + pathBytes.length + 8 + 8 + 4;
+
+		for (ChunkPosition chunkPosition : positions) {
+			recordBodySize += 1 + chunkPosition.getChecksum().getBytes().length + 8 + 4;
+		}
+
+		ByteBuffer recordBody = ByteBuffer.allocate(recordBodySize);
+
+		recordBody.put(RECORD_TYPE_WRITE);
+		recordBody.putShort((short) pathBytes.length);
+		recordBody.put(pathBytes);
+		recordBody.putLong(fileSize);
+		recordBody.putLong(fileLastModified);
+		recordBody.putInt(positions.size());
+
+		for (ChunkPosition chunkPosition : positions) {
+			byte[] checksum = chunkPosition.getChecksum().getBytes();
+
+			recordBody.put((byte) checksum.length);
+			recordBody.put(checksum);
+			recordBody.putLong(chunkPosition.getOffset());
+			recordBody.putInt(chunkPosition.getSize());
+		}
+
+		return createRecord(recordBody.array());
+	}
+
+	private byte[] createRemoveRecord(String path) {
+		byte[] pathBytes = path.getBytes(PATH_CHARSET);
+		ByteBuffer recordBody = ByteBuffer.allocate(1 + 2 + pathBytes.length);
+
+		recordBody.put(RECORD_TYPE_REMOVE);
+		recordBody.putShort((short) pathBytes.length);
+		recordBody.put(pathBytes);
+
+		return createRecord(recordBody.array());
+	}
+
+	private byte[] createRecord(byte[] recordBody) {
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + recordBody.length);
+
+		record.putInt(recordBody.length);
+		record.putLong(getCrc32(recordBody));
+		record.put(recordBody);
+
+		return record.array();
+	}
+
+	private String readPath(ByteBuffer record) {
+		byte[] pathBytes = new byte[record.getShort() & 0xffff];
+		record.get(pathBytes);
+
+		return new String(pathBytes, PATH_CHARSET);
+	}
+
+	private long getCrc32(byte[] bytes) {
+		CRC32 crc32 = new CRC32();
+		crc32.update(bytes);
+
+		return crc32.getValue();
+	}
+}
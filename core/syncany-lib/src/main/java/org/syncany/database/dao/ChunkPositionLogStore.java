@@ -0,0 +1,159 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.ChunkPosition;
+import org.syncany.database.SqlDatabase;
+
+/**
+ * Log-structured {@link ChunkPositionStore}. The committed chunk positions are stored in a
+ * {@link ChunkPositionLog}, which is shared by all databases of a process. Each store (and 
+ * thereby each {@link SqlDatabase}) keeps its own uncommitted changes in memory.
+ * 
+ * <p>Like the {@link ChunkPositionSqlDao}, the store is transactional: Uncommitted changes
+ * are only visible to the store that made them, {@link #commit()} appends them to the log
+ * and makes them visible to all other stores, and {@link #rollback()} discards them.
+ *
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class ChunkPositionLogStore implements ChunkPositionStore {
+	public static final String TYPE = "log";
+
+	private ChunkPositionLog log;
+	private Map<String, List<ChunkPosition>> pendingChanges;
+	private ChunkPositionIndex pendingIndex;
+	private boolean closed;
+
+	/**
+	 * Creates a store on a new, unshared {@link ChunkPositionLog} for the given file.
+	 */
+	public ChunkPositionLogStore(File logFile) throws IOException {
+		this(new ChunkPositionLog(logFile));
+	}
+
+	/**
+	 * Creates a store on the given (possibly shared) {@link ChunkPositionLog}.
+	 */
+	public ChunkPositionLogStore(ChunkPositionLog log) {
+		this.log = log;
+		this.pendingChanges = new LinkedHashMap<String, List<ChunkPosition>>();
+		this.pendingIndex = new ChunkPositionIndex();
+	}
+
+	@Override
+	public synchronized void writeChunkPositions(String path, long fileSize, long fileLastModified, List<ChunkPosition> chunkPositions)
+			throws SQLException {
+
+		if (chunkPositions.size() == 0) {
+			removeChunkPositions(path);
+			return;
+		}
+
+		List<ChunkPosition> newPositions = new ArrayList<ChunkPosition>(chunkPositions.size());
+
+		for (ChunkPosition chunkPosition : chunkPositions) {
+			ChunkPosition newPosition = new ChunkPosition(chunkPosition.getChecksum(), path, chunkPosition.getOffset(), chunkPosition.getSize());
+
+			newPosition.setFileSize(fileSize);
+			newPosition.setFileLastModified(fileLastModified);
+
+			newPositions.add(newPosition);
+		}
+
+		pendingIndex.put(path, newPositions);
+		pendingChanges.put(path, newPositions);
+	}
+
+	@Override
+	public synchronized void removeChunkPositions(String path) throws SQLException {
+		pendingIndex.remove(path);
+		pendingChanges.put(path, null);
+	}
+
+	@Override
+	public synchronized Map<ChunkChecksum, List<ChunkPosition>> getChunkPositions(Collection<ChunkChecksum> chunkChecksums) {
+		Map<ChunkChecksum, List<ChunkPosition>> chunkPositions = new HashMap<ChunkChecksum, List<ChunkPosition>>();
+
+		// Committed positions are hidden by the uncommitted changes of the same paths
+		log.getChunkPositions(chunkChecksums, pendingChanges.keySet(), chunkPositions);
+		pendingIndex.getChunkPositions(chunkChecksums, Collections.<String> emptySet(), chunkPositions);
+
+		return chunkPositions;
+	}
+
+	@Override
+	public synchronized void commit() throws SQLException {
+		if (pendingChanges.size() > 0) {
+			try {
+				log.commit(pendingChanges);
+			}
+			catch (IOException e) {
+				throw new SQLException("Cannot write chunk position log " + log.getLogFile(), e);
+			}
+
+			pendingChanges.clear();
+			pendingIndex.clear();
+		}
+	}
+
+	@Override
+	public synchronized void rollback() {
+		pendingChanges.clear();
+		pendingIndex.clear();
+	}
+
+	/**
+	 * Discards all uncommitted changes and releases the underlying log, see
+	 * {@link ChunkPositionLog#release()}.
+	 */
+	@Override
+	public synchronized void close() throws SQLException {
+		rollback();
+
+		if (!closed) {
+			closed = true;
+
+			try {
+				log.release();
+			}
+			catch (IOException e) {
+				throw new SQLException("Cannot close chunk position log " + log.getLogFile(), e);
+			}
+		}
+	}
+
+	public ChunkPositionLog getLog() {
+		return log;
+	}
+
+	public long getLogSize() {
+		return log.getLogSize();
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.ChunkPosition;
+
+/**
+ * The chunk position data access object (DAO) writes and queries the <i>chunkposition</i>
+ * table in the SQL database. This table corresponds to the Java object {@link ChunkPosition}.
+ * 
+ * <p>Unlike the other tables, the chunk position table is purely local: it is not bound to
+ * any database version, and its entries are never serialized or shared with other clients.
+ * 
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class ChunkPositionSqlDao extends AbstractSqlDao implements ChunkPositionStore {
+	public static final String TYPE = "sql";
+
+	public ChunkPositionSqlDao(Connection connection) {
+		super(connection);
+	}
+
+	public ChunkPositionSqlDao(PreparedStatementCache statementCache) {
+		super(statementCache);
+	}
+
+	/**
+	 * Replaces all chunk positions of the given path with the given list of {@link ChunkPosition}s.
+	 * The given file size and last modified date are stored alongside each position to 
+	 * be able to detect stale positions. 
+	 * 
+	 * <p><b>Note:</b> This method executes, but <b>does not commit</b> the query.
+	 */
+	@Override
+	public void writeChunkPositions(String path, long fileSize, long fileLastModified, List<ChunkPosition> chunkPositions) throws SQLException {
+		removeChunkPositions(path);
+		
+		if (chunkPositions.size() > 0) {
+			PreparedStatement preparedStatement = getStatement("chunkposition.insert.all.writeChunkPositions.sql");
+
+			for (ChunkPosition chunkPosition : chunkPositions) {
+				preparedStatement.setString(1, path);
+				preparedStatement.setLong(2, chunkPosition.getOffset());
+				preparedStatement.setString(3, chunkPosition.getChecksum().toString());
+				preparedStatement.setInt(4, chunkPosition.getSize());
+				preparedStatement.setLong(5, fileSize);
+				preparedStatement.setLong(6, fileLastModified);
+
+				preparedStatement.addBatch();
+			}
+
+			preparedStatement.executeBatch();
+			preparedStatement.close();
+		}
+	}
+	
+	/**
+	 * Removes all chunk positions of the given path. 
+	 * 
+	 * <p><b>Note:</b> This method executes, but <b>does not commit</b> the query.
+	 */
+	@Override
+	public void removeChunkPositions(String path) throws SQLException {
+		try (PreparedStatement preparedStatement = getStatement("chunkposition.delete.all.removeChunkPositions.sql")) {
+			preparedStatement.setString(1, path);
+			preparedStatement.executeUpdate();
+		}
+	}
+
+	/**
+	 * Returns all known local positions of the given chunks. Chunks that have no
+	 * known position are not contained in the resulting map.
+	 */
+	@Override
+	public Map<ChunkChecksum, List<ChunkPosition>> getChunkPositions(Collection<ChunkChecksum> chunkChecksums) {
+		Map<ChunkChecksum, List<ChunkPosition>> chunkPositions = new HashMap<ChunkChecksum, List<ChunkPosition>>();
+
+		if (chunkChecksums.isEmpty()) {
+			return chunkPositions;
+		}
+
+		// Gather a unique array of checksums (required for query!)
+		Set<ChunkChecksum> chunkChecksumSet = new HashSet<ChunkChecksum>(chunkChecksums);
+		byte[][] checksums = new byte[chunkChecksumSet.size()][];
+		int i = 0;
+		
+		for (ChunkChecksum checksum : chunkChecksumSet) {
+			checksums[i++] = checksum.getBytes();
+		}
+
+		try (PreparedStatement preparedStatement = getStatement("chunkposition.select.all.getChunkPositions.sql")) {
+			preparedStatement.setArray(1, connection.createArrayOf("varbinary", checksums));
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				while (resultSet.next()) {
+					ChunkPosition chunkPosition = createChunkPositionFromRow(resultSet);
+					List<ChunkPosition> positionsForChunk = chunkPositions.get(chunkPosition.getChecksum());
+					
+					if (positionsForChunk == null) {
+						positionsForChunk = new ArrayList<ChunkPosition>();
+						chunkPositions.put(chunkPosition.getChecksum(), positionsForChunk);
+					}
+					
+					positionsForChunk.add(chunkPosition);
+				}
+			}
+
+			return chunkPositions;
+		}
+		catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Does nothing. The chunk positions are committed together with all other
+	 * changes when the connection is committed.
+	 */
+	@Override
+	public void commit() {
+		// Nothing.
+	}
+
+	/**
+	 * Does nothing. The chunk positions are rolled back together with all other
+	 * changes when the connection is rolled back.
+	 */
+	@Override
+	public void rollback() {
+		// Nothing.
+	}
+
+	/**
+	 * Does nothing. The connection is closed by the {@link SqlDatabase}.
+	 */
+	@Override
+	public void close() {
+		// Nothing.
+	}
+
+	private ChunkPosition createChunkPositionFromRow(ResultSet resultSet) throws SQLException {
+		ChunkChecksum chunkChecksum = ChunkChecksum.parseChunkChecksum(resultSet.getString("chunk_checksum"));
+		String path = resultSet.getString("path");
+		long offset = resultSet.getLong("chunk_offset");
+		int size = resultSet.getInt("chunk_size");
+
+		ChunkPosition chunkPosition = new ChunkPosition(chunkChecksum, path, offset, size);
+		
+		chunkPosition.setFileSize(resultSet.getLong("file_size"));
+		chunkPosition.setFileLastModified(resultSet.getLong("file_lastmodified"));
+
+		return chunkPosition;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database.dao;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.ChunkPosition;
+import org.syncany.database.SqlDatabase;
+
+/**
+ * Storage interface for the local {@link ChunkPosition}s. Chunk positions are written for 
+ * every file that is indexed or reconstructed, and they are looked up by chunk checksum
+ * when files are assembled. 
+ * 
+ * <p>The store is selected by the <tt>chunkPositionStore</tt> setting in the local config, 
+ * see {@link SqlDatabase}. Implementations are the {@link ChunkPositionSqlDao} (type 
+ * <tt>sql</tt>, default), which stores the positions in the <i>chunkposition</i> table of 
+ * the local database, and the {@link ChunkPositionLogStore} (type <tt>log</tt>), which 
+ * stores them in an append-only log file.
+ * 
+ * <p>Stores are transactional, like the rest of the {@link SqlDatabase}: Changes are only 
+ * visible to other databases after {@link #commit()}, and can be discarded using {@link #rollback()}.
+ * 
+ * <p>Errors are reported as {@link SQLException}s, like all other errors of the 
+ * {@link SqlDatabase}.
+ *
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public interface ChunkPositionStore {
+	/**
+	 * Replaces all chunk positions of the given path with the given list of {@link ChunkPosition}s.
+	 * The given file size and last modified date are stored alongside each position to 
+	 * be able to detect stale positions. 
+	 */
+	public void writeChunkPositions(String path, long fileSize, long fileLastModified, List<ChunkPosition> chunkPositions) throws SQLException;
+
+	/**
+	 * Removes all chunk positions of the given path. 
+	 */
+	public void removeChunkPositions(String path) throws SQLException;
+
+	/**
+	 * Returns all known local positions of the given chunks. Chunks that have no
+	 * known position are not contained in the resulting map.
+	 */
+	public Map<ChunkChecksum, List<ChunkPosition>> getChunkPositions(Collection<ChunkChecksum> chunkChecksums);
+
+	/**
+	 * Makes the changes since the last commit durable. Called by {@link SqlDatabase#commit()}.
+	 */
+	public void commit() throws SQLException;
+
+	/**
+	 * Discards the changes since the last commit. Called by {@link SqlDatabase#rollback()}.
+	 */
+	public void rollback() throws SQLException;
+
+	/**
+	 * Discards the uncommitted changes and releases the resources held by the store. 
+	 * Called by {@link SqlDatabase#close()}. Closing an already closed store does nothing.
+	 */
+	public void close() throws SQLException;
+}
@@ -21,8 +21,10 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.syncany.database.ChunkEntry;
@@ -40,7 +42,11 @@ public class ChunkSqlDao extends AbstractSqlDao {
 	private Map<ChunkChecksum, ChunkEntry> chunkCache;
 
 	public ChunkSqlDao(Connection connection) {
-		super(connection);
+		this(new PreparedStatementCache(connection));
+	}
+
+	public ChunkSqlDao(PreparedStatementCache statementCache) {
+		super(statementCache);
 		this.chunkCache = null;
 	}
 
@@ -146,6 +152,56 @@ public class ChunkSqlDao extends AbstractSqlDao {
 		}
 	}
 
+	/**
+	 * Counts the chunks that <b>originally appeared</b> in the database version with the
+	 * given SQL-internal identifier, i.e. the chunks returned by {@link #getChunks(VectorClock)}.
+	 */
+	public long getChunkCount(long databaseVersionId) {
+		try (PreparedStatement preparedStatement = getStatement("chunk.select.all.getChunkCountForDatabaseVersion.sql")) {
+			preparedStatement.setLong(1, databaseVersionId);
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getLong(1);
+			}
+		}
+		catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Queries the SQL database for the next batch of chunks that <b>originally appeared</b>
+	 * in the database version with the given SQL-internal identifier. Chunks are ordered by
+	 * their checksum, so that the last checksum of a batch can be passed as <tt>afterChecksum</tt>
+	 * to get the next batch.
+	 * 
+	 * @param databaseVersionId SQL-internal identifier of the database version
+	 * @param afterChecksum Only return chunks with a checksum greater than this one; <tt>null</tt> to start with the first chunk
+	 * @param maxCount Maximum number of chunks to return
+	 * @return Returns an ordered list of at most <tt>maxCount</tt> chunks
+	 */
+	public List<ChunkEntry> getChunks(long databaseVersionId, ChunkChecksum afterChecksum, int maxCount) {
+		try (PreparedStatement preparedStatement = getStatement("chunk.select.all.getChunksForDatabaseVersionBatch.sql")) {
+			preparedStatement.setLong(1, databaseVersionId);
+			preparedStatement.setString(2, (afterChecksum != null) ? afterChecksum.toString() : "");
+			preparedStatement.setInt(3, maxCount);
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				List<ChunkEntry> chunks = new ArrayList<ChunkEntry>();
+
+				while (resultSet.next()) {
+					chunks.add(createChunkEntryFromRow(resultSet));
+				}
+
+				return chunks;
+			}
+		}
+		catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	protected Map<ChunkChecksum, ChunkEntry> createChunkEntries(ResultSet resultSet) throws SQLException {
 		Map<ChunkChecksum, ChunkEntry> chunks = new HashMap<ChunkChecksum, ChunkEntry>();
 
@@ -0,0 +1,484 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database.dao;
+
+import static org.syncany.database.dao.DatabaseBinaryWriter.FLAG_CHECKSUM;
+import static org.syncany.database.dao.DatabaseBinaryWriter.FLAG_DOS_ATTRIBUTES;
+import static org.syncany.database.dao.DatabaseBinaryWriter.FLAG_LINK_TARGET;
+import static org.syncany.database.dao.DatabaseBinaryWriter.FLAG_POSIX_PERMISSIONS;
+import static org.syncany.database.dao.DatabaseBinaryWriter.FLAG_UPDATED;
+import static org.syncany.database.dao.DatabaseBinaryWriter.RECORD_DIGEST_LENGTH;
+import static org.syncany.database.dao.DatabaseBinaryWriter.STRING_REF_NEW;
+import static org.syncany.database.dao.DatabaseBinaryWriter.STRING_REF_NULL;
+import static org.syncany.database.dao.DatabaseBinaryWriter.STRING_REF_OFFSET;
+import static org.syncany.database.dao.DatabaseBinaryWriter.TRAILER_MAGIC;
+import static org.syncany.database.dao.DatabaseBinaryWriter.TRAILER_SIZE;
+import static org.syncany.database.dao.DatabaseBinaryWriter.TRAILER_VERSION;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+import org.syncany.chunk.Transformer;
+import org.syncany.database.ChunkEntry;
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.DatabaseVersion;
+import org.syncany.database.FileContent;
+import org.syncany.database.FileContent.FileChecksum;
+import org.syncany.database.FileVersion;
+import org.syncany.database.FileVersion.FileStatus;
+import org.syncany.database.FileVersion.FileType;
+import org.syncany.database.MemoryDatabase;
+import org.syncany.database.MultiChunkEntry;
+import org.syncany.database.MultiChunkEntry.MultiChunkId;
+import org.syncany.database.PartialFileHistory;
+import org.syncany.database.PartialFileHistory.FileHistoryId;
+import org.syncany.database.VectorClock;
+import org.syncany.database.dao.DatabaseSerializer.DatabaseReadType;
+
+/**
+ * This class reads database files written by the {@link DatabaseBinaryWriter}, and adds
+ * the database versions to the given {@link MemoryDatabase}. It is the binary counterpart
+ * of the {@link DatabaseXmlParseHandler} and behaves the same way: Only database versions
+ * within the given vector clock range are added, and if only the headers are requested,
+ * the database version bodies are not read at all.
+ * 
+ * <p>Files are read using {@link #read(File, Transformer)}: Only the trailer, the index 
+ * and the records of the requested database versions are read from disk.
+ * 
+ * @see DatabaseBinaryWriter
+ * @see DatabaseSerializer
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class DatabaseBinaryReader {
+	private static final Logger logger = Logger.getLogger(DatabaseBinaryReader.class.getSimpleName());
+
+	private MemoryDatabase database;
+	private VectorClock versionFrom;
+	private VectorClock versionTo;
+	private DatabaseReadType readType;
+
+	public DatabaseBinaryReader(MemoryDatabase database, VectorClock fromVersion, VectorClock toVersion, DatabaseReadType readType) {
+		this.database = database;
+		this.versionFrom = fromVersion;
+		this.versionTo = toVersion;
+		this.readType = readType;
+	}
+
+	/**
+	 * Checks whether the given file ends with the trailer of an indexed binary 
+	 * database file. The trailer is not transformed, so no transformer is needed.
+	 */
+	public static boolean isIndexedDatabase(File file) throws IOException {
+		if (file.length() < TRAILER_SIZE) {
+			return false;
+		}
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+		try {
+			byte[] magic = new byte[TRAILER_MAGIC.length];
+
+			randomAccessFile.seek(file.length() - TRAILER_SIZE);
+			randomAccessFile.readFully(magic);
+
+			return Arrays.equals(TRAILER_MAGIC, magic);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Reads an indexed binary database file. The index is decoded first; records are 
+	 * only read and decoded for the database versions within the load range, and only
+	 * if the full database is requested. 
+	 * 
+	 * @param file Indexed binary database file
+	 * @param transformer Transformer to decode index and records, must not be <tt>null</tt>
+	 */
+	public void read(File file, Transformer transformer) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+		try {
+			long indexOffset = readTrailerAndIndexOffset(randomAccessFile);
+			InputStream indexIn = transformer.createInputStream(new ByteArrayInputStream(readBytes(randomAccessFile, indexOffset,
+					(int) (randomAccessFile.length() - TRAILER_SIZE - indexOffset))));
+
+			long databaseVersionCount = readVarLong(indexIn);
+			List<IndexEntry> indexEntries = new ArrayList<IndexEntry>();
+
+			for (long i = 0; i < databaseVersionCount; i++) {
+				DatabaseVersion databaseVersion = readDatabaseVersionHeader(new ByteArrayInputStream(readLengthPrefixed(indexIn)));
+				long recordOffset = readVarLong(indexIn);
+				long recordLength = readVarLong(indexIn);
+				byte[] recordDigest = readFully(indexIn, RECORD_DIGEST_LENGTH);
+
+				if (recordOffset + recordLength > indexOffset) {
+					throw new IOException("Invalid binary database index: Record range exceeds data section.");
+				}
+
+				indexEntries.add(new IndexEntry(databaseVersion, recordOffset, (int) recordLength, recordDigest));
+			}
+
+			// Read until the end to make sure the index is fully authenticated
+			if (indexIn.read() != -1) {
+				throw new IOException("Invalid binary database index: Unexpected data after last entry.");
+			}
+
+			indexIn.close();
+
+			for (IndexEntry indexEntry : indexEntries) {
+				DatabaseVersion databaseVersion = indexEntry.getDatabaseVersion();
+
+				if (DatabaseXmlParseHandler.vectorClockInRange(databaseVersion.getVectorClock(), versionFrom, versionTo)) {
+					if (readType == DatabaseReadType.FULL) {
+						byte[] transformedBody = readBytes(randomAccessFile, indexEntry.getRecordOffset(), indexEntry.getRecordLength());
+						byte[] actualRecordDigest = DatabaseBinaryWriter.createRecordDigest().digest(transformedBody);
+
+						if (!MessageDigest.isEqual(indexEntry.getRecordDigest(), actualRecordDigest)) {
+							throw new IOException("Invalid binary database record for " + databaseVersion.getHeader() + ": Digest does not match index.");
+						}
+
+						InputStream bodyIn = transformer.createInputStream(new ByteArrayInputStream(transformedBody));
+
+						readDatabaseVersionBody(new ByteArrayInputStream(IOUtils.toByteArray(bodyIn)), databaseVersion);
+						bodyIn.close();
+					}
+
+					database.addDatabaseVersion(databaseVersion);
+					logger.log(Level.INFO, "   + Added database version " + databaseVersion.getHeader());
+				}
+			}
+		}
+		finally {
+			randomAccessFile.close();
+		}
+	}
+
+	private long readTrailerAndIndexOffset(RandomAccessFile randomAccessFile) throws IOException {
+		long totalLength = randomAccessFile.length();
+
+		if (totalLength < TRAILER_SIZE) {
+			throw new IOException("Invalid binary database file: File too small to contain trailer.");
+		}
+
+		ByteBuffer trailer = ByteBuffer.wrap(readBytes(randomAccessFile, totalLength - TRAILER_SIZE, TRAILER_SIZE));
+		byte[] magic = new byte[TRAILER_MAGIC.length];
+
+		trailer.get(magic);
+
+		if (!Arrays.equals(TRAILER_MAGIC, magic)) {
+			throw new IOException("Invalid binary database trailer: Magic number does not match.");
+		}
+
+		byte version = trailer.get();
+
+		if (version != TRAILER_VERSION) {
+			throw new IOException("Invalid binary database trailer: Unsupported version " + version);
+		}
+
+		long indexOffset = trailer.getLong();
+		int indexLength = trailer.getInt();
+
+		if (indexOffset < 0 || indexLength < 0 || indexOffset + indexLength != totalLength - TRAILER_SIZE) {
+			throw new IOException("Invalid binary database trailer: Index range does not match file size.");
+		}
+
+		return indexOffset;
+	}
+
+	private byte[] readBytes(RandomAccessFile randomAccessFile, long offset, int length) throws IOException {
+		byte[] bytes = new byte[length];
+
+		randomAccessFile.seek(offset);
+		randomAccessFile.readFully(bytes);
+
+		return bytes;
+	}
+
+	private DatabaseVersion readDatabaseVersionHeader(InputStream headerIn) throws IOException {
+		DatabaseVersion databaseVersion = new DatabaseVersion();
+
+		databaseVersion.setTimestamp(new Date(readSignedVarLong(headerIn)));
+		databaseVersion.setClient(readString(headerIn));
+
+		VectorClock vectorClock = new VectorClock();
+		long vectorClockSize = readVarLong(headerIn);
+
+		for (long i = 0; i < vectorClockSize; i++) {
+			String clientName = readString(headerIn);
+			long clientValue = readVarLong(headerIn);
+
+			vectorClock.setClock(clientName, clientValue);
+		}
+
+		databaseVersion.setVectorClock(vectorClock);
+		return databaseVersion;
+	}
+
+	private void readDatabaseVersionBody(InputStream bodyIn, DatabaseVersion databaseVersion) throws IOException {
+		List<String> stringTable = new ArrayList<String>();
+
+		readChunks(bodyIn, databaseVersion);
+		readMultiChunks(bodyIn, databaseVersion);
+		readFileContents(bodyIn, databaseVersion);
+		readFileHistories(bodyIn, stringTable, databaseVersion);
+	}
+
+	private void readChunks(InputStream in, DatabaseVersion databaseVersion) throws IOException {
+		long chunkCount = readVarLong(in);
+
+		for (long i = 0; i < chunkCount; i++) {
+			ChunkChecksum chunkChecksum = new ChunkChecksum(readObjectId(in));
+			int chunkSize = (int) readVarLong(in);
+
+			databaseVersion.addChunk(new ChunkEntry(chunkChecksum, chunkSize));
+		}
+	}
+
+	private void readMultiChunks(InputStream in, DatabaseVersion databaseVersion) throws IOException {
+		long multiChunkCount = readVarLong(in);
+
+		for (long i = 0; i < multiChunkCount; i++) {
+			MultiChunkId multiChunkId = new MultiChunkId(readObjectId(in));
+			long size = readVarLong(in);
+
+			MultiChunkEntry multiChunk = new MultiChunkEntry(multiChunkId, size);
+			long chunkRefCount = readVarLong(in);
+
+			for (long j = 0; j < chunkRefCount; j++) {
+				multiChunk.addChunk(new ChunkChecksum(readObjectId(in)));
+			}
+
+			databaseVersion.addMultiChunk(multiChunk);
+		}
+	}
+
+	private void readFileContents(InputStream in, DatabaseVersion databaseVersion) throws IOException {
+		long fileContentCount = readVarLong(in);
+
+		for (long i = 0; i < fileContentCount; i++) {
+			FileContent fileContent = new FileContent();
+
+			fileContent.setChecksum(new FileChecksum(readObjectId(in)));
+			fileContent.setSize(readVarLong(in));
+
+			long chunkRefCount = readVarLong(in);
+
+			for (long j = 0; j < chunkRefCount; j++) {
+				fileContent.addChunk(new ChunkChecksum(readObjectId(in)));
+			}
+
+			databaseVersion.addFileContent(fileContent);
+		}
+	}
+
+	private void readFileHistories(InputStream in, List<String> stringTable, DatabaseVersion databaseVersion) throws IOException {
+		long fileHistoryCount = readVarLong(in);
+
+		for (long i = 0; i < fileHistoryCount; i++) {
+			PartialFileHistory fileHistory = new PartialFileHistory(new FileHistoryId(readObjectId(in)));
+			long fileVersionCount = readVarLong(in);
+
+			for (long j = 0; j < fileVersionCount; j++) {
+				fileHistory.addFileVersion(readFileVersion(in, stringTable));
+			}
+
+			// File history might be empty if file versions are ignored!
+			if (fileHistory.getFileVersions().size() > 0) {
+				databaseVersion.addFileHistory(fileHistory);
+			}
+		}
+	}
+
+	private FileVersion readFileVersion(InputStream in, List<String> stringTable) throws IOException {
+		FileVersion fileVersion = new FileVersion();
+
+		fileVersion.setVersion(readVarLong(in));
+		fileVersion.setType(FileType.valueOf(readTableString(in, stringTable)));
+		fileVersion.setStatus(FileStatus.valueOf(readTableString(in, stringTable)));
+		fileVersion.setPath(readPath(in, stringTable));
+		fileVersion.setSize(readSignedVarLong(in));
+		fileVersion.setLastModified(new Date(readSignedVarLong(in)));
+
+		int flags = readByte(in);
+
+		if ((flags & FLAG_UPDATED) != 0) {
+			fileVersion.setUpdated(new Date(readSignedVarLong(in)));
+		}
+
+		if ((flags & FLAG_CHECKSUM) != 0) {
+			fileVersion.setChecksum(new FileChecksum(readObjectId(in)));
+		}
+
+		if ((flags & FLAG_LINK_TARGET) != 0) {
+			fileVersion.setLinkTarget(readTableString(in, stringTable));
+		}
+
+		if ((flags & FLAG_DOS_ATTRIBUTES) != 0) {
+			fileVersion.setDosAttributes(readTableString(in, stringTable));
+		}
+
+		if ((flags & FLAG_POSIX_PERMISSIONS) != 0) {
+			fileVersion.setPosixPermissions(readTableString(in, stringTable));
+		}
+
+		return fileVersion;
+	}
+
+	private String readPath(InputStream in, List<String> stringTable) throws IOException {
+		String parentPath = readTableString(in, stringTable);
+		String name = readTableString(in, stringTable);
+
+		if (name == null) {
+			throw new IOException("Invalid path in binary database file: Name must not be null.");
+		}
+
+		return (parentPath != null) ? parentPath + "/" + name : name;
+	}
+
+	private String readTableString(InputStream in, List<String> stringTable) throws IOException {
+		long stringRef = readVarLong(in);
+
+		if (stringRef == STRING_REF_NULL) {
+			return null;
+		}
+		else if (stringRef == STRING_REF_NEW) {
+			String str = readString(in);
+			stringTable.add(str);
+
+			return str;
+		}
+		else {
+			long stringIndex = stringRef - STRING_REF_OFFSET;
+
+			if (stringIndex >= stringTable.size()) {
+				throw new IOException("Invalid string reference " + stringIndex + " in binary database file.");
+			}
+
+			return stringTable.get((int) stringIndex);
+		}
+	}
+
+	private byte[] readObjectId(InputStream in) throws IOException {
+		return readFully(in, readByte(in));
+	}
+
+	private static byte[] readLengthPrefixed(InputStream in) throws IOException {
+		return readFully(in, readVarLong(in));
+	}
+
+	private static String readString(InputStream in) throws IOException {
+		return new String(readLengthPrefixed(in), "UTF-8");
+	}
+
+	private static byte[] readFully(InputStream in, long length) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Invalid length " + length + " in binary database file.");
+		}
+
+		byte[] data = new byte[(int) length];
+		IOUtils.readFully(in, data);
+
+		return data;
+	}
+
+	private static int readByte(InputStream in) throws IOException {
+		int value = in.read();
+
+		if (value == -1) {
+			throw new EOFException("Unexpected end of binary database file.");
+		}
+
+		return value;
+	}
+
+	/**
+	 * Reads a variable-length integer written by {@link DatabaseBinaryWriter#writeVarLong(java.io.OutputStream, long)}.
+	 */
+	public static long readVarLong(InputStream in) throws IOException {
+		long value = 0;
+		int shift = 0;
+		int currentByte;
+
+		do {
+			if (shift > 63) {
+				throw new IOException("Invalid varint in binary database file: Too many bytes.");
+			}
+
+			currentByte = readByte(in);
+			value |= (long) (currentByte & 0x7F) << shift;
+			shift += 7;
+		}
+		while ((currentByte & 0x80) != 0);
+
+		return value;
+	}
+
+	/**
+	 * Reads a zigzag-encoded variable-length integer written by 
+	 * {@link DatabaseBinaryWriter#writeSignedVarLong(java.io.OutputStream, long)}.
+	 */
+	public static long readSignedVarLong(InputStream in) throws IOException {
+		long zigzagValue = readVarLong(in);
+		return (zigzagValue >>> 1) ^ -(zigzagValue & 1);
+	}
+
+	private static class IndexEntry {
+		private DatabaseVersion databaseVersion;
+		private long recordOffset;
+		private int recordLength;
+		private byte[] recordDigest;
+
+		public IndexEntry(DatabaseVersion databaseVersion, long recordOffset, int recordLength, byte[] recordDigest) {
+			this.databaseVersion = databaseVersion;
+			this.recordOffset = recordOffset;
+			this.recordLength = recordLength;
+			this.recordDigest = recordDigest;
+		}
+
+		public DatabaseVersion getDatabaseVersion() {
+			return databaseVersion;
+		}
+
+		public long getRecordOffset() {
+			return recordOffset;
+		}
+
+		public int getRecordLength() {
+			return recordLength;
+		}
+
+		public byte[] getRecordDigest() {
+			return recordDigest;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database.dao;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import org.syncany.chunk.NoTransformer;
+import org.syncany.chunk.Transformer;
+import org.syncany.database.DatabaseVersion;
+import org.syncany.database.MemoryDatabase;
+
+/**
+ * Serializes a {@link MemoryDatabase} or a list of {@link DatabaseVersion}s to a
+ * compact binary file format, using a {@link Transformer} to compress/encrypt the 
+ * file before writing, and to decompress/decrypt it before reading.
+ * 
+ * <p>Compared to the {@link DatabaseXmlSerializer}, this format stores checksums as raw 
+ * bytes, numbers as variable-length integers and paths in a string table. It is much 
+ * smaller and faster to parse. Each database version is transformed individually, and the
+ * file ends with an index of all database version headers, so that headers can be read 
+ * without decoding the whole file. Files are written using the {@link DatabaseBinaryWriter}
+ * and read using the {@link DatabaseBinaryReader}. 
+ * 
+ * @see DatabaseBinaryWriter
+ * @see DatabaseBinaryReader
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class DatabaseBinarySerializer extends DatabaseSerializer {
+	public static final String TYPE = "binary";
+
+	public DatabaseBinarySerializer() {
+		this(null);
+	}
+
+	public DatabaseBinarySerializer(Transformer transformer) {
+		super(transformer);
+	}
+
+	@Override
+	public void save(Iterator<DatabaseVersion> databaseVersions, File destinationFile) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(destinationFile));
+		Transformer recordTransformer = (transformer != null) ? transformer : new NoTransformer();
+
+		new DatabaseBinaryWriter(databaseVersions, out).write(recordTransformer);
+	}
+}
@@ -0,0 +1,428 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database.dao;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.syncany.chunk.Transformer;
+import org.syncany.database.ChunkEntry;
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.DatabaseVersion;
+import org.syncany.database.FileContent;
+import org.syncany.database.FileVersion;
+import org.syncany.database.FileVersion.FileType;
+import org.syncany.database.MultiChunkEntry;
+import org.syncany.database.ObjectId;
+import org.syncany.database.PartialFileHistory;
+import org.syncany.database.VectorClock;
+import org.syncany.util.StringUtil;
+
+/**
+ * This class writes the given {@link DatabaseVersion}s to an {@link OutputStream} using
+ * a compact binary format. It is the binary counterpart of the {@link DatabaseXmlWriter},
+ * and the files it produces are read by the {@link DatabaseBinaryReader}.
+ * 
+ * <p>Like the {@link org.syncany.chunk.SeekableMultiChunk}, a database file is a container of individually 
+ * transformed (compressed/encrypted) records, followed by a transformed index and a fixed-size,
+ * untransformed trailer:
+ * 
+ * <pre>
+ *   file     := record* index trailer
+ *   record   := transformed(body)
+ *   index    := transformed(varint(n) (varint(headerLength) header varlong(recordOffset) varlong(recordLength) digest)^n)
+ *   trailer  := magic (4 bytes) version (1 byte) index offset (8 bytes) index length (4 bytes)
+ *
+ *   header   := varlong(timestamp) string(client) varint(n) (string(clientName) varlong(clientValue))^n
+ *   digest   := sha256(record) (32 bytes)
+ *   body     := chunks multiChunks fileContents fileHistories
+ * </pre>
+ * 
+ * <p>Since the index contains the headers of all database versions, reading the headers
+ * of a database file only requires reading and decoding the trailer and the index. Database
+ * versions within a vector clock range can be loaded by seeking directly to their records.
+ * Since records are transformed individually, the index carries a digest of each record.
+ * The reader verifies it before decoding a record, so that a record cannot be swapped with 
+ * a (validly transformed) record of another file or position without being noticed.
+ * 
+ * <p>All numbers are encoded as variable-length integers (7 bits per byte, signed numbers
+ * are zigzag-encoded), all checksums and identifiers are stored as raw bytes prefixed by
+ * their length (1 byte). Strings within a body are stored in a string table: The first
+ * occurrence of a string is written inline, every following occurrence only references its
+ * index. Paths are split into parent directory and file name, so that the directory part
+ * is only written once per database version.
+ * 
+ * @see DatabaseBinarySerializer
+ * @see DatabaseBinaryReader
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class DatabaseBinaryWriter {
+	private static final Logger logger = Logger.getLogger(DatabaseBinaryWriter.class.getSimpleName());
+
+	public static final byte[] TRAILER_MAGIC = new byte[] { 'S', 'y', 0x02, 0x09 };
+	public static final byte TRAILER_VERSION = 0x02;
+	public static final int TRAILER_SIZE = TRAILER_MAGIC.length + 1 + 8 + 4;
+
+	public static final String RECORD_DIGEST_ALGORITHM = "SHA-256";
+	public static final int RECORD_DIGEST_LENGTH = 32;
+
+	public static final int STRING_REF_NULL = 0;
+	public static final int STRING_REF_NEW = 1;
+	public static final int STRING_REF_OFFSET = 2;
+
+	public static final int FLAG_UPDATED = 0x01;
+	public static final int FLAG_CHECKSUM = 0x02;
+	public static final int FLAG_LINK_TARGET = 0x04;
+	public static final int FLAG_DOS_ATTRIBUTES = 0x08;
+	public static final int FLAG_POSIX_PERMISSIONS = 0x10;
+
+	private Iterator<DatabaseVersion> databaseVersions;
+	private OutputStream out;
+
+	public DatabaseBinaryWriter(Iterator<DatabaseVersion> databaseVersions, OutputStream out) {
+		this.databaseVersions = databaseVersions;
+		this.out = out;
+	}
+
+	/**
+	 * Writes all database versions as individually transformed records, followed by
+	 * the transformed index and the trailer. The output stream is closed afterwards.
+	 * 
+	 * @param transformer Transformer to compress/encrypt records and index, must not be <tt>null</tt>
+	 */
+	public void write(Transformer transformer) throws IOException {
+		ByteArrayOutputStream indexEntries = new ByteArrayOutputStream();
+		long databaseVersionCount = 0;
+		long recordOffset = 0;
+
+		while (databaseVersions.hasNext()) {
+			DatabaseVersion databaseVersion = databaseVersions.next();
+
+			ByteArrayOutputStream header = serializeDatabaseVersionHeader(databaseVersion);
+			MessageDigest recordDigest = createRecordDigest();
+			long recordLength = writeDatabaseVersionBody(transformer, recordDigest, databaseVersion);
+
+			writeLengthPrefixed(indexEntries, header);
+			writeVarLong(indexEntries, recordOffset);
+			writeVarLong(indexEntries, recordLength);
+			indexEntries.write(recordDigest.digest());
+
+			recordOffset += recordLength;
+			databaseVersionCount++;
+		}
+
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+
+		writeVarLong(index, databaseVersionCount);
+		indexEntries.writeTo(index);
+
+		byte[] transformedIndex = transform(transformer, index);
+		ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+
+		trailer.put(TRAILER_MAGIC);
+		trailer.put(TRAILER_VERSION);
+		trailer.putLong(recordOffset);
+		trailer.putInt(transformedIndex.length);
+
+		out.write(transformedIndex);
+		out.write(trailer.array());
+
+		out.flush();
+		out.close();
+	}
+
+	/**
+	 * Creates a new digest to compute the checksum of a transformed record,
+	 * as stored in the index. 
+	 */
+	public static MessageDigest createRecordDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance(RECORD_DIGEST_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException("Record digest algorithm not available: " + RECORD_DIGEST_ALGORITHM, e);
+		}
+	}
+
+	private byte[] transform(Transformer transformer, ByteArrayOutputStream data) throws IOException {
+		ByteArrayOutputStream transformedData = new ByteArrayOutputStream(data.size() + 256);
+		OutputStream transformingOutputStream = transformer.createOutputStream(transformedData);
+
+		data.writeTo(transformingOutputStream);
+		transformingOutputStream.close();
+
+		return transformedData.toByteArray();
+	}
+
+	private ByteArrayOutputStream serializeDatabaseVersionHeader(DatabaseVersion databaseVersion) throws IOException {
+		if (databaseVersion.getTimestamp() == null || databaseVersion.getClient() == null
+				|| databaseVersion.getVectorClock() == null || databaseVersion.getVectorClock().isEmpty()) {
+
+			logger.log(Level.SEVERE, "Cannot write database version. Header fields must be filled: " + databaseVersion.getHeader());
+			throw new IOException("Cannot write database version. Header fields must be filled: " + databaseVersion.getHeader());
+		}
+
+		ByteArrayOutputStream headerOut = new ByteArrayOutputStream();
+		VectorClock vectorClock = databaseVersion.getVectorClock();
+
+		writeSignedVarLong(headerOut, databaseVersion.getTimestamp().getTime());
+		writeString(headerOut, databaseVersion.getClient());
+		writeVarLong(headerOut, vectorClock.size());
+
+		for (Map.Entry<String, Long> vectorClockEntry : vectorClock.entrySet()) {
+			writeString(headerOut, vectorClockEntry.getKey());
+			writeVarLong(headerOut, vectorClockEntry.getValue());
+		}
+
+		return headerOut;
+	}
+
+	/**
+	 * Serializes the body of the given database version and writes it as a transformed record
+	 * to the output stream. The body is streamed through the transformer instead of being 
+	 * buffered, so that large database versions never have to be held in memory as a whole.
+	 * 
+	 * @param recordDigest Digest to be updated with the transformed record bytes
+	 * @return Returns the length of the transformed record
+	 */
+	private long writeDatabaseVersionBody(Transformer transformer, MessageDigest recordDigest, DatabaseVersion databaseVersion) throws IOException {
+		CountingOutputStream recordOut = new CountingOutputStream(new DigestOutputStream(new CloseShieldOutputStream(out), recordDigest));
+		OutputStream bodyOut = new BufferedOutputStream(transformer.createOutputStream(recordOut));
+		StringTable stringTable = new StringTable();
+
+		writeChunks(bodyOut, databaseVersion.getChunks());
+		writeMultiChunks(bodyOut, databaseVersion.getMultiChunks());
+		writeFileContents(bodyOut, databaseVersion.getFileContents());
+		writeFileHistories(bodyOut, stringTable, databaseVersion.getFileHistories());
+
+		bodyOut.close();
+
+		return recordOut.getByteCount();
+	}
+
+	private void writeChunks(OutputStream out, Collection<ChunkEntry> chunks) throws IOException {
+		writeVarLong(out, chunks.size());
+
+		for (ChunkEntry chunk : chunks) {
+			writeObjectId(out, chunk.getChecksum());
+			writeVarLong(out, chunk.getSize());
+		}
+	}
+
+	private void writeMultiChunks(OutputStream out, Collection<MultiChunkEntry> multiChunks) throws IOException {
+		writeVarLong(out, multiChunks.size());
+
+		for (MultiChunkEntry multiChunk : multiChunks) {
+			writeObjectId(out, multiChunk.getId());
+			writeVarLong(out, multiChunk.getSize());
+			writeVarLong(out, multiChunk.getChunks().size());
+
+			for (ChunkChecksum chunkChecksum : multiChunk.getChunks()) {
+				writeObjectId(out, chunkChecksum);
+			}
+		}
+	}
+
+	private void writeFileContents(OutputStream out, Collection<FileContent> fileContents) throws IOException {
+		writeVarLong(out, fileContents.size());
+
+		for (FileContent fileContent : fileContents) {
+			writeObjectId(out, fileContent.getChecksum());
+			writeVarLong(out, fileContent.getSize());
+			writeVarLong(out, fileContent.getChunks().size());
+
+			for (ChunkChecksum chunkChecksum : fileContent.getChunks()) {
+				writeObjectId(out, chunkChecksum);
+			}
+		}
+	}
+
+	private void writeFileHistories(OutputStream out, StringTable stringTable, Collection<PartialFileHistory> fileHistories) throws IOException {
+		writeVarLong(out, fileHistories.size());
+
+		for (PartialFileHistory fileHistory : fileHistories) {
+			Collection<FileVersion> fileVersions = fileHistory.getFileVersions().values();
+
+			writeObjectId(out, fileHistory.getFileHistoryId());
+			writeVarLong(out, fileVersions.size());
+
+			for (FileVersion fileVersion : fileVersions) {
+				writeFileVersion(out, stringTable, fileVersion);
+			}
+		}
+	}
+
+	private void writeFileVersion(OutputStream out, StringTable stringTable, FileVersion fileVersion) throws IOException {
+		if (fileVersion.getVersion() == null || fileVersion.getType() == null || fileVersion.getPath() == null
+				|| fileVersion.getStatus() == null || fileVersion.getSize() == null || fileVersion.getLastModified() == null) {
+
+			throw new IOException("Unable to write file version, because one or many mandatory fields are null (version, type, path, name, status, size, last modified): " + fileVersion);
+		}
+
+		if (fileVersion.getType() == FileType.SYMLINK && fileVersion.getLinkTarget() == null) {
+			throw new IOException("Unable to write file version: All symlinks must have a target.");
+		}
+
+		int flags = 0;
+
+		flags |= (fileVersion.getUpdated() != null) ? FLAG_UPDATED : 0;
+		flags |= (fileVersion.getChecksum() != null) ? FLAG_CHECKSUM : 0;
+		flags |= (fileVersion.getLinkTarget() != null) ? FLAG_LINK_TARGET : 0;
+		flags |= (fileVersion.getDosAttributes() != null) ? FLAG_DOS_ATTRIBUTES : 0;
+		flags |= (fileVersion.getPosixPermissions() != null) ? FLAG_POSIX_PERMISSIONS : 0;
+
+		writeVarLong(out, fileVersion.getVersion());
+		stringTable.write(out, fileVersion.getType().toString());
+		stringTable.write(out, fileVersion.getStatus().toString());
+		writePath(out, stringTable, fileVersion.getPath());
+		writeSignedVarLong(out, fileVersion.getSize());
+		writeSignedVarLong(out, fileVersion.getLastModified().getTime());
+
+		out.write(flags);
+
+		if (fileVersion.getUpdated() != null) {
+			writeSignedVarLong(out, fileVersion.getUpdated().getTime());
+		}
+
+		if (fileVersion.getChecksum() != null) {
+			writeObjectId(out, fileVersion.getChecksum());
+		}
+
+		if (fileVersion.getLinkTarget() != null) {
+			stringTable.write(out, fileVersion.getLinkTarget());
+		}
+
+		if (fileVersion.getDosAttributes() != null) {
+			stringTable.write(out, fileVersion.getDosAttributes());
+		}
+
+		if (fileVersion.getPosixPermissions() != null) {
+			stringTable.write(out, fileVersion.getPosixPermissions());
+		}
+	}
+
+	private void writePath(OutputStream out, StringTable stringTable, String path) throws IOException {
+		int lastSlashIndex = path.lastIndexOf('/');
+
+		if (lastSlashIndex == -1) {
+			stringTable.write(out, null);
+			stringTable.write(out, path);
+		}
+		else {
+			stringTable.write(out, path.substring(0, lastSlashIndex));
+			stringTable.write(out, path.substring(lastSlashIndex + 1));
+		}
+	}
+
+	private void writeObjectId(OutputStream out, ObjectId objectId) throws IOException {
+		byte[] objectIdBytes = objectId.getBytes();
+
+		if (objectIdBytes.length > 0xFF) {
+			throw new IOException("Identifier too long (" + objectIdBytes.length + " bytes): " + objectId);
+		}
+
+		out.write(objectIdBytes.length);
+		out.write(objectIdBytes);
+	}
+
+	private static void writeLengthPrefixed(OutputStream out, ByteArrayOutputStream data) throws IOException {
+		writeVarLong(out, data.size());
+		data.writeTo(out);
+	}
+
+	private static void writeString(OutputStream out, String str) throws IOException {
+		byte[] strBytes = StringUtil.toBytesUTF8(str);
+
+		writeVarLong(out, strBytes.length);
+		out.write(strBytes);
+	}
+
+	/**
+	 * Writes a non-negative number as variable-length integer, 7 bits per byte,
+	 * least significant group first. The most significant bit of each byte is
+	 * set if more bytes follow.
+	 */
+	public static void writeVarLong(OutputStream out, long value) throws IOException {
+		if (value < 0) {
+			throw new IOException("Cannot write negative number as unsigned varint: " + value);
+		}
+
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+
+		out.write((int) value);
+	}
+
+	/**
+	 * Writes a signed number as zigzag-encoded variable-length integer, i.e. small
+	 * negative numbers are encoded as small positive numbers.
+	 */
+	public static void writeSignedVarLong(OutputStream out, long value) throws IOException {
+		long zigzagValue = (value << 1) ^ (value >> 63);
+
+		while ((zigzagValue & ~0x7FL) != 0) {
+			out.write((int) ((zigzagValue & 0x7F) | 0x80));
+			zigzagValue >>>= 7;
+		}
+
+		out.write((int) zigzagValue);
+	}
+
+	/**
+	 * The string table remembers all strings written within one database version
+	 * body. Strings that were already written are only referenced by their index.
+	 */
+	private static class StringTable {
+		private Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+
+		public void write(OutputStream out, String str) throws IOException {
+			if (str == null) {
+				writeVarLong(out, STRING_REF_NULL);
+			}
+			else {
+				Integer stringIndex = stringIndexes.get(str);
+
+				if (stringIndex != null) {
+					writeVarLong(out, STRING_REF_OFFSET + stringIndex);
+				}
+				else {
+					stringIndexes.put(str, stringIndexes.size());
+
+					writeVarLong(out, STRING_REF_NEW);
+					writeString(out, str);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database.dao;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.syncany.chunk.NoTransformer;
+import org.syncany.chunk.Transformer;
+import org.syncany.database.DatabaseVersion;
+import org.syncany.database.MemoryDatabase;
+import org.syncany.database.VectorClock;
+import org.syncany.util.StringUtil;
+
+/**
+ * Serializes a {@link MemoryDatabase} or a list of {@link DatabaseVersion}s to a 
+ * file, using a {@link Transformer} to compress/encrypt the file before writing, 
+ * and to decompress/decrypt it before reading.
+ * 
+ * <p>Implementations only differ in the format they write: The {@link DatabaseXmlSerializer}
+ * writes the original XML-based format, the {@link DatabaseBinarySerializer} writes a compact
+ * binary format. Reading is format-independent: The <tt>load()</tt> method detects the
+ * format of a database file by its magic bytes, so that a repository can contain files in
+ * both formats (e.g. after switching the format of an existing repository). Binary files
+ * carry an index of all database version headers, so that header-only and range loads 
+ * do not have to read the whole file.
+ * 
+ * <p>The serializer to write new database files is selected by the <tt>databaseFormat</tt>
+ * setting in the repository config, see {@link #getInstance(String, Transformer)}.
+ * 
+ * @see DatabaseXmlSerializer
+ * @see DatabaseBinarySerializer
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public abstract class DatabaseSerializer {
+	private static final Logger logger = Logger.getLogger(DatabaseSerializer.class.getSimpleName());
+
+	public enum DatabaseReadType {
+		FULL, HEADER_ONLY
+	}
+
+	protected Transformer transformer;
+
+	public DatabaseSerializer(Transformer transformer) {
+		this.transformer = transformer;
+	}
+
+	public void save(List<DatabaseVersion> databaseVersions, File destinationFile) throws IOException {
+		save(databaseVersions.iterator(), destinationFile);
+	}
+
+	public abstract void save(Iterator<DatabaseVersion> databaseVersions, File destinationFile) throws IOException;
+
+	public void load(MemoryDatabase db, File databaseFile, VectorClock fromVersion, VectorClock toVersion, DatabaseReadType readType)
+			throws IOException {
+		
+		if (DatabaseBinaryReader.isIndexedDatabase(databaseFile)) {
+			logger.log(Level.INFO, "- Loading indexed binary database ({0}) from file {1} ...", new Object[] { readType, databaseFile });
+			
+			Transformer indexTransformer = (transformer != null) ? transformer : new NoTransformer();
+			new DatabaseBinaryReader(db, fromVersion, toVersion, readType).read(databaseFile, indexTransformer);
+			
+			return;
+		}
+		
+		InputStream is;
+
+		if (transformer == null) {
+			is = new BufferedInputStream(new FileInputStream(databaseFile));
+		}
+		else {
+			is = new BufferedInputStream(transformer.createInputStream(new FileInputStream(databaseFile)));
+		}
+
+		try {
+			logger.log(Level.INFO, "- Loading database ({0}) from file {1} ...", new Object[] { readType, databaseFile });
+
+			SAXParserFactory factory = SAXParserFactory.newInstance();
+			SAXParser saxParser = factory.newSAXParser();
+
+			saxParser.parse(is, new DatabaseXmlParseHandler(db, fromVersion, toVersion, readType));
+		}
+		catch (IOException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IOException(e);
+		}
+		finally {
+			is.close();
+		}
+	}
+	
+	/**
+	 * Instantiates a database serializer by its format name. The given format is mapped 
+	 * to fully qualified class name (FQCN) of the form <tt>org.syncany.database.dao.DatabaseXSerializer</tt>, 
+	 * where <tt>X</tt> is the camel-cased format name, e.g. <tt>xml</tt> or <tt>binary</tt>.
+	 * If the format is <tt>null</tt>, the XML serializer is returned.
+	 * 
+	 * @param format Name of the database format (corresponds to its camel case class name)
+	 * @param transformer Transformer to compress/encrypt the database files, or <tt>null</tt>
+	 * @return A new database serializer, or <tt>null</tt> if the format is unknown
+	 */
+	public static DatabaseSerializer getInstance(String format, Transformer transformer) {
+		if (format == null) {
+			return new DatabaseXmlSerializer(transformer);
+		}
+		
+		String thisPackage = DatabaseSerializer.class.getPackage().getName();
+		String camelCaseName = StringUtil.toCamelCase(format);
+		String fqClassName = thisPackage + ".Database" + camelCaseName + "Serializer";
+
+		// Try to load!
+		try {
+			Class<?> clazz = Class.forName(fqClassName);
+			return (DatabaseSerializer) clazz.getConstructor(Transformer.class).newInstance(transformer);
+		}
+		catch (Exception ex) {
+			logger.log(Level.INFO, "Could not find database serializer FQCN " + fqClassName, ex);
+			return null;
+		}
+	}
+}
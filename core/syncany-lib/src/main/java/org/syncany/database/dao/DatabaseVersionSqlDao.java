@@ -23,11 +23,15 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -72,7 +76,13 @@ public class DatabaseVersionSqlDao extends AbstractSqlDao {
 			FileHistorySqlDao fileHistoryDao,
 			MultiChunkSqlDao multiChunkDao) {
 
-		super(connection);
+		this(new PreparedStatementCache(connection), chunkDao, fileContentDao, fileVersionDao, fileHistoryDao, multiChunkDao);
+	}
+
+	public DatabaseVersionSqlDao(PreparedStatementCache statementCache, ChunkSqlDao chunkDao, FileContentSqlDao fileContentDao,
+			FileVersionSqlDao fileVersionDao, FileHistorySqlDao fileHistoryDao, MultiChunkSqlDao multiChunkDao) {
+
+		super(statementCache);
 
 		this.chunkDao = chunkDao;
 		this.fileContentDao = fileContentDao;
@@ -85,7 +95,8 @@ public class DatabaseVersionSqlDao extends AbstractSqlDao {
 	 * Marks the database version with the given vector clock as DIRTY, i.e.
 	 * sets the {@link DatabaseVersionStatus} to {@link DatabaseVersionStatus#DIRTY DIRTY}.
 	 * Marking a database version dirty will lead to a deletion in the next sync up
-	 * cycle.
+	 * cycle. The current file versions of the affected file histories are updated
+	 * accordingly.
 	 * 
 	 * @param vectorClock Identifies the database version to mark dirty
 	 */
@@ -95,6 +106,9 @@ public class DatabaseVersionSqlDao extends AbstractSqlDao {
 			preparedStatement.setString(2, vectorClock.toString());
 
 			preparedStatement.executeUpdate();
+
+			fileVersionDao.updateCurrentFileVersions(fileHistoryDao.getFileHistoryIds(vectorClock));
+			fileVersionDao.writeCurrentFileVersions();
 			connection.commit();
 		}
 		catch (SQLException e) {
@@ -218,6 +232,7 @@ public class DatabaseVersionSqlDao extends AbstractSqlDao {
 			removeDirtyDatabaseVersionsInt();
 
 			// Commit & clear local caches
+			fileVersionDao.writeCurrentFileVersions();
 			connection.commit();
 			clearCaches();
 		}
@@ -309,6 +324,30 @@ public class DatabaseVersionSqlDao extends AbstractSqlDao {
 		}
 	}
 	
+	/**
+	 * Returns all {@link DatabaseVersion}s of the given client up to the given client version,
+	 * without ever holding more than <tt>batchSize</tt> entries of each kind in memory.
+	 * 
+	 * <p>Unlike {@link #getDatabaseVersionsTo(String, long)}, this method queries the database 
+	 * version headers in batches, and the returned database versions do not hold their chunks,
+	 * multichunks, file contents and file histories. Instead, these are queried in batches of
+	 * at most <tt>batchSize</tt> entries while iterating over the collections returned by
+	 * {@link DatabaseVersion#getChunks() getChunks()}, {@link DatabaseVersion#getMultiChunks() getMultiChunks()}, 
+	 * {@link DatabaseVersion#getFileContents() getFileContents()} and 
+	 * {@link DatabaseVersion#getFileHistories() getFileHistories()}.
+	 * 
+	 * <p>The returned database versions are meant to be streamed to a {@link DatabaseSerializer};
+	 * they must not be modified and are only valid as long as the underlying data is not changed.
+	 * 
+	 * @param machineName Client whose database versions are returned
+	 * @param maxLocalClientVersion Maximum client version (inclusive)
+	 * @param batchSize Maximum number of headers/entries to query at once; values &lt;= 0 disable batching
+	 */
+	public Iterator<DatabaseVersion> getDatabaseVersionsTo(String machineName, long maxLocalClientVersion, int batchSize) {
+		batchSize = (batchSize > 0) ? batchSize : Integer.MAX_VALUE;
+		return new BatchedDatabaseVersionIterator(machineName, maxLocalClientVersion, batchSize);
+	}
+	
 	public Iterator<DatabaseVersion> getLastDatabaseVersions(int maxDatabaseVersionCount, int startDatabaseVersionIndex, int maxFileHistoryCount) {
 		try (PreparedStatement preparedStatement = getStatement("databaseversion.select.master.getLastDatabaseVersions.sql")) {
 			maxDatabaseVersionCount = (maxDatabaseVersionCount > 0) ? maxDatabaseVersionCount : Integer.MAX_VALUE;
@@ -376,6 +415,224 @@ public class DatabaseVersionSqlDao extends AbstractSqlDao {
 
 	}
 
+	private class BatchedDatabaseVersionIterator implements Iterator<DatabaseVersion> {
+		private String machineName;
+		private long maxLocalClientVersion;
+		private int batchSize;
+
+		private Iterator<DatabaseVersion> batch;
+		private long lastDatabaseVersionId;
+		private boolean lastBatch;
+
+		public BatchedDatabaseVersionIterator(String machineName, long maxLocalClientVersion, int batchSize) {
+			this.machineName = machineName;
+			this.maxLocalClientVersion = maxLocalClientVersion;
+			this.batchSize = batchSize;
+
+			this.batch = Collections.emptyIterator();
+			this.lastDatabaseVersionId = -1;
+			this.lastBatch = false;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (!batch.hasNext() && !lastBatch) {
+				batch = loadNextBatch().iterator();
+			}
+
+			return batch.hasNext();
+		}
+
+		@Override
+		public DatabaseVersion next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			return batch.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new RuntimeException("Not implemented.");
+		}
+
+		private List<DatabaseVersion> loadNextBatch() {
+			try (PreparedStatement preparedStatement = getStatement("databaseversion.select.master.getDatabaseVersionsToBatch.sql")) {
+				preparedStatement.setString(1, machineName);
+				preparedStatement.setLong(2, maxLocalClientVersion);
+				preparedStatement.setLong(3, lastDatabaseVersionId);
+				preparedStatement.setInt(4, batchSize);
+
+				List<DatabaseVersion> databaseVersions = new ArrayList<DatabaseVersion>();
+
+				try (ResultSet resultSet = preparedStatement.executeQuery()) {
+					while (resultSet.next()) {
+						lastDatabaseVersionId = resultSet.getLong("id");
+
+						BatchedDatabaseVersion databaseVersion = new BatchedDatabaseVersion(lastDatabaseVersionId, batchSize);
+						databaseVersion.setHeader(createDatabaseVersionHeaderFromRow(resultSet));
+
+						databaseVersions.add(databaseVersion);
+					}
+				}
+
+				lastBatch = databaseVersions.size() < batchSize;
+				return databaseVersions;
+			}
+			catch (SQLException e) {
+				throw new RuntimeException("Cannot load next batch of database versions.", e);
+			}
+		}
+	}
+
+	/**
+	 * Read-only database version whose chunks, multichunks, file contents and file histories
+	 * are not held in memory, but queried in batches when they are iterated.
+	 */
+	private class BatchedDatabaseVersion extends DatabaseVersion {
+		private long databaseVersionId;
+		private int batchSize;
+
+		public BatchedDatabaseVersion(long databaseVersionId, int batchSize) {
+			this.databaseVersionId = databaseVersionId;
+			this.batchSize = batchSize;
+		}
+
+		@Override
+		public Collection<ChunkEntry> getChunks() {
+			return new BatchedCollection<ChunkEntry>(batchSize) {
+				@Override
+				protected long loadSize() {
+					return chunkDao.getChunkCount(databaseVersionId);
+				}
+
+				@Override
+				protected List<ChunkEntry> loadBatch(ChunkEntry lastChunk, int batchSize) {
+					return chunkDao.getChunks(databaseVersionId, (lastChunk != null) ? lastChunk.getChecksum() : null, batchSize);
+				}
+			};
+		}
+
+		@Override
+		public Collection<MultiChunkEntry> getMultiChunks() {
+			return new BatchedCollection<MultiChunkEntry>(batchSize) {
+				@Override
+				protected long loadSize() {
+					return multiChunkDao.getMultiChunkCount(databaseVersionId);
+				}
+
+				@Override
+				protected List<MultiChunkEntry> loadBatch(MultiChunkEntry lastMultiChunk, int batchSize) {
+					return multiChunkDao.getMultiChunks(databaseVersionId, (lastMultiChunk != null) ? lastMultiChunk.getId() : null, batchSize);
+				}
+			};
+		}
+
+		@Override
+		public Collection<FileContent> getFileContents() {
+			return new BatchedCollection<FileContent>(batchSize) {
+				@Override
+				protected long loadSize() {
+					return fileContentDao.getFileContentCount(databaseVersionId);
+				}
+
+				@Override
+				protected List<FileContent> loadBatch(FileContent lastFileContent, int batchSize) {
+					return fileContentDao.getFileContents(databaseVersionId, (lastFileContent != null) ? lastFileContent.getChecksum() : null, batchSize);
+				}
+			};
+		}
+
+		@Override
+		public Collection<PartialFileHistory> getFileHistories() {
+			return new BatchedCollection<PartialFileHistory>(batchSize) {
+				@Override
+				protected long loadSize() {
+					return fileHistoryDao.getFileHistoryCount(databaseVersionId);
+				}
+
+				@Override
+				protected List<PartialFileHistory> loadBatch(PartialFileHistory lastFileHistory, int batchSize) {
+					return fileHistoryDao.getFileHistoriesWithFileVersions(databaseVersionId,
+							(lastFileHistory != null) ? lastFileHistory.getFileHistoryId() : null, batchSize);
+				}
+			};
+		}
+	}
+
+	/**
+	 * Collection that queries its size once, and its entries in batches while iterating. Each 
+	 * batch starts after the last entry of the previous batch (keyset pagination).
+	 * 
+	 * <p>The iterator returns exactly {@link #size()} entries, because serializers write the
+	 * number of entries before the entries themselves. If the entries cannot be loaded (e.g. 
+	 * because the underlying data has changed), an exception is thrown.
+	 */
+	private static abstract class BatchedCollection<T> extends AbstractCollection<T> {
+		private int batchSize;
+		private Long size;
+
+		public BatchedCollection(int batchSize) {
+			this.batchSize = batchSize;
+			this.size = null;
+		}
+
+		protected abstract long loadSize();
+
+		protected abstract List<T> loadBatch(T lastEntry, int batchSize);
+
+		@Override
+		public int size() {
+			if (size == null) {
+				size = loadSize();
+			}
+
+			return size.intValue();
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return new Iterator<T>() {
+				private Iterator<T> batch = Collections.emptyIterator();
+				private T lastEntry = null;
+				private int returnedCount = 0;
+
+				@Override
+				public boolean hasNext() {
+					return returnedCount < size();
+				}
+
+				@Override
+				public T next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+
+					if (!batch.hasNext()) {
+						List<T> nextBatch = loadBatch(lastEntry, batchSize);
+
+						if (nextBatch.isEmpty()) {
+							throw new RuntimeException("Cannot load next batch: Expected " + size() + " entries, but got only " + returnedCount + ".");
+						}
+
+						batch = nextBatch.iterator();
+					}
+
+					lastEntry = batch.next();
+					returnedCount++;
+
+					return lastEntry;
+				}
+
+				@Override
+				public void remove() {
+					throw new RuntimeException("Not implemented.");
+				}
+			};
+		}
+	}
+
 	protected DatabaseVersion createDatabaseVersionFromRow(ResultSet resultSet, boolean excludeChunkData, int fileHistoryMaxCount) throws SQLException {
 		DatabaseVersionHeader databaseVersionHeader = createDatabaseVersionHeaderFromRow(resultSet);
 
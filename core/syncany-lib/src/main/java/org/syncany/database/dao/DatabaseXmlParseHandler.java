@@ -38,7 +38,7 @@ import org.syncany.database.PartialFileHistory;
 import org.syncany.database.PartialFileHistory.FileHistoryId;
 import org.syncany.database.VectorClock;
 import org.syncany.database.VectorClock.VectorClockComparison;
-import org.syncany.database.dao.DatabaseXmlSerializer.DatabaseReadType;
+import org.syncany.database.dao.DatabaseSerializer.DatabaseReadType;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
@@ -268,7 +268,7 @@ public class DatabaseXmlParseHandler extends DefaultHandler {
 		// Nothing
 	}
 
-	private boolean vectorClockInRange(VectorClock vectorClock, VectorClock vectorClockRangeFrom, VectorClock vectorClockRangeTo) {
+	static boolean vectorClockInRange(VectorClock vectorClock, VectorClock vectorClockRangeFrom, VectorClock vectorClockRangeTo) {
 		// Determine if: versionFrom < databaseVersion
 		boolean greaterOrEqualToVersionFrom = false;
 
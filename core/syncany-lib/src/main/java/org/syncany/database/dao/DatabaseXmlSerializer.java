@@ -18,25 +18,17 @@
 package org.syncany.database.dao;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.Iterator;
-import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 import javax.xml.stream.XMLStreamException;
 
 import org.syncany.chunk.Transformer;
 import org.syncany.database.DatabaseVersion;
 import org.syncany.database.MemoryDatabase;
-import org.syncany.database.VectorClock;
 
 /**
  * Serializes a {@link MemoryDatabase} or a list of {@link DatabaseVersion}s to an 
@@ -53,27 +45,18 @@ import org.syncany.database.VectorClock;
  * @see DatabaseXmlWriter
  * @author Philipp C. Heckel <philipp.heckel@gmail.com>
  */
-public class DatabaseXmlSerializer {
-	private static final Logger logger = Logger.getLogger(DatabaseXmlSerializer.class.getSimpleName());
-
-	public enum DatabaseReadType {
-		FULL, HEADER_ONLY
-	}
-
-	private Transformer transformer;
+public class DatabaseXmlSerializer extends DatabaseSerializer {
+	public static final String TYPE = "xml";
 
 	public DatabaseXmlSerializer() {
 		this(null);
 	}
 
 	public DatabaseXmlSerializer(Transformer transformer) {
-		this.transformer = transformer;
-	}
-
-	public void save(List<DatabaseVersion> databaseVersions, File destinationFile) throws IOException {
-		save(databaseVersions.iterator(), destinationFile);
+		super(transformer);
 	}
 
+	@Override
 	public void save(Iterator<DatabaseVersion> databaseVersions, File destinationFile) throws IOException {
 		try {
 			PrintWriter out;
@@ -94,30 +77,4 @@ public class DatabaseXmlSerializer {
 			throw new IOException(e);
 		}
 	}
-
-	public void load(MemoryDatabase db, File databaseFile, VectorClock fromVersion, VectorClock toVersion, DatabaseReadType readType)
-			throws IOException {
-		
-		InputStream is;
-
-		if (transformer == null) {
-			is = new FileInputStream(databaseFile);
-		}
-		else {
-			is = transformer.createInputStream(new FileInputStream(databaseFile));
-		}
-
-		try {
-			logger.log(Level.INFO, "- Loading database ({0}) from file {1} ...", new Object[] { readType, databaseFile });
-
-			SAXParserFactory factory = SAXParserFactory.newInstance();
-			SAXParser saxParser = factory.newSAXParser();
-
-			saxParser.parse(is, new DatabaseXmlParseHandler(db, fromVersion, toVersion, readType));
-		}
-		catch (Exception e) {
-			throw new IOException(e);
-		}
-	}
-
 }
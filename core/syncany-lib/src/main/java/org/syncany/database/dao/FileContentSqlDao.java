@@ -21,8 +21,10 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.syncany.database.ChunkEntry.ChunkChecksum;
@@ -42,6 +44,10 @@ public class FileContentSqlDao extends AbstractSqlDao {
 		super(connection);
 	}
 
+	public FileContentSqlDao(PreparedStatementCache statementCache) {
+		super(statementCache);
+	}
+
 	/**
 	 * Writes a list of {@link FileContent}s to the database using <tt>INSERT</tt>s and the given connection.
 	 * It fills two tables, the <i>filecontent</i> table ({@link FileContent}) and the <i>filecontent_chunk</i> 
@@ -59,37 +65,42 @@ public class FileContentSqlDao extends AbstractSqlDao {
 	 * @throws SQLException If the SQL statement fails
 	 */
 	public void writeFileContents(Connection connection, long databaseVersionId, Collection<FileContent> fileContents) throws SQLException {
-		for (FileContent fileContent : fileContents) {
-			PreparedStatement preparedStatement = getStatement(connection, "filecontent.insert.all.writeFileContents.sql");
+		if (fileContents.size() > 0) {
+			try (PreparedStatement preparedStatement = getStatement(connection, "filecontent.insert.all.writeFileContents.sql")) {
+				for (FileContent fileContent : fileContents) {
+					preparedStatement.setString(1, fileContent.getChecksum().toString());
+					preparedStatement.setLong(2, databaseVersionId);
+					preparedStatement.setLong(3, fileContent.getSize());
+
+					preparedStatement.addBatch();
+				}
+
+				preparedStatement.executeBatch();
+			}
 
-			preparedStatement.setString(1, fileContent.getChecksum().toString());
-			preparedStatement.setLong(2, databaseVersionId);
-			preparedStatement.setLong(3, fileContent.getSize());
-			
-			preparedStatement.executeUpdate();
-			preparedStatement.close();	
-			
 			// Write chunk references
-			writeFileContentChunkRefs(connection, fileContent);			
+			writeFileContentChunkRefs(connection, fileContents);
 		}
 	}
 	
-	private void writeFileContentChunkRefs(Connection connection, FileContent fileContent) throws SQLException {
-		PreparedStatement preparedStatement = getStatement(connection, "filecontent.insert.all.writeFileContentChunkRefs.sql");
-		int order = 0;
-		
-		for (ChunkChecksum chunkChecksum : fileContent.getChunks()) {
-			preparedStatement.setString(1, fileContent.getChecksum().toString());
-			preparedStatement.setString(2, chunkChecksum.toString());
-			preparedStatement.setInt(3, order);
+	private void writeFileContentChunkRefs(Connection connection, Collection<FileContent> fileContents) throws SQLException {
+		try (PreparedStatement preparedStatement = getStatement(connection, "filecontent.insert.all.writeFileContentChunkRefs.sql")) {
+			for (FileContent fileContent : fileContents) {
+				int order = 0;
 
-			preparedStatement.addBatch();
-			
-			order++;				
+				for (ChunkChecksum chunkChecksum : fileContent.getChunks()) {
+					preparedStatement.setString(1, fileContent.getChecksum().toString());
+					preparedStatement.setString(2, chunkChecksum.toString());
+					preparedStatement.setInt(3, order);
+
+					preparedStatement.addBatch();
+
+					order++;
+				}
+			}
+
+			preparedStatement.executeBatch();
 		}
-		
-		preparedStatement.executeBatch();
-		preparedStatement.close();
 	}
 
 	/**
@@ -165,6 +176,44 @@ public class FileContentSqlDao extends AbstractSqlDao {
 		}
 	}
 
+	/**
+	 * Counts the {@link FileContent}s (with at least one chunk) that <b>originally appeared</b>
+	 * in the database version with the given SQL-internal identifier.
+	 */
+	public long getFileContentCount(long databaseVersionId) {
+		try (PreparedStatement preparedStatement = getStatement("filecontent.select.all.getFileContentCountForDatabaseVersion.sql")) {
+			preparedStatement.setLong(1, databaseVersionId);
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getLong(1);
+			}
+		}
+		catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Queries the next batch of {@link FileContent}s (including their chunk checksums) of the database
+	 * version with the given SQL-internal identifier. File contents are ordered by checksum; the batch
+	 * starts after <tt>afterChecksum</tt>, or with the first file content if it is <tt>null</tt>.
+	 */
+	public List<FileContent> getFileContents(long databaseVersionId, FileChecksum afterChecksum, int maxCount) {
+		try (PreparedStatement preparedStatement = getStatement("filecontent.select.all.getFileContentsWithChunkChecksumsForDatabaseVersionBatch.sql")) {
+			preparedStatement.setLong(1, databaseVersionId);
+			preparedStatement.setString(2, (afterChecksum != null) ? afterChecksum.toString() : "");
+			preparedStatement.setInt(3, maxCount);
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				return new ArrayList<FileContent>(createFileContents(resultSet).values());
+			}
+		}
+		catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	private FileContent getFileContentWithoutChunkChecksums(FileChecksum fileChecksum) {
 		try (PreparedStatement preparedStatement = getStatement("filecontent.select.all.getFileContentByChecksumWithoutChunkChecksums.sql")) {
 			preparedStatement.setString(1, fileChecksum.toString());
@@ -216,7 +265,7 @@ public class FileContentSqlDao extends AbstractSqlDao {
 	}
 	
 	private Map<FileChecksum, FileContent> createFileContents(ResultSet resultSet) throws SQLException {
-		Map<FileChecksum, FileContent> fileContents = new HashMap<FileChecksum, FileContent>();	
+		Map<FileChecksum, FileContent> fileContents = new LinkedHashMap<FileChecksum, FileContent>();	
 		FileChecksum currentFileChecksum = null;
 		
 		while (resultSet.next()) {		
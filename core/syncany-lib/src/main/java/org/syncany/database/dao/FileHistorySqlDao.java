@@ -25,7 +25,7 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,7 +48,11 @@ public class FileHistorySqlDao extends AbstractSqlDao {
 	private FileVersionSqlDao fileVersionDao;
 
 	public FileHistorySqlDao(Connection connection, FileVersionSqlDao fileVersionDao) {
-		super(connection);
+		this(new PreparedStatementCache(connection), fileVersionDao);
+	}
+
+	public FileHistorySqlDao(PreparedStatementCache statementCache, FileVersionSqlDao fileVersionDao) {
+		super(statementCache);
 		this.fileVersionDao = fileVersionDao;
 	}
 
@@ -56,7 +60,8 @@ public class FileHistorySqlDao extends AbstractSqlDao {
 	 * Writes a list of {@link PartialFileHistory}s to the database table <i>filehistory</i> using <tt>INSERT</tt>s
 	 * and the given connection. In addition, this method also writes the corresponding {@link FileVersion}s of
 	 * each file history to the database using
-	 * {@link FileVersionSqlDao#writeFileVersions(Connection, FileHistoryId, long, Collection) FileVersionSqlDao#writeFileVersions}.
+	 * {@link FileVersionSqlDao#writeFileVersions(Connection, long, Collection) FileVersionSqlDao#writeFileVersions}.
+	 * Both the file histories and the file versions are inserted as one JDBC batch each.
 	 *
 	 * <p><b>Note:</b> This method executes, but <b>does not commit</b> the queries.
 	 *
@@ -66,21 +71,23 @@ public class FileHistorySqlDao extends AbstractSqlDao {
 	 * @throws SQLException If the SQL statement fails
 	 */
 	public void writeFileHistories(Connection connection, long databaseVersionId, Collection<PartialFileHistory> fileHistories) throws SQLException {
-		for (PartialFileHistory fileHistory : fileHistories) {
-			PreparedStatement preparedStatement = getStatement(connection, "filehistory.insert.all.writeFileHistories.sql");
-
-			preparedStatement.setString(1, fileHistory.getFileHistoryId().toString());
-			preparedStatement.setLong(2, databaseVersionId);
+		if (fileHistories.size() > 0) {
+			try (PreparedStatement preparedStatement = getStatement(connection, "filehistory.insert.all.writeFileHistories.sql")) {
+				for (PartialFileHistory fileHistory : fileHistories) {
+					preparedStatement.setString(1, fileHistory.getFileHistoryId().toString());
+					preparedStatement.setLong(2, databaseVersionId);
 
-			int affectedRows = preparedStatement.executeUpdate();
+					preparedStatement.addBatch();
+				}
 
-			if (affectedRows == 0) {
-				throw new SQLException("Cannot add database version header. Affected rows is zero.");
+				for (int affectedRows : preparedStatement.executeBatch()) {
+					if (affectedRows == 0) {
+						throw new SQLException("Cannot add file history. Affected rows is zero.");
+					}
+				}
 			}
 
-			preparedStatement.close();
-
-			fileVersionDao.writeFileVersions(connection, fileHistory.getFileHistoryId(), databaseVersionId, fileHistory.getFileVersions().values());
+			fileVersionDao.writeFileVersions(connection, databaseVersionId, fileHistories);
 		}
 	}
 
@@ -124,6 +131,66 @@ public class FileHistorySqlDao extends AbstractSqlDao {
 		}
 	}
 
+	/**
+	 * Counts the file histories of the database version with the given SQL-internal identifier,
+	 * i.e. the histories that have at least one {@link FileVersion} in this database version.
+	 * 
+	 * <p>Note: Also counts versions marked as {@link DatabaseVersionStatus#DIRTY DIRTY}
+	 */
+	public long getFileHistoryCount(long databaseVersionId) {
+		try (PreparedStatement preparedStatement = getStatement("filehistory.select.all.getFileHistoryCountForDatabaseVersion.sql")) {
+			preparedStatement.setLong(1, databaseVersionId);
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getLong(1);
+			}
+		}
+		catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the next batch of file histories of the database version with the given SQL-internal
+	 * identifier, each with the file versions it has in this database version. Histories are ordered
+	 * by their identifier, starting after <tt>afterFileHistoryId</tt> (or with the first history if
+	 * it is <tt>null</tt>).
+	 * 
+	 * <p>Note: Also selects versions marked as {@link DatabaseVersionStatus#DIRTY DIRTY}
+	 */
+	public List<PartialFileHistory> getFileHistoriesWithFileVersions(long databaseVersionId, FileHistoryId afterFileHistoryId, int maxCount) {
+		try (PreparedStatement preparedStatement = getStatement("filehistory.select.all.getFileHistoriesWithFileVersionsForDatabaseVersionBatch.sql")) {
+			preparedStatement.setLong(1, databaseVersionId);
+			preparedStatement.setString(2, (afterFileHistoryId != null) ? afterFileHistoryId.toString() : "");
+			preparedStatement.setInt(3, maxCount);
+			preparedStatement.setLong(4, databaseVersionId);
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				return new ArrayList<PartialFileHistory>(createFileHistoriesFromResult(resultSet).values());
+			}
+		}
+		catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public List<FileHistoryId> getFileHistoryIds(VectorClock databaseVersionVectorClock) throws SQLException {
+		List<FileHistoryId> fileHistoryIds = new ArrayList<FileHistoryId>();
+
+		try (PreparedStatement preparedStatement = getStatement("filehistory.select.all.getFileHistoryIdsByVectorClock.sql")) {
+			preparedStatement.setString(1, databaseVersionVectorClock.toString());
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				while (resultSet.next()) {
+					fileHistoryIds.add(FileHistoryId.parseFileId(resultSet.getString("id")));
+				}
+			}
+		}
+
+		return fileHistoryIds;
+	}
+
 	public FileHistoryId expandFileHistoryId(FileHistoryId fileHistoryIdPrefix) {
 		String fileHistoryIdPrefixLikeQuery = fileHistoryIdPrefix.toString() + "%";
 
@@ -154,10 +221,10 @@ public class FileHistorySqlDao extends AbstractSqlDao {
 	}
 
 	public Map<FileHistoryId, PartialFileHistory> getFileHistories(List<FileHistoryId> fileHistoryIds) {
-		String[] fileHistoryIdsStr = createFileHistoryIdsArray(fileHistoryIds);
+		byte[][] fileHistoryIdsBytes = createFileHistoryIdsArray(fileHistoryIds);
 
 		try (PreparedStatement preparedStatement = getStatement("filehistory.select.master.getFileHistoriesByIds.sql")) {
-			preparedStatement.setArray(1, connection.createArrayOf("varchar", fileHistoryIdsStr));
+			preparedStatement.setArray(1, connection.createArrayOf("varbinary", fileHistoryIdsBytes));
 
 			try (ResultSet resultSet = preparedStatement.executeQuery()) {
 				return createFileHistoriesFromResult(resultSet);
@@ -293,13 +360,13 @@ public class FileHistorySqlDao extends AbstractSqlDao {
 		}
 	}
 
-	private String[] createFileHistoryIdsArray(List<FileHistoryId> fileHistoryIds) {
-		return Lists.transform(fileHistoryIds, new Function<FileHistoryId, String>() {
+	private byte[][] createFileHistoryIdsArray(List<FileHistoryId> fileHistoryIds) {
+		return Lists.transform(fileHistoryIds, new Function<FileHistoryId, byte[]>() {
 			@Override
-			public String apply(FileHistoryId fileHistoryId) {
-				return fileHistoryId.toString();
+			public byte[] apply(FileHistoryId fileHistoryId) {
+				return fileHistoryId.getBytes();
 			}
-		}).toArray(new String[0]);
+		}).toArray(new byte[0][]);
 	}
 
 	public Map<FileHistoryId, PartialFileHistory> getFileHistoriesWithFileVersions() {
@@ -314,7 +381,7 @@ public class FileHistorySqlDao extends AbstractSqlDao {
 	}
 	
 	protected Map<FileHistoryId, PartialFileHistory> createFileHistoriesFromResult(ResultSet resultSet) throws SQLException {
-		Map<FileHistoryId, PartialFileHistory> fileHistories = new HashMap<FileHistoryId, PartialFileHistory>();
+		Map<FileHistoryId, PartialFileHistory> fileHistories = new LinkedHashMap<FileHistoryId, PartialFileHistory>();
 		PartialFileHistory fileHistory = null;
 
 		while (resultSet.next()) {
@@ -351,6 +418,8 @@ public class FileHistorySqlDao extends AbstractSqlDao {
 		List<PartialFileHistory> fileHistories = new ArrayList<PartialFileHistory>();
 
 		try (PreparedStatement preparedStatement = getStatement("filehistory.select.master.getFileHistoriesWithLastVersion.sql")) {
+			fileVersionDao.writeCurrentFileVersions();
+
 			try (ResultSet resultSet = preparedStatement.executeQuery()) {
 				while (resultSet.next()) {
 					FileHistoryId fileHistoryId = FileHistoryId.parseFileId(resultSet.getString("filehistory_id"));
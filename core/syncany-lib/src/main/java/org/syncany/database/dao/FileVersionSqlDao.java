@@ -24,8 +24,10 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +50,9 @@ import com.google.common.collect.ImmutableMap;
 /**
  * The file version DAO queries and modifies the <i>fileversion</i> in
  * the SQL database. This table corresponds to the Java object {@link FileVersion}.
+ * 
+ * <p>The DAO also maintains the <i>fileversion_current</i> table, which holds the
+ * current file tree (see {@link #updateCurrentFileVersions(Collection)}).
  *
  * @author Philipp C. Heckel <philipp.heckel@gmail.com>
  */
@@ -63,8 +68,16 @@ public class FileVersionSqlDao extends AbstractSqlDao {
            .put(TimeUnit.YEARS, "YYY")
            .build();	
 	
+	private Set<FileHistoryId> outdatedCurrentFileHistoryIds;
+
 	public FileVersionSqlDao(Connection connection) {
 		super(connection);
+		this.outdatedCurrentFileHistoryIds = new HashSet<FileHistoryId>();
+	}
+
+	public FileVersionSqlDao(PreparedStatementCache statementCache) {
+		super(statementCache);
+		this.outdatedCurrentFileHistoryIds = new HashSet<FileHistoryId>();
 	}
 
 	/**
@@ -81,7 +94,109 @@ public class FileVersionSqlDao extends AbstractSqlDao {
 	 */
 	public void writeFileVersions(Connection connection, FileHistoryId fileHistoryId, long databaseVersionId, Collection<FileVersion> fileVersions)
 			throws SQLException {
-		PreparedStatement preparedStatement = getStatement(connection, "fileversion.insert.writeFileVersions.sql");
+		try (PreparedStatement preparedStatement = getStatement(connection, "fileversion.insert.writeFileVersions.sql")) {
+			addFileVersionsToBatch(preparedStatement, fileHistoryId, databaseVersionId, fileVersions);
+			preparedStatement.executeBatch();
+		}
+
+		updateCurrentFileVersions(Collections.singleton(fileHistoryId));
+	}
+
+	/**
+	 * Writes the {@link FileVersion}s of all of the given {@link PartialFileHistory}s to the database
+	 * table <i>fileversion</i>, using a single batch of <tt>INSERT</tt>s. The <i>fileversion_current</i>
+	 * table is updated accordingly.
+	 *
+	 * <p><b>Note:</b> This method executes, but <b>does not commit</b> the queries.
+	 *
+	 * @param connection The connection used to execute the statements
+	 * @param databaseVersionId References the {@link PartialFileHistory} to which the list of file versions belongs
+	 * @param fileHistories List of {@link PartialFileHistory}s whose file versions are to be written to the database
+	 * @throws SQLException If the SQL statement fails
+	 */
+	public void writeFileVersions(Connection connection, long databaseVersionId, Collection<PartialFileHistory> fileHistories)
+			throws SQLException {
+		try (PreparedStatement preparedStatement = getStatement(connection, "fileversion.insert.writeFileVersions.sql")) {
+			for (PartialFileHistory fileHistory : fileHistories) {
+				addFileVersionsToBatch(preparedStatement, fileHistory.getFileHistoryId(), databaseVersionId, fileHistory.getFileVersions().values());
+			}
+
+			preparedStatement.executeBatch();
+		}
+
+		List<FileHistoryId> fileHistoryIds = new ArrayList<FileHistoryId>(fileHistories.size());
+
+		for (PartialFileHistory fileHistory : fileHistories) {
+			fileHistoryIds.add(fileHistory.getFileHistoryId());
+		}
+
+		updateCurrentFileVersions(fileHistoryIds);
+	}
+
+	/**
+	 * Marks the current file versions of the given file histories as outdated. The
+	 * <i>fileversion_current</i> table is the materialized form of the <i>fileversion_master_last</i>
+	 * view, and must be updated whenever file versions are written or removed, or when their
+	 * database version is marked <tt>DIRTY</tt>.
+	 *
+	 * <p>The table is not updated right away: Applying several database versions in one transaction
+	 * touches the same file histories many times. Instead, {@link #writeCurrentFileVersions()} updates
+	 * each outdated history once, right before the transaction is committed, or before the
+	 * <i>fileversion_current</i> table is queried.
+	 *
+	 * @param fileHistoryIds Identifiers of the file histories to update
+	 */
+	public void updateCurrentFileVersions(Collection<FileHistoryId> fileHistoryIds) {
+		outdatedCurrentFileHistoryIds.addAll(fileHistoryIds);
+	}
+
+	/**
+	 * Updates the <i>fileversion_current</i> table for all file histories marked as outdated
+	 * by {@link #updateCurrentFileVersions(Collection)}, i.e. replaces the current file version
+	 * of each of these histories with its last non-deleted version in a <tt>MASTER</tt> database
+	 * version (if there is one).
+	 *
+	 * <p>This method must be called before the connection is committed.
+	 *
+	 * <p><b>Note:</b> This method executes, but <b>does not commit</b> the queries.
+	 *
+	 * @throws SQLException If the SQL statement fails
+	 */
+	public void writeCurrentFileVersions() throws SQLException {
+		if (outdatedCurrentFileHistoryIds.size() > 0) {
+			try (PreparedStatement preparedStatement = getStatement("fileversion_current.delete.all.removeCurrentFileVersions.sql")) {
+				for (FileHistoryId fileHistoryId : outdatedCurrentFileHistoryIds) {
+					preparedStatement.setString(1, fileHistoryId.toString());
+					preparedStatement.addBatch();
+				}
+
+				preparedStatement.executeBatch();
+			}
+
+			try (PreparedStatement preparedStatement = getStatement("fileversion_current.insert.master.writeCurrentFileVersions.sql")) {
+				for (FileHistoryId fileHistoryId : outdatedCurrentFileHistoryIds) {
+					preparedStatement.setString(1, fileHistoryId.toString());
+					preparedStatement.setString(2, fileHistoryId.toString());
+					preparedStatement.addBatch();
+				}
+
+				preparedStatement.executeBatch();
+			}
+
+			outdatedCurrentFileHistoryIds.clear();
+		}
+	}
+
+	/**
+	 * Forgets the outdated file histories marked since the last commit. Must be called
+	 * when the transaction is rolled back.
+	 */
+	public void clearOutdatedCurrentFileVersions() {
+		outdatedCurrentFileHistoryIds.clear();
+	}
+
+	private void addFileVersionsToBatch(PreparedStatement preparedStatement, FileHistoryId fileHistoryId, long databaseVersionId,
+			Collection<FileVersion> fileVersions) throws SQLException {
 
 		for (FileVersion fileVersion : fileVersions) {
 			String fileContentChecksumStr = (fileVersion.getChecksum() != null) ? fileVersion.getChecksum().toString() : null;
@@ -99,12 +214,10 @@ public class FileVersionSqlDao extends AbstractSqlDao {
 			preparedStatement.setTimestamp(11, new Timestamp(fileVersion.getUpdated().getTime()));
 			preparedStatement.setString(12, fileVersion.getPosixPermissions());
 			preparedStatement.setString(13, fileVersion.getDosAttributes());
+			preparedStatement.setInt(14, getPathDepth(fileVersion.getPath()));
 
 			preparedStatement.addBatch();
 		}
-
-		preparedStatement.executeBatch();
-		preparedStatement.close();
 	}
 
 	/**
@@ -142,6 +255,8 @@ public class FileVersionSqlDao extends AbstractSqlDao {
 
 				preparedStatement.executeBatch();
 			}
+
+			updateCurrentFileVersions(purgeFileVersions.keySet());
 		}
 	}
 
@@ -159,6 +274,8 @@ public class FileVersionSqlDao extends AbstractSqlDao {
 
 				preparedStatement.executeBatch();
 			}
+
+			updateCurrentFileVersions(purgeFileVersions.keySet());
 		}
 	}
 
@@ -174,6 +291,8 @@ public class FileVersionSqlDao extends AbstractSqlDao {
 	 */
 	public Map<String, FileVersion> getCurrentFileTree() {
 		try (PreparedStatement preparedStatement = getStatement("fileversion.select.master.getCurrentFileTree.sql")) {
+			writeCurrentFileVersions();
+
 			Map<String, FileVersion> fileTree = new TreeMap<>();
 			List<FileVersion> fileList = getFileTree(preparedStatement);
 			
@@ -231,27 +350,40 @@ public class FileVersionSqlDao extends AbstractSqlDao {
 		
 		date = (date == null) ? new Date(4133984461000L) : date;
 
-		int slashCount = StringUtil.substrCount(pathExpression, "/");
-		int filterMinSlashCount = (recursive || fileHistoryId) ? 0 : slashCount;
-		int filterMaxSlashCount = (recursive || fileHistoryId) ? Integer.MAX_VALUE : slashCount;
+		// Non-recursive listings only select the file versions at the depth of the path expression, i.e. 
+		// the entries of a single folder. Both queries narrow the path to the range of the fixed prefix of 
+		// the path expression, so that the 'depth' and 'path' indices can be used.
+
+		boolean listSingleFolder = !recursive && !fileHistoryId;
+		int depth = StringUtil.substrCount(pathExpression, "/");
+		
+		String pathPrefix = getPathPrefix(pathExpression);
+		String pathPrefixUpperBound = pathPrefix + Character.MAX_VALUE;
 
 		String[] fileTypesStr = createFileTypesArray(fileTypes);		
 		String fileStatusNotEqualTo = (deleted) ? "INVALID" : FileStatus.DELETED.toString(); 
+		String sqlResource = (listSingleFolder) ? "fileversion.select.master.getFilteredFolder.sql" : "fileversion.select.master.getFilteredFileTree.sql";
 		
 		if (logger.isLoggable(Level.INFO)) {
-			logger.log(Level.INFO, " getFileTree(path = " + pathExpression + ", history = " + fileHistoryPrefix + ", minSlash = "
-					+ filterMinSlashCount + ", maxSlash = " + filterMaxSlashCount + ", date <= " + date + ", types = " 
-					+ StringUtil.join(fileTypesStr, ", "));
+			logger.log(Level.INFO, " getFileTree(path = " + pathExpression + ", history = " + fileHistoryPrefix + ", prefix = " + pathPrefix 
+					+ ", depth = " + ((listSingleFolder) ? depth : "any") + ", date <= " + date + ", types = " + StringUtil.join(fileTypesStr, ", "));
 		}
 
-		try (PreparedStatement preparedStatement = getStatement("fileversion.select.master.getFilteredFileTree.sql")) {
-			preparedStatement.setString(1, fileStatusNotEqualTo);
-			preparedStatement.setString(2, pathExpression);
-			preparedStatement.setString(3, fileHistoryPrefix);
-			preparedStatement.setInt(4, filterMinSlashCount);
-			preparedStatement.setInt(5, filterMaxSlashCount);
-			preparedStatement.setArray(6, connection.createArrayOf("varchar", fileTypesStr));
-			preparedStatement.setTimestamp(7, new Timestamp(date.getTime()));
+		try (PreparedStatement preparedStatement = getStatement(sqlResource)) {
+			int parameterIndex = 1;
+			
+			if (listSingleFolder) {
+				preparedStatement.setInt(parameterIndex++, depth);
+			}
+			
+			preparedStatement.setString(parameterIndex++, pathPrefix);
+			preparedStatement.setString(parameterIndex++, pathPrefixUpperBound);
+			preparedStatement.setString(parameterIndex++, pathExpression);
+			preparedStatement.setString(parameterIndex++, fileHistoryPrefix);
+			preparedStatement.setArray(parameterIndex++, connection.createArrayOf("varchar", fileTypesStr));
+			preparedStatement.setString(parameterIndex++, fileStatusNotEqualTo);
+			preparedStatement.setTimestamp(parameterIndex++, new Timestamp(date.getTime()));
+			preparedStatement.setTimestamp(parameterIndex++, new Timestamp(date.getTime()));
 
 			return getFileTree(preparedStatement);
 		}
@@ -260,6 +392,27 @@ public class FileVersionSqlDao extends AbstractSqlDao {
 		}
 	}
 
+	/**
+	 * Returns the part of a <tt>LIKE</tt> path expression before its first wildcard, e.g. 
+	 * <tt>folder/sub</tt> for <tt>folder/sub%</tt>, or an empty string if the expression 
+	 * starts with a wildcard.
+	 */
+	private String getPathPrefix(String pathExpression) {
+		for (int i = 0; i < pathExpression.length(); i++) {
+			char c = pathExpression.charAt(i);
+			
+			if (c == '%' || c == '_') {
+				return pathExpression.substring(0, i);
+			}
+		}
+		
+		return pathExpression;
+	}
+
+	private int getPathDepth(String path) {
+		return StringUtil.substrCount(path, "/");
+	}
+
 	private String[] createFileTypesArray(Set<FileType> fileTypes) {
 		String[] fileTypesStr = null;
 
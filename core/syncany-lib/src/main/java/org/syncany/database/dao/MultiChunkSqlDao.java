@@ -25,9 +25,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.syncany.chunk.MultiChunk;
 import org.syncany.database.ChunkEntry.ChunkChecksum;
@@ -50,34 +53,42 @@ public class MultiChunkSqlDao extends AbstractSqlDao {
 		super(connection);
 	}
 
+	public MultiChunkSqlDao(PreparedStatementCache statementCache) {
+		super(statementCache);
+	}
+
 	public void writeMultiChunks(Connection connection, long databaseVersionId, Collection<MultiChunkEntry> multiChunks) throws SQLException {
-		for (MultiChunkEntry multiChunk : multiChunks) {
-			PreparedStatement preparedStatement = getStatement(connection, "multichunk.insert.all.writeMultiChunks.sql");
+		if (multiChunks.size() > 0) {
+			try (PreparedStatement preparedStatement = getStatement(connection, "multichunk.insert.all.writeMultiChunks.sql")) {
+				for (MultiChunkEntry multiChunk : multiChunks) {
+					preparedStatement.setString(1, multiChunk.getId().toString());
+					preparedStatement.setLong(2, databaseVersionId);
+					preparedStatement.setLong(3, multiChunk.getSize());
 
-			preparedStatement.setString(1, multiChunk.getId().toString());
-			preparedStatement.setLong(2, databaseVersionId);
-			preparedStatement.setLong(3, multiChunk.getSize());
-			
-			preparedStatement.executeUpdate();
-			preparedStatement.close();
-			
-			writeMultiChunkRefs(connection, multiChunk);			
+					preparedStatement.addBatch();
+				}
+
+				preparedStatement.executeBatch();
+			}
+
+			writeMultiChunkRefs(connection, multiChunks);
 		}
 	}
 
-	private void writeMultiChunkRefs(Connection connection, MultiChunkEntry multiChunk) throws SQLException {
-		PreparedStatement preparedStatement = getStatement("multichunk.insert.all.writeMultiChunkRefs.sql");
-		
-		for (ChunkChecksum chunkChecksum : multiChunk.getChunks()) {
-			preparedStatement.setString(1, multiChunk.getId().toString());
-			preparedStatement.setString(2, chunkChecksum.toString());
-			
-			preparedStatement.addBatch();			
+	private void writeMultiChunkRefs(Connection connection, Collection<MultiChunkEntry> multiChunks) throws SQLException {
+		try (PreparedStatement preparedStatement = getStatement(connection, "multichunk.insert.all.writeMultiChunkRefs.sql")) {
+			for (MultiChunkEntry multiChunk : multiChunks) {
+				for (ChunkChecksum chunkChecksum : multiChunk.getChunks()) {
+					preparedStatement.setString(1, multiChunk.getId().toString());
+					preparedStatement.setString(2, chunkChecksum.toString());
+
+					preparedStatement.addBatch();
+				}
+			}
+
+			preparedStatement.executeBatch();
 		}
-		
-		preparedStatement.executeBatch();
-		preparedStatement.close();
-	}	
+	}
 
 	public void writeMuddyMultiChunks(Map<DatabaseVersionHeader, Collection<MultiChunkEntry>> muddyMultiChunksPerDatabaseVersion) throws SQLException {
 		PreparedStatement preparedStatement = getStatement("multichunk_muddy.insert.muddy.writeMuddyMultiChunks.sql");
@@ -122,6 +133,34 @@ public class MultiChunkSqlDao extends AbstractSqlDao {
 		preparedStatement.close();
 	}
 	
+	/**
+	 * Replaces the given multichunks by the given new multichunks, e.g. after the chunks of the
+	 * old multichunks have been repacked. The new multichunks are written to the given database version.
+	 * The old multichunks are removed along with their chunk references. No commit.
+	 */
+	public void replaceMultiChunks(long databaseVersionId, Collection<MultiChunkEntry> oldMultiChunks, Collection<MultiChunkEntry> newMultiChunks)
+			throws SQLException {
+
+		writeMultiChunks(connection, databaseVersionId, newMultiChunks);
+		
+		// Note: Chunk references (multichunk_chunk) must be removed first, because
+		//       of the foreign key constraints. 
+
+		removeMultiChunks("multichunk.delete.all.removeMultiChunkChunkRefs.sql", oldMultiChunks);
+		removeMultiChunks("multichunk.delete.all.removeMultiChunks.sql", oldMultiChunks);
+	}
+	
+	private void removeMultiChunks(String resourceId, Collection<MultiChunkEntry> multiChunks) throws SQLException {
+		try (PreparedStatement preparedStatement = getStatement(resourceId)) {
+			for (MultiChunkEntry multiChunk : multiChunks) {
+				preparedStatement.setString(1, multiChunk.getId().toString());
+				preparedStatement.addBatch();
+			}
+
+			preparedStatement.executeBatch();
+		}
+	}
+	
 	public void removeNonMuddyMultiChunks() throws SQLException {
 		PreparedStatement preparedStatement = getStatement("multichunk_muddy.delete.muddy.removeNonMuddyMultiChunks.sql");
 		preparedStatement.executeUpdate();	
@@ -171,6 +210,44 @@ public class MultiChunkSqlDao extends AbstractSqlDao {
 		}
 	}	
 
+	/**
+	 * Counts the multichunks (with at least one chunk) that belong to the database version
+	 * with the given SQL-internal identifier.
+	 */
+	public long getMultiChunkCount(long databaseVersionId) {
+		try (PreparedStatement preparedStatement = getStatement("multichunk.select.all.getMultiChunkCountForDatabaseVersion.sql")) {
+			preparedStatement.setLong(1, databaseVersionId);
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getLong(1);
+			}
+		}
+		catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the next batch of multichunks (including their chunk references) of the database
+	 * version with the given SQL-internal identifier, ordered by multichunk ID and starting after 
+	 * <tt>afterMultiChunkId</tt> (or with the first multichunk if it is <tt>null</tt>).
+	 */
+	public List<MultiChunkEntry> getMultiChunks(long databaseVersionId, MultiChunkId afterMultiChunkId, int maxCount) {
+		try (PreparedStatement preparedStatement = getStatement("multichunk.select.all.getMultiChunksWithChunksForDatabaseVersionBatch.sql")) {
+			preparedStatement.setLong(1, databaseVersionId);
+			preparedStatement.setString(2, (afterMultiChunkId != null) ? afterMultiChunkId.toString() : "");
+			preparedStatement.setInt(3, maxCount);
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				return new ArrayList<MultiChunkEntry>(createMultiChunkEntriesWithChunks(resultSet).values());
+			}
+		}
+		catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * no commit
 	 */
@@ -208,19 +285,19 @@ public class MultiChunkSqlDao extends AbstractSqlDao {
 	 * Note: This method selects also {@link DatabaseVersionStatus#DIRTY DIRTY}.
 	 */
 	public Map<ChunkChecksum,MultiChunkId> getMultiChunkIdsByChecksums(List<ChunkChecksum> chunkChecksums) {
-		// Gather a unique array of checksum strings (required for query!)
+		// Gather a unique array of checksums (required for query!)
 		Set<ChunkChecksum> chunkChecksumSet = new HashSet<ChunkChecksum>(chunkChecksums);
-		String[] checksums = new String[chunkChecksumSet.size()];
+		byte[][] checksums = new byte[chunkChecksumSet.size()][];
 		int i = 0;
 		for (ChunkChecksum checksum : chunkChecksumSet) {
-			checksums[i] = checksum.toString();
+			checksums[i] = checksum.getBytes();
 			i++;
 		}
 		
 		// Execute query
 		Map<ChunkChecksum, MultiChunkId> result = new HashMap<ChunkChecksum, MultiChunkId>();
 		try (PreparedStatement preparedStatement = getStatement("multichunk.select.all.getMultiChunkIdForChunks.sql")) {
-			preparedStatement.setArray(1, connection.createArrayOf("varchar", checksums));	
+			preparedStatement.setArray(1, connection.createArrayOf("varbinary", checksums));	
 			try (ResultSet resultSet = preparedStatement.executeQuery()) {
 				while (resultSet.next()) {
 					result.put(ChunkChecksum.parseChunkChecksum(resultSet.getString("chunk_checksum")),
@@ -264,6 +341,69 @@ public class MultiChunkSqlDao extends AbstractSqlDao {
 		}
 	}
 
+	/**
+	 * Selects the multichunks of {@link DatabaseVersionStatus#MASTER MASTER} database versions whose live data 
+	 * ratio is below the given ratio, i.e. whose chunks that are still referenced by file contents make up less 
+	 * than the given fraction of the multichunk size. Multichunks with the lowest ratio are selected first, until
+	 * the total size of the selected multichunks would exceed the given maximum size.
+	 * 
+	 * <p>The returned multichunk entries only contain the live chunks. They are grouped by the 
+	 * (internal) identifier of the database version they belong to.
+	 */
+	public SortedMap<Long, List<MultiChunkEntry>> getRepackMultiChunks(double maxLiveRatio, long maxTotalSize) {
+		SortedMap<Long, List<MultiChunkEntry>> repackMultiChunks = new TreeMap<Long, List<MultiChunkEntry>>();
+		long totalSize = 0;
+		
+		try (PreparedStatement preparedStatement = getStatement("multichunk.select.master.getRepackMultiChunks.sql")) {
+			preparedStatement.setDouble(1, maxLiveRatio);
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				while (resultSet.next()) {
+					MultiChunkId multiChunkId = MultiChunkId.parseMultiChunkId(resultSet.getString("id"));
+					long databaseVersionId = resultSet.getLong("databaseversion_id");
+					long multiChunkSize = resultSet.getLong("size");
+					
+					if (totalSize > 0 && totalSize + multiChunkSize > maxTotalSize) {
+						continue;
+					}
+					
+					if (!repackMultiChunks.containsKey(databaseVersionId)) {
+						repackMultiChunks.put(databaseVersionId, new ArrayList<MultiChunkEntry>());
+					}
+					
+					repackMultiChunks.get(databaseVersionId).add(new MultiChunkEntry(multiChunkId, multiChunkSize));
+					totalSize += multiChunkSize;
+				}
+			}
+		}
+		catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+		
+		for (List<MultiChunkEntry> multiChunkEntries : repackMultiChunks.values()) {
+			for (MultiChunkEntry multiChunkEntry : multiChunkEntries) {
+				addLiveChunks(multiChunkEntry);
+			}
+		}
+		
+		return repackMultiChunks;
+	}
+	
+	private void addLiveChunks(MultiChunkEntry multiChunkEntry) {
+		try (PreparedStatement preparedStatement = getStatement("multichunk.select.all.getLiveChunksForMultiChunk.sql")) {
+			preparedStatement.setString(1, multiChunkEntry.getId().toString());
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				while (resultSet.next()) {
+					multiChunkEntry.addChunk(ChunkChecksum.parseChunkChecksum(resultSet.getString("chunk_checksum")));
+				}
+			}
+		}
+		catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	public Map<MultiChunkId, MultiChunkEntry> getMultiChunks() {
 		try (PreparedStatement preparedStatement = getStatement("multichunk.select.all.getMultiChunks.sql")) {
 			try (ResultSet resultSet = preparedStatement.executeQuery()) {
@@ -300,7 +440,7 @@ public class MultiChunkSqlDao extends AbstractSqlDao {
 	}
 	
 	private Map<MultiChunkId, MultiChunkEntry> createMultiChunkEntriesWithChunks(ResultSet resultSet) throws SQLException {
-		Map<MultiChunkId, MultiChunkEntry> multiChunkEntries = new HashMap<MultiChunkId, MultiChunkEntry>();		
+		Map<MultiChunkId, MultiChunkEntry> multiChunkEntries = new LinkedHashMap<MultiChunkId, MultiChunkEntry>();		
 		MultiChunkId currentMultiChunkId = null;
 		
 		while (resultSet.next()) {			
@@ -0,0 +1,210 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.database.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.syncany.database.DatabaseConnectionFactory;
+
+/**
+ * Caches the {@link PreparedStatement}s of a single {@link Connection}, keyed by the
+ * SQL resource identifier (see {@link DatabaseConnectionFactory#getStatement(String)}).
+ *
+ * <p>Callers use the returned statements exactly like regular prepared statements, including
+ * closing them after use. The returned statement is a proxy: Instead of closing the underlying
+ * statement, {@link PreparedStatement#close() close()} resets it (parameters, batch and maximum row
+ * count) and returns it to the cache. If a result set of the statement is still open when it is
+ * closed (e.g. because it backs a lazy iterator), the statement is handed over to the result set 
+ * and removed from the cache instead. It is then closed together with the result set.
+ *
+ * <p>Caching avoids re-parsing the SQL for every query, e.g. for the per-chunk lookups in the
+ * {@link org.syncany.operations.down.Assembler Assembler}.
+ *
+ * <p>There should only be one cache per connection, shared by all DAOs that use the connection.
+ * A cached statement is only handed out if it is not currently in use. If the same resource is
+ * requested again before the statement was closed (e.g. in nested queries), a regular uncached
+ * statement is returned instead.
+ *
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class PreparedStatementCache {
+	private Connection connection;
+	private Map<String, CachedStatement> statements;
+
+	public PreparedStatementCache(Connection connection) {
+		this.connection = connection;
+		this.statements = new HashMap<String, CachedStatement>();
+	}
+
+	/**
+	 * Returns a prepared statement for the given SQL resource identifier, either from the
+	 * cache or newly prepared. The statement must be closed after use.
+	 */
+	public synchronized PreparedStatement getStatement(String resourceId) throws SQLException {
+		CachedStatement cachedStatement = statements.get(resourceId);
+
+		if (cachedStatement == null || cachedStatement.statement.isClosed()) {
+			PreparedStatement statement = connection.prepareStatement(DatabaseConnectionFactory.getStatement(resourceId));
+
+			cachedStatement = new CachedStatement(resourceId, statement);
+			statements.put(resourceId, cachedStatement);
+		}
+		else if (cachedStatement.inUse) {
+			return connection.prepareStatement(DatabaseConnectionFactory.getStatement(resourceId));
+		}
+
+		cachedStatement.inUse = true;
+		return cachedStatement.proxy;
+	}
+
+	public Connection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * Closes all cached statements and clears the cache.
+	 */
+	public synchronized void clear() throws SQLException {
+		for (CachedStatement cachedStatement : statements.values()) {
+			cachedStatement.statement.close();
+		}
+
+		statements.clear();
+	}
+
+	public synchronized int size() {
+		return statements.size();
+	}
+
+	private synchronized void release(CachedStatement cachedStatement) throws SQLException {
+		if (cachedStatement.inUse) {
+			try {
+				if (cachedStatement.resultSet != null && !cachedStatement.resultSet.isClosed()) {
+					// The result set outlives the statement (e.g. lazy iterators); hand the
+					// statement over to the result set and prepare a new one next time
+					if (statements.get(cachedStatement.resourceId) == cachedStatement) {
+						statements.remove(cachedStatement.resourceId);
+					}
+
+					cachedStatement.handedOver = true;
+				}
+				else if (!cachedStatement.statement.isClosed()) {
+					cachedStatement.statement.clearParameters();
+					cachedStatement.statement.clearBatch();
+					cachedStatement.statement.setMaxRows(0);
+				}
+			}
+			finally {
+				cachedStatement.resultSet = null;
+				cachedStatement.inUse = false;
+			}
+		}
+	}
+
+	private synchronized void closeHandedOverStatement(CachedStatement cachedStatement) throws SQLException {
+		if (cachedStatement.handedOver && !cachedStatement.statement.isClosed()) {
+			cachedStatement.statement.close();
+		}
+	}
+
+	private class CachedStatement implements InvocationHandler {
+		private String resourceId;
+		private PreparedStatement statement;
+		private PreparedStatement proxy;
+		private ResultSet resultSet;
+		private boolean inUse;
+		private boolean handedOver;
+
+		public CachedStatement(String resourceId, PreparedStatement statement) {
+			this.resourceId = resourceId;
+			this.statement = statement;
+			this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, this);
+			this.resultSet = null;
+			this.inUse = false;
+			this.handedOver = false;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String methodName = method.getName();
+
+			if ("close".equals(methodName) && method.getParameterTypes().length == 0) {
+				release(this);
+				return null;
+			}
+			else if ("isClosed".equals(methodName)) {
+				return !inUse || statement.isClosed();
+			}
+
+			try {
+				Object result = method.invoke(statement, args);
+
+				if (result instanceof ResultSet && "executeQuery".equals(methodName)) {
+					resultSet = (ResultSet) result;
+					result = Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+							new CachedResultSet(this, resultSet));
+				}
+
+				return result;
+			}
+			catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+	/**
+	 * Wraps the result set of a cached statement to close the statement along with 
+	 * the result set, if the statement has been handed over to the result set.
+	 */
+	private class CachedResultSet implements InvocationHandler {
+		private CachedStatement cachedStatement;
+		private ResultSet resultSet;
+
+		public CachedResultSet(CachedStatement cachedStatement, ResultSet resultSet) {
+			this.cachedStatement = cachedStatement;
+			this.resultSet = resultSet;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			try {
+				Object result = method.invoke(resultSet, args);
+
+				if ("close".equals(method.getName()) && method.getParameterTypes().length == 0) {
+					closeHandedOverStatement(cachedStatement);
+				}
+
+				return result;
+			}
+			catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
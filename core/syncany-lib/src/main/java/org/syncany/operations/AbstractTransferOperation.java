@@ -30,6 +30,7 @@ import org.syncany.plugins.transfer.TransferManager;
 import org.syncany.plugins.transfer.TransferManagerFactory;
 import org.syncany.plugins.transfer.features.ReadAfterWriteConsistent;
 import org.syncany.plugins.transfer.features.PathAware;
+import org.syncany.plugins.transfer.features.RangeAware;
 import org.syncany.plugins.transfer.features.Retriable;
 import org.syncany.plugins.transfer.features.TransactionAware;
 import org.syncany.plugins.transfer.features.TransactionAwareFeatureTransferManager;
@@ -80,6 +81,7 @@ public abstract class AbstractTransferOperation extends Operation {
 
 			TransactionAwareFeatureTransferManager regularFileTransferManager = TransferManagerFactory
 					.build(config)
+					.withFeature(RangeAware.class)
 					.withFeature(ReadAfterWriteConsistent.class)
 					.withFeature(Retriable.class)
 					.withFeature(PathAware.class)
@@ -19,10 +19,21 @@ package org.syncany.operations;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,11 +44,13 @@ import org.syncany.chunk.MultiChunk;
 import org.syncany.chunk.MultiChunker;
 import org.syncany.config.Config;
 import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.ChunkPosition;
 import org.syncany.database.FileContent;
 import org.syncany.database.FileVersion;
 import org.syncany.database.MemoryDatabase;
 import org.syncany.database.MultiChunkEntry.MultiChunkId;
 import org.syncany.database.SqlDatabase;
+import org.syncany.util.FileUtil;
 import org.syncany.util.StringUtil;
 
 /**
@@ -48,6 +61,11 @@ import org.syncany.util.StringUtil;
  * <p>It uses the local {@link SqlDatabase} and an optional {@link MemoryDatabase}
  * to perform file checksum and chunk checksum lookups.   
  * 
+ * <p>Chunks are preferably read from local files, using the {@link ChunkPosition}s
+ * recorded in the local database. A chunk is only read from a local file if the file
+ * is unchanged and the chunk data matches the chunk checksum. All other chunks are read
+ * from the decrypted multichunks in the local cache.
+ * 
  * @author Philipp C. Heckel <philipp.heckel@gmail.com>
  */
 public class Assembler {
@@ -57,6 +75,8 @@ public class Assembler {
 	private SqlDatabase localDatabase;
 	private MemoryDatabase memoryDatabase;
 	
+	private List<ChunkPosition> assembledChunkPositions;
+	
 	public Assembler(Config config, SqlDatabase localDatabase) {
 		this(config, localDatabase, null);
 	}
@@ -73,6 +93,8 @@ public class Assembler {
 	 */
 	public File assembleToCache(FileVersion fileVersion) throws Exception {
 		File reconstructedFileInCache = config.getCache().createTempFile("reconstructedFileVersion");
+		assembledChunkPositions = null;
+		
 		logger.log(Level.INFO, "     - Creating file " + fileVersion.getPath() + " to " + reconstructedFileInCache + " ...");
 
 		FileContent fileContent = localDatabase.getFileContent(fileVersion.getChecksum(), true);
@@ -101,29 +123,64 @@ public class Assembler {
 		
 		if (fileContent != null) { // File can be empty!
 			Collection<ChunkChecksum> fileChunks = fileContent.getChunks();
+			Map<ChunkChecksum, List<ChunkPosition>> localChunkPositions = localDatabase.getChunkPositions(fileChunks);
+			
+			assembledChunkPositions = new ArrayList<ChunkPosition>();
+			long chunkOffset = 0;
 
 			for (ChunkChecksum chunkChecksum : fileChunks) {
-				MultiChunkId multiChunkIdForChunk = localDatabase.getMultiChunkId(chunkChecksum);
-
-				if (multiChunkIdForChunk == null && memoryDatabase != null) {
-					multiChunkIdForChunk = memoryDatabase.getMultiChunkIdForChunk(chunkChecksum);
+				int chunkSize = 0;
+				byte[] localChunkData = readLocalChunk(chunkChecksum, localChunkPositions.get(chunkChecksum));
+				
+				if (localChunkData != null) {
+					reconstructedFileChecksum.update(localChunkData);
+					reconstructedFileOutputStream.write(localChunkData);
+					
+					chunkSize = localChunkData.length;
 				}
-
-				File decryptedMultiChunkFile = config.getCache().getDecryptedMultiChunkFile(multiChunkIdForChunk);
-
-				MultiChunk multiChunk = multiChunker.createMultiChunk(decryptedMultiChunkFile);
-				InputStream chunkInputStream = multiChunk.getChunkInputStream(chunkChecksum.getBytes());
-
-				byte[] buffer = new byte[4096];
-				int read = 0;
-
-				while (-1 != (read = chunkInputStream.read(buffer))) {
-					reconstructedFileChecksum.update(buffer, 0, read);
-					reconstructedFileOutputStream.write(buffer, 0, read);
+				else {
+					MultiChunkId multiChunkIdForChunk = localDatabase.getMultiChunkId(chunkChecksum);
+	
+					if (multiChunkIdForChunk == null && memoryDatabase != null) {
+						multiChunkIdForChunk = memoryDatabase.getMultiChunkIdForChunk(chunkChecksum);
+					}
+	
+					File decryptedMultiChunkFile = config.getCache().getDecryptedMultiChunkFile(multiChunkIdForChunk);
+					
+					if (!decryptedMultiChunkFile.exists()) {
+						reconstructedFileOutputStream.close();
+						throw new Exception("Chunk " + chunkChecksum + " is neither available locally nor in multichunk " + multiChunkIdForChunk);
+					}
+	
+					MultiChunk multiChunk = multiChunker.createMultiChunk(decryptedMultiChunkFile);
+					InputStream chunkInputStream = multiChunk.getChunkInputStream(chunkChecksum.getBytes());
+	
+					// Partial multichunks only contain the chunks that were not available locally at download 
+					// time; if the local file has changed since, the chunk is neither here nor there.
+					if (chunkInputStream == null) {
+						multiChunk.close();
+						reconstructedFileOutputStream.close();
+						
+						throw new Exception("Chunk " + chunkChecksum + " is not available locally anymore, and it is not contained in the cached "
+								+ "(partial) multichunk " + multiChunkIdForChunk + ". The local file it was to be read from has changed.");
+					}
+	
+					byte[] buffer = new byte[4096];
+					int read = 0;
+	
+					while (-1 != (read = chunkInputStream.read(buffer))) {
+						reconstructedFileChecksum.update(buffer, 0, read);
+						reconstructedFileOutputStream.write(buffer, 0, read);
+						
+						chunkSize += read;
+					}
+	
+					chunkInputStream.close();
+					multiChunk.close();
 				}
-
-				chunkInputStream.close();
-				multiChunk.close();
+				
+				assembledChunkPositions.add(new ChunkPosition(chunkChecksum, fileVersion.getPath(), chunkOffset, chunkSize));
+				chunkOffset += chunkSize;
 			}
 		}
 
@@ -140,4 +197,128 @@ public class Assembler {
 		
 		return reconstructedFileInCache;
 	}	
+
+	/**
+	 * Records the chunk positions of the most recently assembled file at the given
+	 * location, so that its chunks can be used to reconstruct other files later on. 
+	 * This method must be called after the assembled file has been moved to its final 
+	 * location in the local directory. 
+	 * 
+	 * <p>Since chunk positions are only hints, this method does not throw an exception
+	 * if the positions cannot be written. The positions are not committed; this is up
+	 * to the owner of the local database.
+	 */
+	public void writeChunkPositions(File assembledFile) {
+		if (assembledChunkPositions == null || !assembledFile.isFile()) {
+			return;
+		}
+		
+		String relativePath = FileUtil.getRelativeDatabasePath(config.getLocalDir(), assembledFile);
+		
+		try {
+			long fileLastModified = Files.getLastModifiedTime(assembledFile.toPath()).toMillis();
+			
+			localDatabase.writeChunkPositions(relativePath, assembledFile.length(), fileLastModified, assembledChunkPositions);
+		}
+		catch (IOException | SQLException e) {
+			logger.log(Level.WARNING, "     - Unable to write chunk positions for " + relativePath + ". Ignoring.", e);
+		}
+	}
+	
+	/**
+	 * Removes all chunks from the given map that can be read from unchanged local
+	 * files (and thereby do not need to be downloaded). Multichunks for which no chunks 
+	 * are required anymore are removed from the map.
+	 * 
+	 * <p>Chunk positions in the given excluded paths are ignored. This is necessary if
+	 * these files are altered before the files are assembled. 
+	 * 
+	 * @param multiChunksToDownload Multichunks and the chunks required from each multichunk (will be modified!)
+	 * @param excludedPaths Relative paths of local files that must not be used as a chunk source
+	 */
+	public void removeLocalChunks(Map<MultiChunkId, Set<ChunkChecksum>> multiChunksToDownload, Set<String> excludedPaths) {
+		Set<ChunkChecksum> requiredChunks = new HashSet<ChunkChecksum>();
+		
+		for (Set<ChunkChecksum> requiredChunksForMultiChunk : multiChunksToDownload.values()) {
+			requiredChunks.addAll(requiredChunksForMultiChunk);
+		}
+		
+		Map<ChunkChecksum, List<ChunkPosition>> localChunkPositions = localDatabase.getChunkPositions(requiredChunks);
+		Set<ChunkChecksum> localChunks = new HashSet<ChunkChecksum>();
+		
+		for (Map.Entry<ChunkChecksum, List<ChunkPosition>> chunkPositionsEntry : localChunkPositions.entrySet()) {
+			List<ChunkPosition> usableChunkPositions = new ArrayList<ChunkPosition>();
+			
+			for (ChunkPosition chunkPosition : chunkPositionsEntry.getValue()) {
+				if (!excludedPaths.contains(chunkPosition.getPath())) {
+					usableChunkPositions.add(chunkPosition);
+				}
+			}
+			
+			if (readLocalChunk(chunkPositionsEntry.getKey(), usableChunkPositions) != null) {
+				localChunks.add(chunkPositionsEntry.getKey());
+			}
+		}
+		
+		Iterator<Map.Entry<MultiChunkId, Set<ChunkChecksum>>> multiChunkIterator = multiChunksToDownload.entrySet().iterator();
+		
+		while (multiChunkIterator.hasNext()) {
+			Map.Entry<MultiChunkId, Set<ChunkChecksum>> multiChunkEntry = multiChunkIterator.next();
+			multiChunkEntry.getValue().removeAll(localChunks);
+			
+			if (multiChunkEntry.getValue().isEmpty()) {
+				logger.log(Level.INFO, "  + All required chunks of multichunk " + multiChunkEntry.getKey() + " available locally; no download necessary.");
+				multiChunkIterator.remove();
+			}
+		}
+		
+		logger.log(Level.INFO, "  + " + localChunks.size() + " of " + requiredChunks.size() + " required chunk(s) available in local files.");
+	}
+
+	/**
+	 * Reads the given chunk from one of the given local chunk positions and verifies
+	 * the chunk data using the chunk checksum. If the chunk cannot be read from any of 
+	 * the positions (because the files have changed, or the data does not match), 
+	 * <tt>null</tt> is returned. 
+	 */
+	private byte[] readLocalChunk(ChunkChecksum chunkChecksum, List<ChunkPosition> chunkPositions) {
+		if (chunkPositions == null) {
+			return null;
+		}
+
+		for (ChunkPosition chunkPosition : chunkPositions) {
+			File localFile = new File(config.getLocalDir(), chunkPosition.getPath());
+
+			try {
+				boolean localFileUnchanged = localFile.isFile() && localFile.length() == chunkPosition.getFileSize()
+						&& Files.getLastModifiedTime(localFile.toPath()).toMillis() == chunkPosition.getFileLastModified();
+				
+				if (!localFileUnchanged) {
+					logger.log(Level.FINE, "     - Local file {0} has changed, cannot use it as chunk source.", chunkPosition.getPath());
+					continue;
+				}
+				
+				byte[] chunkData = new byte[chunkPosition.getSize()];
+				
+				try (RandomAccessFile localRandomAccessFile = new RandomAccessFile(localFile, "r")) {
+					localRandomAccessFile.seek(chunkPosition.getOffset());
+					localRandomAccessFile.readFully(chunkData);
+				}
+				
+				byte[] actualChunkChecksum = MessageDigest.getInstance(config.getChunker().getChecksumAlgorithm()).digest(chunkData);
+
+				if (Arrays.equals(actualChunkChecksum, chunkChecksum.getBytes())) {
+					return chunkData;
+				}
+				else {
+					logger.log(Level.FINE, "     - Chunk {0} in local file {1} does not match checksum.", new Object[] { chunkChecksum, chunkPosition.getPath() });
+				}
+			}
+			catch (IOException | NoSuchAlgorithmException e) {
+				logger.log(Level.FINE, "     - Cannot read chunk " + chunkChecksum + " from local file " + chunkPosition.getPath(), e);
+			}
+		}
+		
+		return null;
+	}
 }
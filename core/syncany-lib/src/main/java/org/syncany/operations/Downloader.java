@@ -23,28 +23,55 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.syncany.chunk.MultiChunker;
+import org.syncany.chunk.SeekableMultiChunk;
+import org.syncany.chunk.SeekableMultiChunk.ChunkRange;
+import org.syncany.chunk.SeekableMultiChunker;
 import org.syncany.config.Config;
 import org.syncany.config.LocalEventBus;
+import org.syncany.database.ChunkEntry.ChunkChecksum;
 import org.syncany.database.MultiChunkEntry.MultiChunkId;
 import org.syncany.operations.daemon.messages.DownDownloadFileSyncExternalEvent;
 import org.syncany.plugins.transfer.StorageException;
 import org.syncany.plugins.transfer.TransferManager;
+import org.syncany.plugins.transfer.features.RangeAware;
+import org.syncany.plugins.transfer.features.RangeAwareFeatureTransferManager.RangeAwareRemoteFileAttributes;
 import org.syncany.plugins.transfer.files.MultichunkRemoteFile;
 
 /**
  * The downloader uses a {@link TransferManager} to download a given set of multichunks,
  * decrypt them and store them in the local cache folder. 
  * 
+ * <p>If the repository uses a {@link SeekableMultiChunker}, the multichunks are not
+ * decrypted as a whole. Instead, the downloader only retrieves the chunks that are 
+ * required (if the transfer manager is {@link RangeAware}), and stores them in a
+ * (partial) seekable multichunk in the local cache. The chunks are decrypted and
+ * verified when they are read by the {@link Assembler}.
+ * 
  * @author Philipp C. Heckel <philipp.heckel@gmail.com>
  */
 public class Downloader {
 	private static final Logger logger = Logger.getLogger(Downloader.class.getSimpleName());
 
+	/**
+	 * Maximum number of unused bytes between two required chunks of a seekable multichunk
+	 * for which the two byte ranges are still merged into a single ranged download. 
+	 */
+	private static final int MAX_RANGE_GAP = 64 * 1024;
+
 	private Config config;
 	private TransferManager transferManager;
 	private LocalEventBus eventBus;
@@ -60,58 +87,321 @@ public class Downloader {
 	 * to the local cache folder. 
 	 */
 	public void downloadAndDecryptMultiChunks(Set<MultiChunkId> unknownMultiChunkIds) throws StorageException, IOException {
+		Map<MultiChunkId, Set<ChunkChecksum>> unknownMultiChunks = new HashMap<MultiChunkId, Set<ChunkChecksum>>();
+		
+		for (MultiChunkId multiChunkId : unknownMultiChunkIds) {
+			unknownMultiChunks.put(multiChunkId, null);
+		}
+		
+		downloadAndDecryptMultiChunks(unknownMultiChunks);
+	}
+	
+	/** 
+	 * Downloads the given multichunks from the remote storage and decrypts them
+	 * to the local cache folder. 
+	 * 
+	 * <p>The given map contains the chunks that are required from each multichunk. 
+	 * If the set of chunks is <tt>null</tt>, the whole multichunk is downloaded. For 
+	 * multichunkers that do not support partial downloads, the chunk sets are ignored.
+	 */
+	public void downloadAndDecryptMultiChunks(Map<MultiChunkId, Set<ChunkChecksum>> unknownMultiChunks) throws StorageException, IOException {
 		logger.log(Level.INFO, "Downloading and extracting multichunks ...");
 
+		MultiChunker multiChunker = config.getMultiChunker();
 		int multiChunkNumber = 0;
 
-		for (MultiChunkId multiChunkId : unknownMultiChunkIds) {
-			File localEncryptedMultiChunkFile = config.getCache().getEncryptedMultiChunkFile(multiChunkId);
-			File localDecryptedMultiChunkFile = config.getCache().getDecryptedMultiChunkFile(multiChunkId);
-			MultichunkRemoteFile remoteMultiChunkFile = new MultichunkRemoteFile(multiChunkId);
+		for (Map.Entry<MultiChunkId, Set<ChunkChecksum>> unknownMultiChunkEntry : unknownMultiChunks.entrySet()) {
+			MultiChunkId multiChunkId = unknownMultiChunkEntry.getKey();
+			Set<ChunkChecksum> requiredChunks = unknownMultiChunkEntry.getValue();
 
 			multiChunkNumber++;
 
-			if (localDecryptedMultiChunkFile.exists()) {
-				logger.log(Level.INFO, "  + Decrypted multichunk exists locally " + multiChunkId + ". No need to download it!");
+			if (multiChunker instanceof SeekableMultiChunker) {
+				downloadSeekableMultiChunk((SeekableMultiChunker) multiChunker, multiChunkId, requiredChunks, multiChunkNumber, unknownMultiChunks.size());
 			}
 			else {
-				eventBus.post(new DownDownloadFileSyncExternalEvent(config.getLocalDir().getAbsolutePath(), "multichunk", multiChunkNumber,
-						unknownMultiChunkIds.size()));
+				downloadAndDecryptMultiChunk(multiChunkId, multiChunkNumber, unknownMultiChunks.size());
+			}
+		}
 
-				logger.log(Level.INFO, "  + Downloading multichunk " + multiChunkId + " ...");
-				transferManager.download(remoteMultiChunkFile, localEncryptedMultiChunkFile);
+		transferManager.disconnect();
+	}
 
-				try {
-					logger.log(Level.INFO, "  + Decrypting multichunk " + multiChunkId + " ...");
-					InputStream multiChunkInputStream = config.getTransformer().createInputStream(new FileInputStream(localEncryptedMultiChunkFile));
-					OutputStream decryptedMultiChunkOutputStream = new FileOutputStream(localDecryptedMultiChunkFile);
+	private void downloadAndDecryptMultiChunk(MultiChunkId multiChunkId, int multiChunkNumber, int multiChunkCount) throws StorageException, IOException {
+		File localEncryptedMultiChunkFile = config.getCache().getEncryptedMultiChunkFile(multiChunkId);
+		File localDecryptedMultiChunkFile = config.getCache().getDecryptedMultiChunkFile(multiChunkId);
+		MultichunkRemoteFile remoteMultiChunkFile = new MultichunkRemoteFile(multiChunkId);
 
-					IOUtils.copy(multiChunkInputStream, decryptedMultiChunkOutputStream);
+		if (localDecryptedMultiChunkFile.exists()) {
+			logger.log(Level.INFO, "  + Decrypted multichunk exists locally " + multiChunkId + ". No need to download it!");
+		}
+		else {
+			eventBus.post(new DownDownloadFileSyncExternalEvent(config.getLocalDir().getAbsolutePath(), "multichunk", multiChunkNumber,
+					multiChunkCount));
 
-					decryptedMultiChunkOutputStream.close();
-					multiChunkInputStream.close();
+			logger.log(Level.INFO, "  + Downloading multichunk " + multiChunkId + " ...");
+			transferManager.download(remoteMultiChunkFile, localEncryptedMultiChunkFile);
 
+			try {
+				logger.log(Level.INFO, "  + Decrypting multichunk " + multiChunkId + " ...");
+				InputStream multiChunkInputStream = config.getTransformer().createInputStream(new FileInputStream(localEncryptedMultiChunkFile));
+				OutputStream decryptedMultiChunkOutputStream = new FileOutputStream(localDecryptedMultiChunkFile);
+
+				IOUtils.copy(multiChunkInputStream, decryptedMultiChunkOutputStream);
+
+				decryptedMultiChunkOutputStream.close();
+				multiChunkInputStream.close();
+
+			}
+			catch (IOException e) {
+				// Security: Deleting the multichunk if the decryption/extraction failed is important!
+				//           If it is not deleted, the partially decrypted multichunk will reside in the
+				//           local cache and the next 'down' will try to use it. If this is the only
+				//           multichunk that has been tampered with, other changes might be applied to the 
+				//           file system! See https://github.com/syncany/syncany/issues/59#issuecomment-55154793
+
+				logger.log(Level.FINE, "    -> FAILED: Decryption/extraction of multichunk failed, deleting " + multiChunkId + " ...");
+				localDecryptedMultiChunkFile.delete();
+
+				throw new IOException("Decryption/extraction of multichunk " + multiChunkId
+						+ " failed. The multichunk might have been tampered with!", e);
+			}
+			finally {
+				logger.log(Level.FINE, "  + Locally deleting multichunk " + multiChunkId + " ...");
+				localEncryptedMultiChunkFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Downloads a seekable multichunk to the local cache, if it (or the required chunks of it)
+	 * do not exist locally. The cached multichunk is not decrypted as a whole. If the set of 
+	 * required chunks is known and the transfer manager supports ranged downloads, only these chunks
+	 * are downloaded and stored in a partial multichunk. 
+	 */
+	private void downloadSeekableMultiChunk(SeekableMultiChunker multiChunker, MultiChunkId multiChunkId, Set<ChunkChecksum> requiredChunks,
+			int multiChunkNumber, int multiChunkCount) throws StorageException, IOException {
+
+		File localMultiChunkFile = config.getCache().getDecryptedMultiChunkFile(multiChunkId);
+		MultichunkRemoteFile remoteMultiChunkFile = new MultichunkRemoteFile(multiChunkId);
+
+		if (requiredChunks != null && localMultiChunkFile.exists() && containsChunks(multiChunker, localMultiChunkFile, requiredChunks)) {
+			logger.log(Level.INFO, "  + Multichunk with required chunks exists locally " + multiChunkId + ". No need to download it!");
+			return;
+		}
+
+		eventBus.post(new DownDownloadFileSyncExternalEvent(config.getLocalDir().getAbsolutePath(), "multichunk", multiChunkNumber, multiChunkCount));
+
+		try {
+			boolean rangesDownloaded = false;
+
+			if (requiredChunks != null) {
+				logger.log(Level.INFO, "  + Downloading " + requiredChunks.size() + " chunk(s) of multichunk " + multiChunkId + " ...");
+				rangesDownloaded = downloadSeekableMultiChunkRanges(multiChunker, multiChunkId, remoteMultiChunkFile, requiredChunks, localMultiChunkFile);
+			}
+
+			if (!rangesDownloaded) {
+				logger.log(Level.INFO, "  + Downloading full multichunk " + multiChunkId + " ...");
+				downloadFullSeekableMultiChunk(multiChunker, multiChunkId, remoteMultiChunkFile, localMultiChunkFile);
+			}
+		}
+		catch (IOException e) {
+			// Security: See downloadAndDecryptMultiChunk() for why the multichunk must be deleted
+			logger.log(Level.FINE, "    -> FAILED: Verification of multichunk failed, deleting " + multiChunkId + " ...");
+			localMultiChunkFile.delete();
+
+			throw new IOException("Verification of multichunk " + multiChunkId + " failed. The multichunk might have been tampered with!", e);
+		}
+	}
+
+	/**
+	 * Downloads the trailer and the index of a seekable multichunk, and then only the byte ranges
+	 * of the required chunks. Adjacent ranges are merged into a single download. The downloaded records
+	 * are written to a new (partial) seekable multichunk in the local cache.
+	 * 
+	 * <p>If the transfer manager does not support ranged downloads, the first request returns
+	 * the whole multichunk. In that case, the multichunk is stored as is.
+	 * 
+	 * @return Returns <tt>true</tt> if the multichunk was stored successfully, <tt>false</tt> if it must be downloaded as a whole
+	 */
+	private boolean downloadSeekableMultiChunkRanges(SeekableMultiChunker multiChunker, MultiChunkId multiChunkId, MultichunkRemoteFile remoteMultiChunkFile,
+			Set<ChunkChecksum> requiredChunks, File localMultiChunkFile) throws StorageException, IOException {
+
+		File tempRangeFile = config.getCache().createTempFile("multichunk-range");
+
+		try {
+			// Trailer (or full multichunk, if ranges are not supported)
+			if (!downloadRange(remoteMultiChunkFile, tempRangeFile, -SeekableMultiChunk.TRAILER_SIZE, SeekableMultiChunk.TRAILER_SIZE)) {
+				logger.log(Level.FINE, "    -> Transfer manager does not support ranges, downloaded full multichunk.");
+				storeFullSeekableMultiChunk(multiChunker, tempRangeFile, localMultiChunkFile);
+
+				return true;
+			}
+
+			ChunkRange indexRange = SeekableMultiChunk.readTrailer(FileUtils.readFileToByteArray(tempRangeFile));
+
+			// Index
+			downloadRange(remoteMultiChunkFile, tempRangeFile, indexRange.getOffset(), indexRange.getLength());
+			List<ChunkRange> allChunkRanges = SeekableMultiChunk.readIndex(FileUtils.readFileToByteArray(tempRangeFile), multiChunker.getTransformer());
+
+			// Required chunks
+			List<ChunkRange> requiredChunkRanges = findRequiredChunkRanges(allChunkRanges, requiredChunks);
+			long downloadedBytes = SeekableMultiChunk.TRAILER_SIZE + indexRange.getLength();
+
+			SeekableMultiChunk localMultiChunk = new SeekableMultiChunk(multiChunkId, 0, new FileOutputStream(localMultiChunkFile),
+					multiChunker.getTransformer());
+
+			try {
+				for (List<ChunkRange> mergedChunkRanges : mergeChunkRanges(requiredChunkRanges)) {
+					ChunkRange firstChunkRange = mergedChunkRanges.get(0);
+					ChunkRange lastChunkRange = mergedChunkRanges.get(mergedChunkRanges.size() - 1);
+
+					long rangeOffset = firstChunkRange.getOffset();
+					long rangeLength = lastChunkRange.getOffset() + lastChunkRange.getLength() - rangeOffset;
+
+					downloadRange(remoteMultiChunkFile, tempRangeFile, rangeOffset, rangeLength);
+					byte[] rangeBytes = FileUtils.readFileToByteArray(tempRangeFile);
+
+					if (rangeBytes.length != rangeLength) {
+						throw new IOException("Unexpected range length: expected " + rangeLength + ", got " + rangeBytes.length);
+					}
+
+					for (ChunkRange chunkRange : mergedChunkRanges) {
+						int recordOffset = (int) (chunkRange.getOffset() - rangeOffset);
+						localMultiChunk.writeTransformed(chunkRange.getChecksum(),
+								Arrays.copyOfRange(rangeBytes, recordOffset, recordOffset + chunkRange.getLength()));
+					}
+
+					downloadedBytes += rangeLength;
 				}
-				catch (IOException e) {
-					// Security: Deleting the multichunk if the decryption/extraction failed is important!
-					//           If it is not deleted, the partially decrypted multichunk will reside in the
-					//           local cache and the next 'down' will try to use it. If this is the only
-					//           multichunk that has been tampered with, other changes might be applied to the 
-					//           file system! See https://github.com/syncany/syncany/issues/59#issuecomment-55154793
-
-					logger.log(Level.FINE, "    -> FAILED: Decryption/extraction of multichunk failed, deleting " + multiChunkId + " ...");
-					localDecryptedMultiChunkFile.delete();
-
-					throw new IOException("Decryption/extraction of multichunk " + multiChunkId
-							+ " failed. The multichunk might have been tampered with!", e);
-				}
-				finally {
-					logger.log(Level.FINE, "  + Locally deleting multichunk " + multiChunkId + " ...");
-					localEncryptedMultiChunkFile.delete();
-				}
 			}
+			finally {
+				localMultiChunk.close();
+			}
+
+			logger.log(Level.INFO, "    -> Downloaded " + requiredChunkRanges.size() + "/" + allChunkRanges.size() + " chunk(s), " + downloadedBytes + "/"
+					+ (indexRange.getOffset() + indexRange.getLength() + SeekableMultiChunk.TRAILER_SIZE) + " byte(s).");
+
+			return true;
+		}
+		finally {
+			tempRangeFile.delete();
 		}
+	}
 
-		transferManager.disconnect();
+	private void downloadFullSeekableMultiChunk(SeekableMultiChunker multiChunker, MultiChunkId multiChunkId, MultichunkRemoteFile remoteMultiChunkFile,
+			File localMultiChunkFile) throws StorageException, IOException {
+
+		File localEncryptedMultiChunkFile = config.getCache().getEncryptedMultiChunkFile(multiChunkId);
+
+		try {
+			transferManager.download(remoteMultiChunkFile, localEncryptedMultiChunkFile);
+			storeFullSeekableMultiChunk(multiChunker, localEncryptedMultiChunkFile, localMultiChunkFile);
+		}
+		finally {
+			localEncryptedMultiChunkFile.delete();
+		}
+	}
+
+	/**
+	 * Verifies that the given downloaded file is a valid seekable multichunk (by decoding
+	 * its index), and moves it to its final location in the cache. Chunk data is verified
+	 * when it is read.
+	 */
+	private void storeFullSeekableMultiChunk(SeekableMultiChunker multiChunker, File downloadedMultiChunkFile, File localMultiChunkFile) throws IOException {
+		multiChunker.createMultiChunk(downloadedMultiChunkFile).close();
+
+		localMultiChunkFile.delete();
+		FileUtils.moveFile(downloadedMultiChunkFile, localMultiChunkFile);
+	}
+
+	/**
+	 * Downloads the given byte range of a remote file. If the transfer manager does
+	 * not support ranges, the whole file is downloaded.
+	 * 
+	 * @return Returns <tt>true</tt> if only the given range was downloaded, <tt>false</tt> if the whole file was downloaded
+	 */
+	private boolean downloadRange(MultichunkRemoteFile remoteMultiChunkFile, File localFile, long offset, long length) throws StorageException {
+		RangeAwareRemoteFileAttributes rangeAttributes = new RangeAwareRemoteFileAttributes(offset, length);
+		remoteMultiChunkFile.setAttributes(rangeAttributes);
+
+		transferManager.download(remoteMultiChunkFile, localFile);
+
+		return rangeAttributes.isRangeApplied();
+	}
+
+	private List<ChunkRange> findRequiredChunkRanges(List<ChunkRange> allChunkRanges, Set<ChunkChecksum> requiredChunks) throws IOException {
+		Map<ChunkChecksum, ChunkRange> chunkRangesByChecksum = new HashMap<ChunkChecksum, ChunkRange>();
+
+		for (ChunkRange chunkRange : allChunkRanges) {
+			chunkRangesByChecksum.put(new ChunkChecksum(chunkRange.getChecksum()), chunkRange);
+		}
+
+		List<ChunkRange> requiredChunkRanges = new ArrayList<ChunkRange>();
+
+		for (ChunkChecksum requiredChunk : requiredChunks) {
+			ChunkRange chunkRange = chunkRangesByChecksum.get(requiredChunk);
+
+			if (chunkRange == null) {
+				throw new IOException("Multichunk does not contain required chunk " + requiredChunk);
+			}
+
+			requiredChunkRanges.add(chunkRange);
+		}
+
+		Collections.sort(requiredChunkRanges, new Comparator<ChunkRange>() {
+			@Override
+			public int compare(ChunkRange chunkRange1, ChunkRange chunkRange2) {
+				return Long.compare(chunkRange1.getOffset(), chunkRange2.getOffset());
+			}
+		});
+
+		return requiredChunkRanges;
+	}
+
+	/**
+	 * Groups the given (sorted) chunk ranges so that each group can be downloaded with a single
+	 * ranged download. Ranges are grouped if they are at most {@link #MAX_RANGE_GAP} bytes apart.
+	 */
+	private List<List<ChunkRange>> mergeChunkRanges(List<ChunkRange> sortedChunkRanges) {
+		List<List<ChunkRange>> mergedChunkRanges = new ArrayList<List<ChunkRange>>();
+		List<ChunkRange> currentChunkRanges = null;
+		long currentRangeEnd = 0;
+
+		for (ChunkRange chunkRange : sortedChunkRanges) {
+			if (currentChunkRanges == null || chunkRange.getOffset() - currentRangeEnd > MAX_RANGE_GAP) {
+				currentChunkRanges = new ArrayList<ChunkRange>();
+				mergedChunkRanges.add(currentChunkRanges);
+			}
+
+			currentChunkRanges.add(chunkRange);
+			currentRangeEnd = chunkRange.getOffset() + chunkRange.getLength();
+		}
+
+		return mergedChunkRanges;
+	}
+
+	private boolean containsChunks(SeekableMultiChunker multiChunker, File localMultiChunkFile, Set<ChunkChecksum> requiredChunks) {
+		try {
+			SeekableMultiChunk localMultiChunk = (SeekableMultiChunk) multiChunker.createMultiChunk(localMultiChunkFile);
+
+			try {
+				for (ChunkChecksum requiredChunk : requiredChunks) {
+					if (!localMultiChunk.containsChunk(requiredChunk.getBytes())) {
+						logger.log(Level.FINE, "  + Local multichunk " + localMultiChunkFile + " does not contain chunk " + requiredChunk);
+						return false;
+					}
+				}
+
+				return true;
+			}
+			finally {
+				localMultiChunk.close();
+			}
+		}
+		catch (IOException e) {
+			logger.log(Level.WARNING, "  + Cannot read local multichunk " + localMultiChunkFile + "; downloading it again.", e);
+			return false;
+		}
 	}
 }
@@ -18,22 +18,32 @@
 package org.syncany.operations.cleanup;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.syncany.chunk.Chunk;
+import org.syncany.chunk.Deduper;
 import org.syncany.chunk.MultiChunk;
+import org.syncany.chunk.MultiChunker;
 import org.syncany.config.Config;
+import org.syncany.database.ChunkEntry.ChunkChecksum;
 import org.syncany.database.DatabaseVersion;
 import org.syncany.database.FileContent;
 import org.syncany.database.FileVersion;
@@ -42,9 +52,10 @@ import org.syncany.database.MultiChunkEntry.MultiChunkId;
 import org.syncany.database.PartialFileHistory;
 import org.syncany.database.PartialFileHistory.FileHistoryId;
 import org.syncany.database.SqlDatabase;
-import org.syncany.database.dao.DatabaseXmlSerializer;
+import org.syncany.database.dao.DatabaseSerializer;
 import org.syncany.database.dao.FileVersionSqlDao;
 import org.syncany.operations.AbstractTransferOperation;
+import org.syncany.operations.Downloader;
 import org.syncany.operations.cleanup.CleanupOperationOptions.TimeUnit;
 import org.syncany.operations.cleanup.CleanupOperationResult.CleanupResultCode;
 import org.syncany.operations.daemon.messages.CleanupEndSyncExternalEvent;
@@ -74,6 +85,8 @@ import org.syncany.plugins.transfer.files.RemoteFile;
  *   <li>Remove old {@link FileVersion} and their corresponding database entities.
  *       In particular, it also removes {@link PartialFileHistory}s, {@link FileContent}s,
  *       {@link Chunk}s and {@link MultiChunk}s.</li>
+ *   <li>Repack multichunks that mostly consist of unused chunks, i.e. download their
+ *       remaining chunks and replace them by new (smaller) multichunks.</li>
  *   <li>Merge metadata of a single client and remove old database version files
  *       from the remote storage.</li>
  * </ul>
@@ -83,6 +96,7 @@ import org.syncany.plugins.transfer.files.RemoteFile;
  *    <ol>Lock repo and start thread that renews the lock every X seconds</ol>
  *    <ol>Find old versions / contents / ... from database</ol>
  *    <ol>Delete these versions and contents locally</ol>
+ *    <ol>Repack multichunks with little live data</ol>
  *    <ol>Delete all remote metadata</ol>
  *    <ol>Obtain consistent database files from local database</ol>
  *    <ol>Upload new database files to repo</ol>
@@ -121,71 +135,77 @@ public class CleanupOperation extends AbstractTransferOperation {
 
 	@Override
 	public CleanupOperationResult execute() throws Exception {
-		logger.log(Level.INFO, "");
-		logger.log(Level.INFO, "Running 'Cleanup' at client " + config.getMachineName() + " ...");
-		logger.log(Level.INFO, "--------------------------------------------");
+		try {
+			logger.log(Level.INFO, "");
+			logger.log(Level.INFO, "Running 'Cleanup' at client " + config.getMachineName() + " ...");
+			logger.log(Level.INFO, "--------------------------------------------");
 
-		// Do initial check out remote repository preconditions
-		CleanupResultCode preconditionResult = checkPreconditions();
+			// Do initial check out remote repository preconditions
+			CleanupResultCode preconditionResult = checkPreconditions();
 
-		fireStartEvent();
-		if (preconditionResult != CleanupResultCode.OK) {
-			fireEndEvent();
-			return new CleanupOperationResult(preconditionResult);
-		}
+			fireStartEvent();
+			if (preconditionResult != CleanupResultCode.OK) {
+				fireEndEvent();
+				return new CleanupOperationResult(preconditionResult);
+			}
 
-		fireCleanupNeededEvent();
+			fireCleanupNeededEvent();
 
-		// At this point, the operation will lock the repository
-		startOperation();
+			// At this point, the operation will lock the repository
+			startOperation();
 
-		// If there are any, rollback any existing/old transactions.
-		// If other clients have unfinished transactions with deletions, do not proceed.
-		try {
-			transferManager.cleanTransactions();
-		}
-		catch (BlockingTransfersException ignored) {
-			finishOperation();
-			fireEndEvent();
-			return new CleanupOperationResult(CleanupResultCode.NOK_REPO_BLOCKED);
-		}
+			// If there are any, rollback any existing/old transactions.
+			// If other clients have unfinished transactions with deletions, do not proceed.
+			try {
+				transferManager.cleanTransactions();
+			}
+			catch (BlockingTransfersException ignored) {
+				finishOperation();
+				fireEndEvent();
+				return new CleanupOperationResult(CleanupResultCode.NOK_REPO_BLOCKED);
+			}
 
-		// Wait two seconds (conservative cleanup, see #104)
-		logger.log(Level.INFO, "Cleanup: Waiting a while to be sure that no other actions are running ...");
-		Thread.sleep(BEFORE_DOUBLE_CHECK_TIME);
+			// Wait two seconds (conservative cleanup, see #104)
+			logger.log(Level.INFO, "Cleanup: Waiting a while to be sure that no other actions are running ...");
+			Thread.sleep(BEFORE_DOUBLE_CHECK_TIME);
 
-		// Check again. No other clients should be busy, because we waited BEFORE_DOUBLE_CHECK_TIME
-		preconditionResult = checkPreconditions();
+			// Check again. No other clients should be busy, because we waited BEFORE_DOUBLE_CHECK_TIME
+			preconditionResult = checkPreconditions();
 
-		if (preconditionResult != CleanupResultCode.OK) {
-			finishOperation();
-			fireEndEvent();
-			return new CleanupOperationResult(preconditionResult);
-		}
+			if (preconditionResult != CleanupResultCode.OK) {
+				finishOperation();
+				fireEndEvent();
+				return new CleanupOperationResult(preconditionResult);
+			}
 
-		// If we do cleanup, we are no longer allowed to resume a transaction
-		transferManager.clearResumableTransactions();
-		transferManager.clearPendingTransactions();
+			// If we do cleanup, we are no longer allowed to resume a transaction
+			transferManager.clearResumableTransactions();
+			transferManager.clearPendingTransactions();
 
-		// Now do the actual work!
-		logger.log(Level.INFO, "Cleanup: Starting transaction.");
-		remoteTransaction = new RemoteTransaction(config, transferManager);
+			// Now do the actual work!
+			logger.log(Level.INFO, "Cleanup: Starting transaction.");
+			remoteTransaction = new RemoteTransaction(config, transferManager);
 
-		removeOldVersions();
+			removeOldVersions();
+			repackMultiChunks();
 
-		if (options.isRemoveUnreferencedTemporaryFiles()) {
-			transferManager.removeUnreferencedTemporaryFiles();
-		}
+			if (options.isRemoveUnreferencedTemporaryFiles()) {
+				transferManager.removeUnreferencedTemporaryFiles();
+			}
 
-		mergeRemoteFiles();
+			mergeRemoteFiles();
 
-		// We went succesfully through the entire operation and checked everything. Hence we update the last cleanup time.
-		updateLastCleanupTime();
+			// We went succesfully through the entire operation and checked everything. Hence we update the last cleanup time.
+			updateLastCleanupTime();
 
-		finishOperation();
-		fireEndEvent();
+			finishOperation();
+			fireEndEvent();
 
-		return updateResultCode(result);
+			return updateResultCode(result);
+		}
+		finally {
+			localDatabase.close();
+		}
 	}
 
 	/**
@@ -196,7 +216,9 @@ public class CleanupOperation extends AbstractTransferOperation {
 	 * @return result The original result, with the relevant {@link CleanupResultCode}
 	 */
 	private CleanupOperationResult updateResultCode(CleanupOperationResult result) {
-		if (result.getMergedDatabaseFilesCount() > 0 || result.getRemovedMultiChunksCount() > 0 || result.getRemovedOldVersionsCount() > 0) {
+		if (result.getMergedDatabaseFilesCount() > 0 || result.getRemovedMultiChunksCount() > 0 || result.getRemovedOldVersionsCount() > 0
+				|| result.getRepackedMultiChunksCount() > 0) {
+
 			result.setResultCode(CleanupResultCode.OK);
 		}
 		else {
@@ -376,6 +398,165 @@ public class CleanupOperation extends AbstractTransferOperation {
 		}
 	}
 
+	/**
+	 * This method repacks multichunks whose live data ratio is below the configured ratio, i.e. multichunks
+	 * whose chunks are mostly unused, but not entirely. The live chunks of these multichunks are downloaded and
+	 * written to new multichunks. The old multichunks are replaced by the new ones in the local database, and the
+	 * corresponding uploads and deletions are added to the {@link RemoteTransaction}.
+	 *
+	 * <p>Only multichunks of the same {@link DatabaseVersion} are packed together, so that a multichunk always
+	 * belongs to the database version that introduced its chunks. The total size of the repacked multichunks
+	 * per cleanup run is limited by {@link CleanupOperationOptions#getMaxRepackSize()}.
+	 */
+	private void repackMultiChunks() throws Exception {
+		if (!options.isRepackMultiChunks()) {
+			logger.log(Level.INFO, "- Multichunk repacking: Disabled.");
+			return;
+		}
+
+		SortedMap<Long, List<MultiChunkEntry>> repackMultiChunks = localDatabase.getRepackMultiChunks(options.getMaxRepackLiveRatio(),
+				options.getMaxRepackSize());
+
+		if (repackMultiChunks.isEmpty()) {
+			logger.log(Level.INFO, "- Multichunk repacking: Not necessary.");
+			return;
+		}
+
+		// Download live chunks (only these, if the multichunker and the transfer manager allow it)
+		Map<MultiChunkId, Set<ChunkChecksum>> liveChunks = new HashMap<MultiChunkId, Set<ChunkChecksum>>();
+
+		for (List<MultiChunkEntry> multiChunkEntries : repackMultiChunks.values()) {
+			for (MultiChunkEntry multiChunkEntry : multiChunkEntries) {
+				liveChunks.put(multiChunkEntry.getId(), new HashSet<ChunkChecksum>(multiChunkEntry.getChunks()));
+			}
+		}
+
+		logger.log(Level.INFO, "- Multichunk repacking: Found {0} multichunk(s) with a live data ratio below {1}.", new Object[] {
+				liveChunks.size(), options.getMaxRepackLiveRatio() });
+
+		new Downloader(config, transferManager).downloadAndDecryptMultiChunks(liveChunks);
+
+		// Write new multichunks, and replace the old multichunks locally and remotely
+		int repackedMultiChunksCount = 0;
+		long repackedMultiChunksFreedSize = 0;
+
+		try {
+			for (Map.Entry<Long, List<MultiChunkEntry>> repackMultiChunksEntry : repackMultiChunks.entrySet()) {
+				long databaseVersionId = repackMultiChunksEntry.getKey();
+				List<MultiChunkEntry> oldMultiChunks = repackMultiChunksEntry.getValue();
+				List<MultiChunkEntry> newMultiChunks = writeRepackedMultiChunks(oldMultiChunks);
+
+				localDatabase.replaceMultiChunks(databaseVersionId, oldMultiChunks, newMultiChunks);
+
+				for (MultiChunkEntry oldMultiChunk : oldMultiChunks) {
+					logger.log(Level.FINE, "  + Deleting repacked remote multichunk " + oldMultiChunk + " ...");
+					remoteTransaction.delete(new MultichunkRemoteFile(oldMultiChunk.getId()));
+
+					repackedMultiChunksCount++;
+					repackedMultiChunksFreedSize += oldMultiChunk.getSize();
+				}
+
+				for (MultiChunkEntry newMultiChunk : newMultiChunks) {
+					File localMultiChunkFile = config.getCache().getEncryptedMultiChunkFile(newMultiChunk.getId());
+
+					logger.log(Level.FINE, "  + Uploading new multichunk " + newMultiChunk + " ...");
+					remoteTransaction.upload(localMultiChunkFile, new MultichunkRemoteFile(newMultiChunk.getId()));
+
+					repackedMultiChunksFreedSize -= newMultiChunk.getSize();
+				}
+			}
+		}
+		finally {
+			for (MultiChunkId repackedMultiChunkId : liveChunks.keySet()) {
+				config.getCache().getDecryptedMultiChunkFile(repackedMultiChunkId).delete();
+			}
+		}
+
+		logger.log(Level.INFO, "- Multichunk repacking: Repacked {0} multichunk(s), freed {1} byte(s).", new Object[] { repackedMultiChunksCount,
+				repackedMultiChunksFreedSize });
+
+		// Update stats
+		result.setRepackedMultiChunksCount(repackedMultiChunksCount);
+		result.setRepackedMultiChunksFreedSize(repackedMultiChunksFreedSize);
+	}
+
+	/**
+	 * This method writes the live chunks of the given (downloaded) multichunks to new multichunks in
+	 * the local cache, the same way the {@link Deduper} does. Each chunk is verified against its checksum 
+	 * before it is written, so that tampered multichunks are not repacked.
+	 *
+	 * @param oldMultiChunks Multichunks to be repacked; containing only the chunks that are still used
+	 * @return Returns the new multichunks, including their chunks and sizes
+	 */
+	private List<MultiChunkEntry> writeRepackedMultiChunks(List<MultiChunkEntry> oldMultiChunks) throws IOException, NoSuchAlgorithmException {
+		MultiChunker multiChunker = config.getMultiChunker();
+		MessageDigest chunkDigest = MessageDigest.getInstance(config.getChunker().getChecksumAlgorithm());
+
+		List<MultiChunkEntry> newMultiChunkEntries = new ArrayList<MultiChunkEntry>();
+		Set<ChunkChecksum> writtenChunks = new HashSet<ChunkChecksum>();
+
+		MultiChunk newMultiChunk = null;
+		MultiChunkEntry newMultiChunkEntry = null;
+
+		for (MultiChunkEntry oldMultiChunkEntry : oldMultiChunks) {
+			MultiChunk oldMultiChunk = multiChunker.createMultiChunk(config.getCache().getDecryptedMultiChunkFile(oldMultiChunkEntry.getId()));
+
+			try {
+				for (ChunkChecksum chunkChecksum : oldMultiChunkEntry.getChunks()) {
+					if (!writtenChunks.add(chunkChecksum)) {
+						continue; // Chunk is in more than one multichunk
+					}
+
+					Chunk chunk = oldMultiChunk.read(chunkChecksum.getBytes());
+
+					if (chunk == null || !Arrays.equals(chunkDigest.digest(chunk.getContent()), chunkChecksum.getBytes())) {
+						throw new IOException("Chunk " + chunkChecksum + " of multichunk " + oldMultiChunkEntry.getId()
+								+ " is missing or does not match its checksum. The multichunk might have been tampered with!");
+					}
+
+					// Close multichunk if full, and open new multichunk if necessary
+					if (newMultiChunk != null && newMultiChunk.isFull()) {
+						newMultiChunk.close();
+						newMultiChunkEntry.setSize(newMultiChunk.getSize());
+
+						newMultiChunk = null;
+					}
+
+					if (newMultiChunk == null) {
+						newMultiChunkEntry = new MultiChunkEntry(MultiChunkId.secureRandomMultiChunkId(), 0);
+						newMultiChunkEntries.add(newMultiChunkEntry);
+
+						newMultiChunk = createRepackedMultiChunk(multiChunker, newMultiChunkEntry.getId());
+					}
+
+					newMultiChunk.write(chunk);
+					newMultiChunkEntry.addChunk(chunkChecksum);
+				}
+			}
+			finally {
+				oldMultiChunk.close();
+			}
+		}
+
+		if (newMultiChunk != null) {
+			newMultiChunk.close();
+			newMultiChunkEntry.setSize(newMultiChunk.getSize());
+		}
+
+		return newMultiChunkEntries;
+	}
+
+	private MultiChunk createRepackedMultiChunk(MultiChunker multiChunker, MultiChunkId multiChunkId) throws IOException {
+		File multiChunkFile = config.getCache().getEncryptedMultiChunkFile(multiChunkId);
+		OutputStream multiChunkOutputStream = new FileOutputStream(multiChunkFile);
+
+		if (!multiChunker.isTransformingChunks()) {
+			multiChunkOutputStream = config.getTransformer().createOutputStream(multiChunkOutputStream);
+		}
+
+		return multiChunker.createMultiChunk(multiChunkId, multiChunkOutputStream);
+	}
+
 	private boolean hasDirtyDatabaseVersions() {
 		Iterator<DatabaseVersion> dirtyDatabaseVersions = localDatabase.getDirtyDatabaseVersions();
 		return dirtyDatabaseVersions.hasNext(); // TODO [low] Is this a resource creeper?
@@ -470,7 +651,7 @@ public class CleanupOperation extends AbstractTransferOperation {
 	 *
 	 * @param allDatabaseFilesMap used to determine if there are too many database files.
 	 *
-	 * @return true if there are too many database files or we have removed FileVersions, false otherwise.
+	 * @return true if there are too many database files or we have removed FileVersions or repacked multichunks, false otherwise.
 	 */
 	private boolean needMerge(Map<String, List<DatabaseRemoteFile>> allDatabaseFilesMap) {
 		int numberOfDatabaseFiles = 0;
@@ -483,8 +664,9 @@ public class CleanupOperation extends AbstractTransferOperation {
 		int maxDatabaseFiles = options.getMaxDatabaseFiles() * allDatabaseFilesMap.keySet().size();
 		boolean tooManyDatabaseFiles = numberOfDatabaseFiles > maxDatabaseFiles;
 		boolean removedOldVersions = result.getRemovedOldVersionsCount() > 0;
+		boolean repackedMultiChunks = result.getRepackedMultiChunksCount() > 0;
 
-		return removedOldVersions || tooManyDatabaseFiles || options.isForce();
+		return removedOldVersions || repackedMultiChunks || tooManyDatabaseFiles || options.isForce();
 	}
 
 	/**
@@ -492,6 +674,10 @@ public class CleanupOperation extends AbstractTransferOperation {
 	 * database files. This is done by querying the local database for all {@link DatabaseVersion}s by this client and
 	 * serializing them.
 	 *
+	 * <p>The database versions are streamed from the local database to the serializer: Neither the database versions
+	 * nor their contents are loaded all at once, but in batches of at most {@link CleanupOperationOptions#getMergeBatchSize()}
+	 * entries, so that the memory needed does not grow with the size of the history.
+	 *
 	 * @param clientName for which we want to write the merged dataabse file.
 	 * @param allMergedDatabaseFiles Map where we add the merged file once it is written.
 	 */
@@ -508,9 +694,10 @@ public class CleanupOperation extends AbstractTransferOperation {
 		logger.log(Level.INFO, "   + Writing new merge file (all files up to {0}) to {1} ...", new Object[] { lastClientVersion,
 				newLocalMergeDatabaseFile });
 
-		Iterator<DatabaseVersion> lastNDatabaseVersions = localDatabase.getDatabaseVersionsTo(clientName, lastClientVersion);
+		Iterator<DatabaseVersion> lastNDatabaseVersions = localDatabase.getDatabaseVersionsTo(clientName, lastClientVersion,
+				options.getMergeBatchSize());
 
-		DatabaseXmlSerializer databaseDAO = new DatabaseXmlSerializer(config.getTransformer());
+		DatabaseSerializer databaseDAO = DatabaseSerializer.getInstance(config.getDatabaseFormat(), config.getTransformer());
 		databaseDAO.save(lastNDatabaseVersions, newLocalMergeDatabaseFile);
 		allMergedDatabaseFiles.put(newLocalMergeDatabaseFile, newRemoteMergeDatabaseFile);
 	}
@@ -41,6 +41,18 @@ public class CleanupOperationOptions implements OperationOptions {
 	@Element(required = false)
 	private boolean removeUnreferencedTemporaryFiles = true;
 
+	@Element(required = false)
+	private boolean repackMultiChunks = true;
+
+	@Element(required = false)
+	private double maxRepackLiveRatio = 0.5;
+
+	@Element(required = false)
+	private long maxRepackSize = 100 * 1024 * 1024; // 100 MB
+
+	@Element(required = false)
+	private int mergeBatchSize = 1000;
+
 	@Element(required = false)
 	private long minKeepDeletedSeconds = 30 * 24 * 60 * 60; // 30 days
 
@@ -89,6 +101,56 @@ public class CleanupOperationOptions implements OperationOptions {
 		this.removeUnreferencedTemporaryFiles = removeUnreferencedTemporaryFiles;
 	}
 
+	public boolean isRepackMultiChunks() {
+		return repackMultiChunks;
+	}
+
+	public void setRepackMultiChunks(boolean repackMultiChunks) {
+		this.repackMultiChunks = repackMultiChunks;
+	}
+
+	/**
+	 * Returns the live data ratio below which a multichunk is repacked. The live
+	 * data ratio of a multichunk is the size of its chunks that are still used by a file
+	 * relative to the multichunk size.
+	 */
+	public double getMaxRepackLiveRatio() {
+		return maxRepackLiveRatio;
+	}
+
+	public void setMaxRepackLiveRatio(double maxRepackLiveRatio) {
+		this.maxRepackLiveRatio = maxRepackLiveRatio;
+	}
+
+	/**
+	 * Returns the maximum total size of the multichunks that are repacked
+	 * in a single cleanup run (in bytes).
+	 */
+	public long getMaxRepackSize() {
+		return maxRepackSize;
+	}
+
+	public void setMaxRepackSize(long maxRepackSize) {
+		this.maxRepackSize = maxRepackSize;
+	}
+
+	/**
+	 * Returns the maximum number of database versions, chunks, multichunks, file contents
+	 * and file histories that are loaded from the local database at once when writing 
+	 * the merged database files.
+	 */
+	public int getMergeBatchSize() {
+		return mergeBatchSize;
+	}
+
+	public void setMergeBatchSize(int mergeBatchSize) {
+		if (mergeBatchSize <= 0) {
+			throw new IllegalArgumentException("Merge batch size must be greater than zero: " + mergeBatchSize);
+		}
+
+		this.mergeBatchSize = mergeBatchSize;
+	}
+
 	public void setMaxDatabaseFiles(int maxDatabaseFiles) {
 		this.maxDatabaseFiles = maxDatabaseFiles;
 	}
@@ -40,6 +40,12 @@ public class CleanupOperationResult implements OperationResult {
 	@Element(name = "removedMultiChunksSize", required = false)
 	private long removedMultiChunksSize;
 
+	@Element(name = "repackedMultiChunksCount", required = false)
+	private int repackedMultiChunksCount;
+
+	@Element(name = "repackedMultiChunksFreedSize", required = false)
+	private long repackedMultiChunksFreedSize;
+
 	public CleanupOperationResult() {
 		this(CleanupResultCode.OK_NOTHING_DONE);
 	}
@@ -50,6 +56,8 @@ public class CleanupOperationResult implements OperationResult {
 		this.removedOldVersionsCount = 0;
 		this.removedMultiChunksCount = 0;
 		this.removedMultiChunksSize = 0L;
+		this.repackedMultiChunksCount = 0;
+		this.repackedMultiChunksFreedSize = 0L;
 	}
 
 	public void setResultCode(CleanupResultCode resultCode) {
@@ -91,4 +99,20 @@ public class CleanupOperationResult implements OperationResult {
 	public void setRemovedMultiChunksSize(long removedMultiChunksSize) {
 		this.removedMultiChunksSize = removedMultiChunksSize;
 	}
+
+	public int getRepackedMultiChunksCount() {
+		return repackedMultiChunksCount;
+	}
+
+	public void setRepackedMultiChunksCount(int repackedMultiChunksCount) {
+		this.repackedMultiChunksCount = repackedMultiChunksCount;
+	}
+
+	public long getRepackedMultiChunksFreedSize() {
+		return repackedMultiChunksFreedSize;
+	}
+
+	public void setRepackedMultiChunksFreedSize(long repackedMultiChunksFreedSize) {
+		this.repackedMultiChunksFreedSize = repackedMultiChunksFreedSize;
+	}
 }
\ No newline at end of file
@@ -33,6 +33,7 @@ import org.syncany.config.to.FolderTO;
 import org.syncany.config.to.PortTO;
 import org.syncany.config.to.UserTO;
 import org.syncany.crypto.CipherUtil;
+import org.syncany.crypto.MasterKeyCache;
 import org.syncany.operations.Operation;
 import org.syncany.operations.daemon.ControlServer.ControlCommand;
 import org.syncany.operations.daemon.DaemonOperationOptions.DaemonAction;
@@ -250,6 +251,8 @@ public class DaemonOperation extends Operation {
 	private void stopOperation() {
 		stopWebServer();
 		stopWatchServer();
+		
+		MasterKeyCache.clear();
 	}
 	
 	private void reloadOperation() {
@@ -18,6 +18,10 @@
 package org.syncany.operations.daemon;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,10 +30,13 @@ import org.syncany.config.Config;
 import org.syncany.config.ConfigException;
 import org.syncany.config.LocalEventBus;
 import org.syncany.config.to.PortTO;
+import org.syncany.database.SqlDatabase;
+import org.syncany.database.SqlDatabasePool;
 import org.syncany.operations.daemon.messages.AlreadySyncingResponse;
 import org.syncany.operations.daemon.messages.BadRequestResponse;
 import org.syncany.operations.daemon.messages.api.FolderRequest;
 import org.syncany.operations.daemon.messages.api.FolderRequestHandler;
+import org.syncany.operations.daemon.messages.api.ReadOnlyFolderRequestHandler;
 import org.syncany.operations.daemon.messages.api.Response;
 import org.syncany.operations.watch.WatchOperation;
 import org.syncany.operations.watch.WatchOperationOptions;
@@ -42,6 +49,13 @@ import com.google.common.eventbus.Subscribe;
  * underlying thred can be started using the {@link #start()} method, and stopped
  * gracefully using {@link #stop()}.
  *
+ * <p>Folder requests are handled in one of two ways: Requests that only read from the
+ * local database (see {@link ReadOnlyFolderRequestHandler}) are run concurrently in a small
+ * thread pool, each with a read-only database from the folder's {@link SqlDatabasePool}.
+ * They only see committed data, and wait for a running sync to commit if they read tables
+ * it has changed. All other
+ * requests pause the watch operation, or are discarded if a sync is currently running.
+ *
  * @author Philipp C. Heckel <philipp.heckel@gmail.com>
  */
 public class WatchRunner {
@@ -54,11 +68,17 @@ public class WatchRunner {
 	private WatchOperationResult watchOperationResult;
 	private LocalEventBus eventBus;
 
+	private SqlDatabasePool readDatabasePool;
+	private ExecutorService readRequestExecutor;
+
 	public WatchRunner(Config config, WatchOperationOptions watchOperationOptions, PortTO portTO) throws ConfigException {
 		this.config = config;
 		this.portTO = portTO;
 		this.watchOperation = new WatchOperation(config, watchOperationOptions);
 
+		this.readDatabasePool = new SqlDatabasePool(config);
+		this.readRequestExecutor = Executors.newFixedThreadPool(readDatabasePool.getMaxPoolSize(), new ReadRequestThreadFactory());
+
 		this.eventBus = LocalEventBus.getInstance();
 		this.eventBus.register(this);
 	}
@@ -97,6 +117,9 @@ public class WatchRunner {
 		watchOperation.stop();
 		config.getPortFile().delete();
 
+		readRequestExecutor.shutdown();
+		readDatabasePool.close();
+
 		watchThread = null;
 	}
 
@@ -117,10 +140,14 @@ public class WatchRunner {
 			logger.log(Level.INFO, "Received " + folderRequest);
 
 			try {
-				if (!watchOperation.isSyncRunning() && !watchOperation.isSyncRequested()) {
+				FolderRequestHandler handler = FolderRequestHandler.createFolderRequestHandler(folderRequest, config);
+
+				if (handler instanceof ReadOnlyFolderRequestHandler) {
+					handleReadOnlyRequest(folderRequest, (ReadOnlyFolderRequestHandler) handler);
+				}
+				else if (!watchOperation.isSyncRunning() && !watchOperation.isSyncRequested()) {
 					watchOperation.pause();
 
-					FolderRequestHandler handler = FolderRequestHandler.createFolderRequestHandler(folderRequest, config);
 					Response response = handler.handleRequest(folderRequest);
 
 					if (response != null) {
@@ -140,4 +167,42 @@ public class WatchRunner {
 			}
 		}
 	}
+
+	private void handleReadOnlyRequest(final FolderRequest folderRequest, final ReadOnlyFolderRequestHandler handler) {
+		readRequestExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					SqlDatabase readDatabase = readDatabasePool.borrow();
+
+					try {
+						Response response = handler.handleRequest(folderRequest, readDatabase);
+
+						if (response != null) {
+							eventBus.post(response);
+						}
+					}
+					finally {
+						readDatabasePool.release(readDatabase);
+					}
+				}
+				catch (Exception e) {
+					logger.log(Level.FINE, "Failed to process read-only request", e);
+					eventBus.post(new BadRequestResponse(folderRequest.getId(), "Invalid request."));
+				}
+			}
+		});
+	}
+
+	private class ReadRequestThreadFactory implements ThreadFactory {
+		private AtomicInteger threadNumber = new AtomicInteger(1);
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "WR-Read/" + config.getLocalDir().getName() + "/" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+
+			return thread;
+		}
+	}
 }
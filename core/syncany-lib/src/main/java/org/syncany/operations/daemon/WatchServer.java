@@ -116,6 +116,7 @@ public class WatchServer {
 	private void startWatchOperations(Map<File, FolderTO> newWatchedFolderTOs) throws ConfigException, ServiceAlreadyStartedException {
 		for (Map.Entry<File, FolderTO> folderEntry : newWatchedFolderTOs.entrySet()) {
 			File localDir = folderEntry.getKey();
+			long folderStartTime = System.currentTimeMillis();
 
 			try {
 				Config watchConfig = ConfigHelper.loadConfig(localDir);
@@ -133,6 +134,8 @@ public class WatchServer {
 					watchRunner.start();
 
 					watchOperations.put(localDir, watchRunner);
+
+					logger.log(Level.INFO, "- Started watch operation at " + localDir + " in " + (System.currentTimeMillis() - folderStartTime) + " ms");
 				}
 				else {
 					logger.log(Level.INFO, "- CANNOT start watch, because no config found at " + localDir + " ...");
@@ -18,8 +18,11 @@
 package org.syncany.operations.daemon.messages;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 
 import org.syncany.config.Config;
@@ -66,7 +69,18 @@ public class GetFileFolderRequestHandler extends FolderRequestHandler {
 			Downloader downloader = new Downloader(config, transferManager);
 			Assembler assembler = new Assembler(config, localDatabase);
 
-			downloader.downloadAndDecryptMultiChunks(new HashSet<MultiChunkId>(multiChunks.values()));
+			Map<MultiChunkId, Set<ChunkChecksum>> multiChunksToDownload = new HashMap<MultiChunkId, Set<ChunkChecksum>>();
+			
+			for (Map.Entry<ChunkChecksum, MultiChunkId> multiChunkEntry : multiChunks.entrySet()) {
+				if (!multiChunksToDownload.containsKey(multiChunkEntry.getValue())) {
+					multiChunksToDownload.put(multiChunkEntry.getValue(), new HashSet<ChunkChecksum>());
+				}
+				
+				multiChunksToDownload.get(multiChunkEntry.getValue()).add(multiChunkEntry.getKey());
+			}
+
+			assembler.removeLocalChunks(multiChunksToDownload, Collections.<String> emptySet());
+			downloader.downloadAndDecryptMultiChunks(multiChunksToDownload);
 
 			File tempFile = assembler.assembleToCache(fileVersion);
 			String tempFileToken = StringUtil.toHex(ObjectId.secureRandomBytes(40));
@@ -81,5 +95,8 @@ public class GetFileFolderRequestHandler extends FolderRequestHandler {
 			logger.log(Level.WARNING, "Cannot reassemble file.", e);
 			return new BadRequestResponse(concreteRequest.getId(), "Cannot reassemble file.");
 		}
+		finally {
+			localDatabase.close();
+		}
 	}
 }
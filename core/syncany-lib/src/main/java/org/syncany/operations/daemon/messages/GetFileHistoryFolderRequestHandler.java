@@ -24,21 +24,18 @@ import org.syncany.database.FileVersion;
 import org.syncany.database.PartialFileHistory.FileHistoryId;
 import org.syncany.database.SqlDatabase;
 import org.syncany.operations.daemon.messages.api.FolderRequest;
-import org.syncany.operations.daemon.messages.api.FolderRequestHandler;
+import org.syncany.operations.daemon.messages.api.ReadOnlyFolderRequestHandler;
 import org.syncany.operations.daemon.messages.api.Response;
 
 @Deprecated
 // TODO [medium] The file history id should be selectable via 'LsRequest'
-public class GetFileHistoryFolderRequestHandler extends FolderRequestHandler {
-	private SqlDatabase localDatabase;
-
+public class GetFileHistoryFolderRequestHandler extends ReadOnlyFolderRequestHandler {
 	public GetFileHistoryFolderRequestHandler(Config config) {
 		super(config);
-		this.localDatabase = new SqlDatabase(config);
 	}
 
 	@Override
-	public Response handleRequest(FolderRequest request) {
+	public Response handleRequest(FolderRequest request, SqlDatabase localDatabase) {
 		GetFileHistoryFolderRequest concreteRequest = (GetFileHistoryFolderRequest) request;
 		
 		FileHistoryId fileHistoryId = FileHistoryId.parseFileId(concreteRequest.getFileHistoryId());
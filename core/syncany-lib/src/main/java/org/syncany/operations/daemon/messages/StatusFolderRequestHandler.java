@@ -20,23 +20,24 @@ package org.syncany.operations.daemon.messages;
 import java.util.logging.Level;
 
 import org.syncany.config.Config;
+import org.syncany.database.SqlDatabase;
 import org.syncany.operations.daemon.messages.api.FolderRequest;
-import org.syncany.operations.daemon.messages.api.FolderRequestHandler;
+import org.syncany.operations.daemon.messages.api.ReadOnlyFolderRequestHandler;
 import org.syncany.operations.daemon.messages.api.Response;
 import org.syncany.operations.status.StatusOperation;
 import org.syncany.operations.status.StatusOperationResult;
 
-public class StatusFolderRequestHandler extends FolderRequestHandler {
+public class StatusFolderRequestHandler extends ReadOnlyFolderRequestHandler {
 	public StatusFolderRequestHandler(Config config) {
 		super(config);
 	}
 
 	@Override
-	public Response handleRequest(FolderRequest request) {
+	public Response handleRequest(FolderRequest request, SqlDatabase localDatabase) {
 		StatusFolderRequest concreteRequest = (StatusFolderRequest) request;
 
 		try {
-			StatusOperation operation = new StatusOperation(config, concreteRequest.getOptions());
+			StatusOperation operation = new StatusOperation(config, concreteRequest.getOptions(), localDatabase);
 			StatusOperationResult operationResult = operation.execute();
 			StatusFolderResponse statusFolderResponse = new StatusFolderResponse(operationResult, request.getId());
 		
@@ -0,0 +1,52 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.operations.daemon.messages.api;
+
+import org.syncany.config.Config;
+import org.syncany.database.SqlDatabase;
+import org.syncany.database.SqlDatabasePool;
+
+/**
+ * Base class for folder request handlers that only read from the local database.
+ *
+ * <p>Unlike other folder requests, read-only requests do not have to wait for (or be
+ * discarded because of) a running sync. The daemon runs them concurrently with a read-only
+ * database borrowed from its {@link SqlDatabasePool}. Outside of the daemon,
+ * {@link #handleRequest(FolderRequest)} opens a new read-only database.
+ *
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public abstract class ReadOnlyFolderRequestHandler extends FolderRequestHandler {
+	public ReadOnlyFolderRequestHandler(Config config) {
+		super(config);
+	}
+
+	@Override
+	public Response handleRequest(FolderRequest request) {
+		SqlDatabase localDatabase = new SqlDatabase(config, true);
+
+		try {
+			return handleRequest(request, localDatabase);
+		}
+		finally {
+			localDatabase.close();
+		}
+	}
+
+	public abstract Response handleRequest(FolderRequest request, SqlDatabase localDatabase);
+}
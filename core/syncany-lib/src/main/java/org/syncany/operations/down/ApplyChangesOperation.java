@@ -17,7 +17,7 @@
  */
 package org.syncany.operations.down;
 
-import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +33,7 @@ import org.syncany.database.MemoryDatabase;
 import org.syncany.database.MultiChunkEntry.MultiChunkId;
 import org.syncany.database.PartialFileHistory;
 import org.syncany.database.SqlDatabase;
+import org.syncany.operations.Assembler;
 import org.syncany.operations.Downloader;
 import org.syncany.operations.Operation;
 import org.syncany.operations.OperationResult;
@@ -66,10 +67,18 @@ public class ApplyChangesOperation extends Operation {
 	private DownOperationResult result;
 	
 	private boolean cleanupOccurred;
-	private List<PartialFileHistory> preDeleteFileHistoriesWithLastVersion;
+	private List<PartialFileHistory> localFileHistoriesWithLastVersion;
 
+	/**
+	 * Creates a new apply changes operation.
+	 * 
+	 * <p>The file system actions are determined by comparing the winners database to the given
+	 * local file histories. If the local file histories are <tt>null</tt>, they are read from the
+	 * local database. They must be given if the local database has already been altered, i.e.
+	 * after a cleanup (database deleted), or if the winners database has already been persisted.
+	 */
 	public ApplyChangesOperation(Config config, SqlDatabase localDatabase, TransferManager transferManager, MemoryDatabase winnersDatabase,
-			DownOperationResult result, boolean cleanupOccurred, List<PartialFileHistory> preDeleteFileHistoriesWithLastVersion) {
+			DownOperationResult result, boolean cleanupOccurred, List<PartialFileHistory> localFileHistoriesWithLastVersion) {
 		
 		super(config);
 		
@@ -78,27 +87,29 @@ public class ApplyChangesOperation extends Operation {
 		this.winnersDatabase = winnersDatabase;
 		this.result = result;
 		this.cleanupOccurred = cleanupOccurred;
-		this.preDeleteFileHistoriesWithLastVersion = preDeleteFileHistoriesWithLastVersion;
+		this.localFileHistoriesWithLastVersion = localFileHistoriesWithLastVersion;
 	}
 
 	@Override
 	public OperationResult execute() throws Exception {
 		logger.log(Level.INFO, "Determine file system actions ...");		
 		
-		FileSystemActionReconciliator actionReconciliator = new FileSystemActionReconciliator(config, result.getChangeSet());
+		FileSystemActionReconciliator actionReconciliator = new FileSystemActionReconciliator(config, localDatabase, result.getChangeSet());
 		List<FileSystemAction> actions;
 		
-		if (cleanupOccurred) {
-			actions = actionReconciliator.determineFileSystemActions(winnersDatabase, true, preDeleteFileHistoriesWithLastVersion);
+		if (localFileHistoriesWithLastVersion != null) {
+			actions = actionReconciliator.determineFileSystemActions(winnersDatabase, cleanupOccurred, localFileHistoriesWithLastVersion);
 		}
 		else {
 			actions = actionReconciliator.determineFileSystemActions(winnersDatabase);
 		}
+		
+		useLocalDatabaseForAssembly(actions);
 
-		Set<MultiChunkId> unknownMultiChunks = determineRequiredMultiChunks(actions, winnersDatabase);
+		Map<MultiChunkId, Set<ChunkChecksum>> unknownMultiChunks = determineRequiredMultiChunks(actions, winnersDatabase);
 		
 		downloader.downloadAndDecryptMultiChunks(unknownMultiChunks);
-		result.getDownloadedMultiChunks().addAll(unknownMultiChunks);
+		result.getDownloadedMultiChunks().addAll(unknownMultiChunks.keySet());
 
 		applyFileSystemActions(actions);
 		
@@ -107,65 +118,110 @@ public class ApplyChangesOperation extends Operation {
 	
 	/**
 	 * Finds the multichunks that need to be downloaded to apply the given file system actions.
-	 * The method looks at all {@link FileCreatingFileSystemAction}s and returns their multichunks. 
+	 * The method looks at all {@link FileCreatingFileSystemAction}s and returns their multichunks,
+	 * together with the chunks required from each multichunk. 
 	 */
-	private Set<MultiChunkId> determineRequiredMultiChunks(List<FileSystemAction> actions, MemoryDatabase winnersDatabase) {
-		Set<MultiChunkId> multiChunksToDownload = new HashSet<MultiChunkId>();
+	private Map<MultiChunkId, Set<ChunkChecksum>> determineRequiredMultiChunks(List<FileSystemAction> actions, MemoryDatabase winnersDatabase) {
+		Map<MultiChunkId, Set<ChunkChecksum>> multiChunksToDownload = new HashMap<MultiChunkId, Set<ChunkChecksum>>();
 
 		for (FileSystemAction action : actions) {
-			if (action instanceof FileCreatingFileSystemAction) { // TODO [low] This adds ALL multichunks even though some might be available locally
-				multiChunksToDownload.addAll(determineMultiChunksToDownload(action.getFile2(), winnersDatabase));
+			if (action instanceof FileCreatingFileSystemAction) {
+				determineMultiChunksToDownload(action.getFile2(), winnersDatabase, multiChunksToDownload);
 			}
 		}
 
+		removeLocallyAvailableChunks(actions, winnersDatabase, multiChunksToDownload);
+		
 		return multiChunksToDownload;
 	}
 	
 	/**
 	 * Finds the multichunks that need to be downloaded for the given file version -- using the local 
-	 * database and given winners database. Returns a set of multichunk identifiers.
+	 * database and given winners database. Adds the multichunk identifiers and the required chunks
+	 * to the given map. 
 	 */
-	private Collection<MultiChunkId> determineMultiChunksToDownload(FileVersion fileVersion, MemoryDatabase winnersDatabase) {
-		Set<MultiChunkId> multiChunksToDownload = new HashSet<MultiChunkId>();
+	private void determineMultiChunksToDownload(FileVersion fileVersion, MemoryDatabase winnersDatabase,
+			Map<MultiChunkId, Set<ChunkChecksum>> multiChunksToDownload) {
 
-		// First: Check if we know this file locally!
-		List<MultiChunkId> multiChunkIds = localDatabase.getMultiChunkIds(fileVersion.getChecksum());
-		
-		if (multiChunkIds.size() > 0) {
-			multiChunksToDownload.addAll(multiChunkIds);
+		// First: Check if we know this file locally; if not, it must be from the winners database
+		FileContent fileContent = localDatabase.getFileContent(fileVersion.getChecksum(), true);
+
+		if (fileContent == null) {
+			fileContent = winnersDatabase.getContent(fileVersion.getChecksum());
 		}
-		else {
-			// Second: We don't know it locally; must be from the winners database
-			FileContent winningFileContent = winnersDatabase.getContent(fileVersion.getChecksum());			
-			boolean winningFileHasContent = winningFileContent != null;
 
-			if (winningFileHasContent) { // File can be empty!
-				List<ChunkChecksum> fileChunks = winningFileContent.getChunks(); 
-				
-				// TODO [medium] Instead of just looking for multichunks to download here, we should look for chunks in local files as well
-				// and return the chunk positions in the local files ChunkPosition (chunk123 at file12, offset 200, size 250)
-				
-				Map<ChunkChecksum, MultiChunkId> checksumsWithMultiChunkIds = localDatabase.getMultiChunkIdsByChecksums(fileChunks);
-				
-				for (ChunkChecksum chunkChecksum : fileChunks) {
-					MultiChunkId multiChunkIdForChunk = checksumsWithMultiChunkIds.get(chunkChecksum);
-					if (multiChunkIdForChunk == null) {
-						multiChunkIdForChunk = winnersDatabase.getMultiChunkIdForChunk(chunkChecksum);
-						
-						if (multiChunkIdForChunk == null) {
-							throw new RuntimeException("Cannot find multichunk for chunk "+chunkChecksum);	
-						}
-					}
+		boolean fileHasContent = fileContent != null;
+
+		if (fileHasContent) { // File can be empty!
+			List<ChunkChecksum> fileChunks = fileContent.getChunks(); 
+			
+			Map<ChunkChecksum, MultiChunkId> checksumsWithMultiChunkIds = localDatabase.getMultiChunkIdsByChecksums(fileChunks);
+			
+			for (ChunkChecksum chunkChecksum : fileChunks) {
+				MultiChunkId multiChunkIdForChunk = checksumsWithMultiChunkIds.get(chunkChecksum);
+				if (multiChunkIdForChunk == null) {
+					multiChunkIdForChunk = winnersDatabase.getMultiChunkIdForChunk(chunkChecksum);
 					
-					if (!multiChunksToDownload.contains(multiChunkIdForChunk)) {
-						logger.log(Level.INFO, "  + Adding multichunk " + multiChunkIdForChunk + " to download list ...");
-						multiChunksToDownload.add(multiChunkIdForChunk);
+					if (multiChunkIdForChunk == null) {
+						throw new RuntimeException("Cannot find multichunk for chunk "+chunkChecksum);	
 					}
 				}
+				
+				Set<ChunkChecksum> requiredChunks = multiChunksToDownload.get(multiChunkIdForChunk);
+				
+				if (requiredChunks == null) {
+					logger.log(Level.INFO, "  + Adding multichunk " + multiChunkIdForChunk + " to download list ...");
+
+					requiredChunks = new HashSet<ChunkChecksum>();
+					multiChunksToDownload.put(multiChunkIdForChunk, requiredChunks);
+				}
+				
+				requiredChunks.add(chunkChecksum);
 			}
 		}
+	}
+	
+	/**
+	 * Removes all chunks from the download list that can be read from unchanged local files,
+	 * e.g. because a file has been moved or copied on another client. Files touched by any
+	 * of the given file system actions are not used as chunk sources, because they might
+	 * be altered or removed before the new files are assembled. 
+	 */
+	private void removeLocallyAvailableChunks(List<FileSystemAction> actions, MemoryDatabase winnersDatabase,
+			Map<MultiChunkId, Set<ChunkChecksum>> multiChunksToDownload) {
+
+		if (multiChunksToDownload.isEmpty()) {
+			return;
+		}
 		
-		return multiChunksToDownload;
+		Set<String> touchedPaths = new HashSet<String>();
+
+		for (FileSystemAction action : actions) {
+			if (action.getFile1() != null) {
+				touchedPaths.add(action.getFile1().getPath());
+			}
+
+			if (action.getFile2() != null) {
+				touchedPaths.add(action.getFile2().getPath());
+			}
+		}
+
+		Assembler assembler = new Assembler(config, localDatabase, winnersDatabase);
+		assembler.removeLocalChunks(multiChunksToDownload, touchedPaths);
+	}
+	
+	/**
+	 * Lets all file creating actions use this operation's local database connection
+	 * to assemble files. Besides avoiding a new connection per file, this is required
+	 * if the local database contains uncommitted changes: Other connections would
+	 * block until these changes are committed.
+	 */
+	private void useLocalDatabaseForAssembly(List<FileSystemAction> actions) {
+		for (FileSystemAction action : actions) {
+			if (action instanceof FileCreatingFileSystemAction) {
+				((FileCreatingFileSystemAction) action).setLocalDatabase(localDatabase);
+			}
+		}
 	}
 	
 	/**
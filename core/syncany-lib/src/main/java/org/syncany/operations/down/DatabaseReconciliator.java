@@ -20,9 +20,11 @@ package org.syncany.operations.down;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,7 +49,8 @@ import org.syncany.database.VectorClock;
  * <p><b>Algorithm:</b>
  * <ol>
  *  <li>Input: Local branch, unknown remote branches</li>
- *  <li>Sort the databaseversions by vectorclocks, tiebreaking with timestamps.</li>
+ *  <li>Sort the databaseversions by vectorclocks, tiebreaking with timestamps. Since each branch is
+ *      already ordered, this is done by merging the per-client branches (see {@link #sortBranches(DatabaseBranches)}).</li>
  *  <li>Walk through the sorted list and construct the winning branch.
  * </ol>
  * 
@@ -112,8 +115,8 @@ public class DatabaseReconciliator {
 
 	public DatabaseBranch findWinnersApplyBranch(DatabaseBranch losersBranch, DatabaseBranch winnersBranch) {
 		logger.log(Level.INFO, "Finding winnersApplyBranch.");
-		logger.log(Level.INFO, "Losers Branch: " + losersBranch);
-		logger.log(Level.INFO, "Winners Branch: " + winnersBranch);
+		logger.log(Level.INFO, "Losers Branch: {0}", losersBranch);
+		logger.log(Level.INFO, "Winners Branch: {0}", winnersBranch);
 		DatabaseBranch winnersApplyBranch = new DatabaseBranch();
 
 		boolean applyBranchStarted = false;
@@ -205,11 +208,11 @@ public class DatabaseReconciliator {
 			boolean potentialWinnerWins = !emptyWinnerBranch && databaseVersionHeaderComparator.compare(potentialWinner, winnersBranch.getLast()) > 0;
 
 			if (emptyWinnerBranch || potentialWinnerWins) {
-				logger.log(Level.INFO, "Adding database version to winning branch: " + potentialWinner);
+				logger.log(Level.INFO, "Adding database version to winning branch: {0}", potentialWinner);
 				winnersBranch.add(potentialWinner);
 			}
 			else {
-				logger.log(Level.INFO, "Ignoring databaseVersion: " + potentialWinner);
+				logger.log(Level.INFO, "Ignoring databaseVersion: {0}", potentialWinner);
 			}
 		}
 
@@ -228,15 +231,71 @@ public class DatabaseReconciliator {
 		return null;
 	}
 
+	/**
+	 * Returns the database version headers of all branches as one list, sorted using the
+	 * {@link DatabaseVersionHeaderComparator}.
+	 *
+	 * <p>Instead of sorting all headers at once, every branch is sorted individually (which is a
+	 * linear operation, since branches are already ordered by the clients' logical time), and the
+	 * sorted branches are then merged using a heap with one cursor per client. For <tt>n</tt> headers
+	 * and <tt>k</tt> clients, this needs O(n log k) instead of O(n log n) vector clock comparisons.
+	 */
 	private List<DatabaseVersionHeader> sortBranches(DatabaseBranches allBranches) {
-		List<DatabaseVersionHeader> databaseVersionHeaders = new ArrayList<DatabaseVersionHeader>();
-		
+		final DatabaseVersionHeaderComparator databaseVersionHeaderComparator = new DatabaseVersionHeaderComparator(true);
+
+		PriorityQueue<BranchCursor> branchCursors = new PriorityQueue<BranchCursor>(Math.max(1, allBranches.getClients().size()),
+				new Comparator<BranchCursor>() {
+					@Override
+					public int compare(BranchCursor cursor1, BranchCursor cursor2) {
+						return databaseVersionHeaderComparator.compare(cursor1.current(), cursor2.current());
+					}
+				});
+
+		int databaseVersionHeaderCount = 0;
+
 		for (String client : allBranches.getClients()) {
-			databaseVersionHeaders.addAll(allBranches.getBranch(client).getAll());
+			List<DatabaseVersionHeader> sortedBranch = new ArrayList<DatabaseVersionHeader>(allBranches.getBranch(client).getAll());
+			Collections.sort(sortedBranch, databaseVersionHeaderComparator);
+
+			if (sortedBranch.size() > 0) {
+				branchCursors.add(new BranchCursor(sortedBranch));
+				databaseVersionHeaderCount += sortedBranch.size();
+			}
+		}
+
+		List<DatabaseVersionHeader> databaseVersionHeaders = new ArrayList<DatabaseVersionHeader>(databaseVersionHeaderCount);
+
+		while (!branchCursors.isEmpty()) {
+			BranchCursor branchCursor = branchCursors.poll();
+			databaseVersionHeaders.add(branchCursor.current());
+
+			if (branchCursor.next()) {
+				branchCursors.add(branchCursor);
+			}
 		}
-		
-		Collections.sort(databaseVersionHeaders, new DatabaseVersionHeaderComparator(true));
 
 		return databaseVersionHeaders;
 	}
+
+	/**
+	 * Points to the current position in a sorted list of database version headers
+	 * of one client. Used to merge the sorted branches in {@link #sortBranches(DatabaseBranches)}.
+	 */
+	private static class BranchCursor {
+		private List<DatabaseVersionHeader> sortedBranch;
+		private int position;
+
+		public BranchCursor(List<DatabaseVersionHeader> sortedBranch) {
+			this.sortedBranch = sortedBranch;
+			this.position = 0;
+		}
+
+		public DatabaseVersionHeader current() {
+			return sortedBranch.get(position);
+		}
+
+		public boolean next() {
+			return ++position < sortedBranch.size();
+		}
+	}
 }
@@ -21,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -29,6 +30,15 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,8 +50,8 @@ import org.syncany.database.MultiChunkEntry;
 import org.syncany.database.PartialFileHistory;
 import org.syncany.database.SqlDatabase;
 import org.syncany.database.VectorClock;
-import org.syncany.database.dao.DatabaseXmlSerializer;
-import org.syncany.database.dao.DatabaseXmlSerializer.DatabaseReadType;
+import org.syncany.database.dao.DatabaseSerializer;
+import org.syncany.database.dao.DatabaseSerializer.DatabaseReadType;
 import org.syncany.operations.AbstractTransferOperation;
 import org.syncany.operations.cleanup.CleanupOperation;
 import org.syncany.operations.daemon.messages.DownChangesDetectedSyncExternalEvent;
@@ -55,6 +65,10 @@ import org.syncany.operations.ls_remote.LsRemoteOperationResult;
 import org.syncany.operations.up.UpOperation;
 import org.syncany.plugins.transfer.StorageException;
 import org.syncany.plugins.transfer.TransferManager;
+import org.syncany.plugins.transfer.TransferManagerFactory;
+import org.syncany.plugins.transfer.features.PathAware;
+import org.syncany.plugins.transfer.features.ReadAfterWriteConsistent;
+import org.syncany.plugins.transfer.features.Retriable;
 import org.syncany.plugins.transfer.files.CleanupRemoteFile;
 import org.syncany.plugins.transfer.files.DatabaseRemoteFile;
 
@@ -97,7 +111,7 @@ public class DownOperation extends AbstractTransferOperation {
 
 	private SqlDatabase localDatabase;
 	private DatabaseReconciliator databaseReconciliator;
-	private DatabaseXmlSerializer databaseSerializer;
+	private DatabaseSerializer databaseSerializer;
 
 	public DownOperation(Config config) {
 		this(config, new DownOperationOptions());
@@ -111,7 +125,7 @@ public class DownOperation extends AbstractTransferOperation {
 
 		this.localDatabase = new SqlDatabase(config);
 		this.databaseReconciliator = new DatabaseReconciliator();
-		this.databaseSerializer = new DatabaseXmlSerializer(config.getTransformer());
+		this.databaseSerializer = DatabaseSerializer.getInstance(config.getDatabaseFormat(), config.getTransformer());
 	}
 
 	/**
@@ -128,84 +142,89 @@ public class DownOperation extends AbstractTransferOperation {
 	 */
 	@Override
 	public DownOperationResult execute() throws Exception {
-		logger.log(Level.INFO, "");
-		logger.log(Level.INFO, "Running 'Sync down' at client " + config.getMachineName() + " ...");
-		logger.log(Level.INFO, "--------------------------------------------");
+		try {
+			logger.log(Level.INFO, "");
+			logger.log(Level.INFO, "Running 'Sync down' at client " + config.getMachineName() + " ...");
+			logger.log(Level.INFO, "--------------------------------------------");
 
-		fireStartEvent();
+			fireStartEvent();
 
-		if (!checkPreconditions()) {
-			fireEndEvent();
-			return result;
-		}
+			if (!checkPreconditions()) {
+				fireEndEvent();
+				return result;
+			}
 
-		fireChangesDetectedEvent();
-		startOperation();
+			fireChangesDetectedEvent();
+			startOperation();
 
-		// If we do down, we are no longer allowed to resume a transaction
-		transferManager.clearResumableTransactions();
-		transferManager.clearPendingTransactions();
+			// If we do down, we are no longer allowed to resume a transaction
+			transferManager.clearResumableTransactions();
+			transferManager.clearPendingTransactions();
 
-		DatabaseBranch localBranch = localDatabase.getLocalDatabaseBranch();
-		List<DatabaseRemoteFile> newRemoteDatabases = result.getLsRemoteResult().getUnknownRemoteDatabases();
+			DatabaseBranch localBranch = localDatabase.getLocalDatabaseBranch();
+			List<DatabaseRemoteFile> newRemoteDatabases = result.getLsRemoteResult().getUnknownRemoteDatabases();
 
-		SortedMap<File, DatabaseRemoteFile> unknownRemoteDatabasesInCache = downloadUnknownRemoteDatabases(newRemoteDatabases);
-		SortedMap<DatabaseRemoteFile, List<DatabaseVersion>> remoteDatabaseHeaders = readUnknownDatabaseVersionHeaders(unknownRemoteDatabasesInCache);
-		Map<DatabaseVersionHeader, File> databaseVersionLocations = findDatabaseVersionLocations(remoteDatabaseHeaders, unknownRemoteDatabasesInCache);
+			SortedMap<File, DatabaseRemoteFile> unknownRemoteDatabasesInCache = downloadUnknownRemoteDatabases(newRemoteDatabases);
+			SortedMap<DatabaseRemoteFile, List<DatabaseVersion>> remoteDatabaseHeaders = readUnknownDatabaseVersionHeaders(unknownRemoteDatabasesInCache);
+			Map<DatabaseVersionHeader, File> databaseVersionLocations = findDatabaseVersionLocations(remoteDatabaseHeaders, unknownRemoteDatabasesInCache);
 
-		Map<String, CleanupRemoteFile> remoteCleanupFiles = getRemoteCleanupFiles();
-		boolean cleanupOccurred = cleanupOccurred(remoteCleanupFiles);
+			Map<String, CleanupRemoteFile> remoteCleanupFiles = getRemoteCleanupFiles();
+			boolean cleanupOccurred = cleanupOccurred(remoteCleanupFiles);
 
-		List<PartialFileHistory> preDeleteFileHistoriesWithLastVersion = null;
+			List<PartialFileHistory> preDeleteFileHistoriesWithLastVersion = null;
 
-		if (cleanupOccurred) {
-			logger.log(Level.INFO, "Cleanup occurred. Capturing local file histories, then deleting entire database ...");
+			if (cleanupOccurred) {
+				logger.log(Level.INFO, "Cleanup occurred. Capturing local file histories, then deleting entire database ...");
 
-			// Capture file histories
-			preDeleteFileHistoriesWithLastVersion = localDatabase.getFileHistoriesWithLastVersion();
+				// Capture file histories
+				preDeleteFileHistoriesWithLastVersion = localDatabase.getFileHistoriesWithLastVersion();
 
-			// Get rid of local database
-			localDatabase.deleteAll();
+				// Get rid of local database
+				localDatabase.deleteAll();
 
-			// Normally, we wouldn't want to commit in the middle of an operation, but unfortunately
-			// we have to, since not committing causes hanging in database operations, since UNCOMMITTED_READ
-			// does not do enough magic to proceed. The commit in itself is not a problem, since we need
-			// to redownload all remote data anyway.
-			localDatabase.commit();
+				// Normally, we wouldn't want to commit in the middle of an operation, but unfortunately
+				// we have to, since not committing causes hanging in database operations, since UNCOMMITTED_READ
+				// does not do enough magic to proceed. The commit in itself is not a problem, since we need
+				// to redownload all remote data anyway.
+				localDatabase.commit();
 
-			// Set last cleanup values
-			long lastRemoteCleanupNumber = getLastRemoteCleanupNumber(remoteCleanupFiles);
+				// Set last cleanup values
+				long lastRemoteCleanupNumber = getLastRemoteCleanupNumber(remoteCleanupFiles);
 
-			localDatabase.writeCleanupNumber(lastRemoteCleanupNumber);
-			localDatabase.writeCleanupTime(System.currentTimeMillis() / 1000);
+				localDatabase.writeCleanupNumber(lastRemoteCleanupNumber);
+				localDatabase.writeCleanupTime(System.currentTimeMillis() / 1000);
 
-			localBranch = new DatabaseBranch();
-		}
+				localBranch = new DatabaseBranch();
+			}
 
-		try {
-			DatabaseBranches allBranches = populateDatabaseBranches(localBranch, remoteDatabaseHeaders);
-			Map.Entry<String, DatabaseBranch> winnersBranch = determineWinnerBranch(allBranches);
+			try {
+				DatabaseBranches allBranches = populateDatabaseBranches(localBranch, remoteDatabaseHeaders);
+				Map.Entry<String, DatabaseBranch> winnersBranch = determineWinnerBranch(allBranches);
 
-			purgeConflictingLocalBranch(localBranch, winnersBranch);
-			applyWinnersBranch(localBranch, winnersBranch, databaseVersionLocations, cleanupOccurred,
-					preDeleteFileHistoriesWithLastVersion);
+				purgeConflictingLocalBranch(localBranch, winnersBranch);
+				applyWinnersBranch(localBranch, winnersBranch, databaseVersionLocations, cleanupOccurred,
+						preDeleteFileHistoriesWithLastVersion);
 
-			persistMuddyMultiChunks(winnersBranch, allBranches, databaseVersionLocations);
-			removeNonMuddyMultiChunks();
+				persistMuddyMultiChunks(winnersBranch, allBranches, databaseVersionLocations);
+				removeNonMuddyMultiChunks();
 
-			localDatabase.writeKnownRemoteDatabases(newRemoteDatabases);
-			localDatabase.commit();
-		}
-		catch (Exception e) {
-			localDatabase.rollback();
-			throw e;
-		}
+				localDatabase.writeKnownRemoteDatabases(newRemoteDatabases);
+				localDatabase.commit();
+			}
+			catch (Exception e) {
+				localDatabase.rollback();
+				throw e;
+			}
 
-		finishOperation();
-		fireEndEvent();
+			finishOperation();
+			fireEndEvent();
 
-		logger.log(Level.INFO, "Sync down done.");
-		return result;
+			logger.log(Level.INFO, "Sync down done.");
+			return result;
+		}
+		finally {
+			localDatabase.close();
+		}
 	}
 
 	private void fireStartEvent() {
@@ -276,30 +295,137 @@ public class DownOperation extends AbstractTransferOperation {
 	 * Downloads the previously identified new/unknown remote databases to the local cache
 	 * and returns a map with the local cache files mapped to the given remote database
 	 * files. The method additionally fires events for every database it downloads.
+	 *
+	 * <p>If more than one parallel download is configured (see {@link DownOperationOptions#getParallelDownloads()}),
+	 * the files are downloaded concurrently, each worker thread using its own {@link TransferManager}.
 	 */
 	private SortedMap<File, DatabaseRemoteFile> downloadUnknownRemoteDatabases(List<DatabaseRemoteFile> unknownRemoteDatabases)
-			throws StorageException {
+			throws StorageException, IOException {
 
 		logger.log(Level.INFO, "Downloading unknown databases.");
 
-		SortedMap<File, DatabaseRemoteFile> unknownRemoteDatabasesInCache = new TreeMap<File, DatabaseRemoteFile>();
-		int downloadFileIndex = 0;
+		int parallelDownloads = Math.min(options.getParallelDownloads(), unknownRemoteDatabases.size());
+
+		if (parallelDownloads > 1) {
+			return downloadUnknownRemoteDatabasesInParallel(unknownRemoteDatabases, parallelDownloads);
+		}
+		else {
+			SortedMap<File, DatabaseRemoteFile> unknownRemoteDatabasesInCache = new TreeMap<File, DatabaseRemoteFile>();
+			int downloadFileIndex = 0;
+
+			for (DatabaseRemoteFile remoteFile : unknownRemoteDatabases) {
+				File unknownRemoteDatabaseFileInCache = downloadUnknownRemoteDatabase(transferManager, remoteFile, ++downloadFileIndex,
+						unknownRemoteDatabases.size());
+
+				unknownRemoteDatabasesInCache.put(unknownRemoteDatabaseFileInCache, new DatabaseRemoteFile(remoteFile.getName()));
+				result.getDownloadedUnknownDatabases().add(remoteFile.getName());
+			}
+
+			return unknownRemoteDatabasesInCache;
+		}
+	}
+
+	/**
+	 * Downloads the given remote databases to the local cache using a bounded thread pool. Since transfer
+	 * managers are not required to be thread-safe, every download borrows an exclusive {@link TransferManager}
+	 * from a pool of <tt>parallelDownloads</tt> managers (the operation's own one, plus newly created ones).
+	 *
+	 * <p>The results are collected in the order of the given list, so the downloaded database
+	 * list in the {@link DownOperationResult} is identical to a sequential download.
+	 */
+	private SortedMap<File, DatabaseRemoteFile> downloadUnknownRemoteDatabasesInParallel(final List<DatabaseRemoteFile> unknownRemoteDatabases,
+			int parallelDownloads) throws StorageException, IOException {
+
+		logger.log(Level.INFO, "- Downloading {0} database files with {1} parallel downloads ...",
+				new Object[] { unknownRemoteDatabases.size(), parallelDownloads });
+
+		final BlockingQueue<TransferManager> availableTransferManagers = new ArrayBlockingQueue<TransferManager>(parallelDownloads);
+		final AtomicInteger downloadFileIndex = new AtomicInteger(0);
 
-		for (DatabaseRemoteFile remoteFile : unknownRemoteDatabases) {
-			File unknownRemoteDatabaseFileInCache = config.getCache().getDatabaseFile(remoteFile.getName());
-			DatabaseRemoteFile unknownDatabaseRemoteFile = new DatabaseRemoteFile(remoteFile.getName());
+		List<TransferManager> additionalTransferManagers = new ArrayList<TransferManager>();
+		ExecutorService downloadExecutor = Executors.newFixedThreadPool(parallelDownloads);
 
-			logger.log(Level.INFO, "- Downloading {0} to local cache at {1}", new Object[] { remoteFile.getName(), unknownRemoteDatabaseFileInCache });
-			eventBus.post(new DownDownloadFileSyncExternalEvent(config.getLocalDir().getAbsolutePath(), "database", ++downloadFileIndex,
-					unknownRemoteDatabases.size()));
+		try {
+			availableTransferManagers.add(transferManager);
+
+			for (int i = 1; i < parallelDownloads; i++) {
+				TransferManager additionalTransferManager = createDownloadTransferManager();
+
+				additionalTransferManagers.add(additionalTransferManager);
+				availableTransferManagers.add(additionalTransferManager);
+			}
+
+			List<Future<File>> downloadFutures = new ArrayList<Future<File>>();
+
+			for (final DatabaseRemoteFile remoteFile : unknownRemoteDatabases) {
+				downloadFutures.add(downloadExecutor.submit(new Callable<File>() {
+					@Override
+					public File call() throws Exception {
+						TransferManager downloadTransferManager = availableTransferManagers.take();
+
+						try {
+							return downloadUnknownRemoteDatabase(downloadTransferManager, remoteFile, downloadFileIndex.incrementAndGet(),
+									unknownRemoteDatabases.size());
+						}
+						finally {
+							availableTransferManagers.put(downloadTransferManager);
+						}
+					}
+				}));
+			}
+
+			SortedMap<File, DatabaseRemoteFile> unknownRemoteDatabasesInCache = new TreeMap<File, DatabaseRemoteFile>();
 
-			transferManager.download(unknownDatabaseRemoteFile, unknownRemoteDatabaseFileInCache);
+			for (int i = 0; i < unknownRemoteDatabases.size(); i++) {
+				String remoteFileName = unknownRemoteDatabases.get(i).getName();
+				File unknownRemoteDatabaseFileInCache = waitForTask(downloadFutures.get(i));
+
+				unknownRemoteDatabasesInCache.put(unknownRemoteDatabaseFileInCache, new DatabaseRemoteFile(remoteFileName));
+				result.getDownloadedUnknownDatabases().add(remoteFileName);
+			}
+
+			return unknownRemoteDatabasesInCache;
+		}
+		finally {
+			shutdownExecutor(downloadExecutor);
 
-			unknownRemoteDatabasesInCache.put(unknownRemoteDatabaseFileInCache, unknownDatabaseRemoteFile);
-			result.getDownloadedUnknownDatabases().add(remoteFile.getName());
+			for (TransferManager additionalTransferManager : additionalTransferManagers) {
+				try {
+					additionalTransferManager.disconnect();
+				}
+				catch (StorageException e) {
+					logger.log(Level.FINE, "Could not disconnect additional transfer manager.", e);
+				}
+			}
 		}
+	}
+
+	private File downloadUnknownRemoteDatabase(TransferManager downloadTransferManager, DatabaseRemoteFile remoteFile, int downloadFileIndex,
+			int downloadFileCount) throws StorageException {
+
+		File unknownRemoteDatabaseFileInCache = config.getCache().getDatabaseFile(remoteFile.getName());
+		DatabaseRemoteFile unknownDatabaseRemoteFile = new DatabaseRemoteFile(remoteFile.getName());
+
+		logger.log(Level.INFO, "- Downloading {0} to local cache at {1}", new Object[] { remoteFile.getName(), unknownRemoteDatabaseFileInCache });
+		eventBus.post(new DownDownloadFileSyncExternalEvent(config.getLocalDir().getAbsolutePath(), "database", downloadFileIndex,
+				downloadFileCount));
+
+		downloadTransferManager.download(unknownDatabaseRemoteFile, unknownRemoteDatabaseFileInCache);
 
-		return unknownRemoteDatabasesInCache;
+		return unknownRemoteDatabaseFileInCache;
+	}
+
+	/**
+	 * Creates a transfer manager with the same features as the operation's regular transfer
+	 * manager (minus the transaction support, which is not needed for downloads).
+	 */
+	private TransferManager createDownloadTransferManager() throws StorageException {
+		return TransferManagerFactory
+				.build(config)
+				.withFeature(ReadAfterWriteConsistent.class)
+				.withFeature(Retriable.class)
+				.withFeature(PathAware.class)
+				.asDefault();
 	}
 
 	/**
@@ -308,6 +434,9 @@ public class DownOperation extends AbstractTransferOperation {
 	 *
 	 * <p>The returned database branches contain only the per-client {@link DatabaseVersionHeader}s, and not
 	 * the entire stitched branches, i.e. A's database branch will only contain database version headers from A.
+	 *
+	 * <p>Like the download, the files are parsed concurrently if more than one parallel download
+	 * is configured. Each file is loaded into its own {@link MemoryDatabase}.
 	 */
 	private SortedMap<DatabaseRemoteFile, List<DatabaseVersion>> readUnknownDatabaseVersionHeaders(SortedMap<File, DatabaseRemoteFile> remoteDatabases)
 			throws IOException,
@@ -316,19 +445,91 @@ public class DownOperation extends AbstractTransferOperation {
 
 		// Read database files
 		SortedMap<DatabaseRemoteFile, List<DatabaseVersion>> remoteDatabaseHeaders = new TreeMap<DatabaseRemoteFile, List<DatabaseVersion>>();
+		int parallelReads = Math.min(options.getParallelDownloads(), remoteDatabases.size());
+
+		if (parallelReads > 1) {
+			Map<DatabaseRemoteFile, Future<List<DatabaseVersion>>> readFutures = new HashMap<DatabaseRemoteFile, Future<List<DatabaseVersion>>>();
+			ExecutorService readExecutor = Executors.newFixedThreadPool(parallelReads);
+
+			try {
+				for (final Map.Entry<File, DatabaseRemoteFile> remoteDatabaseFileEntry : remoteDatabases.entrySet()) {
+					readFutures.put(remoteDatabaseFileEntry.getValue(), readExecutor.submit(new Callable<List<DatabaseVersion>>() {
+						@Override
+						public List<DatabaseVersion> call() throws Exception {
+							return readDatabaseVersionHeaders(remoteDatabaseFileEntry.getKey());
+						}
+					}));
+				}
 
-		for (Map.Entry<File, DatabaseRemoteFile> remoteDatabaseFileEntry : remoteDatabases.entrySet()) {
-			MemoryDatabase remoteDatabase = new MemoryDatabase(); // Database cannot be reused, since these might be different clients
+				for (Map.Entry<DatabaseRemoteFile, Future<List<DatabaseVersion>>> readFutureEntry : readFutures.entrySet()) {
+					remoteDatabaseHeaders.put(readFutureEntry.getKey(), waitForTask(readFutureEntry.getValue()));
+				}
+			}
+			finally {
+				shutdownExecutor(readExecutor);
+			}
+		}
+		else {
+			for (Map.Entry<File, DatabaseRemoteFile> remoteDatabaseFileEntry : remoteDatabases.entrySet()) {
+				remoteDatabaseHeaders.put(remoteDatabaseFileEntry.getValue(), readDatabaseVersionHeaders(remoteDatabaseFileEntry.getKey()));
+			}
+		}
+
+		return remoteDatabaseHeaders;
+	}
 
-			File remoteDatabaseFileInCache = remoteDatabaseFileEntry.getKey();
-			DatabaseRemoteFile remoteDatabaseFile = remoteDatabaseFileEntry.getValue();
+	private List<DatabaseVersion> readDatabaseVersionHeaders(File remoteDatabaseFileInCache) throws IOException {
+		MemoryDatabase remoteDatabase = new MemoryDatabase(); // Database cannot be reused, since these might be different clients
+		databaseSerializer.load(remoteDatabase, remoteDatabaseFileInCache, null, null, DatabaseReadType.HEADER_ONLY); // only load headers!
 
-			databaseSerializer.load(remoteDatabase, remoteDatabaseFileInCache, null, null, DatabaseReadType.HEADER_ONLY); // only load headers!
+		return remoteDatabase.getDatabaseVersions();
+	}
 
-			remoteDatabaseHeaders.put(remoteDatabaseFile, remoteDatabase.getDatabaseVersions());
+	/**
+	 * Waits for the given download or read task to finish and returns its result. If the task
+	 * failed, the original exception is rethrown (or wrapped in a {@link StorageException}).
+	 */
+	private <T> T waitForTask(Future<T> future) throws StorageException, IOException {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new StorageException("Interrupted while waiting for parallel download", e);
 		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
 
-		return remoteDatabaseHeaders;
+			if (cause instanceof StorageException) {
+				throw (StorageException) cause;
+			}
+			else if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			else {
+				throw new StorageException(cause);
+			}
+		}
+	}
+
+	/**
+	 * Stops the given executor and waits for running tasks to finish, so that no
+	 * download still uses a transfer manager after it has been disconnected.
+	 */
+	private void shutdownExecutor(ExecutorService executor) {
+		executor.shutdownNow();
+
+		try {
+			if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				logger.log(Level.WARNING, "Parallel download tasks did not terminate within one minute.");
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 	}
 
 	/**
@@ -359,7 +560,7 @@ public class DownOperation extends AbstractTransferOperation {
 			}
 		}
 
-		logger.log(Level.INFO, "Populated unknown branches: " + allBranches);
+		logger.log(Level.INFO, "Populated unknown branches: {0}", allBranches);
 		return allBranches;
 	}
 
@@ -455,9 +656,13 @@ public class DownOperation extends AbstractTransferOperation {
 			logger.log(Level.WARNING, "  + Nothing to update. Nice!");
 			result.setResultCode(DownResultCode.OK_NO_REMOTE_CHANGES);
 		}
+		else if (options.getBatchSize() > 0 && winnersApplyBranch.size() > options.getBatchSize()) {
+			applyWinnersBranchInBatches(winnersApplyBranch, databaseVersionLocations, cleanupOccurred, preDeleteFileHistoriesWithLastVersion);
+			result.setResultCode(DownResultCode.OK_WITH_REMOTE_CHANGES);
+		}
 		else {
 			logger.log(Level.INFO, "Loading winners database (DEFAULT) ...");
-			MemoryDatabase winnersDatabase = readWinnersDatabase(winnersApplyBranch, databaseVersionLocations);
+			MemoryDatabase winnersDatabase = readWinnersDatabase(winnersApplyBranch.getAll(), databaseVersionLocations);
 
 			if (options.isApplyChanges()) {
 				new ApplyChangesOperation(config, localDatabase, transferManager, winnersDatabase, result, cleanupOccurred,
@@ -474,7 +679,75 @@ public class DownOperation extends AbstractTransferOperation {
 	}
 
 	/**
-	 * Loads the winner's database branch into the memory in a {@link MemoryDatabase} object, by using
+	 * Applies a (long) winner's branch without loading it into memory as a whole. Instead of
+	 * reading the entire branch into a {@link MemoryDatabase}, the branch is read and persisted to
+	 * the local database in batches of {@link DownOperationOptions#getBatchSize()} database versions.
+	 * Only the last file version of each changed file history is kept in memory. The file system
+	 * actions are then determined from these last file versions, and file contents and multichunks
+	 * are looked up in the local database.
+	 *
+	 * <p>Because the winner's branch is persisted before the file system actions are determined,
+	 * the local file histories are captured beforehand. The persisted database versions are not
+	 * committed, i.e. they are rolled back if applying the changes fails.
+	 */
+	private void applyWinnersBranchInBatches(DatabaseBranch winnersApplyBranch, Map<DatabaseVersionHeader, File> databaseVersionLocations,
+			boolean cleanupOccurred, List<PartialFileHistory> preDeleteFileHistoriesWithLastVersion) throws Exception {
+
+		// Capture local file histories before they are altered by the winner's branch
+		List<PartialFileHistory> localFileHistoriesWithLastVersion = (cleanupOccurred) ? preDeleteFileHistoriesWithLastVersion : localDatabase
+				.getFileHistoriesWithLastVersion();
+
+		logger.log(Level.INFO, "Loading and persisting winners database in batches of " + options.getBatchSize() + " database versions ...");
+		MemoryDatabase winnersLastVersionsDatabase = persistDatabaseVersionsInBatches(winnersApplyBranch, databaseVersionLocations);
+
+		if (options.isApplyChanges()) {
+			new ApplyChangesOperation(config, localDatabase, transferManager, winnersLastVersionsDatabase, result, cleanupOccurred,
+					localFileHistoriesWithLastVersion).execute();
+		}
+		else {
+			logger.log(Level.INFO, "Doing nothing on the file system, because --no-apply switched on");
+		}
+	}
+
+	/**
+	 * Reads the winner's branch in batches, and persists each batch to the local database before
+	 * reading the next one. The returned {@link MemoryDatabase} only contains the last file version
+	 * of every file history changed by the branch -- and no chunks, multichunks or file contents.
+	 */
+	private MemoryDatabase persistDatabaseVersionsInBatches(DatabaseBranch winnersApplyBranch, Map<DatabaseVersionHeader, File> databaseVersionLocations)
+			throws IOException, StorageException {
+
+		List<DatabaseVersionHeader> winnersApplyBranchList = winnersApplyBranch.getAll();
+		DatabaseVersion lastFileVersionsDatabaseVersion = new DatabaseVersion();
+
+		for (int batchStart = 0; batchStart < winnersApplyBranchList.size(); batchStart += options.getBatchSize()) {
+			int batchEnd = Math.min(batchStart + options.getBatchSize(), winnersApplyBranchList.size());
+			List<DatabaseVersionHeader> batchDatabaseVersionHeaders = winnersApplyBranchList.subList(batchStart, batchEnd);
+
+			logger.log(Level.INFO, "- Batch of database versions " + (batchStart + 1) + "-" + batchEnd + " of " + winnersApplyBranchList.size() + " ...");
+			MemoryDatabase batchDatabase = readWinnersDatabase(batchDatabaseVersionHeaders, databaseVersionLocations);
+
+			for (DatabaseVersionHeader currentDatabaseVersionHeader : batchDatabaseVersionHeaders) {
+				persistDatabaseVersion(batchDatabase, currentDatabaseVersionHeader);
+			}
+
+			// Remember last file versions (replaces the ones of previous batches)
+			for (PartialFileHistory fileHistory : batchDatabase.getFileHistories()) {
+				PartialFileHistory lastFileVersionHistory = new PartialFileHistory(fileHistory.getFileHistoryId());
+				lastFileVersionHistory.addFileVersion(fileHistory.getLastVersion());
+
+				lastFileVersionsDatabaseVersion.addFileHistory(lastFileVersionHistory);
+			}
+		}
+
+		MemoryDatabase winnersLastVersionsDatabase = new MemoryDatabase();
+		winnersLastVersionsDatabase.addDatabaseVersion(lastFileVersionsDatabaseVersion);
+
+		return winnersLastVersionsDatabase;
+	}
+
+	/**
+	 * Loads the given (part of the) winner's database branch into the memory in a {@link MemoryDatabase} object, by using
 	 * the already downloaded list of remote database files.
 	 *
 	 * <p>Because database files can contain multiple {@link DatabaseVersion}s per client, a range for which
@@ -512,13 +785,11 @@ public class DownOperation extends AbstractTransferOperation {
 	 *
 	 * @return Returns a loaded memory database containing all metadata from the winner's branch
 	 */
-	private MemoryDatabase readWinnersDatabase(DatabaseBranch winnersApplyBranch, Map<DatabaseVersionHeader, File> databaseVersionLocations)
-			throws IOException, StorageException {
+	private MemoryDatabase readWinnersDatabase(List<DatabaseVersionHeader> winnersApplyBranchList,
+			Map<DatabaseVersionHeader, File> databaseVersionLocations) throws IOException, StorageException {
 
 		MemoryDatabase winnerBranchDatabase = new MemoryDatabase();
 
-		List<DatabaseVersionHeader> winnersApplyBranchList = winnersApplyBranch.getAll();
-
 		String rangeClientName = null;
 		VectorClock rangeVersionFrom = null;
 		VectorClock rangeVersionTo = null;
@@ -21,6 +21,18 @@ import org.simpleframework.xml.Element;
 import org.syncany.operations.OperationOptions;
 
 public class DownOperationOptions implements OperationOptions {
+	/**
+	 * Default maximum number of database versions of the winner's branch that
+	 * are held in memory at once. Longer branches are applied in batches.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	/**
+	 * Default number of unknown remote database files that are downloaded
+	 * (and whose headers are read) concurrently.
+	 */
+	public static final int DEFAULT_PARALLEL_DOWNLOADS = 4;
+
 	public enum DownConflictStrategy {
 		RENAME, ASK
 	}
@@ -31,6 +43,12 @@ public class DownOperationOptions implements OperationOptions {
 	@Element(required = false)
 	private boolean applyChanges = true;
 
+	@Element(required = false)
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	@Element(required = false)
+	private int parallelDownloads = DEFAULT_PARALLEL_DOWNLOADS;
+
 	public DownConflictStrategy getConflictStrategy() {
 		return conflictStrategy;
 	}
@@ -45,5 +63,32 @@ public class DownOperationOptions implements OperationOptions {
 
 	public void setApplyChanges(boolean applyChanges) {
 		this.applyChanges = applyChanges;
-	}		
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets the maximum number of database versions of the winner's branch that are
+	 * loaded into memory at once. If the branch is longer, it is loaded, persisted and
+	 * applied in batches of this size. A value of 0 or below disables batching, i.e. the
+	 * entire branch is always loaded into memory.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getParallelDownloads() {
+		return parallelDownloads;
+	}
+
+	/**
+	 * Sets the maximum number of unknown remote database files that are downloaded
+	 * and read at the same time. Each concurrent download uses its own connection to
+	 * the remote storage. A value of 1 or below downloads all files sequentially.
+	 */
+	public void setParallelDownloads(int parallelDownloads) {
+		this.parallelDownloads = parallelDownloads;
+	}
 }
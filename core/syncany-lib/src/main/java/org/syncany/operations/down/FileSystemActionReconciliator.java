@@ -134,9 +134,13 @@ public class FileSystemActionReconciliator {
 	private FileVersionComparator fileVersionComparator;
 	
 	public FileSystemActionReconciliator(Config config, ChangeSet changeSet) {
+		this(config, new SqlDatabase(config), changeSet);
+	}
+	
+	public FileSystemActionReconciliator(Config config, SqlDatabase localDatabase, ChangeSet changeSet) {
 		this.config = config; 
 		this.changeSet = changeSet;
-		this.localDatabase = new SqlDatabase(config);
+		this.localDatabase = localDatabase;
 		this.fileVersionComparator = new FileVersionComparator(config.getLocalDir(), config.getChunker().getChecksumAlgorithm());
 	}
 	
@@ -29,9 +29,21 @@ import org.syncany.operations.Assembler;
 import org.syncany.util.NormalizedPath;
 
 public abstract class FileCreatingFileSystemAction extends FileSystemAction {
+	private SqlDatabase localDatabase;
+	
 	public FileCreatingFileSystemAction(Config config, MemoryDatabase winningDatabase, FileVersion file1, FileVersion file2) {
 		super(config, winningDatabase, file1, file2);				
 	}
+	
+	/**
+	 * Sets the local database used to look up file contents and multichunks when 
+	 * assembling files. If set, this database is used and neither committed nor closed
+	 * by the action. If not set, the action opens (and closes) its own connection
+	 * for every file.
+	 */
+	public void setLocalDatabase(SqlDatabase localDatabase) {
+		this.localDatabase = localDatabase;
+	}
 
 	protected void createFileFolderOrSymlink(FileVersion reconstructedFileVersion) throws Exception {
 		if (reconstructedFileVersion.getType() == FileType.FILE) {
@@ -71,14 +83,43 @@ public abstract class FileCreatingFileSystemAction extends FileSystemAction {
 	}
 
 	protected void createFile(FileVersion reconstructedFileVersion) throws Exception {
-		File reconstructedFileInCache = assembleFileToCache(reconstructedFileVersion);		
-		moveFileToFinalLocation(reconstructedFileInCache, reconstructedFileVersion);	
+		SqlDatabase assemblerDatabase = (localDatabase != null) ? localDatabase : new SqlDatabase(config);
+
+		try {
+			Assembler assembler = new Assembler(config, assemblerDatabase, winningDatabase);
+			
+			File reconstructedFileInCache = assembleFileToCache(assembler, reconstructedFileVersion);		
+			File reconstructedFileAtFinalLocation = moveFileToFinalLocation(reconstructedFileInCache, reconstructedFileVersion);
+			
+			assembler.writeChunkPositions(reconstructedFileAtFinalLocation);
+			
+			// The chunk positions of the operation's own database are committed by the operation
+			if (assemblerDatabase != localDatabase) {
+				assemblerDatabase.commit();
+			}
+		}
+		finally {
+			if (assemblerDatabase != localDatabase) {
+				assemblerDatabase.close();
+			}
+		}
 	}
 	
 	protected File assembleFileToCache(FileVersion reconstructedFileVersion) throws Exception {
-		SqlDatabase localDatabase = new SqlDatabase(config);
-		Assembler assembler = new Assembler(config, localDatabase, winningDatabase);
+		SqlDatabase assemblerDatabase = (localDatabase != null) ? localDatabase : new SqlDatabase(config);
 
+		try {
+			Assembler assembler = new Assembler(config, assemblerDatabase, winningDatabase);
+			return assembleFileToCache(assembler, reconstructedFileVersion);
+		}
+		finally {
+			if (assemblerDatabase != localDatabase) {
+				assemblerDatabase.close();
+			}
+		}
+	}
+	
+	protected File assembleFileToCache(Assembler assembler, FileVersion reconstructedFileVersion) throws Exception {
 		File reconstructedFileInCache = assembler.assembleToCache(reconstructedFileVersion);
 		 
 		setFileAttributes(reconstructedFileVersion, reconstructedFileInCache);
@@ -35,32 +35,45 @@ public class LogOperation extends Operation {
 	
 	private LogOperationOptions options;
 	private SqlDatabase localDatabase;
+	private boolean closeLocalDatabase;
 
 	public LogOperation(Config config, LogOperationOptions options) {
+		this(config, options, new SqlDatabase(config));
+		this.closeLocalDatabase = true;
+	}
+
+	public LogOperation(Config config, LogOperationOptions options, SqlDatabase localDatabase) {
 		super(config);
 
 		this.options = options;
-		this.localDatabase = new SqlDatabase(config);
+		this.localDatabase = localDatabase;
 	}
 
 	@Override
 	public LogOperationResult execute() throws Exception {
-		logger.log(Level.INFO, "");
-		logger.log(Level.INFO, "Running 'Log' at client " + config.getMachineName() + " ...");
-		logger.log(Level.INFO, "--------------------------------------------");
+		try {
+			logger.log(Level.INFO, "");
+			logger.log(Level.INFO, "Running 'Log' at client " + config.getMachineName() + " ...");
+			logger.log(Level.INFO, "--------------------------------------------");
 
-		ArrayList<LightweightDatabaseVersion> databaseVersions = new ArrayList<>();
-		Iterator<DatabaseVersion> databaseVersionsIterator = localDatabase.getLastDatabaseVersions(options.getMaxDatabaseVersionCount(),
-				options.getStartDatabaseVersionIndex(), options.getMaxFileHistoryCount());
-				
-		while (databaseVersionsIterator.hasNext()) {
-			DatabaseVersion databaseVersion = databaseVersionsIterator.next();
-			LightweightDatabaseVersion lightweightDatabaseVersion = createLightweightDatabaseVersion(databaseVersion);			
-			
-			databaseVersions.add(lightweightDatabaseVersion);
+			ArrayList<LightweightDatabaseVersion> databaseVersions = new ArrayList<>();
+			Iterator<DatabaseVersion> databaseVersionsIterator = localDatabase.getLastDatabaseVersions(options.getMaxDatabaseVersionCount(),
+					options.getStartDatabaseVersionIndex(), options.getMaxFileHistoryCount());
+
+			while (databaseVersionsIterator.hasNext()) {
+				DatabaseVersion databaseVersion = databaseVersionsIterator.next();
+				LightweightDatabaseVersion lightweightDatabaseVersion = createLightweightDatabaseVersion(databaseVersion);			
+
+				databaseVersions.add(lightweightDatabaseVersion);
+			}
+
+			return new LogOperationResult(databaseVersions);
+		}
+		finally {
+			if (closeLocalDatabase) {
+				localDatabase.close();
+			}
 		}
-		
-		return new LogOperationResult(databaseVersions);
 	}
 
 	private LightweightDatabaseVersion createLightweightDatabaseVersion(DatabaseVersion databaseVersion) {
@@ -39,31 +39,44 @@ public class LsOperation extends Operation {
 	private static final Logger logger = Logger.getLogger(LsOperation.class.getSimpleName());
 	private LsOperationOptions options;
 	private SqlDatabase localDatabase;
+	private boolean closeLocalDatabase;
 
 	public LsOperation(Config config, LsOperationOptions options) {
+		this(config, options, new SqlDatabase(config));
+		this.closeLocalDatabase = true;
+	}
+
+	public LsOperation(Config config, LsOperationOptions options, SqlDatabase localDatabase) {
 		super(config);
 
 		this.options = options;
-		this.localDatabase = new SqlDatabase(config);
+		this.localDatabase = localDatabase;
 	}
 
 	@Override
 	public LsOperationResult execute() throws Exception {
-		logger.log(Level.INFO, "");
-		logger.log(Level.INFO, "Running 'Ls' at client " + config.getMachineName() + " ...");
-		logger.log(Level.INFO, "--------------------------------------------");
+		try {
+			logger.log(Level.INFO, "");
+			logger.log(Level.INFO, "Running 'Ls' at client " + config.getMachineName() + " ...");
+			logger.log(Level.INFO, "--------------------------------------------");
 
-		String pathExpression = parsePathExpression(options.getPathExpression(), options.isFileHistoryId());
-		Set<FileType> fileTypes = options.getFileTypes();
+			String pathExpression = parsePathExpression(options.getPathExpression(), options.isFileHistoryId());
+			Set<FileType> fileTypes = options.getFileTypes();
 
-		List<FileVersion> fileList = localDatabase.getFileList(pathExpression, options.getDate(), options.isFileHistoryId(), options.isRecursive(), options.isDeleted(), fileTypes);
-		Map<FileHistoryId, PartialFileHistory> fileHistories = null;
+			List<FileVersion> fileList = localDatabase.getFileList(pathExpression, options.getDate(), options.isFileHistoryId(), options.isRecursive(), options.isDeleted(), fileTypes);
+			Map<FileHistoryId, PartialFileHistory> fileHistories = null;
 
-		if (options.isFetchHistories()) {
-			fileHistories = fetchFileHistories(fileList);
-		}
+			if (options.isFetchHistories()) {
+				fileHistories = fetchFileHistories(fileList);
+			}
 
-		return new LsOperationResult(fileList, fileHistories);
+			return new LsOperationResult(fileList, fileHistories);
+		}
+		finally {
+			if (closeLocalDatabase) {
+				localDatabase.close();
+			}
+		}
 	}
 
 	private Map<FileHistoryId, PartialFileHistory> fetchFileHistories(List<FileVersion> fileTree) {
@@ -66,23 +66,28 @@ public class LsRemoteOperation extends Operation {
 
 	@Override
 	public LsRemoteOperationResult execute() throws Exception {
-		logger.log(Level.INFO, "");
-		logger.log(Level.INFO, "Running 'Remote Status' at client " + config.getMachineName() + " ...");
-		logger.log(Level.INFO, "--------------------------------------------");
+		try {
+			logger.log(Level.INFO, "");
+			logger.log(Level.INFO, "Running 'Remote Status' at client " + config.getMachineName() + " ...");
+			logger.log(Level.INFO, "--------------------------------------------");
 
-		eventBus.post(new LsRemoteStartSyncExternalEvent(config.getLocalDir().getAbsolutePath()));
+			eventBus.post(new LsRemoteStartSyncExternalEvent(config.getLocalDir().getAbsolutePath()));
 
-		TransferManager transferManager = createTransferManager(loadedTransferManager);
+			TransferManager transferManager = createTransferManager(loadedTransferManager);
 
-		List<DatabaseRemoteFile> knownDatabases = localDatabase.getKnownDatabases();
-		List<DatabaseRemoteFile> unknownRemoteDatabases = listUnknownRemoteDatabases(transferManager, knownDatabases);
+			List<DatabaseRemoteFile> knownDatabases = localDatabase.getKnownDatabases();
+			List<DatabaseRemoteFile> unknownRemoteDatabases = listUnknownRemoteDatabases(transferManager, knownDatabases);
 
-		transferManager.disconnect();
+			transferManager.disconnect();
 
-		boolean hasChanges = unknownRemoteDatabases.size() > 0;
-		eventBus.post(new LsRemoteEndSyncExternalEvent(config.getLocalDir().getAbsolutePath(), hasChanges));
+			boolean hasChanges = unknownRemoteDatabases.size() > 0;
+			eventBus.post(new LsRemoteEndSyncExternalEvent(config.getLocalDir().getAbsolutePath(), hasChanges));
 
-		return new LsRemoteOperationResult(new ArrayList<>(unknownRemoteDatabases));
+			return new LsRemoteOperationResult(new ArrayList<>(unknownRemoteDatabases));
+		}
+		finally {
+			localDatabase.close();
+		}
 	}
 
 	private TransferManager createTransferManager(TransferManager loadedTransferManager) throws StorageException {
@@ -18,20 +18,25 @@
 package org.syncany.operations.restore;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.syncany.config.Config;
-import org.syncany.database.FileContent.FileChecksum;
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.FileContent;
 import org.syncany.database.FileVersion;
 import org.syncany.database.FileVersion.FileType;
 import org.syncany.database.MultiChunkEntry.MultiChunkId;
 import org.syncany.database.PartialFileHistory.FileHistoryId;
 import org.syncany.database.SqlDatabase;
 import org.syncany.operations.AbstractTransferOperation;
+import org.syncany.operations.Assembler;
 import org.syncany.operations.Downloader;
 import org.syncany.operations.restore.RestoreOperationResult.RestoreResultCode;
 import org.syncany.plugins.transfer.StorageException;
@@ -59,39 +64,44 @@ public class RestoreOperation extends AbstractTransferOperation {
 
 	@Override
 	public RestoreOperationResult execute() throws Exception {
-		logger.log(Level.INFO, "");
-		logger.log(Level.INFO, "Running 'Restore' at client " + config.getMachineName() + " ...");
-		logger.log(Level.INFO, "--------------------------------------------");
-		
-		// Find file history
-		FileHistoryId restoreFileHistoryId = findFileHistoryId();
+		try {
+			logger.log(Level.INFO, "");
+			logger.log(Level.INFO, "Running 'Restore' at client " + config.getMachineName() + " ...");
+			logger.log(Level.INFO, "--------------------------------------------");
 
-		if (restoreFileHistoryId == null) {
-			return new RestoreOperationResult(RestoreResultCode.NACK_NO_FILE);
-		}
-		
-		// Find file version
-		FileVersion restoreFileVersion = findRestoreFileVersion(restoreFileHistoryId);
+			// Find file history
+			FileHistoryId restoreFileHistoryId = findFileHistoryId();
 
-		if (restoreFileVersion == null) {
-			return new RestoreOperationResult(RestoreResultCode.NACK_NO_FILE);
-		}
-		else if (restoreFileVersion.getType() == FileType.FOLDER) {
-			return new RestoreOperationResult(RestoreResultCode.NACK_INVALID_FILE);
-		}
+			if (restoreFileHistoryId == null) {
+				return new RestoreOperationResult(RestoreResultCode.NACK_NO_FILE);
+			}
 
-		logger.log(Level.INFO, "Restore file identified: " + restoreFileVersion);
-		
-		// Download multichunks
-		downloadMultiChunks(restoreFileVersion);
-		
-		// Restore file
-		logger.log(Level.INFO, "- Restoring: " + restoreFileVersion);
+			// Find file version
+			FileVersion restoreFileVersion = findRestoreFileVersion(restoreFileHistoryId);
 
-		RestoreFileSystemAction restoreAction = new RestoreFileSystemAction(config, restoreFileVersion, options.getRelativeTargetPath());
-		RestoreFileSystemActionResult restoreResult = restoreAction.execute();
+			if (restoreFileVersion == null) {
+				return new RestoreOperationResult(RestoreResultCode.NACK_NO_FILE);
+			}
+			else if (restoreFileVersion.getType() == FileType.FOLDER) {
+				return new RestoreOperationResult(RestoreResultCode.NACK_INVALID_FILE);
+			}
 
-		return new RestoreOperationResult(RestoreResultCode.ACK, restoreResult.getTargetFile());
+			logger.log(Level.INFO, "Restore file identified: " + restoreFileVersion);
+
+			// Download multichunks
+			downloadMultiChunks(restoreFileVersion);
+
+			// Restore file
+			logger.log(Level.INFO, "- Restoring: " + restoreFileVersion);
+
+			RestoreFileSystemAction restoreAction = new RestoreFileSystemAction(config, restoreFileVersion, options.getRelativeTargetPath());
+			RestoreFileSystemActionResult restoreResult = restoreAction.execute();
+
+			return new RestoreOperationResult(RestoreResultCode.ACK, restoreResult.getTargetFile());
+		}
+		finally {
+			localDatabase.close();
+		}
 	}
 
 	private FileHistoryId findFileHistoryId() {
@@ -115,11 +125,25 @@ public class RestoreOperation extends AbstractTransferOperation {
 	}
 
 	private void downloadMultiChunks(FileVersion restoreFileVersion) throws StorageException, IOException {
-		Set<MultiChunkId> multiChunksToDownload = new HashSet<MultiChunkId>();
-		FileChecksum restoreFileChecksum = restoreFileVersion.getChecksum();
+		Map<MultiChunkId, Set<ChunkChecksum>> multiChunksToDownload = new HashMap<MultiChunkId, Set<ChunkChecksum>>();
+		FileContent restoreFileContent = localDatabase.getFileContent(restoreFileVersion.getChecksum(), true);
+			
+		if (restoreFileContent != null) {
+			Map<ChunkChecksum, MultiChunkId> multiChunkIds = localDatabase.getMultiChunkIdsByChecksums(restoreFileContent.getChunks());
 			
-		if (restoreFileChecksum != null) {
-			multiChunksToDownload.addAll(localDatabase.getMultiChunkIds(restoreFileChecksum));
+			for (Map.Entry<ChunkChecksum, MultiChunkId> multiChunkIdEntry : multiChunkIds.entrySet()) {
+				Set<ChunkChecksum> requiredChunks = multiChunksToDownload.get(multiChunkIdEntry.getValue());
+				
+				if (requiredChunks == null) {
+					requiredChunks = new HashSet<ChunkChecksum>();
+					multiChunksToDownload.put(multiChunkIdEntry.getValue(), requiredChunks);
+				}
+				
+				requiredChunks.add(multiChunkIdEntry.getKey());
+			}
+
+			Assembler assembler = new Assembler(config, localDatabase);
+			assembler.removeLocalChunks(multiChunksToDownload, Collections.<String> emptySet());
 
 			logger.log(Level.INFO, "Downloading " + multiChunksToDownload.size() + " multichunk(s) to restore file ...");
 			downloader.downloadAndDecryptMultiChunks(multiChunksToDownload);
@@ -55,6 +55,7 @@ public class StatusOperation extends Operation {
 	
 	private FileVersionComparator fileVersionComparator; 
 	private SqlDatabase localDatabase;
+	private boolean closeLocalDatabase;
 	private StatusOperationOptions options;
 	
 	private LocalEventBus eventBus;
@@ -64,10 +65,15 @@ public class StatusOperation extends Operation {
 	}	
 	
 	public StatusOperation(Config config, StatusOperationOptions options) {
+		this(config, options, new SqlDatabase(config));
+		this.closeLocalDatabase = true;
+	}	
+	
+	public StatusOperation(Config config, StatusOperationOptions options, SqlDatabase localDatabase) {
 		super(config);		
 		
 		this.fileVersionComparator = new FileVersionComparator(config.getLocalDir(), config.getChunker().getChecksumAlgorithm());
-		this.localDatabase = new SqlDatabase(config);
+		this.localDatabase = localDatabase;
 		this.options = options;		
 		
 		this.eventBus = LocalEventBus.getInstance();
@@ -75,40 +81,47 @@ public class StatusOperation extends Operation {
 	
 	@Override
 	public StatusOperationResult execute() throws Exception {
-		logger.log(Level.INFO, "");
-		logger.log(Level.INFO, "Running 'Status' at client "+config.getMachineName()+" ...");
-		logger.log(Level.INFO, "--------------------------------------------");
-		
-		if (options != null && options.isForceChecksum()) {
-			logger.log(Level.INFO, "Force checksum ENABLED.");
-		}
-		
-		if (options != null && !options.isDelete()) {
-			logger.log(Level.INFO, "Delete missing files DISABLED.");
-		}
-		
-		// Get local database
-		logger.log(Level.INFO, "Querying current file tree from database ...");				
-		eventBus.post(new StatusStartSyncExternalEvent(config.getLocalDir().getAbsolutePath()));		
-		
-		// Path to actual file version
-		final Map<String, FileVersion> filesInDatabase = localDatabase.getCurrentFileTree();
+		try {
+			logger.log(Level.INFO, "");
+			logger.log(Level.INFO, "Running 'Status' at client "+config.getMachineName()+" ...");
+			logger.log(Level.INFO, "--------------------------------------------");
 
-		// Find local changes
-		logger.log(Level.INFO, "Analyzing local folder "+config.getLocalDir()+" ...");								
-		ChangeSet localChanges = findLocalChanges(filesInDatabase);
-		
-		if (!localChanges.hasChanges()) {
-			logger.log(Level.INFO, "- No changes to local database");
+			if (options != null && options.isForceChecksum()) {
+				logger.log(Level.INFO, "Force checksum ENABLED.");
+			}
+
+			if (options != null && !options.isDelete()) {
+				logger.log(Level.INFO, "Delete missing files DISABLED.");
+			}
+
+			// Get local database
+			logger.log(Level.INFO, "Querying current file tree from database ...");				
+			eventBus.post(new StatusStartSyncExternalEvent(config.getLocalDir().getAbsolutePath()));		
+
+			// Path to actual file version
+			final Map<String, FileVersion> filesInDatabase = localDatabase.getCurrentFileTree();
+
+			// Find local changes
+			logger.log(Level.INFO, "Analyzing local folder "+config.getLocalDir()+" ...");								
+			ChangeSet localChanges = findLocalChanges(filesInDatabase);
+
+			if (!localChanges.hasChanges()) {
+				logger.log(Level.INFO, "- No changes to local database");
+			}
+
+			// Return result
+			StatusOperationResult statusResult = new StatusOperationResult();
+			statusResult.setChangeSet(localChanges);
+
+			eventBus.post(new StatusEndSyncExternalEvent(config.getLocalDir().getAbsolutePath(), localChanges.hasChanges()));		
+
+			return statusResult;
+		}
+		finally {
+			if (closeLocalDatabase) {
+				localDatabase.close();
+			}
 		}
-		
-		// Return result
-		StatusOperationResult statusResult = new StatusOperationResult();
-		statusResult.setChangeSet(localChanges);
-		
-		eventBus.post(new StatusEndSyncExternalEvent(config.getLocalDir().getAbsolutePath(), localChanges.hasChanges()));		
-		
-		return statusResult;
 	}
 
 	private ChangeSet findLocalChanges(final Map<String, FileVersion> filesInDatabase) throws FileNotFoundException, IOException {
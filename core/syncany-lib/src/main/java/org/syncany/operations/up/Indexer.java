@@ -20,6 +20,8 @@ package org.syncany.operations.up;
 import java.io.File;
 import java.io.IOException;
 import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -35,6 +37,7 @@ import org.syncany.config.Config;
 import org.syncany.config.LocalEventBus;
 import org.syncany.database.ChunkEntry;
 import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.ChunkPosition;
 import org.syncany.database.DatabaseVersion;
 import org.syncany.database.FileContent;
 import org.syncany.database.FileContent.FileChecksum;
@@ -85,6 +88,7 @@ public class Indexer {
 	private Config config;
 	private Deduper deduper;
 	private SqlDatabase localDatabase;
+	private SqlDatabase chunkPositionDatabase;
 
 	private LocalEventBus eventBus;
 
@@ -93,6 +97,7 @@ public class Indexer {
 		this.config = config;
 		this.deduper = deduper;
 		this.localDatabase = new SqlDatabase(config, true);
+		this.chunkPositionDatabase = new SqlDatabase(config);
 
 		this.eventBus = LocalEventBus.getInstance();
 	}
@@ -112,14 +117,18 @@ public class Indexer {
 	 * @throws IOException If the chunking/deduplication cannot read/process any of the files
 	 */
 	public void index(List<File> files, List<File> deletedFiles, Queue<DatabaseVersion> databaseVersionQueue) throws IOException {
-		if (!files.isEmpty()) {
-			indexWithNewFiles(files, deletedFiles, databaseVersionQueue);
+		try {
+			if (!files.isEmpty()) {
+				indexWithNewFiles(files, deletedFiles, databaseVersionQueue);
+			}
+			else {
+				indexWithoutNewFiles(files, deletedFiles, databaseVersionQueue);
+			}
 		}
-		else {
-			indexWithoutNewFiles(files, deletedFiles, databaseVersionQueue);
+		finally {
+			localDatabase.close();
+			chunkPositionDatabase.close();
 		}
-
-		localDatabase.finalize();
 	}
 
 	private void indexWithNewFiles(List<File> files, List<File> deletedFiles, Queue<DatabaseVersion> databaseVersionQueue) throws IOException {
@@ -238,6 +247,8 @@ public class Indexer {
 		private ChunkEntry chunkEntry;
 		private MultiChunkEntry multiChunkEntry;
 		private FileContent fileContent;
+		private List<ChunkPosition> chunkPositions;
+		private long chunkOffset;
 
 		private FileProperties startFileProperties;
 		private FileProperties endFileProperties;
@@ -269,6 +280,8 @@ public class Indexer {
 			if (startFileProperties.getType() == FileType.FILE) {
 				logger.log(Level.FINER, "- +FileContent: {0}", file);
 				fileContent = new FileContent();
+				chunkPositions = new ArrayList<ChunkPosition>();
+				chunkOffset = 0;
 			}
 
 			return true;
@@ -311,6 +324,7 @@ public class Indexer {
 
 			// If it's still there, add it to the database
 			addFileVersion(endFileProperties);
+			writeChunkPositions(endFileProperties);
 
 			// Reset
 			resetFileEnd();
@@ -460,8 +474,28 @@ public class Indexer {
 			return fileVersion;
 		}
 
+		/**
+		 * Records the local positions of the file's chunks, so that they can be used
+		 * to reconstruct other files without downloading the chunks. Since positions are 
+		 * only hints, failing to write them does not fail the indexing process. 
+		 */
+		private void writeChunkPositions(FileProperties fileProperties) {
+			if (chunkPositions != null) {
+				try {
+					chunkPositionDatabase.writeChunkPositions(fileProperties.getRelativePath(), fileProperties.getSize(),
+							fileProperties.getLastModified(), chunkPositions);
+					
+					chunkPositionDatabase.commit();
+				}
+				catch (SQLException e) {
+					logger.log(Level.WARNING, "   * Unable to write chunk positions for " + fileProperties.getRelativePath() + ". Ignoring.", e);
+				}
+			}
+		}
+
 		private void resetFileEnd() {
 			fileContent = null;
+			chunkPositions = null;
 			startFileProperties = null;
 			endFileProperties = null;
 		}
@@ -640,7 +674,12 @@ public class Indexer {
 		@Override
 		public void onFileAddChunk(File file, Chunk chunk) {
 			logger.log(Level.FINER, "- Chunk > FileContent: {0} > {1}", new Object[] { StringUtil.toHex(chunk.getChecksum()), file });
-			fileContent.addChunk(new ChunkChecksum(chunk.getChecksum()));
+
+			ChunkChecksum chunkChecksum = new ChunkChecksum(chunk.getChecksum());
+			fileContent.addChunk(chunkChecksum);
+
+			chunkPositions.add(new ChunkPosition(chunkChecksum, startFileProperties.getRelativePath(), chunkOffset, chunk.getSize()));
+			chunkOffset += chunk.getSize();
 		}
 
 		@Override
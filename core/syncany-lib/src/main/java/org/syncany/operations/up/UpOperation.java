@@ -47,8 +47,8 @@ import org.syncany.database.MultiChunkEntry.MultiChunkId;
 import org.syncany.database.PartialFileHistory;
 import org.syncany.database.SqlDatabase;
 import org.syncany.database.VectorClock;
-import org.syncany.database.dao.DatabaseXmlSerializer;
-import org.syncany.database.dao.DatabaseXmlSerializer.DatabaseReadType;
+import org.syncany.database.dao.DatabaseSerializer;
+import org.syncany.database.dao.DatabaseSerializer.DatabaseReadType;
 import org.syncany.operations.AbstractTransferOperation;
 import org.syncany.operations.ChangeSet;
 import org.syncany.operations.cleanup.CleanupOperation;
@@ -121,104 +121,106 @@ public class UpOperation extends AbstractTransferOperation {
 
 	@Override
 	public UpOperationResult execute() throws Exception {
-		logger.log(Level.INFO, "");
-		logger.log(Level.INFO, "Running 'Sync up' at client " + config.getMachineName() + " ...");
-		logger.log(Level.INFO, "--------------------------------------------");
+		try {
+			logger.log(Level.INFO, "");
+			logger.log(Level.INFO, "Running 'Sync up' at client " + config.getMachineName() + " ...");
+			logger.log(Level.INFO, "--------------------------------------------");
 
-		fireStartEvent();
+			fireStartEvent();
 
-		if (!checkPreconditions()) {
-			fireEndEvent();
-			return result;
-		}
+			if (!checkPreconditions()) {
+				fireEndEvent();
+				return result;
+			}
+
+			// Upload action file (lock for cleanup)
+			startOperation();
 
-		// Upload action file (lock for cleanup)
-		startOperation();
+			TransactionRemoteFile transactionRemoteFileToResume = null;
+			Collection<RemoteTransaction> remoteTransactionsToResume = null;
 
-		TransactionRemoteFile transactionRemoteFileToResume = null;
-		Collection<RemoteTransaction> remoteTransactionsToResume = null;
+			BlockingQueue<DatabaseVersion> databaseVersionQueue = new LinkedBlockingQueue<>();
+			boolean resuming = false;
 
-		BlockingQueue<DatabaseVersion> databaseVersionQueue = new LinkedBlockingQueue<>();
-		boolean resuming = false;
+			if (options.isResume()) {
+				Collection<Long> versionsToResume = transferManager.loadPendingTransactionList();
+				if (versionsToResume != null && versionsToResume.size() != 0) {
+					logger.log(Level.INFO, "Found local transaction to resume.");
+					logger.log(Level.INFO, "Attempting to find transactionRemoteFile");
 
-		if (options.isResume()) {
-			Collection<Long> versionsToResume = transferManager.loadPendingTransactionList();
-			if (versionsToResume != null && versionsToResume.size() != 0) {
-				logger.log(Level.INFO, "Found local transaction to resume.");
-				logger.log(Level.INFO, "Attempting to find transactionRemoteFile");
+					remoteTransactionsToResume = attemptResumeTransactions(versionsToResume);
+					Collection<DatabaseVersion> remoteDatabaseVersionsToResume = attemptResumeDatabaseVersions(versionsToResume);
 
-				remoteTransactionsToResume = attemptResumeTransactions(versionsToResume);
-				Collection<DatabaseVersion> remoteDatabaseVersionsToResume = attemptResumeDatabaseVersions(versionsToResume);
+					if (remoteDatabaseVersionsToResume != null && remoteTransactionsToResume != null &&
+							remoteDatabaseVersionsToResume.size() == remoteTransactionsToResume.size()) {
+						databaseVersionQueue.addAll(remoteDatabaseVersionsToResume);
+						resuming = true;
+					}
+					// Add stopping marker
+					databaseVersionQueue.add(new DatabaseVersion());
 
-				if (remoteDatabaseVersionsToResume != null && remoteTransactionsToResume != null &&
-						remoteDatabaseVersionsToResume.size() == remoteTransactionsToResume.size()) {
-					databaseVersionQueue.addAll(remoteDatabaseVersionsToResume);
-					resuming = true;
+					try {
+						transactionRemoteFileToResume = attemptResumeTransactionRemoteFile();
+					}
+					catch (BlockingTransfersException e) {
+						stopBecauseOfBlockingTransactions();
+						return result;
+					}
+				}
+				else {
+					transferManager.clearResumableTransactions();
 				}
-				// Add stopping marker
-				databaseVersionQueue.add(new DatabaseVersion());
+			}
 
+			if (!resuming) {
+				// Get a list of files that have been updated
+				ChangeSet localChanges = result.getStatusResult().getChangeSet();
+				List<File> locallyUpdatedFiles = extractLocallyUpdatedFiles(localChanges);
+				List<File> locallyDeletedFiles = extractLocallyDeletedFiles(localChanges);
+				// Iterate over the changes, deduplicate, and feed DatabaseVersions into an iterator
+				Deduper deduper = new Deduper(config.getChunker(), config.getMultiChunker(), config.getTransformer(), options.getTransactionSizeLimit(),
+						options.getTransactionFileLimit());
+
+				AsyncIndexer asyncIndexer = new AsyncIndexer(config, deduper, locallyUpdatedFiles, locallyDeletedFiles, databaseVersionQueue);
+				new Thread(asyncIndexer).start();
+			}
+
+			// If we are not resuming from a remote transaction, we need to clean transactions.
+			if (transactionRemoteFileToResume == null) {
 				try {
-					transactionRemoteFileToResume = attemptResumeTransactionRemoteFile();
+					transferManager.cleanTransactions();
 				}
 				catch (BlockingTransfersException e) {
 					stopBecauseOfBlockingTransactions();
 					return result;
 				}
 			}
+
+			int numberOfPerformedTransactions = 0;
+			if (resuming) {
+				numberOfPerformedTransactions = executeTransactions(databaseVersionQueue, remoteTransactionsToResume.iterator(), transactionRemoteFileToResume);
+			}
 			else {
-				transferManager.clearResumableTransactions();
+				numberOfPerformedTransactions = executeTransactions(databaseVersionQueue);
 			}
-		}
 
-		if (!resuming) {
-			// Get a list of files that have been updated
-			ChangeSet localChanges = result.getStatusResult().getChangeSet();
-			List<File> locallyUpdatedFiles = extractLocallyUpdatedFiles(localChanges);
-			List<File> locallyDeletedFiles = extractLocallyDeletedFiles(localChanges);
-			// Iterate over the changes, deduplicate, and feed DatabaseVersions into an iterator
-			Deduper deduper = new Deduper(config.getChunker(), config.getMultiChunker(), config.getTransformer(), options.getTransactionSizeLimit(),
-					options.getTransactionFileLimit());
-			
-			AsyncIndexer asyncIndexer = new AsyncIndexer(config, deduper, locallyUpdatedFiles, locallyDeletedFiles, databaseVersionQueue);
-			new Thread(asyncIndexer).start();
-		}
-
-		// If we are not resuming from a remote transaction, we need to clean transactions.
-		if (transactionRemoteFileToResume == null) {
-			try {
-				transferManager.cleanTransactions();
+			// Check if anything has happened.
+			if (numberOfPerformedTransactions == 0) {
+				logger.log(Level.INFO, "Local database is up-to-date. NOTHING TO DO!");
+				result.setResultCode(UpResultCode.OK_NO_CHANGES);
+			} else {
+				logger.log(Level.INFO, "Sync up done.");
+				result.setResultCode(UpResultCode.OK_CHANGES_UPLOADED);
 			}
-			catch (BlockingTransfersException e) {
-				stopBecauseOfBlockingTransactions();
-				return result;
-			}
-		}
 
-		int numberOfPerformedTransactions = 0;
-		if (resuming) {
-			numberOfPerformedTransactions = executeTransactions(databaseVersionQueue, remoteTransactionsToResume.iterator(), transactionRemoteFileToResume);
-		}
-		else {
-			numberOfPerformedTransactions = executeTransactions(databaseVersionQueue);
+			// Finish 'up' before 'cleanup' starts
+			finishOperation();
+			fireEndEvent();
+			return result;
 		}
-		
-		// Check if anything has happened.
-		if (numberOfPerformedTransactions == 0) {
-			logger.log(Level.INFO, "Local database is up-to-date. NOTHING TO DO!");
-			result.setResultCode(UpResultCode.OK_NO_CHANGES);
-		} else {
-			logger.log(Level.INFO, "Sync up done.");
-			result.setResultCode(UpResultCode.OK_CHANGES_UPLOADED);
+		finally {
+			localDatabase.close();
 		}
-
-		// Close database connection
-		localDatabase.finalize();
-
-		// Finish 'up' before 'cleanup' starts
-		finishOperation();
-		fireEndEvent();
-		return result;
 	}
 
 	/**
@@ -546,7 +548,7 @@ public class UpOperation extends AbstractTransferOperation {
 	protected void saveDeltaDatabase(MemoryDatabase db, File localDatabaseFile) throws IOException {
 		logger.log(Level.INFO, "- Saving database to " + localDatabaseFile + " ...");
 
-		DatabaseXmlSerializer dao = new DatabaseXmlSerializer(config.getTransformer());
+		DatabaseSerializer dao = DatabaseSerializer.getInstance(config.getDatabaseFormat(), config.getTransformer());
 		dao.save(db.getDatabaseVersions(), localDatabaseFile);
 	}
 
@@ -766,7 +768,7 @@ public class UpOperation extends AbstractTransferOperation {
 				return null;
 			}
 
-			DatabaseXmlSerializer databaseSerializer = new DatabaseXmlSerializer();
+			DatabaseSerializer databaseSerializer = DatabaseSerializer.getInstance(config.getDatabaseFormat(), null);
 			MemoryDatabase memoryDatabase = new MemoryDatabase();
 			databaseSerializer.load(memoryDatabase, databaseFile, null, null, DatabaseReadType.FULL);
 
@@ -818,7 +820,7 @@ public class UpOperation extends AbstractTransferOperation {
 				MemoryDatabase memoryDatabase = new MemoryDatabase();
 				memoryDatabase.addDatabaseVersion(databaseVersion);
 
-				DatabaseXmlSerializer dao = new DatabaseXmlSerializer();
+				DatabaseSerializer dao = DatabaseSerializer.getInstance(config.getDatabaseFormat(), null);
 				dao.save(memoryDatabase.getDatabaseVersions(), config.getTransactionDatabaseFile(databaseVersionClock));
 			}
 
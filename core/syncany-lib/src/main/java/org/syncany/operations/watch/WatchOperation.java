@@ -180,6 +180,7 @@ public class WatchOperation extends Operation implements NotificationListenerLis
 		}
 
 		localDatabase.shutdown();
+		localDatabase.close();
 
 		return new WatchOperationResult();
 	}
@@ -34,6 +34,7 @@ import org.syncany.plugins.transfer.StorageException;
 import org.syncany.plugins.transfer.StorageFileNotFoundException;
 import org.syncany.plugins.transfer.StorageMoveException;
 import org.syncany.plugins.transfer.TransferManager;
+import org.syncany.plugins.transfer.features.RangeAware;
 import org.syncany.plugins.transfer.files.ActionRemoteFile;
 import org.syncany.plugins.transfer.files.CleanupRemoteFile;
 import org.syncany.plugins.transfer.files.DatabaseRemoteFile;
@@ -65,6 +66,7 @@ import com.google.common.collect.Maps;
  *
  * @author Philipp C. Heckel <philipp.heckel@gmail.com>
  */
+@RangeAware(extension = LocalTransferManagerRangeAwareFeatureExtension.class)
 public class LocalTransferManager extends AbstractTransferManager {
 	private static final Logger logger = Logger.getLogger(LocalTransferManager.class.getSimpleName());
 
@@ -262,7 +264,7 @@ public class LocalTransferManager extends AbstractTransferManager {
 		}
 	}
 
-	private File getRemoteFile(RemoteFile remoteFile) {
+	File getRemoteFile(RemoteFile remoteFile) {
 		String rootPath = getRemoteFilePath(remoteFile.getClass());
 		return Paths.get(rootPath, remoteFile.getName()).toFile();
 	}
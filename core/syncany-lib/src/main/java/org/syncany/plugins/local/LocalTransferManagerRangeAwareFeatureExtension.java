@@ -0,0 +1,88 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.plugins.local;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import org.syncany.plugins.transfer.StorageException;
+import org.syncany.plugins.transfer.StorageFileNotFoundException;
+import org.syncany.plugins.transfer.features.RangeAwareFeatureExtension;
+import org.syncany.plugins.transfer.files.RemoteFile;
+
+/**
+ * Implements the {@link RangeAwareFeatureExtension} for the {@link LocalTransferManager},
+ * i.e. it copies only the requested byte range of a file in the local repository.
+ *
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class LocalTransferManagerRangeAwareFeatureExtension implements RangeAwareFeatureExtension {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final LocalTransferManager transferManager;
+
+	public LocalTransferManagerRangeAwareFeatureExtension(LocalTransferManager transferManager) {
+		this.transferManager = transferManager;
+	}
+
+	@Override
+	public void download(RemoteFile remoteFile, File localFile, long offset, long length) throws StorageException {
+		transferManager.connect();
+
+		File repoFile = transferManager.getRemoteFile(remoteFile);
+
+		if (!repoFile.exists()) {
+			throw new StorageFileNotFoundException("No such file in local repository: " + repoFile);
+		}
+
+		try (RandomAccessFile repoRandomAccessFile = new RandomAccessFile(repoFile, "r");
+				OutputStream localOutputStream = new FileOutputStream(localFile)) {
+
+			long fileLength = repoRandomAccessFile.length();
+			long rangeOffset = (offset >= 0) ? offset : fileLength + offset;
+			long rangeLength = (offset >= 0) ? length : -offset;
+
+			if (rangeOffset < 0 || rangeLength < 0 || rangeOffset + rangeLength > fileLength) {
+				throw new StorageException("Cannot satisfy range (offset " + offset + ", length " + length + ") for file " + repoFile
+						+ " of size " + fileLength);
+			}
+
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long remainingBytes = rangeLength;
+
+			repoRandomAccessFile.seek(rangeOffset);
+
+			while (remainingBytes > 0) {
+				int read = repoRandomAccessFile.read(buffer, 0, (int) Math.min(buffer.length, remainingBytes));
+
+				if (read == -1) {
+					throw new StorageException("Unexpected end of file " + repoFile + " while reading range.");
+				}
+
+				localOutputStream.write(buffer, 0, read);
+				remainingBytes -= read;
+			}
+		}
+		catch (IOException e) {
+			throw new StorageException("Unable to copy range of file " + repoFile + " from local repository to " + localFile, e);
+		}
+	}
+}
@@ -30,6 +30,7 @@ import org.syncany.plugins.transfer.features.ReadAfterWriteConsistent;
 import org.syncany.plugins.transfer.features.Feature;
 import org.syncany.plugins.transfer.features.FeatureTransferManager;
 import org.syncany.plugins.transfer.features.PathAware;
+import org.syncany.plugins.transfer.features.RangeAware;
 import org.syncany.plugins.transfer.features.Retriable;
 import org.syncany.plugins.transfer.features.TransactionAware;
 import org.syncany.util.ReflectionUtil;
@@ -70,6 +71,7 @@ public class TransferManagerFactory {
 			.add(Retriable.class)
 			.add(PathAware.class)
 			.add(ReadAfterWriteConsistent.class)
+			.add(RangeAware.class)
 			.build();
 
 	/**
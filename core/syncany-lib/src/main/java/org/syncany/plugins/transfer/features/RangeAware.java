@@ -0,0 +1,59 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.plugins.transfer.features;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.syncany.chunk.SeekableMultiChunk;
+import org.syncany.plugins.transfer.features.RangeAwareFeatureTransferManager.RangeAwareRemoteFileAttributes;
+
+/**
+ * Feature annotation to mark a transfer manager of transfer plugins whose backend
+ * storage can download parts (byte ranges) of a file, e.g. via HTTP range requests.
+ *
+ * <p>This annotation is only recognized if used on a {@link TransferManager}. If
+ * applied, it wraps the original transfer manager in a {@link RangeAwareFeatureTransferManager}.
+ * Callers can then request a byte range by attaching {@link RangeAwareRemoteFileAttributes}
+ * to a remote file before downloading it. This is used to download only the required
+ * chunks of a {@link SeekableMultiChunk}.
+ *
+ * <p>The only mandatory configuration for this feature is specifying a
+ * {@link RangeAwareFeatureExtension} to perform the actual ranged download.
+ * It must be implemented by the transfer plugin.
+ *
+ * <p><b>Note:</b> Because other features (such as {@link PathAware}) might alter the
+ * remote file before it is downloaded, this feature should be requested first, i.e. it
+ * should wrap the original transfer manager directly.
+ *
+ * @see RangeAwareFeatureTransferManager
+ * @see RangeAwareFeatureExtension
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+@Feature(required = false)
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RangeAware {
+	/**
+	 * The range aware extension must be specified to perform
+	 * ranged downloads.
+	 */
+	Class<? extends RangeAwareFeatureExtension> extension();
+}
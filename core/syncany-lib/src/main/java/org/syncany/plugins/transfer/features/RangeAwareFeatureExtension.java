@@ -0,0 +1,51 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.plugins.transfer.features;
+
+import java.io.File;
+
+import org.syncany.plugins.transfer.StorageException;
+import org.syncany.plugins.transfer.TransferManager;
+import org.syncany.plugins.transfer.files.RemoteFile;
+
+/**
+ * The range aware feature extension must be defined in the {@link RangeAware}
+ * feature in order to extend a {@link TransferManager} that was marked as 'range aware'
+ * with the required method to download parts of a remote file.
+ *
+ * @see RangeAware
+ * @see RangeAwareFeatureTransferManager
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public interface RangeAwareFeatureExtension extends FeatureExtension {
+	/**
+	 * Downloads the given byte range of a remote file to the given local file.
+	 *
+	 * <p>If the offset is positive or zero, <tt>length</tt> bytes starting at <tt>offset</tt>
+	 * are downloaded. If the offset is negative, the last <tt>-offset</tt> bytes of the
+	 * remote file are downloaded (like an HTTP suffix range), and <tt>length</tt> is ignored.
+	 * Implementations must fail if the requested range cannot be satisfied entirely.
+	 *
+	 * @param remoteFile Remote file to download a part of
+	 * @param localFile Local file to store the downloaded bytes to
+	 * @param offset Offset of the first byte to download, or a negative value to download a suffix
+	 * @param length Number of bytes to download (ignored for suffix ranges)
+	 * @throws StorageException If the connection fails or the range cannot be satisfied
+	 */
+	public void download(RemoteFile remoteFile, File localFile, long offset, long length) throws StorageException;
+}
@@ -0,0 +1,209 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.plugins.transfer.features;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.syncany.config.Config;
+import org.syncany.plugins.transfer.StorageException;
+import org.syncany.plugins.transfer.StorageTestResult;
+import org.syncany.plugins.transfer.TransferManager;
+import org.syncany.plugins.transfer.TransferPlugin;
+import org.syncany.plugins.transfer.files.RemoteFile;
+import org.syncany.plugins.transfer.files.RemoteFileAttributes;
+import org.syncany.util.ReflectionUtil;
+
+/**
+ * The range aware transfer manager extends a backend storage with the ability
+ * to download only a part (byte range) of a remote file.
+ *
+ * <p>To enable ranged downloads in {@link TransferPlugin}s, the plugin's {@link TransferManager}
+ * has to be annotated with the {@link RangeAware} annotation, and a {@link RangeAwareFeatureExtension}
+ * has to be provided.
+ *
+ * <p>A range is requested by attaching {@link RangeAwareRemoteFileAttributes} to a remote file
+ * and calling the regular {@link #download(RemoteFile, File) download()} method. Since all
+ * other feature transfer managers pass the remote file on to the underlying transfer manager,
+ * this works through the entire chain of features. After the download, callers must check
+ * {@link RangeAwareRemoteFileAttributes#isRangeApplied()}: If the transfer manager does
+ * not support ranges, the whole file has been downloaded instead.
+ *
+ * @see RangeAware
+ * @see RangeAwareFeatureExtension
+ * @see RangeAwareRemoteFileAttributes
+ * @author Philipp C. Heckel <philipp.heckel@gmail.com>
+ */
+public class RangeAwareFeatureTransferManager implements FeatureTransferManager {
+	private static final Logger logger = Logger.getLogger(RangeAwareFeatureTransferManager.class.getSimpleName());
+
+	private final TransferManager underlyingTransferManager;
+	private final RangeAwareFeatureExtension rangeAwareFeatureExtension;
+
+	public RangeAwareFeatureTransferManager(TransferManager originalTransferManager, TransferManager underlyingTransferManager, Config config, RangeAware rangeAwareAnnotation) {
+		this.underlyingTransferManager = underlyingTransferManager;
+		this.rangeAwareFeatureExtension = getRangeAwareFeatureExtension(originalTransferManager, rangeAwareAnnotation);
+	}
+
+	@SuppressWarnings("unchecked")
+	private RangeAwareFeatureExtension getRangeAwareFeatureExtension(TransferManager originalTransferManager, RangeAware rangeAwareAnnotation) {
+		Class<RangeAwareFeatureExtension> rangeAwareFeatureExtensionClass = (Class<RangeAwareFeatureExtension>) rangeAwareAnnotation.extension();
+
+		try {
+			// The annotation might be inherited, so the extension's constructor might expect a super class
+			Constructor<?> constructor = null;
+			Class<?> transferManagerClass = originalTransferManager.getClass();
+
+			while (constructor == null && transferManagerClass != null) {
+				constructor = ReflectionUtil.getMatchingConstructorForClass(rangeAwareFeatureExtensionClass, transferManagerClass);
+				transferManagerClass = transferManagerClass.getSuperclass();
+			}
+
+			if (constructor != null) {
+				return (RangeAwareFeatureExtension) constructor.newInstance(originalTransferManager);
+			}
+
+			return rangeAwareFeatureExtensionClass.newInstance();
+		}
+		catch (InvocationTargetException | InstantiationException | IllegalAccessException | NullPointerException e) {
+			throw new RuntimeException("Cannot instantiate RangeAwareFeatureExtension (perhaps " + rangeAwareFeatureExtensionClass + " does not exist?)", e);
+		}
+	}
+
+	@Override
+	public void connect() throws StorageException {
+		underlyingTransferManager.connect();
+	}
+
+	@Override
+	public void disconnect() throws StorageException {
+		underlyingTransferManager.disconnect();
+	}
+
+	@Override
+	public void init(final boolean createIfRequired) throws StorageException {
+		underlyingTransferManager.init(createIfRequired);
+	}
+
+	@Override
+	public void download(final RemoteFile remoteFile, final File localFile) throws StorageException {
+		RangeAwareRemoteFileAttributes rangeAttributes = remoteFile.getAttributes(RangeAwareRemoteFileAttributes.class);
+
+		if (rangeAttributes != null) {
+			logger.log(Level.FINE, "Downloading range (offset " + rangeAttributes.getOffset() + ", length " + rangeAttributes.getLength() + ") of "
+					+ remoteFile + " ...");
+
+			rangeAwareFeatureExtension.download(remoteFile, localFile, rangeAttributes.getOffset(), rangeAttributes.getLength());
+			rangeAttributes.setRangeApplied(true);
+		}
+		else {
+			underlyingTransferManager.download(remoteFile, localFile);
+		}
+	}
+
+	@Override
+	public void move(final RemoteFile sourceFile, final RemoteFile targetFile) throws StorageException {
+		underlyingTransferManager.move(sourceFile, targetFile);
+	}
+
+	@Override
+	public void upload(final File localFile, final RemoteFile remoteFile) throws StorageException {
+		underlyingTransferManager.upload(localFile, remoteFile);
+	}
+
+	@Override
+	public boolean delete(final RemoteFile remoteFile) throws StorageException {
+		return underlyingTransferManager.delete(remoteFile);
+	}
+
+	@Override
+	public <T extends RemoteFile> Map<String, T> list(final Class<T> remoteFileClass) throws StorageException {
+		return underlyingTransferManager.list(remoteFileClass);
+	}
+
+	@Override
+	public String getRemoteFilePath(Class<? extends RemoteFile> remoteFileClass) {
+		return underlyingTransferManager.getRemoteFilePath(remoteFileClass);
+	}
+
+	@Override
+	public StorageTestResult test(boolean testCreateTarget) {
+		return underlyingTransferManager.test(testCreateTarget);
+	}
+
+	@Override
+	public boolean testTargetExists() throws StorageException {
+		return underlyingTransferManager.testTargetExists();
+	}
+
+	@Override
+	public boolean testTargetCanWrite() throws StorageException {
+		return underlyingTransferManager.testTargetCanWrite();
+	}
+
+	@Override
+	public boolean testTargetCanCreate() throws StorageException {
+		return underlyingTransferManager.testTargetCanCreate();
+	}
+
+	@Override
+	public boolean testRepoFileExists() throws StorageException {
+		return underlyingTransferManager.testRepoFileExists();
+	}
+
+	/**
+	 * Remote file attributes to request a byte range of a remote file. The semantics
+	 * of offset and length are described in {@link RangeAwareFeatureExtension#download(RemoteFile, File, long, long)}.
+	 *
+	 * <p>If the download was performed by a {@link RangeAwareFeatureTransferManager}, the
+	 * attribute {@link #isRangeApplied()} is set to <tt>true</tt>. If it is still <tt>false</tt>
+	 * after the download, the transfer manager does not support ranges and has downloaded
+	 * the whole file.
+	 */
+	public static class RangeAwareRemoteFileAttributes extends RemoteFileAttributes {
+		private long offset;
+		private long length;
+		private boolean rangeApplied;
+
+		public RangeAwareRemoteFileAttributes(long offset, long length) {
+			this.offset = offset;
+			this.length = length;
+			this.rangeApplied = false;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		public boolean isRangeApplied() {
+			return rangeApplied;
+		}
+
+		public void setRangeApplied(boolean rangeApplied) {
+			this.rangeApplied = rangeApplied;
+		}
+	}
+}
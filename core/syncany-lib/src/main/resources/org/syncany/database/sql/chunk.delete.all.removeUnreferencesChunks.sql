@@ -1,7 +1,7 @@
--- The double "not in" is not required, but it prevents a foreign key constraint
--- issue if we didn't delete all the filecontents/multichunks properly
+-- The "not exists" is not required, but it prevents a foreign key constraint
+-- issue if we didn't delete all the multichunk references properly
 
-delete from chunk
+delete from chunk c
 where 
-	    checksum not in (select distinct chunk_checksum from multichunk_chunk)
-	and checksum not in (select distinct chunk_checksum from filecontent_chunk)	
+	    c.refcount=0
+	and not exists (select 1 from multichunk_chunk mcc where mcc.chunk_checksum=c.checksum)
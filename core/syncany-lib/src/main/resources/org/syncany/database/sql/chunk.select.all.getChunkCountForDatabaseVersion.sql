@@ -0,0 +1,5 @@
+-- Count the chunks of a database version
+
+select count(*)
+from chunk
+where databaseversion_id=?
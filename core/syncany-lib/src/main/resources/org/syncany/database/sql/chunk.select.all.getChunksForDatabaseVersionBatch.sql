@@ -0,0 +1,7 @@
+-- Determine the next batch of chunks of a database version, starting after the given checksum
+
+select checksum, size
+from chunk
+where databaseversion_id=? and checksum>?
+order by checksum
+limit ?
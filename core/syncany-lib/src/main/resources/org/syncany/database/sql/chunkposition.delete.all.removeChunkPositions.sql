@@ -0,0 +1 @@
+delete from chunkposition where path=?
\ No newline at end of file
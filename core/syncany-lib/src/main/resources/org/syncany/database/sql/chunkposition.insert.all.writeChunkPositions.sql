@@ -0,0 +1 @@
+insert into chunkposition (path, chunk_offset, chunk_checksum, chunk_size, file_size, file_lastmodified) values (?, ?, ?, ?, ?, ?)
\ No newline at end of file
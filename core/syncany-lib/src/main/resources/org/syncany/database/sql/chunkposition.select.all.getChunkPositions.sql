@@ -0,0 +1,3 @@
+select path, chunk_offset, chunk_checksum, chunk_size, file_size, file_lastmodified
+from chunkposition
+where chunk_checksum in ( unnest(?) )
\ No newline at end of file
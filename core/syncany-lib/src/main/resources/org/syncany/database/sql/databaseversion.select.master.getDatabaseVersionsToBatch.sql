@@ -0,0 +1,11 @@
+-- Determine the next batch of database versions of a client (up to a client version),
+-- starting after the given database version ID
+
+select dbvm.*
+from databaseversion_master dbvm
+where 
+	dbvm.client=?
+	and dbvm.client_version<=?
+	and dbvm.id>?
+order by dbvm.id
+limit ?
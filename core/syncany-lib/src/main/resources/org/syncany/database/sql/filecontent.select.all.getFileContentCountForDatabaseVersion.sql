@@ -0,0 +1,6 @@
+-- Count the filecontents (with chunks) of a database version
+
+select count(*)
+from filecontent fc
+where fc.databaseversion_id=?
+	and exists (select 1 from filecontent_chunk fcc where fcc.filecontent_checksum=fc.checksum)
@@ -0,0 +1,13 @@
+-- Determine the next batch of filecontents of a database version, starting after the given checksum
+
+select fc.checksum, fc.size, fcc.chunk_checksum, fcc.num
+from (
+	select fc.checksum, fc.size
+	from filecontent fc
+	where fc.databaseversion_id=? and fc.checksum>?
+		and exists (select 1 from filecontent_chunk fcc where fcc.filecontent_checksum=fc.checksum)
+	order by fc.checksum
+	limit ?
+) fc
+join filecontent_chunk fcc on fc.checksum=fcc.filecontent_checksum
+order by fc.checksum asc, fcc.num asc
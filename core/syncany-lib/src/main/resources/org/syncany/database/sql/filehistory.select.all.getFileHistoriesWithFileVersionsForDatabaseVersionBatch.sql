@@ -0,0 +1,16 @@
+-- Determine the next batch of file histories (and their file versions) of a database version, 
+-- starting after the given file history ID
+-- Note: This also selects DIRTY versions!
+
+select fvf.*
+from (
+	select fh.id
+	from filehistory fh
+	where fh.databaseversion_id=? and fh.id>?
+		and exists (select 1 from fileversion fv where fv.filehistory_id=fh.id and fv.databaseversion_id=fh.databaseversion_id)
+	order by fh.id
+	limit ?
+) fh
+join fileversion_full fvf on fh.id=fvf.filehistory_id
+where fvf.databaseversion_id=?
+order by fvf.filehistory_id asc, fvf.version asc
@@ -0,0 +1,7 @@
+-- Count the file histories (with file versions) of a database version
+-- Note: This also counts DIRTY versions!
+
+select count(*)
+from filehistory fh
+where fh.databaseversion_id=?
+	and exists (select 1 from fileversion fv where fv.filehistory_id=fh.id and fv.databaseversion_id=fh.databaseversion_id)
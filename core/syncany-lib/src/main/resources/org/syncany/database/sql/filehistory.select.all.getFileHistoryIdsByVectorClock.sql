@@ -0,0 +1,4 @@
+select distinct fh.id
+from databaseversion dbv
+join filehistory fh on dbv.id=fh.databaseversion_id
+where dbv.vectorclock_serialized=?
@@ -1,3 +1,3 @@
 select distinct filehistory_id
 from fileversion_master
-where filehistory_id like ?
+where rawtohex(filehistory_id) like ?
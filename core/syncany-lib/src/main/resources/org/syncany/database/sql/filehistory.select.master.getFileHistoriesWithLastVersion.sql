@@ -1,4 +1,4 @@
 select *
-from fileversion_master_last
+from fileversion_current
 order by filehistory_id asc, version asc
 
@@ -1 +1 @@
-select * from fileversion_master_last
+select * from fileversion_current
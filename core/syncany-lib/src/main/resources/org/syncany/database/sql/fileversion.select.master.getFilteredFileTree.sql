@@ -1,16 +1,19 @@
-select *
-from fileversion 
+select fv.*
+from fileversion fv
+join databaseversion dbv on fv.databaseversion_id=dbv.id and dbv.status='MASTER'
 where 
-	status<>?
-	and path like ?
-	and filehistory_id like ?	
-	and substr_count(path, '/')>=?
-	and substr_count(path, '/')<=?		
-	and type in (unnest(?))			
-	and (filehistory_id, version) in (
-		select filehistory_id, max(version)
-		from fileversion_master
-		where updated<=?
-		group by filehistory_id				
+	fv.path>=?
+	and fv.path<?
+	and fv.path like ?
+	and rawtohex(fv.filehistory_id) like ?
+	and fv.type in (unnest(?))
+	and fv.status<>?
+	and fv.updated<=?
+	and not exists (
+		select 1
+		from fileversion fv2
+		join databaseversion dbv2 on fv2.databaseversion_id=dbv2.id and dbv2.status='MASTER'
+		where fv2.filehistory_id=fv.filehistory_id
+			and fv2.version>fv.version
+			and fv2.updated<=?
 	)
-	
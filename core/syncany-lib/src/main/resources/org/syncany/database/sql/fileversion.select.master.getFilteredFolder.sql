@@ -0,0 +1,20 @@
+select fv.*
+from fileversion fv
+join databaseversion dbv on fv.databaseversion_id=dbv.id and dbv.status='MASTER'
+where 
+	fv.depth=?
+	and fv.path>=?
+	and fv.path<?
+	and fv.path like ?
+	and rawtohex(fv.filehistory_id) like ?
+	and fv.type in (unnest(?))
+	and fv.status<>?
+	and fv.updated<=?
+	and not exists (
+		select 1
+		from fileversion fv2
+		join databaseversion dbv2 on fv2.databaseversion_id=dbv2.id and dbv2.status='MASTER'
+		where fv2.filehistory_id=fv.filehistory_id
+			and fv2.version>fv.version
+			and fv2.updated<=?
+	)
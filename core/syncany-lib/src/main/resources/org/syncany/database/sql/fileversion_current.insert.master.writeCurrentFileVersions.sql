@@ -0,0 +1,16 @@
+-- Inserts the last non-deleted version of the given file history (if any), 
+-- i.e. the row of the fileversion_master_last view for this file history.
+
+-- Note: The file history ID is bound twice on purpose; HSQLDB does not 
+-- correlate the subquery correctly if it references fv.filehistory_id.
+
+insert into fileversion_current
+select fv.*
+from fileversion_master fv
+where fv.filehistory_id=?
+	and fv.status<>'DELETED'
+	and fv.version=(
+		select max(fv2.version)
+		from fileversion_master fv2
+		where fv2.filehistory_id=?
+	)
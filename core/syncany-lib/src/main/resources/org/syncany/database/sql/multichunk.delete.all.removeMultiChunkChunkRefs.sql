@@ -0,0 +1,2 @@
+delete from multichunk_chunk
+where multichunk_id=?
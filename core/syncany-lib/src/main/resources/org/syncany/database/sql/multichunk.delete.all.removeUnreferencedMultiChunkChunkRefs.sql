@@ -1,7 +1,9 @@
+-- Remove multichunk / chunk references for chunks that are not used
+-- by any file contents anymore (file contents must be removed first)
+
 delete from multichunk_chunk
-where chunk_checksum not in (
-	select distinct mcc.chunk_checksum
-	from fileversion fv1
-	join filecontent_chunk fcc on fv1.filecontent_checksum=fcc.filecontent_checksum
-	join multichunk_chunk mcc on fcc.chunk_checksum=mcc.chunk_checksum
+where chunk_checksum in (
+	select checksum
+	from chunk
+	where refcount=0
 )
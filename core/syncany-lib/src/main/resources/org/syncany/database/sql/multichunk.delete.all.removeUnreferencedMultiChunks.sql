@@ -1,2 +1,2 @@
 delete from multichunk
-where id not in (select distinct multichunk_id from multichunk_chunk)
+where refcount=0
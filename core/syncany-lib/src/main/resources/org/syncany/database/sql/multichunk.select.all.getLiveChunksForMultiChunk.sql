@@ -0,0 +1,6 @@
+-- Determine the chunks of a multichunk that are still referenced by a file content
+
+select mcc.chunk_checksum
+from multichunk_chunk mcc
+join chunk c on mcc.chunk_checksum=c.checksum
+where mcc.multichunk_id=? and c.refcount>0
@@ -0,0 +1,6 @@
+-- Count the multichunks (with chunks) of a database version
+
+select count(*)
+from multichunk mc
+where mc.databaseversion_id=?
+	and exists (select 1 from multichunk_chunk mcc where mcc.multichunk_id=mc.id)
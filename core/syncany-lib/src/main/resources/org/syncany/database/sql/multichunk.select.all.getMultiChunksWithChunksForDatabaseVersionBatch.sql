@@ -0,0 +1,13 @@
+-- Determine the next batch of multichunks of a database version, starting after the given multichunk ID
+
+select mcc.*, mc.size
+from (
+	select mc.id, mc.size
+	from multichunk mc
+	where mc.databaseversion_id=? and mc.id>?
+		and exists (select 1 from multichunk_chunk mcc where mcc.multichunk_id=mc.id)
+	order by mc.id
+	limit ?
+) mc
+join multichunk_chunk mcc on mc.id=mcc.multichunk_id
+order by mc.id asc
@@ -1,9 +1,27 @@
-select distinct mcc1.multichunk_id id, mc.size
-from multichunk_chunk mcc1
-join multichunk mc on mcc1.multichunk_id=mc.id
-where multichunk_id not in (
-	select distinct mcc.multichunk_id
-	from fileversion fv
-	join filecontent_chunk fcc on fv.filecontent_checksum=fcc.filecontent_checksum
+-- Select multichunks whose chunks are not used by any file content that is still
+-- referenced by a file version. Only multichunks with a chunk of an unreferenced file
+-- content, or with an unreferenced chunk, are candidates (see refcount columns).
+
+select mc.id, mc.size
+from multichunk mc
+where mc.id in (
+	select mcc.multichunk_id
+	from filecontent fc
+	join filecontent_chunk fcc on fc.checksum=fcc.filecontent_checksum
 	join multichunk_chunk mcc on fcc.chunk_checksum=mcc.chunk_checksum
+	where fc.refcount=0
+	
+	union
+	
+	select mcc.multichunk_id
+	from chunk c
+	join multichunk_chunk mcc on c.checksum=mcc.chunk_checksum
+	where c.refcount=0
+)
+and not exists (
+	select 1
+	from multichunk_chunk mcc2
+	join filecontent_chunk fcc2 on mcc2.chunk_checksum=fcc2.chunk_checksum
+	join filecontent fc2 on fcc2.filecontent_checksum=fc2.checksum
+	where mcc2.multichunk_id=mc.id and fc2.refcount>0
 )
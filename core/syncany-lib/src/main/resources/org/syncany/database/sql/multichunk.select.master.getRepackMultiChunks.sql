@@ -0,0 +1,13 @@
+-- Select multichunks of MASTER database versions whose live data ratio is below the given
+-- ratio. The live data ratio is the size of the chunks that are still referenced by a file
+-- content (see refcount columns) relative to the multichunk size. Lowest ratio first.
+
+select mc.id, mc.databaseversion_id, mc.size, cast(sum(c.size) as double) / mc.size as liveratio
+from databaseversion dbv
+join multichunk mc on dbv.id=mc.databaseversion_id
+join multichunk_chunk mcc on mc.id=mcc.multichunk_id
+join chunk c on mcc.chunk_checksum=c.checksum
+where dbv.status='MASTER' and mc.size>0 and c.refcount>0
+group by mc.id, mc.databaseversion_id, mc.size
+having cast(sum(c.size) as double) < cast(? as double) * mc.size
+order by liveratio, mc.id
@@ -9,10 +9,15 @@ CREATE CACHED TABLE IF NOT EXISTS databaseversion (
   UNIQUE (vectorclock_serialized)
 );
 
+-- The reference count columns (refcount) of the chunk, filecontent and multichunk tables
+-- are maintained by the triggers below. Entities with a reference count of zero are no
+-- longer used and are removed during cleanup, without scanning the referencing tables.
+
 CREATE CACHED TABLE IF NOT EXISTS  chunk (
-  checksum varchar(40) NOT NULL,
+  checksum varbinary(20) NOT NULL,
   databaseversion_id int NOT NULL,
   size bigint NOT NULL,
+  refcount int DEFAULT 0 NOT NULL,
   PRIMARY KEY (checksum),
   FOREIGN KEY (databaseversion_id) REFERENCES databaseversion (id) ON DELETE NO ACTION ON UPDATE NO ACTION
 );
@@ -26,16 +31,17 @@ CREATE CACHED TABLE IF NOT EXISTS  databaseversion_vectorclock (
 );
 
 CREATE CACHED TABLE IF NOT EXISTS  filecontent (
-  checksum varchar(40) NOT NULL,
+  checksum varbinary(20) NOT NULL,
   databaseversion_id int NOT NULL,
   size bigint NOT NULL,
+  refcount int DEFAULT 0 NOT NULL,
   PRIMARY KEY (checksum),
   FOREIGN KEY (databaseversion_id) REFERENCES databaseversion (id) ON DELETE NO ACTION ON UPDATE NO ACTION
 );
 
 CREATE CACHED TABLE IF NOT EXISTS  filecontent_chunk (
-  filecontent_checksum varchar(40) NOT NULL,
-  chunk_checksum varchar(40) NOT NULL,
+  filecontent_checksum varbinary(20) NOT NULL,
+  chunk_checksum varbinary(20) NOT NULL,
   num int NOT NULL,
   PRIMARY KEY (filecontent_checksum, chunk_checksum, num),
   FOREIGN KEY (filecontent_checksum) REFERENCES filecontent (checksum) ON DELETE NO ACTION ON UPDATE NO ACTION,
@@ -43,14 +49,18 @@ CREATE CACHED TABLE IF NOT EXISTS  filecontent_chunk (
 );
 
 CREATE CACHED TABLE IF NOT EXISTS  filehistory (
-  id varchar(40) NOT NULL,
+  id varbinary(20) NOT NULL,
   databaseversion_id int NOT NULL,
   PRIMARY KEY (id, databaseversion_id),
   FOREIGN KEY (databaseversion_id) REFERENCES databaseversion (id) ON DELETE NO ACTION ON UPDATE NO ACTION
 );
 
+-- The depth of a file version is the number of slashes in its path. Together with
+-- idx_fileversion_depth_path, it allows listing a single folder without scanning
+-- its subfolders.
+
 CREATE CACHED TABLE IF NOT EXISTS  fileversion (
-  filehistory_id varchar(40) NOT NULL,
+  filehistory_id varbinary(20) NOT NULL,
   version int NOT NULL,
   databaseversion_id int NOT NULL,
   path varchar(1024) NOT NULL,
@@ -59,33 +69,57 @@ CREATE CACHED TABLE IF NOT EXISTS  fileversion (
   size bigint NOT NULL,
   lastmodified datetime NOT NULL,
   linktarget varchar(1024),
-  filecontent_checksum varchar(40) DEFAULT NULL,
+  filecontent_checksum varbinary(20) DEFAULT NULL,
   updated datetime NOT NULL,
   posixperms varchar(45) DEFAULT NULL,
   dosattrs varchar(45) DEFAULT NULL,
+  depth int DEFAULT 0 NOT NULL,
   PRIMARY KEY (filehistory_id, version, databaseversion_id),
   FOREIGN KEY (filehistory_id, databaseversion_id) REFERENCES filehistory (id, databaseversion_id) ON DELETE NO ACTION ON UPDATE NO ACTION,
   FOREIGN KEY (filecontent_checksum) REFERENCES filecontent (checksum) ON DELETE NO ACTION ON UPDATE NO ACTION
 );
 
+-- Current file tree, i.e. the last non-deleted version of each file history in a MASTER
+-- database version. Same contents as the fileversion_master_last view, but maintained
+-- by the DAOs whenever file versions are written, marked dirty or purged.
+
+CREATE CACHED TABLE IF NOT EXISTS  fileversion_current (
+  filehistory_id varbinary(20) NOT NULL,
+  version int NOT NULL,
+  databaseversion_id int NOT NULL,
+  path varchar(1024) NOT NULL,
+  type varchar(45) NOT NULL,
+  status varchar(45) NOT NULL,
+  size bigint NOT NULL,
+  lastmodified datetime NOT NULL,
+  linktarget varchar(1024),
+  filecontent_checksum varbinary(20) DEFAULT NULL,
+  updated datetime NOT NULL,
+  posixperms varchar(45) DEFAULT NULL,
+  dosattrs varchar(45) DEFAULT NULL,
+  depth int DEFAULT 0 NOT NULL,
+  PRIMARY KEY (filehistory_id, version, databaseversion_id)
+);
+
 CREATE CACHED TABLE IF NOT EXISTS  multichunk (
-  id varchar(40) NOT NULL,
+  id varbinary(20) NOT NULL,
   databaseversion_id int NOT NULL,
   size bigint NOT NULL,  
+  refcount int DEFAULT 0 NOT NULL,
   PRIMARY KEY (id),
   FOREIGN KEY (databaseversion_id) REFERENCES databaseversion (id) ON DELETE NO ACTION ON UPDATE NO ACTION
 );
 
 CREATE CACHED TABLE IF NOT EXISTS  multichunk_chunk (
-  multichunk_id varchar(40) NOT NULL,
-  chunk_checksum varchar(40) NOT NULL,
+  multichunk_id varbinary(20) NOT NULL,
+  chunk_checksum varbinary(20) NOT NULL,
   PRIMARY KEY (multichunk_id, chunk_checksum),
   FOREIGN KEY (multichunk_id) REFERENCES multichunk (id) ON DELETE NO ACTION ON UPDATE NO ACTION,
   FOREIGN KEY (chunk_checksum) REFERENCES chunk (checksum) ON DELETE NO ACTION ON UPDATE NO ACTION
 );
 
 CREATE CACHED TABLE IF NOT EXISTS  multichunk_muddy (
-  id varchar(40) NOT NULL,
+  id varbinary(20) NOT NULL,
   machine_name varchar(255) NOT NULL,
   machine_version int NOT NULL,
   PRIMARY KEY (id)
@@ -109,8 +143,13 @@ CREATE CACHED TABLE IF NOT EXISTS  general_settings (
 CREATE INDEX idx_databaseversion_status ON databaseversion (status);
 CREATE INDEX idx_databaseversion_vectorclock_serialized ON databaseversion (vectorclock_serialized);
 CREATE INDEX idx_fileversion_path ON fileversion (path);
+CREATE INDEX idx_fileversion_depth_path ON fileversion (depth, path);
 CREATE INDEX idx_fileversion_status ON fileversion (status);
 CREATE INDEX idx_fileversion_filecontent_checksum ON fileversion (filecontent_checksum);
+CREATE INDEX idx_fileversion_current_path ON fileversion_current (path);
+CREATE INDEX idx_chunk_refcount ON chunk (refcount);
+CREATE INDEX idx_filecontent_refcount ON filecontent (refcount);
+CREATE INDEX idx_multichunk_refcount ON multichunk (refcount);
 
 
 -- Views
@@ -165,6 +204,37 @@ create view fileversion_full as
 	join fileversion fv on fhf.id=fv.filehistory_id and fhf.databaseversion_id=fv.databaseversion_id;	
 	
 
+-- Triggers
+
+-- Reference counts: A file content is referenced by file versions, a chunk by file
+-- contents (filecontent_chunk), and a multichunk by its chunks (multichunk_chunk).
+-- Triggers are created after all indices (see script.migrate.refcount.triggers.sql).
+
+CREATE TRIGGER trg_fileversion_insert_refcount AFTER INSERT ON fileversion
+  REFERENCING NEW ROW AS newrow FOR EACH ROW
+  UPDATE filecontent SET refcount=refcount+1 WHERE checksum=newrow.filecontent_checksum;
+
+CREATE TRIGGER trg_fileversion_delete_refcount AFTER DELETE ON fileversion
+  REFERENCING OLD ROW AS oldrow FOR EACH ROW
+  UPDATE filecontent SET refcount=refcount-1 WHERE checksum=oldrow.filecontent_checksum;
+
+CREATE TRIGGER trg_filecontent_chunk_insert_refcount AFTER INSERT ON filecontent_chunk
+  REFERENCING NEW ROW AS newrow FOR EACH ROW
+  UPDATE chunk SET refcount=refcount+1 WHERE checksum=newrow.chunk_checksum;
+
+CREATE TRIGGER trg_filecontent_chunk_delete_refcount AFTER DELETE ON filecontent_chunk
+  REFERENCING OLD ROW AS oldrow FOR EACH ROW
+  UPDATE chunk SET refcount=refcount-1 WHERE checksum=oldrow.chunk_checksum;
+
+CREATE TRIGGER trg_multichunk_chunk_insert_refcount AFTER INSERT ON multichunk_chunk
+  REFERENCING NEW ROW AS newrow FOR EACH ROW
+  UPDATE multichunk SET refcount=refcount+1 WHERE id=newrow.multichunk_id;
+
+CREATE TRIGGER trg_multichunk_chunk_delete_refcount AFTER DELETE ON multichunk_chunk
+  REFERENCING OLD ROW AS oldrow FOR EACH ROW
+  UPDATE multichunk SET refcount=refcount-1 WHERE id=oldrow.multichunk_id;
+
+
 -- Functions
 
 --!DELIMITER=end;
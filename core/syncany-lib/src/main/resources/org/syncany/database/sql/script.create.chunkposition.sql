@@ -0,0 +1,13 @@
+-- Local chunk positions (never shared with other clients, no foreign keys!)
+
+CREATE CACHED TABLE IF NOT EXISTS chunkposition (
+  path varchar(1024) NOT NULL,
+  chunk_offset bigint NOT NULL,
+  chunk_checksum varbinary(20) NOT NULL,
+  chunk_size int NOT NULL,
+  file_size bigint NOT NULL,
+  file_lastmodified bigint NOT NULL,
+  PRIMARY KEY (path, chunk_offset)
+);
+
+CREATE INDEX idx_chunkposition_chunk_checksum ON chunkposition (chunk_checksum);
@@ -1,3 +1,4 @@
+DELETE FROM fileversion_current;
 DELETE FROM multichunk_muddy;
 DELETE FROM multichunk_chunk;
 DELETE FROM multichunk;
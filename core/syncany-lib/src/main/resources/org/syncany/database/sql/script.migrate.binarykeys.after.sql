@@ -0,0 +1,31 @@
+-- Migrates the schema from version 1 (hex varchar(40) identifiers) to version 2
+-- (varbinary(20) identifiers), part 2: The data is copied from the renamed tables
+-- to the new tables. HSQLDB converts the hex strings to binary implicitly.
+
+-- The data is copied in one transaction, which also updates the schema version (see 
+-- DatabaseConnectionFactory). The old tables are dropped afterwards, by 
+-- script.migrate.binarykeys.cleanup.sql.
+
+INSERT INTO chunk (checksum, databaseversion_id, size) 
+	SELECT checksum, databaseversion_id, size FROM chunk_v1;
+	
+INSERT INTO filecontent (checksum, databaseversion_id, size) 
+	SELECT checksum, databaseversion_id, size FROM filecontent_v1;
+	
+INSERT INTO filecontent_chunk (filecontent_checksum, chunk_checksum, num) 
+	SELECT filecontent_checksum, chunk_checksum, num FROM filecontent_chunk_v1;
+	
+INSERT INTO filehistory (id, databaseversion_id) 
+	SELECT id, databaseversion_id FROM filehistory_v1;
+	
+INSERT INTO fileversion (filehistory_id, version, databaseversion_id, path, type, status, size, lastmodified, linktarget, filecontent_checksum, updated, posixperms, dosattrs) 
+	SELECT filehistory_id, version, databaseversion_id, path, type, status, size, lastmodified, linktarget, filecontent_checksum, updated, posixperms, dosattrs FROM fileversion_v1;
+	
+INSERT INTO multichunk (id, databaseversion_id, size) 
+	SELECT id, databaseversion_id, size FROM multichunk_v1;
+	
+INSERT INTO multichunk_chunk (multichunk_id, chunk_checksum) 
+	SELECT multichunk_id, chunk_checksum FROM multichunk_chunk_v1;
+	
+INSERT INTO multichunk_muddy (id, machine_name, machine_version) 
+	SELECT id, machine_name, machine_version FROM multichunk_muddy_v1;
@@ -0,0 +1,34 @@
+-- Migrates the schema from version 1 (hex varchar(40) identifiers) to version 2
+-- (varbinary(20) identifiers), part 1: The views, function, triggers and non-primary
+-- indices are dropped. The tables with identifier columns are then renamed to *_v1 
+-- (see DatabaseConnectionFactory), and the new tables are created by script.create.all.sql.
+
+-- All statements may run again if a previous migration was interrupted; the triggers
+-- and the indices of the new columns only exist if script.create.all.sql has already run.
+
+DROP VIEW fileversion_full IF EXISTS;
+DROP VIEW filehistory_full IF EXISTS;
+DROP VIEW fileversion_master_last IF EXISTS;
+DROP VIEW fileversion_master_maxversion IF EXISTS;
+DROP VIEW fileversion_master IF EXISTS;
+DROP VIEW databaseversion_master IF EXISTS;
+
+DROP FUNCTION substr_count IF EXISTS;
+
+DROP INDEX idx_databaseversion_status IF EXISTS;
+DROP INDEX idx_databaseversion_vectorclock_serialized IF EXISTS;
+DROP INDEX idx_fileversion_path IF EXISTS;
+DROP INDEX idx_fileversion_status IF EXISTS;
+DROP INDEX idx_fileversion_filecontent_checksum IF EXISTS;
+DROP INDEX idx_fileversion_depth_path IF EXISTS;
+DROP INDEX idx_fileversion_current_path IF EXISTS;
+DROP INDEX idx_chunk_refcount IF EXISTS;
+DROP INDEX idx_filecontent_refcount IF EXISTS;
+DROP INDEX idx_multichunk_refcount IF EXISTS;
+
+DROP TRIGGER trg_fileversion_insert_refcount IF EXISTS;
+DROP TRIGGER trg_fileversion_delete_refcount IF EXISTS;
+DROP TRIGGER trg_filecontent_chunk_insert_refcount IF EXISTS;
+DROP TRIGGER trg_filecontent_chunk_delete_refcount IF EXISTS;
+DROP TRIGGER trg_multichunk_chunk_insert_refcount IF EXISTS;
+DROP TRIGGER trg_multichunk_chunk_delete_refcount IF EXISTS;
@@ -0,0 +1,17 @@
+-- Migrates the schema from version 1 (hex varchar(40) identifiers) to version 2
+-- (varbinary(20) identifiers), part 3: The renamed tables are dropped, and the chunk
+-- checksums of the local chunk positions are converted.
+
+-- This script runs before the migration to version 3, so that it is repeated if the
+-- process died right after the data was copied. All statements may run again.
+
+DROP TABLE fileversion_v1 IF EXISTS;
+DROP TABLE filehistory_v1 IF EXISTS;
+DROP TABLE filecontent_chunk_v1 IF EXISTS;
+DROP TABLE multichunk_chunk_v1 IF EXISTS;
+DROP TABLE filecontent_v1 IF EXISTS;
+DROP TABLE multichunk_v1 IF EXISTS;
+DROP TABLE chunk_v1 IF EXISTS;
+DROP TABLE multichunk_muddy_v1 IF EXISTS;
+
+ALTER TABLE chunkposition ALTER COLUMN chunk_checksum varbinary(20);
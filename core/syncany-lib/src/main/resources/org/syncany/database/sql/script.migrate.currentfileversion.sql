@@ -0,0 +1,26 @@
+-- Migrates the schema from version 2 to version 3: Creates the fileversion_current
+-- table (if it has not been created by script.create.all.sql already), and fills
+-- it from the fileversion_master_last view.
+
+CREATE CACHED TABLE IF NOT EXISTS  fileversion_current (
+  filehistory_id varbinary(20) NOT NULL,
+  version int NOT NULL,
+  databaseversion_id int NOT NULL,
+  path varchar(1024) NOT NULL,
+  type varchar(45) NOT NULL,
+  status varchar(45) NOT NULL,
+  size bigint NOT NULL,
+  lastmodified datetime NOT NULL,
+  linktarget varchar(1024),
+  filecontent_checksum varbinary(20) DEFAULT NULL,
+  updated datetime NOT NULL,
+  posixperms varchar(45) DEFAULT NULL,
+  dosattrs varchar(45) DEFAULT NULL,
+  PRIMARY KEY (filehistory_id, version, databaseversion_id)
+);
+
+DROP INDEX idx_fileversion_current_path IF EXISTS;
+CREATE INDEX idx_fileversion_current_path ON fileversion_current (path);
+
+DELETE FROM fileversion_current;
+INSERT INTO fileversion_current SELECT * FROM fileversion_master_last;
@@ -0,0 +1,10 @@
+-- Migrates the schema from version 3 to version 4, part 2: Calculates the depth of
+-- all file versions and creates the index used for listing folders. The depth
+-- column itself is added by DatabaseConnectionFactory, unless it has been created 
+-- by script.create.all.sql already.
+
+UPDATE fileversion SET depth=length(path)-length(replace(path, '/', ''));
+UPDATE fileversion_current SET depth=length(path)-length(replace(path, '/', ''));
+
+DROP INDEX idx_fileversion_depth_path IF EXISTS;
+CREATE INDEX idx_fileversion_depth_path ON fileversion (depth, path);
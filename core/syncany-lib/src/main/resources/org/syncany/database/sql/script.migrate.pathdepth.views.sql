@@ -0,0 +1,39 @@
+-- Migrates the schema from version 3 to version 4, part 1: The depth column has been
+-- added to the fileversion and fileversion_current tables (see DatabaseConnectionFactory).
+-- HSQLDB expands 'SELECT *' when a view is created, so the views selecting file versions 
+-- are re-created.
+
+DROP VIEW fileversion_full IF EXISTS;
+DROP VIEW fileversion_master_last IF EXISTS;
+DROP VIEW fileversion_master_maxversion IF EXISTS;
+DROP VIEW fileversion_master IF EXISTS;
+
+CREATE VIEW fileversion_master AS
+  SELECT fv0.* 
+  FROM fileversion fv0
+  JOIN databaseversion dbv 
+    ON fv0.databaseversion_id=dbv.id 
+       AND dbv.status='MASTER';   
+       
+CREATE VIEW fileversion_master_maxversion AS
+  SELECT DISTINCT filehistory_id, MAX(version) version
+  FROM fileversion_master
+  GROUP BY filehistory_id;     
+  
+CREATE VIEW fileversion_master_last AS
+  SELECT fv.* 
+  FROM fileversion_master_maxversion fvmax
+  JOIN fileversion_master fv 
+    ON fvmax.filehistory_id=fv.filehistory_id 
+       AND fvmax.version=fv.version 
+  WHERE fv.status<>'DELETED';    
+
+create view fileversion_full as
+	select 		
+		fhf.databaseversion_status, 
+		fhf.databaseversion_localtime, 
+		fhf.databaseversion_client, 	
+		fhf.databaseversion_vectorclock_serialized, 	
+		fv.*
+	from filehistory_full fhf
+	join fileversion fv on fhf.id=fv.filehistory_id and fhf.databaseversion_id=fv.databaseversion_id;	
@@ -0,0 +1,7 @@
+-- Migrates the schema from version 4 to version 5, part 2: Calculates the reference
+-- counts of all chunks, file contents and multichunks. The columns, indices and triggers
+-- are added by DatabaseConnectionFactory and script.migrate.refcount.triggers.sql.
+
+UPDATE filecontent fc SET refcount=(SELECT count(*) FROM fileversion fv WHERE fv.filecontent_checksum=fc.checksum);
+UPDATE chunk c SET refcount=(SELECT count(*) FROM filecontent_chunk fcc WHERE fcc.chunk_checksum=c.checksum);
+UPDATE multichunk mc SET refcount=(SELECT count(*) FROM multichunk_chunk mcc WHERE mcc.multichunk_id=mc.id);
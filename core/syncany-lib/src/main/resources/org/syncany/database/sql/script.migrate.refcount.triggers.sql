@@ -0,0 +1,44 @@
+-- Migrates the schema from version 4 to version 5, part 1: The reference count columns
+-- have been added to the chunk, filecontent and multichunk tables (see DatabaseConnectionFactory).
+-- Creates their indices and the triggers that maintain them. The counts of existing rows 
+-- are calculated in part 2. All statements may run again.
+
+-- The triggers must be created last: Triggers compiled before an index on their target
+-- table is created do not update that table until the database is re-opened.
+
+DROP INDEX idx_chunk_refcount IF EXISTS;
+CREATE INDEX idx_chunk_refcount ON chunk (refcount);
+DROP INDEX idx_filecontent_refcount IF EXISTS;
+CREATE INDEX idx_filecontent_refcount ON filecontent (refcount);
+DROP INDEX idx_multichunk_refcount IF EXISTS;
+CREATE INDEX idx_multichunk_refcount ON multichunk (refcount);
+
+DROP TRIGGER trg_fileversion_insert_refcount IF EXISTS;
+CREATE TRIGGER trg_fileversion_insert_refcount AFTER INSERT ON fileversion
+  REFERENCING NEW ROW AS newrow FOR EACH ROW
+  UPDATE filecontent SET refcount=refcount+1 WHERE checksum=newrow.filecontent_checksum;
+
+DROP TRIGGER trg_fileversion_delete_refcount IF EXISTS;
+CREATE TRIGGER trg_fileversion_delete_refcount AFTER DELETE ON fileversion
+  REFERENCING OLD ROW AS oldrow FOR EACH ROW
+  UPDATE filecontent SET refcount=refcount-1 WHERE checksum=oldrow.filecontent_checksum;
+
+DROP TRIGGER trg_filecontent_chunk_insert_refcount IF EXISTS;
+CREATE TRIGGER trg_filecontent_chunk_insert_refcount AFTER INSERT ON filecontent_chunk
+  REFERENCING NEW ROW AS newrow FOR EACH ROW
+  UPDATE chunk SET refcount=refcount+1 WHERE checksum=newrow.chunk_checksum;
+
+DROP TRIGGER trg_filecontent_chunk_delete_refcount IF EXISTS;
+CREATE TRIGGER trg_filecontent_chunk_delete_refcount AFTER DELETE ON filecontent_chunk
+  REFERENCING OLD ROW AS oldrow FOR EACH ROW
+  UPDATE chunk SET refcount=refcount-1 WHERE checksum=oldrow.chunk_checksum;
+
+DROP TRIGGER trg_multichunk_chunk_insert_refcount IF EXISTS;
+CREATE TRIGGER trg_multichunk_chunk_insert_refcount AFTER INSERT ON multichunk_chunk
+  REFERENCING NEW ROW AS newrow FOR EACH ROW
+  UPDATE multichunk SET refcount=refcount+1 WHERE id=newrow.multichunk_id;
+
+DROP TRIGGER trg_multichunk_chunk_delete_refcount IF EXISTS;
+CREATE TRIGGER trg_multichunk_chunk_delete_refcount AFTER DELETE ON multichunk_chunk
+  REFERENCING OLD ROW AS oldrow FOR EACH ROW
+  UPDATE multichunk SET refcount=refcount-1 WHERE id=oldrow.multichunk_id;
@@ -20,12 +20,14 @@ package org.syncany.tests;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
+import org.syncany.tests.integration.scenarios.longrunning.LongRunningDatabaseProfileScenarioTest;
 import org.syncany.tests.integration.scenarios.longrunning.LongRunningLargeFileScenarioTest;
 import org.syncany.tests.integration.scenarios.longrunning.LongRunningLotsOfSmallFilesScenarioTest;
 import org.syncany.tests.integration.scenarios.longrunning.LongRunningNewAndDeleteScenarioTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({
+		LongRunningDatabaseProfileScenarioTest.class,
 		LongRunningLargeFileScenarioTest.class,
 		LongRunningLotsOfSmallFilesScenarioTest.class,
 		LongRunningNewAndDeleteScenarioTest.class
@@ -0,0 +1,83 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.integration.database;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.junit.Test;
+import org.syncany.config.Config;
+import org.syncany.database.DatabaseConnectionFactory;
+import org.syncany.database.DatabaseProfile;
+import org.syncany.tests.util.TestConfigUtil;
+import org.syncany.tests.util.TestSqlUtil;
+
+public class DatabaseProfileTest {
+	@Test
+	public void testApplyDatabaseProfileToExistingDatabase() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		shutdown(testConfig.createDatabaseConnection());
+
+		// Run (switch to throughput profile)
+		testConfig.setDatabaseProfile(DatabaseProfile.getProfile(DatabaseProfile.PROFILE_THROUGHPUT));
+		shutdown(testConfig.createDatabaseConnection());
+
+		// Test (settings are persistent; a connection without a profile keeps them)
+		Connection databaseConnection = DatabaseConnectionFactory.createConnection(testConfig.getDatabaseFile(), false);
+
+		assertEquals("250000", getDatabaseProperty(databaseConnection, "hsqldb.cache_rows"));
+		assertEquals("102400", getDatabaseProperty(databaseConnection, "hsqldb.cache_size"));
+		assertEquals("1024", getDatabaseProperty(databaseConnection, "hsqldb.nio_max_size"));
+		assertEquals("true", getDatabaseProperty(databaseConnection, "hsqldb.write_delay"));
+		assertEquals("500", getDatabaseProperty(databaseConnection, "hsqldb.write_delay_millis"));
+		assertEquals("200", getDatabaseProperty(databaseConnection, "hsqldb.log_size"));
+		assertEquals("20", getDatabaseProperty(databaseConnection, "hsqldb.defrag_limit"));
+
+		shutdown(databaseConnection);
+
+		// Run (switch back to safe profile)
+		testConfig.setDatabaseProfile(DatabaseProfile.getProfile(DatabaseProfile.PROFILE_SAFE));
+		databaseConnection = testConfig.createDatabaseConnection();
+
+		// Test
+		assertEquals("50000", getDatabaseProperty(databaseConnection, "hsqldb.cache_rows"));
+		assertEquals("10000", getDatabaseProperty(databaseConnection, "hsqldb.cache_size"));
+		assertEquals("256", getDatabaseProperty(databaseConnection, "hsqldb.nio_max_size"));
+		assertEquals("false", getDatabaseProperty(databaseConnection, "hsqldb.write_delay"));
+		assertEquals("50", getDatabaseProperty(databaseConnection, "hsqldb.log_size"));
+		assertEquals("0", getDatabaseProperty(databaseConnection, "hsqldb.defrag_limit"));
+
+		// Tear down
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	private String getDatabaseProperty(Connection connection, String propertyName) throws Exception {
+		return TestSqlUtil.runSqlSelect("select property_value from information_schema.system_properties where property_name='" + propertyName
+				+ "'", connection);
+	}
+
+	private void shutdown(Connection connection) throws Exception {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("SHUTDOWN");
+		}
+	}
+}
@@ -20,18 +20,29 @@ package org.syncany.tests.integration.database;
 import static org.junit.Assert.assertEquals;
 
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.junit.Test;
 import org.syncany.config.Logging;
 import org.syncany.database.DatabaseVersionHeader;
+import org.syncany.database.VectorClock;
 import org.syncany.operations.down.DatabaseBranch;
 import org.syncany.operations.down.DatabaseBranches;
 import org.syncany.operations.down.DatabaseReconciliator;
+import org.syncany.operations.down.DatabaseVersionHeaderComparator;
 import org.syncany.tests.util.TestDatabaseUtil;
 
 public class DatabaseReconciliatorTest {
+	private static final Logger logger = Logger.getLogger(DatabaseReconciliatorTest.class.getSimpleName());
+
 	@Test
 	public void testUpdateDetectorConflict1AtMachineB() throws Exception {
 		System.out.println("CONFLICT 1");
@@ -691,6 +702,120 @@ public class DatabaseReconciliatorTest {
 		testFromMachinePerspective(localMachineName, currentLocalVersion, allBranches, expectedTestResult);
 	}
 
+	@Test
+	public void testWinnerBranchOfSyntheticHistoriesEqualsFullSort() throws Exception {
+		for (long seed = 0; seed < 20; seed++) {
+			DatabaseBranches allBranches = createSyntheticHistories(8, 40, seed);
+
+			DatabaseBranch expectedWinnersBranch = findWinnersBranchByFullSort(allBranches);
+			Entry<String, DatabaseBranch> actualWinnersBranch = findWinnerBranchQuietly(allBranches);
+
+			assertEquals("Different winners branch for seed " + seed, expectedWinnersBranch, actualWinnersBranch.getValue());
+			assertEquals(expectedWinnersBranch.getLast().getClient(), actualWinnersBranch.getKey());
+		}
+	}
+
+	@Test
+	public void testWinnerBranchManyClientsPerformance() throws Exception {
+		DatabaseBranches allBranches = createSyntheticHistories(60, 500, 4711);
+
+		long fullSortStartTime = System.currentTimeMillis();
+		DatabaseBranch expectedWinnersBranch = findWinnersBranchByFullSort(allBranches);
+		long fullSortDuration = System.currentTimeMillis() - fullSortStartTime;
+
+		long reconciliatorStartTime = System.currentTimeMillis();
+		Entry<String, DatabaseBranch> actualWinnersBranch = findWinnerBranchQuietly(allBranches);
+		long reconciliatorDuration = System.currentTimeMillis() - reconciliatorStartTime;
+
+		logger.log(Level.INFO, "Winner of 60 clients with 500 database versions each: full sort took " + fullSortDuration
+				+ " ms, database reconciliator took " + reconciliatorDuration + " ms");
+
+		assertEquals(expectedWinnersBranch, actualWinnersBranch.getValue());
+	}
+
+	/**
+	 * Creates the branches of a synthetic history: In every step, a random client first
+	 * (sometimes) learns the latest version of another random client, and then creates a new
+	 * database version. Timestamps are strictly increasing, so that the comparison of
+	 * the headers is a total order.
+	 */
+	private DatabaseBranches createSyntheticHistories(int clientCount, int versionsPerClient, long seed) {
+		Random random = new Random(seed);
+		DatabaseBranches allBranches = new DatabaseBranches();
+
+		String[] clientNames = new String[clientCount];
+		VectorClock[] knownVectorClocks = new VectorClock[clientCount];
+
+		for (int i = 0; i < clientCount; i++) {
+			clientNames[i] = "C" + (char) ('A' + i / 26) + (char) ('a' + i % 26);
+			knownVectorClocks[i] = new VectorClock();
+
+			allBranches.put(clientNames[i], new DatabaseBranch());
+		}
+
+		for (int time = 1; time <= clientCount * versionsPerClient; time++) {
+			int client = random.nextInt(clientCount);
+
+			if (random.nextInt(3) == 0) {
+				VectorClock otherVectorClock = knownVectorClocks[random.nextInt(clientCount)];
+
+				for (Map.Entry<String, Long> otherVectorClockEntry : otherVectorClock.entrySet()) {
+					long knownValue = knownVectorClocks[client].getClock(otherVectorClockEntry.getKey());
+					knownVectorClocks[client].setClock(otherVectorClockEntry.getKey(), Math.max(knownValue, otherVectorClockEntry.getValue()));
+				}
+			}
+
+			knownVectorClocks[client].incrementClock(clientNames[client]);
+
+			DatabaseVersionHeader databaseVersionHeader = new DatabaseVersionHeader();
+			databaseVersionHeader.setClient(clientNames[client]);
+			databaseVersionHeader.setVectorClock(knownVectorClocks[client].clone());
+			databaseVersionHeader.setDate(new Date(time));
+
+			allBranches.getBranch(clientNames[client]).add(databaseVersionHeader);
+		}
+
+		return allBranches;
+	}
+
+	/**
+	 * Reference implementation of the winner determination: sorts all headers at once
+	 * and walks through the sorted list (see {@link DatabaseReconciliator}).
+	 */
+	private DatabaseBranch findWinnersBranchByFullSort(DatabaseBranches allBranches) {
+		List<DatabaseVersionHeader> databaseVersionHeaders = new ArrayList<DatabaseVersionHeader>();
+
+		for (String client : allBranches.getClients()) {
+			databaseVersionHeaders.addAll(allBranches.getBranch(client).getAll());
+		}
+
+		Collections.sort(databaseVersionHeaders, new DatabaseVersionHeaderComparator(true));
+
+		DatabaseBranch winnersBranch = new DatabaseBranch();
+		DatabaseVersionHeaderComparator databaseVersionHeaderComparator = new DatabaseVersionHeaderComparator(false);
+
+		for (DatabaseVersionHeader potentialWinner : databaseVersionHeaders) {
+			if (winnersBranch.size() == 0 || databaseVersionHeaderComparator.compare(potentialWinner, winnersBranch.getLast()) > 0) {
+				winnersBranch.add(potentialWinner);
+			}
+		}
+
+		return winnersBranch;
+	}
+
+	private Entry<String, DatabaseBranch> findWinnerBranchQuietly(DatabaseBranches allBranches) throws Exception {
+		Logger reconciliatorLogger = Logger.getLogger(DatabaseReconciliator.class.getSimpleName());
+		Level previousLevel = reconciliatorLogger.getLevel();
+
+		try {
+			reconciliatorLogger.setLevel(Level.WARNING);
+			return new DatabaseReconciliator().findWinnerBranch(allBranches);
+		}
+		finally {
+			reconciliatorLogger.setLevel(previousLevel);
+		}
+	}
+
 	private void testFromMachinePerspective(String localMachineName, DatabaseVersionHeader currentLocalVersion, DatabaseBranches allBranches,
 			TestResult expectedTestResult) throws Exception {
 		// Print them all
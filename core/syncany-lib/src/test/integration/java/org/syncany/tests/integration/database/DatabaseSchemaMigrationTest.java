@@ -0,0 +1,549 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.integration.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+import org.syncany.config.Config;
+import org.syncany.database.ChunkEntry;
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.DatabaseConnectionFactory;
+import org.syncany.database.MultiChunkEntry.MultiChunkId;
+import org.syncany.database.dao.ChunkSqlDao;
+import org.syncany.database.dao.MultiChunkSqlDao;
+import org.syncany.tests.util.TestConfigUtil;
+import org.syncany.tests.util.TestSqlUtil;
+import org.syncany.util.FileUtil;
+import org.syncany.util.SqlRunner;
+import org.syncany.util.StringUtil;
+
+public class DatabaseSchemaMigrationTest {
+	private static final Logger logger = Logger.getLogger(DatabaseSchemaMigrationTest.class.getSimpleName());
+
+	private static final String[] MIGRATED_TABLES = new String[] { "chunk", "filecontent", "filecontent_chunk", "filehistory", "fileversion",
+			"multichunk", "multichunk_chunk", "multichunk_muddy", "chunkposition" };
+
+	@Test
+	public void testMigrateSchemaVersion1() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		Connection schemaV1Connection = createSchemaV1Connection(testConfig);
+
+		runSchemaV1SqlFromResource(schemaV1Connection, "test.insert.set3.sql");
+
+		try (Statement statement = schemaV1Connection.createStatement()) {
+			statement.execute("insert into chunkposition values ('file1', 0, '615fba8c2281d5bee891eb092a252d235c237457', 8387, 8387, 0)");
+		}
+
+		schemaV1Connection.commit();
+
+		List<String> expectedRowCounts = getRowCounts(schemaV1Connection);
+		shutdown(schemaV1Connection);
+
+		// Run
+		Connection databaseConnection = testConfig.createDatabaseConnection();
+
+		// Test
+		assertEquals(expectedRowCounts, getRowCounts(databaseConnection));
+		assertEquals(Integer.toString(DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION), TestSqlUtil.runSqlSelect(
+				"select value from general_settings where key='" + DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION_KEY + "'", databaseConnection));
+		assertEquals("VARBINARY", TestSqlUtil.runSqlSelect(
+				"select type_name from information_schema.system_columns where table_name='CHUNK' and column_name='CHECKSUM'", databaseConnection));
+		assertEquals("VARBINARY", TestSqlUtil.runSqlSelect(
+				"select type_name from information_schema.system_columns where table_name='CHUNKPOSITION' and column_name='CHUNK_CHECKSUM'", databaseConnection));
+		assertEquals(TestSqlUtil.runSqlSelect("select * from fileversion_master_last order by filehistory_id", databaseConnection),
+				TestSqlUtil.runSqlSelect("select * from fileversion_current order by filehistory_id", databaseConnection));
+		assertEquals("3", TestSqlUtil.runSqlSelect("select count(*) from fileversion_current", databaseConnection));
+		assertPathDepthsCalculated(databaseConnection);
+		assertReferenceCountsCalculated(databaseConnection);
+
+		ChunkChecksum chunkChecksum = ChunkChecksum.parseChunkChecksum("615fba8c2281d5bee891eb092a252d235c237457");
+		ChunkEntry chunk = new ChunkSqlDao(databaseConnection).getChunk(chunkChecksum);
+		MultiChunkId multiChunkId = new MultiChunkSqlDao(databaseConnection).getMultiChunkId(chunkChecksum);
+
+		assertNotNull(chunk);
+		assertEquals(8387, chunk.getSize());
+		assertNotNull(multiChunkId);
+
+		// Triggers must keep the reference counts up to date in the migrating session
+		try (Statement statement = databaseConnection.createStatement()) {
+			statement.execute("delete from fileversion_current");
+			statement.execute("delete from fileversion");
+		}
+
+		assertReferenceCountsCalculated(databaseConnection);
+		assertEquals("0", TestSqlUtil.runSqlSelect("select count(*) from filecontent where refcount>0", databaseConnection));
+
+		databaseConnection.rollback();
+
+		// Opening the database again must not migrate again
+		shutdown(databaseConnection);
+		databaseConnection = testConfig.createDatabaseConnection();
+
+		assertEquals(expectedRowCounts, getRowCounts(databaseConnection));
+
+		// Tear down
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testMigrateSchemaVersion1AfterInterruptedMigration() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		Connection schemaV1Connection = createSchemaV1Connection(testConfig);
+
+		runSchemaV1SqlFromResource(schemaV1Connection, "test.insert.set3.sql");
+		List<String> expectedRowCounts = getRowCounts(schemaV1Connection);
+
+		// Process died while renaming the tables
+		schemaV1Connection.setAutoCommit(true);
+		SqlRunner.runScript(schemaV1Connection, DatabaseConnectionFactory.getStatementInputStream(DatabaseConnectionFactory.DATABASE_RESOURCE_MIGRATE_BINARYKEYS_BEFORE));
+
+		try (Statement statement = schemaV1Connection.createStatement()) {
+			statement.execute("alter table chunk rename to chunk_v1");
+			statement.execute("alter table filecontent rename to filecontent_v1");
+		}
+
+		shutdown(schemaV1Connection);
+
+		// Run
+		Connection databaseConnection = testConfig.createDatabaseConnection();
+
+		// Test
+		assertEquals(expectedRowCounts, getRowCounts(databaseConnection));
+		assertEquals(Integer.toString(DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION), TestSqlUtil.runSqlSelect(
+				"select value from general_settings where key='" + DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION_KEY + "'", databaseConnection));
+		assertEquals("0", TestSqlUtil.runSqlSelect(
+				"select count(*) from information_schema.system_tables where table_name like '%\\_V1' escape '\\'", databaseConnection));
+		assertEquals("VARBINARY", TestSqlUtil.runSqlSelect(
+				"select type_name from information_schema.system_columns where table_name='CHUNK' and column_name='CHECKSUM'", databaseConnection));
+		assertPathDepthsCalculated(databaseConnection);
+		assertReferenceCountsCalculated(databaseConnection);
+
+		// Tear down
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testMigrateSchemaVersion3() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		Connection schemaV3Connection = testConfig.createDatabaseConnection();
+
+		TestSqlUtil.runSqlFromResource(schemaV3Connection, "test.insert.set3.sql");
+
+		try (Statement statement = schemaV3Connection.createStatement()) {
+			// Columns referenced by views cannot be dropped; the migration re-creates the views
+			for (String view : new String[] { "fileversion_full", "fileversion_master_last", "fileversion_master_maxversion", "fileversion_master" }) {
+				statement.execute("drop view " + view);
+			}
+
+			statement.execute("drop index idx_fileversion_depth_path");
+			statement.execute("alter table fileversion drop column depth");
+			statement.execute("alter table fileversion_current drop column depth");
+			statement.execute("update general_settings set value='3' where key='" + DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION_KEY + "'");
+		}
+
+		schemaV3Connection.commit();
+		shutdown(schemaV3Connection);
+
+		// Run
+		Connection databaseConnection = testConfig.createDatabaseConnection();
+
+		// Test
+		assertEquals(Integer.toString(DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION), TestSqlUtil.runSqlSelect(
+				"select value from general_settings where key='" + DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION_KEY + "'", databaseConnection));
+		assertEquals("1", TestSqlUtil.runSqlSelect(
+				"select count(*) from information_schema.system_indexinfo where index_name='IDX_FILEVERSION_DEPTH_PATH' and ordinal_position=1", databaseConnection));
+		assertEquals(TestSqlUtil.runSqlSelect("select * from fileversion_master_last order by filehistory_id", databaseConnection),
+				TestSqlUtil.runSqlSelect("select * from fileversion_current order by filehistory_id", databaseConnection));
+		assertPathDepthsCalculated(databaseConnection);
+		assertReferenceCountsCalculated(databaseConnection);
+
+		// Tear down
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testMigrateSchemaVersion4() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		Connection schemaV4Connection = testConfig.createDatabaseConnection();
+
+		TestSqlUtil.runSqlFromResource(schemaV4Connection, "test.insert.set3.sql");
+
+		try (Statement statement = schemaV4Connection.createStatement()) {
+			for (String table : new String[] { "fileversion", "filecontent_chunk", "multichunk_chunk" }) {
+				statement.execute("drop trigger trg_" + table + "_insert_refcount");
+				statement.execute("drop trigger trg_" + table + "_delete_refcount");
+			}
+
+			for (String table : new String[] { "chunk", "filecontent", "multichunk" }) {
+				statement.execute("drop index idx_" + table + "_refcount");
+				statement.execute("alter table " + table + " drop column refcount");
+			}
+
+			statement.execute("update general_settings set value='4' where key='" + DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION_KEY + "'");
+		}
+
+		schemaV4Connection.commit();
+		shutdown(schemaV4Connection);
+
+		// Run
+		Connection databaseConnection = testConfig.createDatabaseConnection();
+
+		// Test
+		assertEquals(Integer.toString(DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION), TestSqlUtil.runSqlSelect(
+				"select value from general_settings where key='" + DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION_KEY + "'", databaseConnection));
+		assertEquals("3", TestSqlUtil.runSqlSelect(
+				"select count(*) from information_schema.system_indexinfo where index_name like 'IDX_%_REFCOUNT' and ordinal_position=1", databaseConnection));
+		assertReferenceCountsCalculated(databaseConnection);
+
+		// Triggers must maintain the counts after the migration
+		try (Statement statement = databaseConnection.createStatement()) {
+			statement.execute("delete from fileversion_current");
+			statement.execute("delete from fileversion");
+		}
+
+		assertReferenceCountsCalculated(databaseConnection);
+		assertEquals("0", TestSqlUtil.runSqlSelect("select count(*) from filecontent where refcount>0", databaseConnection));
+
+		// Tear down
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testMigrateSchemaVersion4AfterInterruptedMigration() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		Connection schemaV4Connection = testConfig.createDatabaseConnection();
+
+		TestSqlUtil.runSqlFromResource(schemaV4Connection, "test.insert.set3.sql");
+
+		try (Statement statement = schemaV4Connection.createStatement()) {
+			for (String table : new String[] { "fileversion", "filecontent_chunk", "multichunk_chunk" }) {
+				statement.execute("drop trigger trg_" + table + "_insert_refcount");
+				statement.execute("drop trigger trg_" + table + "_delete_refcount");
+			}
+
+			for (String table : new String[] { "chunk", "filecontent", "multichunk" }) {
+				statement.execute("drop index idx_" + table + "_refcount");
+				statement.execute("alter table " + table + " drop column refcount");
+			}
+
+			statement.execute("update general_settings set value='4' where key='" + DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION_KEY + "'");
+
+			// Process died after adding the first column, index and trigger
+			statement.execute("alter table chunk add column refcount int default 0 not null");
+			statement.execute("create index idx_chunk_refcount on chunk (refcount)");
+			statement.execute("create trigger trg_filecontent_chunk_insert_refcount after insert on filecontent_chunk "
+					+ "referencing new row as newrow for each row update chunk set refcount=refcount+1 where checksum=newrow.chunk_checksum");
+		}
+
+		schemaV4Connection.commit();
+		shutdown(schemaV4Connection);
+
+		// Run
+		Connection databaseConnection = testConfig.createDatabaseConnection();
+
+		// Test
+		assertEquals(Integer.toString(DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION), TestSqlUtil.runSqlSelect(
+				"select value from general_settings where key='" + DatabaseConnectionFactory.DATABASE_SCHEMA_VERSION_KEY + "'", databaseConnection));
+		assertEquals("3", TestSqlUtil.runSqlSelect(
+				"select count(*) from information_schema.system_indexinfo where index_name like 'IDX_%_REFCOUNT' and ordinal_position=1", databaseConnection));
+		assertReferenceCountsCalculated(databaseConnection);
+
+		// Tear down
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testSwitchToLockingTransactionControlAndRollback() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		Connection mvccConnection = testConfig.createDatabaseConnection();
+
+		TestSqlUtil.runSqlFromResource(mvccConnection, "test.insert.set3.sql");
+		mvccConnection.commit();
+
+		mvccConnection.setAutoCommit(true);
+
+		try (Statement statement = mvccConnection.createStatement()) {
+			statement.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+		}
+
+		List<String> expectedRowCounts = getRowCounts(mvccConnection);
+		shutdown(mvccConnection);
+
+		// Run
+		Connection databaseConnection = testConfig.createDatabaseConnection();
+
+		try (Statement statement = databaseConnection.createStatement()) {
+			// Updates the reference count of the same file contents many times
+			statement.execute("delete from fileversion_current");
+			statement.execute("delete from fileversion");
+		}
+
+		databaseConnection.rollback();
+		shutdown(databaseConnection);
+
+		databaseConnection = testConfig.createDatabaseConnection();
+
+		// Test
+		assertEquals(expectedRowCounts, getRowCounts(databaseConnection));
+		assertReferenceCountsCalculated(databaseConnection);
+		assertEquals("LOCKS", TestSqlUtil.runSqlSelect(
+				"select property_value from information_schema.system_properties where property_name='hsqldb.tx'", databaseConnection).toUpperCase());
+
+		// Tear down
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testBinaryKeysDatabaseSizeAndLookupPerformance() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		Connection schemaV1Connection = createSchemaV1Connection(testConfig);
+
+		List<String> chunkChecksums = insertSyntheticChunks(schemaV1Connection, new Random(4711), 200, 100);
+
+		// Run (before migration)
+		compact(schemaV1Connection);
+
+		long lookupDurationV1 = lookupMultiChunkIds(schemaV1Connection, chunkChecksums);
+		shutdown(schemaV1Connection);
+
+		long databaseSizeV1 = getDatabaseDataFileSize(testConfig);
+
+		// Run (after migration)
+		long migrationStartTime = System.currentTimeMillis();
+		shutdown(testConfig.createDatabaseConnection());
+		long migrationDuration = System.currentTimeMillis() - migrationStartTime;
+
+		Connection schemaV2Connection = openConnection(testConfig); // Same connection settings as before migration
+		compact(schemaV2Connection);
+
+		long lookupDurationV2 = lookupMultiChunkIds(schemaV2Connection, chunkChecksums);
+		shutdown(schemaV2Connection);
+
+		long databaseSizeV2 = getDatabaseDataFileSize(testConfig);
+
+		// Test
+		logger.log(Level.INFO, "Migrated " + chunkChecksums.size() + " chunks in " + migrationDuration + " ms; data file size "
+				+ databaseSizeV1 / 1024 + " KB (hex keys) vs. " + databaseSizeV2 / 1024 + " KB (binary keys); looked up all multichunk IDs in "
+				+ lookupDurationV1 + " ms (hex keys) vs. " + lookupDurationV2 + " ms (binary keys)");
+
+		assertTrue("Database with binary keys should be smaller", databaseSizeV2 < databaseSizeV1);
+
+		// Tear down
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	private Connection createSchemaV1Connection(Config testConfig) throws Exception {
+		Connection connection = openConnection(testConfig);
+		TestSqlUtil.runSqlFromResource(connection, "test.create.schemav1.sql");
+
+		return connection;
+	}
+
+	private Connection openConnection(Config testConfig) throws Exception {
+		String databaseFilePath = FileUtil.getDatabasePath(testConfig.getDatabaseFile().toString());
+		String connectionString = DatabaseConnectionFactory.DATABASE_CONNECTION_FILE_STRING.replaceAll("%DATABASEFILE%", databaseFilePath);
+
+		Connection connection = DriverManager.getConnection(connectionString);
+		connection.setAutoCommit(false);
+
+		return connection;
+	}
+
+	private void runSchemaV1SqlFromResource(Connection connection, String resourceSqlScript) throws Exception {
+		// Test data sets also fill tables and columns that do not exist in schema version 1
+		StringBuilder schemaV1Script = new StringBuilder();
+
+		try (BufferedReader scriptReader = new BufferedReader(new InputStreamReader(
+				DatabaseConnectionFactory.getStatementInputStream(resourceSqlScript)))) {
+
+			String line = null;
+
+			while ((line = scriptReader.readLine()) != null) {
+				if (line.matches("^INSERT INTO (FILEVERSION|CHUNK|FILECONTENT|MULTICHUNK) VALUES.*")) {
+					schemaV1Script.append(line.replaceFirst(",\\d+\\);$", ");")).append('\n'); // Remove 'depth'/'refcount' column
+				}
+				else if (!line.toUpperCase().contains("FILEVERSION_CURRENT")) {
+					schemaV1Script.append(line).append('\n');
+				}
+			}
+		}
+
+		SqlRunner.runScript(connection, new ByteArrayInputStream(schemaV1Script.toString().getBytes()));
+		connection.commit();
+	}
+
+	private List<String> insertSyntheticChunks(Connection connection, Random random, int multiChunkCount, int chunksPerMultiChunk) throws Exception {
+		List<String> chunkChecksums = new ArrayList<String>();
+
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("insert into databaseversion (status, localtime, client, vectorclock_serialized) values ('MASTER', now(), 'A', '(A1)')");
+		}
+
+		try (PreparedStatement chunkStatement = connection.prepareStatement("insert into chunk values (?, 0, 10)");
+				PreparedStatement multiChunkStatement = connection.prepareStatement("insert into multichunk values (?, 0, 1000)");
+				PreparedStatement multiChunkRefStatement = connection.prepareStatement("insert into multichunk_chunk values (?, ?)");
+				PreparedStatement fileContentStatement = connection.prepareStatement("insert into filecontent values (?, 0, 1000)");
+				PreparedStatement fileContentRefStatement = connection.prepareStatement("insert into filecontent_chunk values (?, ?, ?)")) {
+
+			for (int multiChunkIndex = 0; multiChunkIndex < multiChunkCount; multiChunkIndex++) {
+				String multiChunkId = randomHexId(random);
+				String fileContentChecksum = randomHexId(random);
+
+				multiChunkStatement.setString(1, multiChunkId);
+				multiChunkStatement.addBatch();
+
+				fileContentStatement.setString(1, fileContentChecksum);
+				fileContentStatement.addBatch();
+
+				for (int chunkIndex = 0; chunkIndex < chunksPerMultiChunk; chunkIndex++) {
+					String chunkChecksum = randomHexId(random);
+
+					chunkStatement.setString(1, chunkChecksum);
+					chunkStatement.addBatch();
+
+					multiChunkRefStatement.setString(1, multiChunkId);
+					multiChunkRefStatement.setString(2, chunkChecksum);
+					multiChunkRefStatement.addBatch();
+
+					fileContentRefStatement.setString(1, fileContentChecksum);
+					fileContentRefStatement.setString(2, chunkChecksum);
+					fileContentRefStatement.setInt(3, chunkIndex);
+					fileContentRefStatement.addBatch();
+
+					chunkChecksums.add(chunkChecksum);
+				}
+			}
+
+			chunkStatement.executeBatch();
+			multiChunkStatement.executeBatch();
+			fileContentStatement.executeBatch();
+			multiChunkRefStatement.executeBatch();
+			fileContentRefStatement.executeBatch();
+		}
+
+		connection.commit();
+		return chunkChecksums;
+	}
+
+	private long lookupMultiChunkIds(Connection connection, List<String> chunkChecksums) throws Exception {
+		long lookupDuration = 0;
+
+		try (PreparedStatement preparedStatement = connection.prepareStatement(
+				DatabaseConnectionFactory.getStatement("multichunk.select.all.getMultiChunkIdForChunk.sql"))) {
+
+			for (int round = 0; round < 3; round++) { // First rounds are warm-up
+				long lookupStartTime = System.currentTimeMillis();
+
+				for (String chunkChecksum : chunkChecksums) {
+					preparedStatement.setString(1, chunkChecksum);
+
+					try (ResultSet resultSet = preparedStatement.executeQuery()) {
+						assertTrue(resultSet.next());
+					}
+				}
+
+				lookupDuration = System.currentTimeMillis() - lookupStartTime;
+			}
+		}
+
+		return lookupDuration;
+	}
+
+	private void assertPathDepthsCalculated(Connection connection) throws Exception {
+		assertEquals("0", TestSqlUtil.runSqlSelect("select count(*) from fileversion where depth<>length(path)-length(replace(path, '/', ''))", connection));
+		assertEquals("0", TestSqlUtil.runSqlSelect("select count(*) from fileversion_current where depth<>length(path)-length(replace(path, '/', ''))", connection));
+		assertTrue(Integer.parseInt(TestSqlUtil.runSqlSelect("select count(*) from fileversion where depth>0", connection)) > 0);
+	}
+
+	private void assertReferenceCountsCalculated(Connection connection) throws Exception {
+		assertEquals("0", TestSqlUtil.runSqlSelect(
+				"select count(*) from filecontent fc where refcount<>(select count(*) from fileversion fv where fv.filecontent_checksum=fc.checksum)", connection));
+		assertEquals("0", TestSqlUtil.runSqlSelect(
+				"select count(*) from chunk c where refcount<>(select count(*) from filecontent_chunk fcc where fcc.chunk_checksum=c.checksum)", connection));
+		assertEquals("0", TestSqlUtil.runSqlSelect(
+				"select count(*) from multichunk mc where refcount<>(select count(*) from multichunk_chunk mcc where mcc.multichunk_id=mc.id)", connection));
+		assertEquals("6", TestSqlUtil.runSqlSelect(
+				"select count(*) from information_schema.triggers where trigger_name like 'TRG_%_REFCOUNT'", connection));
+	}
+
+	private List<String> getRowCounts(Connection connection) throws Exception {
+		List<String> rowCounts = new ArrayList<String>();
+
+		for (String table : MIGRATED_TABLES) {
+			rowCounts.add(table + "=" + TestSqlUtil.runSqlSelect("select count(*) from " + table, connection));
+		}
+
+		return rowCounts;
+	}
+
+	private long getDatabaseDataFileSize(Config testConfig) {
+		return new File(testConfig.getDatabaseFile() + ".data").length();
+	}
+
+	private void compact(Connection connection) throws Exception {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CHECKPOINT DEFRAG");
+		}
+	}
+
+	private void shutdown(Connection connection) throws Exception {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("SHUTDOWN");
+		}
+
+		connection.close();
+	}
+
+	private String randomHexId(Random random) {
+		byte[] randomBytes = new byte[20];
+		random.nextBytes(randomBytes);
+
+		return StringUtil.toHex(randomBytes);
+	}
+}
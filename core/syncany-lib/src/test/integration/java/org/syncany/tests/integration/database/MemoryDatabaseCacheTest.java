@@ -20,8 +20,13 @@ package org.syncany.tests.integration.database;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.junit.Test;
 import org.syncany.config.Logging;
@@ -40,6 +45,8 @@ import org.syncany.database.PartialFileHistory.FileHistoryId;
 import org.syncany.tests.util.TestDatabaseUtil;
 
 public class MemoryDatabaseCacheTest {
+	private static final Logger logger = Logger.getLogger(MemoryDatabaseCacheTest.class.getSimpleName());
+
 	static {
 		Logging.init();
 	}
@@ -406,4 +413,148 @@ public class MemoryDatabaseCacheTest {
 		assertNull(database.getFileHistory(idFile1));		
 	}
 
+	@Test
+	public void testContentChecksumCacheAfterChange() throws IOException {
+		MemoryDatabase database = new MemoryDatabase();
+
+		// Round 1: Add file history & version
+		DatabaseVersion databaseVersion1 = TestDatabaseUtil.createDatabaseVersion();
+
+		FileVersion fileVersion1 = TestDatabaseUtil.createFileVersion("file1.jpg");
+		fileVersion1.setChecksum(new FileChecksum(new byte[] { 1, 1, 1, 1 }));
+
+		PartialFileHistory fileHistory1 = new PartialFileHistory(FileHistoryId.parseFileId("1111111111111111"));
+
+		fileHistory1.addFileVersion(fileVersion1);
+		databaseVersion1.addFileHistory(fileHistory1);
+
+		database.addDatabaseVersion(databaseVersion1);
+
+		assertEquals(1, database.getFileHistories(new FileChecksum(new byte[] { 1, 1, 1, 1 })).size());
+
+		// Round 2: Change file content
+		DatabaseVersion databaseVersion2 = TestDatabaseUtil.createDatabaseVersion(databaseVersion1);
+
+		FileVersion fileVersion2 = TestDatabaseUtil.createFileVersion("file1.jpg", fileVersion1);
+		fileVersion2.setChecksum(new FileChecksum(new byte[] { 2, 2, 2, 2 }));
+
+		PartialFileHistory fileHistory2 = new PartialFileHistory(FileHistoryId.parseFileId("1111111111111111")); // same ID
+
+		fileHistory2.addFileVersion(fileVersion2);
+		databaseVersion2.addFileHistory(fileHistory2);
+
+		database.addDatabaseVersion(databaseVersion2);
+
+		assertNull(database.getFileHistories(new FileChecksum(new byte[] { 1, 1, 1, 1 })));
+		assertEquals(1, database.getFileHistories(new FileChecksum(new byte[] { 2, 2, 2, 2 })).size());
+		assertEquals(2, database.getFileHistories(new FileChecksum(new byte[] { 2, 2, 2, 2 })).get(0).getFileVersions().size());
+
+		// Round 3: Remove second database version again
+		database.removeDatabaseVersion(databaseVersion2);
+
+		assertNull(database.getFileHistories(new FileChecksum(new byte[] { 2, 2, 2, 2 })));
+		assertEquals(1, database.getFileHistories(new FileChecksum(new byte[] { 1, 1, 1, 1 })).size());
+	}
+
+	@Test
+	public void testFilenameCacheAfterRemoveDatabaseVersion() throws IOException {
+		MemoryDatabase database = new MemoryDatabase();
+
+		// Round 1: Add file history & version
+		DatabaseVersion databaseVersion1 = TestDatabaseUtil.createDatabaseVersion();
+
+		FileVersion fileVersion1 = TestDatabaseUtil.createFileVersion("file1.jpg");
+		PartialFileHistory fileHistory1 = new PartialFileHistory(FileHistoryId.parseFileId("1111111111111111"));
+
+		fileHistory1.addFileVersion(fileVersion1);
+		databaseVersion1.addFileHistory(fileHistory1);
+
+		database.addDatabaseVersion(databaseVersion1);
+
+		// Round 2: Rename file
+		DatabaseVersion databaseVersion2 = TestDatabaseUtil.createDatabaseVersion(databaseVersion1);
+
+		FileVersion fileVersion2 = TestDatabaseUtil.createFileVersion("file2.jpg", fileVersion1);
+		fileVersion2.setStatus(FileStatus.RENAMED);
+
+		PartialFileHistory fileHistory2 = new PartialFileHistory(FileHistoryId.parseFileId("1111111111111111")); // same ID
+
+		fileHistory2.addFileVersion(fileVersion2);
+		databaseVersion2.addFileHistory(fileHistory2);
+
+		database.addDatabaseVersion(databaseVersion2);
+
+		assertNull(database.getFileHistory("file1.jpg"));
+		assertNotNull(database.getFileHistory("file2.jpg"));
+
+		// Round 3: Remove rename
+		database.removeDatabaseVersion(databaseVersion2);
+
+		assertNull(database.getFileHistory("file2.jpg"));
+		assertNotNull(database.getFileHistory("file1.jpg"));
+		assertEquals(fileVersion1, database.getFileHistory("file1.jpg").getLastVersion());
+		assertNull(database.getDatabaseVersion(databaseVersion2.getVectorClock()));
+		assertEquals(databaseVersion1, database.getDatabaseVersion(databaseVersion1.getVectorClock()));
+	}
+
+	@Test
+	public void testAddDatabaseVersionScalesLinearly() {
+		// Warm up
+		addDatabaseVersions(createDatabaseVersions(100, 200));
+
+		long timePerVersionSmall = 0;
+		long timePerVersionLarge = 0;
+
+		for (int databaseVersionCount : new int[] { 100, 200, 400, 800 }) {
+			List<DatabaseVersion> databaseVersions = createDatabaseVersions(databaseVersionCount, 200);
+			long addTime = addDatabaseVersions(databaseVersions);
+			long timePerVersion = addTime / databaseVersionCount;
+
+			logger.log(Level.INFO, "Adding {0} database versions (200 new files each) took {1} ms, {2} us per database version",
+					new Object[] { databaseVersionCount, addTime / 1000, timePerVersion });
+
+			if (timePerVersionSmall == 0) {
+				timePerVersionSmall = timePerVersion;
+			}
+
+			timePerVersionLarge = timePerVersion;
+		}
+
+		// Quadratic behavior would result in a ~8x increase of the time per version
+		assertTrue("Adding database versions should scale linearly, but time per version increased from " + timePerVersionSmall + " us to "
+				+ timePerVersionLarge + " us", timePerVersionLarge < 4 * Math.max(timePerVersionSmall, 100));
+	}
+
+	private long addDatabaseVersions(List<DatabaseVersion> databaseVersions) {
+		MemoryDatabase database = new MemoryDatabase();
+		long startTime = System.nanoTime();
+
+		for (DatabaseVersion databaseVersion : databaseVersions) {
+			database.addDatabaseVersion(databaseVersion);
+		}
+
+		return (System.nanoTime() - startTime) / 1000;
+	}
+
+	private List<DatabaseVersion> createDatabaseVersions(int databaseVersionCount, int newFilesPerDatabaseVersion) {
+		List<DatabaseVersion> databaseVersions = new ArrayList<DatabaseVersion>();
+		DatabaseVersion lastDatabaseVersion = null;
+
+		for (int i = 0; i < databaseVersionCount; i++) {
+			DatabaseVersion databaseVersion = TestDatabaseUtil.createDatabaseVersion(lastDatabaseVersion);
+
+			for (int j = 0; j < newFilesPerDatabaseVersion; j++) {
+				FileVersion fileVersion = TestDatabaseUtil.createFileVersion("folder" + i + "/file" + j + ".jpg");
+				PartialFileHistory fileHistory = new PartialFileHistory(FileHistoryId.secureRandomFileId());
+
+				fileHistory.addFileVersion(fileVersion);
+				databaseVersion.addFileHistory(fileHistory);
+			}
+
+			databaseVersions.add(databaseVersion);
+			lastDatabaseVersion = databaseVersion;
+		}
+
+		return databaseVersions;
+	}
 }
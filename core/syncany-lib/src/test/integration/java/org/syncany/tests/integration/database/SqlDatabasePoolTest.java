@@ -0,0 +1,212 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.integration.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+import org.syncany.config.Config;
+import org.syncany.database.SqlDatabase;
+import org.syncany.database.SqlDatabasePool;
+import org.syncany.plugins.transfer.files.DatabaseRemoteFile;
+import org.syncany.tests.util.TestConfigUtil;
+import org.syncany.tests.util.TestSqlUtil;
+
+public class SqlDatabasePoolTest {
+	private static final Logger logger = Logger.getLogger(SqlDatabasePoolTest.class.getSimpleName());
+
+	@Test
+	public void testReadDuringWriteTransaction() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		Connection databaseConnection = testConfig.createDatabaseConnection();
+
+		TestSqlUtil.runSqlFromResource(databaseConnection, "test.insert.set3.sql");
+
+		SqlDatabase writeDatabase = new SqlDatabase(testConfig);
+		final SqlDatabasePool databasePool = new SqlDatabasePool(testConfig, 1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		// Run
+		int knownDatabaseCount = writeDatabase.getKnownDatabases().size();
+
+		final SqlDatabase readDatabase1 = databasePool.borrow();
+		assertEquals(knownDatabaseCount, readDatabase1.getKnownDatabases().size());
+
+		// Idle reader must not block the writer
+		writeDatabase.writeKnownRemoteDatabases(Arrays.asList(new DatabaseRemoteFile("A", 1)));
+
+		// Test (tables not touched by the writer can be read, changed tables wait for the commit)
+		assertFalse(readDatabase1.getCurrentFileTree().isEmpty());
+
+		Future<Integer> knownDatabaseCountWhileWriting = executor.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return readDatabase1.getKnownDatabases().size();
+			}
+		});
+
+		Thread.sleep(500);
+		assertFalse("Read must wait for the writer", knownDatabaseCountWhileWriting.isDone());
+
+		writeDatabase.commit();
+		assertEquals(knownDatabaseCount + 1, (int) knownDatabaseCountWhileWriting.get(5, TimeUnit.SECONDS));
+
+		databasePool.release(readDatabase1);
+		SqlDatabase readDatabase2 = databasePool.borrow();
+
+		assertSame(readDatabase1, readDatabase2);
+		assertEquals(knownDatabaseCount + 1, readDatabase2.getKnownDatabases().size());
+		assertEquals(1, databasePool.getPoolSize());
+
+		// Tear down
+		databasePool.release(readDatabase2);
+		databasePool.close();
+		executor.shutdown();
+
+		writeDatabase.getConnection().close();
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testBorrowWaitsIfPoolExhausted() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		final SqlDatabasePool databasePool = new SqlDatabasePool(testConfig, 2);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		// Run
+		SqlDatabase readDatabase1 = databasePool.borrow();
+		SqlDatabase readDatabase2 = databasePool.borrow();
+
+		Future<SqlDatabase> readDatabase3Future = executor.submit(new Callable<SqlDatabase>() {
+			@Override
+			public SqlDatabase call() throws Exception {
+				return databasePool.borrow();
+			}
+		});
+
+		Thread.sleep(500);
+		boolean waitedForRelease = !readDatabase3Future.isDone();
+
+		databasePool.release(readDatabase2);
+		SqlDatabase readDatabase3 = readDatabase3Future.get(5, TimeUnit.SECONDS);
+
+		// Test
+		assertTrue(waitedForRelease);
+		assertSame(readDatabase2, readDatabase3);
+		assertEquals(2, databasePool.getPoolSize());
+		assertTrue(readDatabase1.getConnection().isReadOnly());
+
+		// Tear down
+		databasePool.release(readDatabase1);
+		databasePool.release(readDatabase3);
+		databasePool.close();
+		executor.shutdown();
+
+		assertTrue(readDatabase1.getConnection().isClosed());
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testConcurrentReadsPerformance() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		Connection databaseConnection = testConfig.createDatabaseConnection();
+
+		TestSqlUtil.runSqlFromResource(databaseConnection, "test.insert.set3.sql");
+
+		int threadCount = SqlDatabasePool.DEFAULT_MAX_POOL_SIZE;
+		int readsPerThread = 200;
+
+		SqlDatabase writeDatabase = new SqlDatabase(testConfig);
+		SqlDatabase singleDatabase = new SqlDatabase(testConfig, true);
+		final SqlDatabasePool databasePool = new SqlDatabasePool(testConfig);
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+		// Run (sequential, one connection)
+		long sequentialStartTime = System.currentTimeMillis();
+
+		for (int i = 0; i < threadCount * readsPerThread; i++) {
+			singleDatabase.getCurrentFileTree();
+			singleDatabase.getFileList("%", null, false, false, false, null);
+		}
+
+		long sequentialDuration = System.currentTimeMillis() - sequentialStartTime;
+
+		// Run (pooled, concurrently with an open write transaction)
+		writeDatabase.writeKnownRemoteDatabases(Arrays.asList(new DatabaseRemoteFile("A", 1)));
+
+		long pooledStartTime = System.currentTimeMillis();
+		List<Future<Integer>> readFutures = new ArrayList<Future<Integer>>();
+
+		for (int i = 0; i < threadCount * readsPerThread; i++) {
+			readFutures.add(executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					SqlDatabase readDatabase = databasePool.borrow();
+
+					try {
+						readDatabase.getFileList("%", null, false, false, false, null);
+						return readDatabase.getCurrentFileTree().size();
+					}
+					finally {
+						databasePool.release(readDatabase);
+					}
+				}
+			}));
+		}
+
+		for (Future<Integer> readFuture : readFutures) {
+			assertEquals(singleDatabase.getCurrentFileTree().size(), (int) readFuture.get(30, TimeUnit.SECONDS));
+		}
+
+		long pooledDuration = System.currentTimeMillis() - pooledStartTime;
+
+		// Test
+		logger.log(Level.INFO, (threadCount * readsPerThread) + " reads: " + sequentialDuration + " ms sequential (one connection), "
+				+ pooledDuration + " ms pooled (" + threadCount + " threads, during write transaction)");
+
+		assertTrue(databasePool.getPoolSize() <= threadCount);
+
+		// Tear down
+		executor.shutdown();
+		databasePool.close();
+
+		writeDatabase.getConnection().close();
+		singleDatabase.getConnection().close();
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+}
@@ -0,0 +1,404 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.integration.database.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.syncany.tests.util.TestAssertUtil.assertDatabaseVersionEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.syncany.chunk.GzipTransformer;
+import org.syncany.config.Logging;
+import org.syncany.database.ChunkEntry;
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.DatabaseVersion;
+import org.syncany.database.FileContent;
+import org.syncany.database.FileContent.FileChecksum;
+import org.syncany.database.FileVersion;
+import org.syncany.database.FileVersion.FileStatus;
+import org.syncany.database.FileVersion.FileType;
+import org.syncany.database.MemoryDatabase;
+import org.syncany.database.MultiChunkEntry;
+import org.syncany.database.MultiChunkEntry.MultiChunkId;
+import org.syncany.database.PartialFileHistory;
+import org.syncany.database.PartialFileHistory.FileHistoryId;
+import org.syncany.database.VectorClock;
+import org.syncany.database.dao.DatabaseBinaryReader;
+import org.syncany.database.dao.DatabaseBinarySerializer;
+import org.syncany.database.dao.DatabaseBinaryWriter;
+import org.syncany.database.dao.DatabaseSerializer;
+import org.syncany.database.dao.DatabaseSerializer.DatabaseReadType;
+import org.syncany.database.dao.DatabaseXmlSerializer;
+import org.syncany.tests.unit.util.TestFileUtil;
+import org.syncany.tests.util.TestAssertUtil;
+
+public class BinaryDatabaseDaoTest {
+	private static final Logger logger = Logger.getLogger(BinaryDatabaseDaoTest.class.getSimpleName());
+	
+	private File tempDir;
+
+	static {
+		Logging.init();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		tempDir = TestFileUtil.createTempDirectoryInSystemTemp();
+	}
+
+	@After
+	public void tearDown() {
+		TestFileUtil.deleteDirectory(tempDir);
+	}
+
+	@Test
+	public void testGetInstance() {
+		assertTrue(DatabaseSerializer.getInstance(null, null) instanceof DatabaseXmlSerializer);
+		assertTrue(DatabaseSerializer.getInstance(DatabaseXmlSerializer.TYPE, null) instanceof DatabaseXmlSerializer);
+		assertTrue(DatabaseSerializer.getInstance(DatabaseBinarySerializer.TYPE, null) instanceof DatabaseBinarySerializer);
+		assertNull(DatabaseSerializer.getInstance("invalid", null));
+	}
+
+	@Test
+	public void testWriteAndReadFullDatabase() throws IOException {
+		MemoryDatabase writtenDatabase = createSyntheticDatabase(5, 50);
+		MemoryDatabase readDatabase = writeAndRead(new DatabaseBinarySerializer(), writtenDatabase, null, null, DatabaseReadType.FULL);
+
+		TestAssertUtil.assertDatabaseEquals(writtenDatabase, readDatabase);
+	}
+
+	@Test
+	public void testWriteAndReadWithTransformer() throws IOException {
+		MemoryDatabase writtenDatabase = createSyntheticDatabase(3, 20);
+		MemoryDatabase readDatabase = writeAndRead(new DatabaseBinarySerializer(new GzipTransformer()), writtenDatabase, null, null,
+				DatabaseReadType.FULL);
+
+		TestAssertUtil.assertDatabaseEquals(writtenDatabase, readDatabase);
+	}
+
+	@Test
+	public void testWriteAndReadSpecialFileVersions() throws IOException {
+		MemoryDatabase writtenDatabase = new MemoryDatabase();
+		DatabaseVersion databaseVersion = createDatabaseVersion(null);
+
+		PartialFileHistory fileHistory = new PartialFileHistory(FileHistoryId.secureRandomFileId());
+
+		FileVersion symlinkVersion = createFileVersion(1L, "/leading/slash/link", FileType.SYMLINK, null);
+		symlinkVersion.setLinkTarget("../target with spaces/äöü");
+		symlinkVersion.setDosAttributes("--a-");
+		symlinkVersion.setPosixPermissions("rwxr-xr-x");
+		symlinkVersion.setUpdated(new Date(-1000L));
+		fileHistory.addFileVersion(symlinkVersion);
+
+		FileVersion restrictedCharsVersion = createFileVersion(2L, "control\u0001char\u0085/file/", FileType.FILE, new FileChecksum(new byte[] { 1, 2, 3 }));
+		restrictedCharsVersion.setLastModified(new Date(-123456789L));
+		fileHistory.addFileVersion(restrictedCharsVersion);
+
+		FileVersion noSlashVersion = createFileVersion(3L, "rootfile.txt", FileType.FILE, new FileChecksum(new byte[] { 1, 2, 3 }));
+		fileHistory.addFileVersion(noSlashVersion);
+
+		databaseVersion.addFileHistory(fileHistory);
+		writtenDatabase.addDatabaseVersion(databaseVersion);
+
+		MemoryDatabase readDatabase = writeAndRead(new DatabaseBinarySerializer(), writtenDatabase, null, null, DatabaseReadType.FULL);
+		PartialFileHistory readFileHistory = readDatabase.getFileHistory(fileHistory.getFileHistoryId());
+
+		assertNotNull(readFileHistory);
+		assertEquals(symlinkVersion, readFileHistory.getFileVersion(1L));
+		assertEquals(restrictedCharsVersion, readFileHistory.getFileVersion(2L));
+		assertEquals(noSlashVersion, readFileHistory.getFileVersion(3L));
+	}
+
+	@Test
+	public void testReadHeadersOnlyAndPartialRange() throws IOException {
+		MemoryDatabase writtenDatabase = createSyntheticDatabase(10, 10);
+		List<DatabaseVersion> writtenDatabaseVersions = writtenDatabase.getDatabaseVersions();
+
+		// Headers only
+		MemoryDatabase headersDatabase = writeAndRead(new DatabaseBinarySerializer(), writtenDatabase, null, null, DatabaseReadType.HEADER_ONLY);
+
+		assertEquals(10, headersDatabase.getDatabaseVersions().size());
+
+		for (int i = 0; i < 10; i++) {
+			DatabaseVersion readDatabaseVersion = headersDatabase.getDatabaseVersions().get(i);
+
+			assertEquals(writtenDatabaseVersions.get(i).getHeader(), readDatabaseVersion.getHeader());
+			assertEquals(0, readDatabaseVersion.getFileHistories().size());
+			assertEquals(0, readDatabaseVersion.getChunks().size());
+		}
+
+		// Range 3-6
+		VectorClock fromVersion = writtenDatabaseVersions.get(3).getVectorClock();
+		VectorClock toVersion = writtenDatabaseVersions.get(6).getVectorClock();
+
+		MemoryDatabase rangeDatabase = writeAndRead(new DatabaseBinarySerializer(), writtenDatabase, fromVersion, toVersion, DatabaseReadType.FULL);
+
+		assertEquals(4, rangeDatabase.getDatabaseVersions().size());
+
+		for (int i = 3; i <= 6; i++) {
+			assertDatabaseVersionEquals(writtenDatabaseVersions.get(i), rangeDatabase.getDatabaseVersion(writtenDatabaseVersions.get(i).getVectorClock()));
+		}
+	}
+
+	@Test
+	public void testReadHeadersAndRangeDoNotReadOtherRecords() throws IOException {
+		MemoryDatabase writtenDatabase = createSyntheticDatabase(3, 100);
+		List<DatabaseVersion> writtenDatabaseVersions = writtenDatabase.getDatabaseVersions();
+
+		DatabaseSerializer serializer = new DatabaseBinarySerializer(new GzipTransformer());
+		File databaseFile = new File(tempDir, "db-corrupt");
+
+		serializer.save(writtenDatabaseVersions, databaseFile);
+		assertTrue(DatabaseBinaryReader.isIndexedDatabase(databaseFile));
+
+		// Corrupt the first record (first database version), i.e. the beginning of the file
+		RandomAccessFile randomAccessFile = new RandomAccessFile(databaseFile, "rw");
+		randomAccessFile.seek(20);
+		randomAccessFile.write(new byte[64]);
+		randomAccessFile.close();
+
+		// Headers and other database versions can still be read
+		MemoryDatabase headersDatabase = new MemoryDatabase();
+		serializer.load(headersDatabase, databaseFile, null, null, DatabaseReadType.HEADER_ONLY);
+
+		assertEquals(3, headersDatabase.getDatabaseVersions().size());
+
+		VectorClock lastVectorClock = writtenDatabaseVersions.get(2).getVectorClock();
+		MemoryDatabase lastVersionDatabase = new MemoryDatabase();
+		serializer.load(lastVersionDatabase, databaseFile, lastVectorClock, lastVectorClock, DatabaseReadType.FULL);
+
+		assertEquals(1, lastVersionDatabase.getDatabaseVersions().size());
+		assertDatabaseVersionEquals(writtenDatabaseVersions.get(2), lastVersionDatabase.getLastDatabaseVersion());
+
+		// Reading the corrupt database version fails
+		try {
+			serializer.load(new MemoryDatabase(), databaseFile, null, null, DatabaseReadType.FULL);
+			fail("Loading corrupt database version should have failed.");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testReadSwappedRecordFails() throws IOException {
+		MemoryDatabase writtenDatabase = createSyntheticDatabase(1, 10);
+		DatabaseSerializer serializer = new DatabaseBinarySerializer();
+
+		File databaseFile = new File(tempDir, "db-original");
+		File otherDatabaseFile = new File(tempDir, "db-other");
+
+		serializer.save(writtenDatabase.getDatabaseVersions(), databaseFile);
+
+		// Write a second file with a record of the same length, but different content
+		for (FileContent fileContent : writtenDatabase.getLastDatabaseVersion().getFileContents()) {
+			fileContent.setSize(fileContent.getSize() + 1);
+		}
+
+		serializer.save(writtenDatabase.getDatabaseVersions(), otherDatabaseFile);
+		assertEquals(databaseFile.length(), otherDatabaseFile.length());
+
+		// Replace the record of the first file with the record of the second file
+		RandomAccessFile randomAccessFile = new RandomAccessFile(databaseFile, "rw");
+		RandomAccessFile otherRandomAccessFile = new RandomAccessFile(otherDatabaseFile, "r");
+
+		otherRandomAccessFile.seek(otherDatabaseFile.length() - DatabaseBinaryWriter.TRAILER_SIZE + DatabaseBinaryWriter.TRAILER_MAGIC.length + 1);
+		byte[] otherRecord = new byte[(int) otherRandomAccessFile.readLong()];
+
+		otherRandomAccessFile.seek(0);
+		otherRandomAccessFile.readFully(otherRecord);
+		otherRandomAccessFile.close();
+
+		randomAccessFile.seek(0);
+		randomAccessFile.write(otherRecord);
+		randomAccessFile.close();
+
+		// Headers are untouched, but the swapped record must be rejected
+		MemoryDatabase headersDatabase = new MemoryDatabase();
+		serializer.load(headersDatabase, databaseFile, null, null, DatabaseReadType.HEADER_ONLY);
+
+		assertEquals(1, headersDatabase.getDatabaseVersions().size());
+
+		try {
+			serializer.load(new MemoryDatabase(), databaseFile, null, null, DatabaseReadType.FULL);
+			fail("Loading swapped record should have failed.");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testReadXmlAndBinaryFiles() throws IOException {
+		// Both serializers must be able to read both formats
+		MemoryDatabase writtenDatabase = createSyntheticDatabase(2, 10);
+
+		TestAssertUtil.assertDatabaseEquals(writtenDatabase, writeAndRead(new DatabaseXmlSerializer(), new DatabaseBinarySerializer(), writtenDatabase));
+		TestAssertUtil.assertDatabaseEquals(writtenDatabase, writeAndRead(new DatabaseBinarySerializer(), new DatabaseXmlSerializer(), writtenDatabase));
+	}
+
+	@Test
+	public void testCompareXmlAndBinaryPerformance() throws IOException {
+		// Large synthetic database: 20 database versions with 5,000 file versions each
+		MemoryDatabase writtenDatabase = createSyntheticDatabase(20, 5000);
+
+		long xmlSize = benchmarkWriteAndRead(new DatabaseXmlSerializer(new GzipTransformer()), writtenDatabase);
+		long binarySize = benchmarkWriteAndRead(new DatabaseBinarySerializer(new GzipTransformer()), writtenDatabase);
+
+		assertTrue("Binary database should be smaller than XML database", binarySize < xmlSize);
+	}
+
+	private long benchmarkWriteAndRead(DatabaseSerializer serializer, MemoryDatabase writtenDatabase) throws IOException {
+		File databaseFile = new File(tempDir, "db-benchmark-" + serializer.getClass().getSimpleName());
+		long bestWriteTime = Long.MAX_VALUE;
+		long bestReadTime = Long.MAX_VALUE;
+		long bestHeaderReadTime = Long.MAX_VALUE;
+		long bestLastVersionReadTime = Long.MAX_VALUE;
+		
+		VectorClock lastVectorClock = writtenDatabase.getLastDatabaseVersion().getVectorClock();
+
+		for (int i = 0; i < 3; i++) {
+			long writeStartTime = System.currentTimeMillis();
+			serializer.save(writtenDatabase.getDatabaseVersions(), databaseFile);
+			bestWriteTime = Math.min(bestWriteTime, System.currentTimeMillis() - writeStartTime);
+
+			long readStartTime = System.currentTimeMillis();
+			serializer.load(new MemoryDatabase(), databaseFile, null, null, DatabaseReadType.FULL);
+			bestReadTime = Math.min(bestReadTime, System.currentTimeMillis() - readStartTime);
+
+			long headerReadStartTime = System.currentTimeMillis();
+			serializer.load(new MemoryDatabase(), databaseFile, null, null, DatabaseReadType.HEADER_ONLY);
+			bestHeaderReadTime = Math.min(bestHeaderReadTime, System.currentTimeMillis() - headerReadStartTime);
+
+			long lastVersionReadStartTime = System.currentTimeMillis();
+			serializer.load(new MemoryDatabase(), databaseFile, lastVectorClock, lastVectorClock, DatabaseReadType.FULL);
+			bestLastVersionReadTime = Math.min(bestLastVersionReadTime, System.currentTimeMillis() - lastVersionReadStartTime);
+		}
+
+		logger.log(Level.INFO, "{0}: size {1} bytes, write {2} ms, read (full) {3} ms, read (headers) {4} ms, read (last version) {5} ms",
+				new Object[] { serializer.getClass().getSimpleName(), databaseFile.length(), bestWriteTime, bestReadTime, bestHeaderReadTime,
+						bestLastVersionReadTime });
+
+		return databaseFile.length();
+	}
+
+	private MemoryDatabase writeAndRead(DatabaseSerializer serializer, MemoryDatabase writtenDatabase, VectorClock fromVersion, VectorClock toVersion,
+			DatabaseReadType readType) throws IOException {
+
+		File databaseFile = new File(tempDir + "/db-" + Math.abs(new Random().nextInt(Integer.MAX_VALUE)));
+		serializer.save(writtenDatabase.getDatabaseVersions(), databaseFile);
+
+		MemoryDatabase readDatabase = new MemoryDatabase();
+		serializer.load(readDatabase, databaseFile, fromVersion, toVersion, readType);
+
+		return readDatabase;
+	}
+
+	private MemoryDatabase writeAndRead(DatabaseSerializer writeSerializer, DatabaseSerializer readSerializer, MemoryDatabase writtenDatabase)
+			throws IOException {
+
+		File databaseFile = new File(tempDir + "/db-" + Math.abs(new Random().nextInt(Integer.MAX_VALUE)));
+		writeSerializer.save(writtenDatabase.getDatabaseVersions(), databaseFile);
+
+		MemoryDatabase readDatabase = new MemoryDatabase();
+		readSerializer.load(readDatabase, databaseFile, null, null, DatabaseReadType.FULL);
+
+		return readDatabase;
+	}
+
+	private MemoryDatabase createSyntheticDatabase(int databaseVersionCount, int fileCount) {
+		MemoryDatabase database = new MemoryDatabase();
+		DatabaseVersion lastDatabaseVersion = null;
+
+		for (int i = 0; i < databaseVersionCount; i++) {
+			DatabaseVersion databaseVersion = createDatabaseVersion(lastDatabaseVersion);
+			MultiChunkEntry multiChunk = new MultiChunkEntry(new MultiChunkId(TestFileUtil.createRandomArray(32)), 4 * 1024 * 1024);
+
+			for (int j = 0; j < fileCount; j++) {
+				ChunkEntry chunk = new ChunkEntry(new ChunkChecksum(TestFileUtil.createRandomArray(20)), 16 * 1024);
+				FileChecksum fileChecksum = new FileChecksum(TestFileUtil.createRandomArray(20));
+
+				FileContent fileContent = new FileContent();
+				fileContent.setChecksum(fileChecksum);
+				fileContent.setSize(16 * 1024L);
+				fileContent.addChunk(chunk.getChecksum());
+
+				String path = "folder" + (j % 50) + "/subfolder" + (j % 7) + "/file-" + i + "-" + j + ".txt";
+				FileVersion fileVersion = createFileVersion(1L, path, FileType.FILE, fileChecksum);
+				fileVersion.setPosixPermissions("rw-r--r--");
+
+				PartialFileHistory fileHistory = new PartialFileHistory(FileHistoryId.secureRandomFileId());
+				fileHistory.addFileVersion(fileVersion);
+
+				databaseVersion.addChunk(chunk);
+				multiChunk.addChunk(chunk.getChecksum());
+				databaseVersion.addFileContent(fileContent);
+				databaseVersion.addFileHistory(fileHistory);
+			}
+
+			databaseVersion.addMultiChunk(multiChunk);
+			database.addDatabaseVersion(databaseVersion);
+
+			lastDatabaseVersion = databaseVersion;
+		}
+
+		return database;
+	}
+
+	private DatabaseVersion createDatabaseVersion(DatabaseVersion basedOnDatabaseVersion) {
+		VectorClock vectorClock = (basedOnDatabaseVersion != null) ? basedOnDatabaseVersion.getVectorClock().clone() : new VectorClock();
+		vectorClock.incrementClock("someclient");
+
+		DatabaseVersion databaseVersion = new DatabaseVersion();
+
+		databaseVersion.setClient("someclient");
+		databaseVersion.setTimestamp(new Date());
+		databaseVersion.setVectorClock(vectorClock);
+
+		return databaseVersion;
+	}
+
+	private FileVersion createFileVersion(long version, String path, FileType type, FileChecksum checksum) {
+		FileVersion fileVersion = new FileVersion();
+
+		fileVersion.setVersion(version);
+		fileVersion.setPath(path);
+		fileVersion.setType(type);
+		fileVersion.setStatus(FileStatus.NEW);
+		fileVersion.setSize((checksum != null) ? 16 * 1024L : 0L);
+		fileVersion.setLastModified(new Date());
+		fileVersion.setChecksum(checksum);
+
+		return fileVersion;
+	}
+}
@@ -0,0 +1,408 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.integration.database.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+import org.syncany.config.Config;
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.ChunkPosition;
+import org.syncany.database.SqlDatabase;
+import org.syncany.database.dao.ChunkPositionLog;
+import org.syncany.database.dao.ChunkPositionLogStore;
+import org.syncany.database.dao.ChunkPositionSqlDao;
+import org.syncany.tests.util.TestConfigUtil;
+
+public class ChunkPositionStoreTest {
+	private static final Logger logger = Logger.getLogger(ChunkPositionStoreTest.class.getSimpleName());
+
+	@Test
+	public void testWriteReplaceAndRemoveChunkPositionsSql() throws Exception {
+		testWriteReplaceAndRemoveChunkPositions(ChunkPositionSqlDao.TYPE);
+	}
+
+	@Test
+	public void testWriteReplaceAndRemoveChunkPositionsLog() throws Exception {
+		testWriteReplaceAndRemoveChunkPositions(ChunkPositionLogStore.TYPE);
+	}
+
+	@Test
+	public void testRollbackChunkPositionsSql() throws Exception {
+		testRollbackChunkPositions(ChunkPositionSqlDao.TYPE);
+	}
+
+	@Test
+	public void testRollbackChunkPositionsLog() throws Exception {
+		testRollbackChunkPositions(ChunkPositionLogStore.TYPE);
+	}
+
+	@Test
+	public void testLogStoresIsolateUncommittedChanges() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		ChunkPositionLog log = new ChunkPositionLog(testConfig.getChunkPositionLogFile());
+
+		ChunkPositionLogStore logStore1 = new ChunkPositionLogStore(log);
+		ChunkPositionLogStore logStore2 = new ChunkPositionLogStore(log);
+
+		ChunkChecksum chunk1 = createChunkChecksum(1);
+		ChunkChecksum chunk2 = createChunkChecksum(2);
+
+		// Run
+		logStore1.writeChunkPositions("file1", 100, 1000, Arrays.asList(new ChunkPosition(chunk1, "file1", 0, 100)));
+		logStore2.writeChunkPositions("file2", 100, 1000, Arrays.asList(new ChunkPosition(chunk2, "file2", 0, 100)));
+
+		Map<ChunkChecksum, List<ChunkPosition>> uncommittedChunkPositions1 = logStore1.getChunkPositions(Arrays.asList(chunk1, chunk2));
+		Map<ChunkChecksum, List<ChunkPosition>> uncommittedChunkPositions2 = logStore2.getChunkPositions(Arrays.asList(chunk1, chunk2));
+
+		logStore2.commit(); // Must not write the changes of store 1
+		logStore1.rollback();
+
+		Map<ChunkChecksum, List<ChunkPosition>> committedChunkPositions1 = logStore1.getChunkPositions(Arrays.asList(chunk1, chunk2));
+
+		logStore1.removeChunkPositions("file2");
+		Map<ChunkChecksum, List<ChunkPosition>> removedChunkPositions1 = logStore1.getChunkPositions(Arrays.asList(chunk1, chunk2));
+		Map<ChunkChecksum, List<ChunkPosition>> removedChunkPositions2 = logStore2.getChunkPositions(Arrays.asList(chunk1, chunk2));
+
+		log.close();
+		
+		ChunkPositionLogStore reopenedLogStore = new ChunkPositionLogStore(testConfig.getChunkPositionLogFile());
+		Map<ChunkChecksum, List<ChunkPosition>> reopenedChunkPositions = reopenedLogStore.getChunkPositions(Arrays.asList(chunk1, chunk2));
+
+		// Test
+		assertEquals(1, uncommittedChunkPositions1.size());
+		assertEquals("file1", uncommittedChunkPositions1.get(chunk1).get(0).getPath());
+		assertEquals(1, uncommittedChunkPositions2.size());
+		assertEquals("file2", uncommittedChunkPositions2.get(chunk2).get(0).getPath());
+
+		assertEquals(1, committedChunkPositions1.size());
+		assertEquals("file2", committedChunkPositions1.get(chunk2).get(0).getPath());
+
+		assertEquals(0, removedChunkPositions1.size());
+		assertEquals(1, removedChunkPositions2.size());
+
+		assertEquals(1, reopenedChunkPositions.size());
+		assertEquals("file2", reopenedChunkPositions.get(chunk2).get(0).getPath());
+
+		// Tear down
+		reopenedLogStore.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testLogIsReleasedWhenLastDatabaseIsClosed() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		testConfig.setChunkPositionStore(ChunkPositionLogStore.TYPE);
+
+		SqlDatabase sqlDatabase1 = new SqlDatabase(testConfig);
+		SqlDatabase sqlDatabase2 = new SqlDatabase(testConfig);
+
+		ChunkChecksum chunk1 = createChunkChecksum(1);
+
+		// Run
+		sqlDatabase1.writeChunkPositions("file1", 100, 1000, Arrays.asList(new ChunkPosition(chunk1, "file1", 0, 100)));
+		sqlDatabase1.close();
+
+		Map<ChunkChecksum, List<ChunkPosition>> chunkPositionsAfterFirstClose = sqlDatabase2.getChunkPositions(Arrays.asList(chunk1));
+		sqlDatabase2.close();
+
+		ChunkPositionLog reopenedLog = new ChunkPositionLog(testConfig.getChunkPositionLogFile()); // Fails if still locked
+		Map<ChunkChecksum, List<ChunkPosition>> reopenedChunkPositions = new HashMap<ChunkChecksum, List<ChunkPosition>>();
+		reopenedLog.getChunkPositions(Arrays.asList(chunk1), Collections.<String> emptySet(), reopenedChunkPositions);
+
+		// Test
+		assertEquals(1, chunkPositionsAfterFirstClose.size());
+		assertEquals(1, reopenedChunkPositions.size());
+
+		// Tear down
+		reopenedLog.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testLogIsLocked() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		ChunkPositionLog log = new ChunkPositionLog(testConfig.getChunkPositionLogFile());
+
+		// Run & Test
+		try {
+			new ChunkPositionLog(testConfig.getChunkPositionLogFile());
+			fail("Opening a locked chunk position log should have failed.");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+
+		log.close();
+		new ChunkPositionLog(testConfig.getChunkPositionLogFile()).close();
+
+		// Tear down
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testLogStoreReopenDiscardsUncommittedAndInvalidRecords() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		ChunkPositionLogStore logStore = new ChunkPositionLogStore(testConfig.getChunkPositionLogFile());
+
+		ChunkChecksum chunk1 = createChunkChecksum(1);
+		ChunkChecksum chunk2 = createChunkChecksum(2);
+
+		// Run
+		logStore.writeChunkPositions("file1", 100, 1000, Arrays.asList(new ChunkPosition(chunk1, "file1", 0, 100)));
+		logStore.commit();
+
+		logStore.writeChunkPositions("file2", 100, 1000, Arrays.asList(new ChunkPosition(chunk2, "file2", 0, 100)));
+		logStore.close();
+
+		long committedLogSize = testConfig.getChunkPositionLogFile().length();
+
+		try (FileOutputStream logOutputStream = new FileOutputStream(testConfig.getChunkPositionLogFile(), true)) {
+			logOutputStream.write(new byte[] { 0, 0, 0, 50, 1, 2, 3 }); // Torn record
+		}
+
+		logStore = new ChunkPositionLogStore(testConfig.getChunkPositionLogFile());
+		Map<ChunkChecksum, List<ChunkPosition>> chunkPositions = logStore.getChunkPositions(Arrays.asList(chunk1, chunk2));
+
+		// Test
+		assertEquals(1, chunkPositions.size());
+		assertEquals("file1", chunkPositions.get(chunk1).get(0).getPath());
+		assertEquals(100, chunkPositions.get(chunk1).get(0).getFileSize());
+		assertEquals(1000, chunkPositions.get(chunk1).get(0).getFileLastModified());
+		assertEquals(committedLogSize, testConfig.getChunkPositionLogFile().length());
+
+		// Tear down
+		logStore.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testLogStoreCompaction() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		ChunkPositionLogStore logStore = new ChunkPositionLogStore(testConfig.getChunkPositionLogFile());
+
+		List<ChunkPosition> chunkPositions = createChunkPositions(new Random(4711), "file1", 100);
+		long maxLogSize = 0;
+
+		// Run
+		for (int i = 0; i < 1000; i++) {
+			logStore.writeChunkPositions("file1", 100 * 1024, i, chunkPositions);
+			logStore.commit();
+
+			maxLogSize = Math.max(maxLogSize, logStore.getLogSize());
+		}
+
+		logStore.close();
+		logStore = new ChunkPositionLogStore(testConfig.getChunkPositionLogFile());
+
+		// Test
+		assertTrue("Log should have been compacted", maxLogSize < 3 * 1024 * 1024);
+		assertTrue("Log should have been compacted", logStore.getLogSize() < maxLogSize);
+		assertFalse(testConfig.getChunkPositionLogFile().getParentFile().list()[0].endsWith(".compact"));
+
+		Map<ChunkChecksum, List<ChunkPosition>> readChunkPositions = logStore.getChunkPositions(Arrays.asList(chunkPositions.get(42).getChecksum()));
+		assertEquals(999, readChunkPositions.get(chunkPositions.get(42).getChecksum()).get(0).getFileLastModified());
+
+		// Tear down
+		logStore.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testChunkPositionStorePerformance() throws Exception {
+		// Setup
+		int fileCount = 2000;
+		int chunksPerFile = 32;
+
+		long[] sqlDurations = runSyntheticRepository(ChunkPositionSqlDao.TYPE, fileCount, chunksPerFile);
+		long[] logDurations = runSyntheticRepository(ChunkPositionLogStore.TYPE, fileCount, chunksPerFile);
+
+		// Test
+		logger.log(Level.INFO, "Chunk position stores with " + fileCount + " files, " + chunksPerFile + " chunks each: wrote (commit per file) in "
+				+ sqlDurations[0] + " ms (sql) vs. " + logDurations[0] + " ms (log); looked up all chunks in " + sqlDurations[1] + " ms (sql) vs. "
+				+ logDurations[1] + " ms (log); re-opened in " + sqlDurations[2] + " ms (sql) vs. " + logDurations[2] + " ms (log)");
+	}
+
+	private void testWriteReplaceAndRemoveChunkPositions(String chunkPositionStore) throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		testConfig.setChunkPositionStore(chunkPositionStore);
+
+		SqlDatabase sqlDatabase = new SqlDatabase(testConfig);
+
+		ChunkChecksum chunk1 = createChunkChecksum(1);
+		ChunkChecksum chunk2 = createChunkChecksum(2);
+		ChunkChecksum chunk3 = createChunkChecksum(3);
+
+		// Run
+		sqlDatabase.writeChunkPositions("file1", 300, 1000, Arrays.asList(new ChunkPosition(chunk1, "file1", 0, 100),
+				new ChunkPosition(chunk2, "file1", 100, 200)));
+		sqlDatabase.writeChunkPositions("file2", 200, 2000, Arrays.asList(new ChunkPosition(chunk2, "file2", 0, 200)));
+		sqlDatabase.commit();
+
+		Map<ChunkChecksum, List<ChunkPosition>> chunkPositions1 = sqlDatabase.getChunkPositions(Arrays.asList(chunk1, chunk2, chunk3));
+
+		sqlDatabase.writeChunkPositions("file1", 100, 3000, Arrays.asList(new ChunkPosition(chunk3, "file1", 0, 100)));
+		sqlDatabase.removeChunkPositions("file2");
+		sqlDatabase.commit();
+
+		Map<ChunkChecksum, List<ChunkPosition>> chunkPositions2 = sqlDatabase.getChunkPositions(Arrays.asList(chunk1, chunk2, chunk3));
+
+		// Test
+		assertEquals(2, chunkPositions1.size());
+		assertEquals(1, chunkPositions1.get(chunk1).size());
+		assertEquals(2, chunkPositions1.get(chunk2).size());
+		assertNull(chunkPositions1.get(chunk3));
+		assertEquals(100, chunkPositions1.get(chunk1).get(0).getSize());
+		assertEquals(300, chunkPositions1.get(chunk1).get(0).getFileSize());
+		assertEquals(1000, chunkPositions1.get(chunk1).get(0).getFileLastModified());
+
+		assertEquals(1, chunkPositions2.size());
+		assertEquals("file1", chunkPositions2.get(chunk3).get(0).getPath());
+		assertEquals(3000, chunkPositions2.get(chunk3).get(0).getFileLastModified());
+
+		// Tear down
+		sqlDatabase.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	private void testRollbackChunkPositions(String chunkPositionStore) throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		testConfig.setChunkPositionStore(chunkPositionStore);
+
+		SqlDatabase sqlDatabase = new SqlDatabase(testConfig);
+
+		ChunkChecksum chunk1 = createChunkChecksum(1);
+		ChunkChecksum chunk2 = createChunkChecksum(2);
+
+		// Run
+		sqlDatabase.writeChunkPositions("file1", 100, 1000, Arrays.asList(new ChunkPosition(chunk1, "file1", 0, 100)));
+		sqlDatabase.commit();
+
+		sqlDatabase.writeChunkPositions("file2", 100, 2000, Arrays.asList(new ChunkPosition(chunk2, "file2", 0, 100)));
+		sqlDatabase.removeChunkPositions("file1");
+		sqlDatabase.rollback();
+
+		sqlDatabase.commit();
+		Map<ChunkChecksum, List<ChunkPosition>> chunkPositions = sqlDatabase.getChunkPositions(Arrays.asList(chunk1, chunk2));
+
+		// Test
+		assertEquals(1, chunkPositions.size());
+		assertEquals("file1", chunkPositions.get(chunk1).get(0).getPath());
+
+		// Tear down
+		sqlDatabase.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	private long[] runSyntheticRepository(String chunkPositionStore, int fileCount, int chunksPerFile) throws Exception {
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		testConfig.setChunkPositionStore(chunkPositionStore);
+
+		SqlDatabase sqlDatabase = new SqlDatabase(testConfig);
+		Random random = new Random(4711);
+
+		List<List<ChunkPosition>> filesChunkPositions = new ArrayList<List<ChunkPosition>>();
+
+		for (int i = 0; i < fileCount; i++) {
+			filesChunkPositions.add(createChunkPositions(random, "folder" + (i % 50) + "/file" + i, chunksPerFile));
+		}
+
+		// Write positions of each file and commit, like the indexer
+		long writeStartTime = System.currentTimeMillis();
+
+		for (int i = 0; i < fileCount; i++) {
+			sqlDatabase.writeChunkPositions("folder" + (i % 50) + "/file" + i, chunksPerFile * 16 * 1024, i, filesChunkPositions.get(i));
+			sqlDatabase.commit();
+		}
+
+		long writeDuration = System.currentTimeMillis() - writeStartTime;
+
+		// Look up the chunks of each file, like the assembler
+		long lookupStartTime = System.currentTimeMillis();
+
+		for (List<ChunkPosition> fileChunkPositions : filesChunkPositions) {
+			List<ChunkChecksum> fileChunks = new ArrayList<ChunkChecksum>();
+
+			for (ChunkPosition chunkPosition : fileChunkPositions) {
+				fileChunks.add(chunkPosition.getChecksum());
+			}
+
+			assertEquals(chunksPerFile, sqlDatabase.getChunkPositions(fileChunks).size());
+		}
+
+		long lookupDuration = System.currentTimeMillis() - lookupStartTime;
+
+		// Re-open, i.e. replay the log
+		long reopenStartTime = System.currentTimeMillis();
+
+		sqlDatabase.close();
+		sqlDatabase = new SqlDatabase(testConfig);
+
+		assertEquals(1, sqlDatabase.getChunkPositions(Arrays.asList(filesChunkPositions.get(0).get(0).getChecksum())).size());
+		long reopenDuration = System.currentTimeMillis() - reopenStartTime;
+
+		// Tear down
+		sqlDatabase.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+
+		return new long[] { writeDuration, lookupDuration, reopenDuration };
+	}
+
+	private List<ChunkPosition> createChunkPositions(Random random, String path, int chunkCount) {
+		List<ChunkPosition> chunkPositions = new ArrayList<ChunkPosition>();
+
+		for (int i = 0; i < chunkCount; i++) {
+			byte[] checksum = new byte[20];
+			random.nextBytes(checksum);
+
+			chunkPositions.add(new ChunkPosition(new ChunkChecksum(checksum), path, i * 16 * 1024, 16 * 1024));
+		}
+
+		return chunkPositions;
+	}
+
+	private ChunkChecksum createChunkChecksum(int value) {
+		byte[] checksum = new byte[20];
+		checksum[19] = (byte) value;
+
+		return new ChunkChecksum(checksum);
+	}
+}
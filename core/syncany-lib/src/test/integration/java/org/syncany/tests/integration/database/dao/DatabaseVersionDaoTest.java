@@ -18,11 +18,15 @@
 package org.syncany.tests.integration.database.dao;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.io.File;
 import java.sql.Connection;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -38,12 +42,17 @@ import org.syncany.database.FileContent.FileChecksum;
 import org.syncany.database.FileVersion;
 import org.syncany.database.FileVersion.FileStatus;
 import org.syncany.database.FileVersion.FileType;
+import org.syncany.database.MemoryDatabase;
 import org.syncany.database.MultiChunkEntry;
 import org.syncany.database.MultiChunkEntry.MultiChunkId;
 import org.syncany.database.PartialFileHistory;
 import org.syncany.database.PartialFileHistory.FileHistoryId;
 import org.syncany.database.dao.ChunkSqlDao;
+import org.syncany.database.dao.DatabaseBinarySerializer;
+import org.syncany.database.dao.DatabaseSerializer;
+import org.syncany.database.dao.DatabaseSerializer.DatabaseReadType;
 import org.syncany.database.dao.DatabaseVersionSqlDao;
+import org.syncany.database.dao.DatabaseXmlSerializer;
 import org.syncany.database.dao.FileContentSqlDao;
 import org.syncany.database.dao.FileHistorySqlDao;
 import org.syncany.database.dao.FileVersionSqlDao;
@@ -137,6 +146,73 @@ public class DatabaseVersionDaoTest {
 		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
 	}
 	
+	@Test
+	public void testGetDatabaseVersionsToBatched() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		Connection databaseConnection = testConfig.createDatabaseConnection();
+
+		// Run
+		TestSqlUtil.runSqlFromResource(databaseConnection, "test.insert.set1.sql");
+
+		ChunkSqlDao chunkDao = new ChunkSqlDao(databaseConnection);
+		MultiChunkSqlDao multiChunkDao = new MultiChunkSqlDao(databaseConnection);
+		FileVersionSqlDao fileVersionDao = new FileVersionSqlDao(databaseConnection);
+		FileHistorySqlDao fileHistoryDao = new FileHistorySqlDao(databaseConnection, fileVersionDao);
+		FileContentSqlDao fileContentDao = new FileContentSqlDao(databaseConnection);
+		DatabaseVersionSqlDao databaseVersionDao = new DatabaseVersionSqlDao(databaseConnection, chunkDao, fileContentDao, fileVersionDao, fileHistoryDao, multiChunkDao);
+
+		List<DatabaseVersion> expectedDatabaseVersions = TestCollectionUtil.toList(databaseVersionDao.getDatabaseVersionsTo("A", 5));
+
+		// Test
+		for (int batchSize : new int[] { 0, 1, 2, 1000 }) { // 0 = no batching
+			List<DatabaseVersion> actualDatabaseVersions = TestCollectionUtil.toList(databaseVersionDao.getDatabaseVersionsTo("A", 5, batchSize));
+			assertEquals(expectedDatabaseVersions.size(), actualDatabaseVersions.size());
+
+			for (int i = 0; i < expectedDatabaseVersions.size(); i++) {
+				DatabaseVersion expectedDatabaseVersion = expectedDatabaseVersions.get(i);
+				DatabaseVersion actualDatabaseVersion = actualDatabaseVersions.get(i);
+
+				assertEquals(expectedDatabaseVersion.getHeader(), actualDatabaseVersion.getHeader());
+				assertCollectionEquals(expectedDatabaseVersion.getChunks(), actualDatabaseVersion.getChunks());
+				assertCollectionEquals(expectedDatabaseVersion.getMultiChunks(), actualDatabaseVersion.getMultiChunks());
+				assertCollectionEquals(expectedDatabaseVersion.getFileContents(), actualDatabaseVersion.getFileContents());
+				assertCollectionEquals(expectedDatabaseVersion.getFileHistories(), actualDatabaseVersion.getFileHistories());
+			}
+		}
+
+		assertFalse(databaseVersionDao.getDatabaseVersionsTo("B", 1, 1).hasNext()); // B1 is DIRTY !
+
+		// Test: Batched database versions can be streamed to the serializers
+		for (String databaseFormat : new String[] { DatabaseXmlSerializer.TYPE, DatabaseBinarySerializer.TYPE }) {
+			DatabaseSerializer databaseSerializer = DatabaseSerializer.getInstance(databaseFormat, testConfig.getTransformer());
+			File databaseFile = testConfig.getCache().getDatabaseFile("db-batched-" + databaseFormat);
+
+			databaseSerializer.save(databaseVersionDao.getDatabaseVersionsTo("A", 5, 1), databaseFile);
+
+			MemoryDatabase readDatabase = new MemoryDatabase();
+			databaseSerializer.load(readDatabase, databaseFile, null, null, DatabaseReadType.FULL);
+
+			List<DatabaseVersion> readDatabaseVersions = readDatabase.getDatabaseVersions();
+			assertEquals(expectedDatabaseVersions.size(), readDatabaseVersions.size());
+
+			for (int i = 0; i < expectedDatabaseVersions.size(); i++) {
+				DatabaseVersion expectedDatabaseVersion = expectedDatabaseVersions.get(i);
+				DatabaseVersion readDatabaseVersion = readDatabaseVersions.get(i);
+
+				assertEquals(expectedDatabaseVersion.getHeader(), readDatabaseVersion.getHeader());
+				assertCollectionEquals(expectedDatabaseVersion.getChunks(), readDatabaseVersion.getChunks());
+				assertCollectionEquals(expectedDatabaseVersion.getMultiChunks(), readDatabaseVersion.getMultiChunks());
+				assertCollectionEquals(expectedDatabaseVersion.getFileContents(), readDatabaseVersion.getFileContents());
+				assertCollectionEquals(expectedDatabaseVersion.getFileHistories(), readDatabaseVersion.getFileHistories());
+			}
+		}
+
+		// Tear down
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
 	@Test
 	public void testGetLastDatabaseVersionHeader1() throws Exception {
 		// Setup
@@ -461,4 +537,9 @@ public class DatabaseVersionDaoTest {
 		databaseConnection.close();
 		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
 	}	
+
+	private <T> void assertCollectionEquals(Collection<T> expected, Collection<T> actual) {
+		assertEquals(expected.size(), actual.size());
+		assertEquals(new HashSet<T>(expected), new HashSet<T>(actual));
+	}
 }
@@ -21,16 +21,34 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.junit.Test;
 import org.syncany.config.Config;
+import org.syncany.database.DatabaseVersion;
 import org.syncany.database.FileVersion;
+import org.syncany.database.FileVersion.FileStatus;
+import org.syncany.database.FileVersion.FileType;
+import org.syncany.database.PartialFileHistory;
 import org.syncany.database.PartialFileHistory.FileHistoryId;
+import org.syncany.database.SqlDatabase;
 import org.syncany.database.dao.FileVersionSqlDao;
 import org.syncany.tests.util.TestConfigUtil;
+import org.syncany.tests.util.TestDatabaseUtil;
 import org.syncany.tests.util.TestSqlUtil;
 
+import com.google.common.collect.Sets;
+
 /**
  * Tests the {@link FileVersionSqlDao}
  * <p>
@@ -38,6 +56,8 @@ import org.syncany.tests.util.TestSqlUtil;
  * tested in combination with the rest of the database write functioins. 
  */
 public class FileVersionDaoTest {	
+	private static final Logger logger = Logger.getLogger(FileVersionDaoTest.class.getSimpleName());
+
 	@Test
 	public void testFileVersionGetCurrentFileTree() throws Exception {
 		// Setup
@@ -60,5 +80,337 @@ public class FileVersionDaoTest {
 		// Tear down
 		databaseConnection.close();
 		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
-	}	
+	}
+
+	@Test
+	public void testCurrentFileVersionsAfterWriteDirtyAndPurge() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		SqlDatabase sqlDatabase = new SqlDatabase(testConfig);
+		Connection databaseConnection = sqlDatabase.getConnection();
+
+		PartialFileHistory fileHistory1 = new PartialFileHistory(FileHistoryId.secureRandomFileId());
+		PartialFileHistory fileHistory2 = new PartialFileHistory(FileHistoryId.secureRandomFileId());
+
+		FileVersion file1Version1 = createFolderVersion("folder1", 1, FileStatus.NEW);
+		FileVersion file2Version1 = createFolderVersion("folder2", 1, FileStatus.NEW);
+
+		DatabaseVersion databaseVersion1 = TestDatabaseUtil.createDatabaseVersion();
+		fileHistory1.addFileVersion(file1Version1);
+		fileHistory2.addFileVersion(file2Version1);
+		databaseVersion1.addFileHistory(fileHistory1);
+		databaseVersion1.addFileHistory(fileHistory2);
+
+		PartialFileHistory fileHistory1Update = new PartialFileHistory(fileHistory1.getFileHistoryId());
+		PartialFileHistory fileHistory2Update = new PartialFileHistory(fileHistory2.getFileHistoryId());
+
+		DatabaseVersion databaseVersion2 = TestDatabaseUtil.createDatabaseVersion(databaseVersion1);
+		fileHistory1Update.addFileVersion(createFolderVersion("folder1-renamed", 2, FileStatus.RENAMED));
+		fileHistory2Update.addFileVersion(createFolderVersion("folder2", 2, FileStatus.DELETED));
+		databaseVersion2.addFileHistory(fileHistory1Update);
+		databaseVersion2.addFileHistory(fileHistory2Update);
+
+		// Run & Test
+		sqlDatabase.writeDatabaseVersion(databaseVersion1);
+		sqlDatabase.writeDatabaseVersion(databaseVersion2);
+		sqlDatabase.commit();
+
+		assertEquals(Sets.newHashSet("folder1-renamed"), sqlDatabase.getCurrentFileTree().keySet());
+		assertCurrentFileVersionsEqualView(databaseConnection);
+
+		sqlDatabase.markDatabaseVersionDirty(databaseVersion2.getVectorClock());
+
+		assertEquals(Sets.newHashSet("folder1", "folder2"), sqlDatabase.getCurrentFileTree().keySet());
+		assertCurrentFileVersionsEqualView(databaseConnection);
+
+		Map<FileHistoryId, FileVersion> purgeFileVersions = new HashMap<FileHistoryId, FileVersion>();
+		purgeFileVersions.put(fileHistory1.getFileHistoryId(), file1Version1);
+
+		sqlDatabase.removeSmallerOrEqualFileVersions(purgeFileVersions);
+		sqlDatabase.commit();
+
+		assertEquals(Sets.newHashSet("folder2"), sqlDatabase.getCurrentFileTree().keySet());
+		assertCurrentFileVersionsEqualView(databaseConnection);
+
+		// Tear down
+		sqlDatabase.getConnection().close(); // Keeps the database referenced, see SqlDatabase#finalize()
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testCurrentFileVersionsAfterRollback() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		SqlDatabase sqlDatabase = new SqlDatabase(testConfig);
+		Connection databaseConnection = sqlDatabase.getConnection();
+
+		FileHistoryId fileHistoryId1 = FileHistoryId.secureRandomFileId();
+		FileHistoryId fileHistoryId2 = FileHistoryId.secureRandomFileId();
+		Date updated = new Date();
+
+		DatabaseVersion databaseVersion1 = TestDatabaseUtil.createDatabaseVersion();
+		addFolderVersion(databaseVersion1, fileHistoryId1, "folder1", 1, FileStatus.NEW, updated);
+		addFolderVersion(databaseVersion1, fileHistoryId2, "folder2", 1, FileStatus.NEW, updated);
+
+		DatabaseVersion databaseVersion2 = TestDatabaseUtil.createDatabaseVersion(databaseVersion1);
+		addFolderVersion(databaseVersion2, fileHistoryId1, "folder1-renamed", 2, FileStatus.RENAMED, updated);
+
+		DatabaseVersion databaseVersion3 = TestDatabaseUtil.createDatabaseVersion(databaseVersion2);
+		addFolderVersion(databaseVersion3, fileHistoryId1, "folder1-renamed-again", 3, FileStatus.RENAMED, updated);
+		addFolderVersion(databaseVersion3, fileHistoryId2, "folder2", 2, FileStatus.DELETED, updated);
+
+		sqlDatabase.writeDatabaseVersion(databaseVersion1);
+		sqlDatabase.commit();
+
+		String currentFileVersionsBefore = TestSqlUtil.runSqlSelect("select * from fileversion_current order by filehistory_id", databaseConnection);
+
+		// Run
+		sqlDatabase.writeDatabaseVersion(databaseVersion2);
+		assertEquals(Sets.newHashSet("folder1-renamed", "folder2"), sqlDatabase.getCurrentFileTree().keySet()); // Updates fileversion_current
+
+		sqlDatabase.writeDatabaseVersion(databaseVersion3);
+		sqlDatabase.rollback();
+
+		// Test
+		assertEquals(Sets.newHashSet("folder1", "folder2"), sqlDatabase.getCurrentFileTree().keySet());
+		assertEquals(currentFileVersionsBefore, TestSqlUtil.runSqlSelect("select * from fileversion_current order by filehistory_id", databaseConnection));
+		assertCurrentFileVersionsEqualView(databaseConnection);
+
+		// Tear down
+		sqlDatabase.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testGetCurrentFileTreeManyFilesPerformance() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		SqlDatabase sqlDatabase = new SqlDatabase(testConfig);
+		Connection databaseConnection = sqlDatabase.getConnection();
+
+		DatabaseVersion previousDatabaseVersion = null;
+		List<FileHistoryId> fileHistoryIds = new ArrayList<FileHistoryId>();
+
+		for (int i = 0; i < 20000; i++) {
+			fileHistoryIds.add(FileHistoryId.secureRandomFileId());
+		}
+
+		// Run
+		long writeStartTime = System.currentTimeMillis();
+
+		for (int version = 1; version <= 5; version++) {
+			DatabaseVersion databaseVersion = TestDatabaseUtil.createDatabaseVersion(previousDatabaseVersion);
+
+			for (int i = 0; i < fileHistoryIds.size(); i += version) { // Fewer changes in later versions
+				PartialFileHistory fileHistory = new PartialFileHistory(fileHistoryIds.get(i));
+				fileHistory.addFileVersion(createFolderVersion("folder" + i, version, (version == 1) ? FileStatus.NEW : FileStatus.CHANGED));
+
+				databaseVersion.addFileHistory(fileHistory);
+			}
+
+			sqlDatabase.writeDatabaseVersion(databaseVersion);
+			previousDatabaseVersion = databaseVersion;
+		}
+
+		sqlDatabase.commit();
+		long writeDuration = System.currentTimeMillis() - writeStartTime;
+
+		long treeDuration = 0;
+		long viewDuration = 0;
+
+		for (int round = 0; round < 3; round++) { // First rounds are warm-up
+			long treeStartTime = System.currentTimeMillis();
+			assertEquals(fileHistoryIds.size(), sqlDatabase.getCurrentFileTree().size());
+			treeDuration = System.currentTimeMillis() - treeStartTime;
+
+			long viewStartTime = System.currentTimeMillis();
+			assertEquals(Integer.toString(fileHistoryIds.size()), TestSqlUtil.runSqlSelect("select count(*) from (select * from fileversion_master_last)", databaseConnection));
+			viewDuration = System.currentTimeMillis() - viewStartTime;
+		}
+
+		// Test
+		logger.log(Level.INFO, "Wrote " + fileHistoryIds.size() + " file histories in 5 database versions in " + writeDuration + " ms; loaded current file tree in "
+				+ treeDuration + " ms (fileversion_current), counting rows of view fileversion_master_last took " + viewDuration + " ms");
+
+		assertCurrentFileVersionsEqualView(databaseConnection);
+
+		// Tear down
+		sqlDatabase.getConnection().close(); // Keeps the database referenced, see SqlDatabase#finalize()
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testGetFileListFolderRecursiveAndPointInTime() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		SqlDatabase sqlDatabase = new SqlDatabase(testConfig);
+
+		Date updated1 = new Date(1400000000000L);
+		Date updated2 = new Date(1400003600000L);
+
+		FileHistoryId movedFileHistoryId = FileHistoryId.secureRandomFileId();
+		FileHistoryId deletedFileHistoryId = FileHistoryId.secureRandomFileId();
+
+		DatabaseVersion databaseVersion1 = TestDatabaseUtil.createDatabaseVersion();
+		addFolderVersion(databaseVersion1, FileHistoryId.secureRandomFileId(), "a", 1, FileStatus.NEW, updated1);
+		addFolderVersion(databaseVersion1, FileHistoryId.secureRandomFileId(), "a/b", 1, FileStatus.NEW, updated1);
+		addFolderVersion(databaseVersion1, deletedFileHistoryId, "a/b/f1", 1, FileStatus.NEW, updated1);
+		addFolderVersion(databaseVersion1, movedFileHistoryId, "a/f2", 1, FileStatus.NEW, updated1);
+		addFolderVersion(databaseVersion1, FileHistoryId.secureRandomFileId(), "c", 1, FileStatus.NEW, updated1);
+
+		DatabaseVersion databaseVersion2 = TestDatabaseUtil.createDatabaseVersion(databaseVersion1);
+		addFolderVersion(databaseVersion2, movedFileHistoryId, "c/f2", 2, FileStatus.RENAMED, updated2);
+		addFolderVersion(databaseVersion2, deletedFileHistoryId, "a/b/f1", 2, FileStatus.DELETED, updated2);
+
+		sqlDatabase.writeDatabaseVersion(databaseVersion1);
+		sqlDatabase.writeDatabaseVersion(databaseVersion2);
+		sqlDatabase.commit();
+
+		Date betweenUpdates = new Date(updated1.getTime() + 60000);
+
+		// Run & Test
+		assertEquals(Sets.newHashSet("a", "c"), getPaths(sqlDatabase.getFileList("%", null, false, false, false, null)));
+		assertEquals(Sets.newHashSet("a/b"), getPaths(sqlDatabase.getFileList("a/%", null, false, false, false, null)));
+		assertEquals(Sets.newHashSet("a/b"), getPaths(sqlDatabase.getFileList("a/%", null, false, true, false, null)));
+		assertEquals(Sets.newHashSet("c/f2"), getPaths(sqlDatabase.getFileList("c/%", null, false, false, false, null)));
+		assertEquals(Sets.newHashSet("a", "a/b", "c", "c/f2"), getPaths(sqlDatabase.getFileList(null, null, false, true, false, null)));
+
+		assertEquals(Sets.newHashSet(), getPaths(sqlDatabase.getFileList("a/b/%", null, false, false, false, null)));
+		assertEquals(Sets.newHashSet("a/b/f1"), getPaths(sqlDatabase.getFileList("a/b/%", null, false, false, true, null)));
+
+		assertEquals(Sets.newHashSet("a/b", "a/f2"), getPaths(sqlDatabase.getFileList("a/%", betweenUpdates, false, false, false, null)));
+		assertEquals(Sets.newHashSet("a/b", "a/b/f1", "a/f2"), getPaths(sqlDatabase.getFileList("a/%", betweenUpdates, false, true, false, null)));
+		assertEquals(Sets.newHashSet(), getPaths(sqlDatabase.getFileList("c/%", betweenUpdates, false, false, false, null)));
+
+		assertEquals(Sets.newHashSet("c/f2"), getPaths(sqlDatabase.getFileList(movedFileHistoryId.toString().substring(0, 10) + "%", null, true, false, false, null)));
+
+		// Tear down
+		sqlDatabase.getConnection().close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testGetFileListManyFilesPerformance() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		SqlDatabase sqlDatabase = new SqlDatabase(testConfig);
+		Connection databaseConnection = sqlDatabase.getConnection();
+
+		DatabaseVersion databaseVersion = TestDatabaseUtil.createDatabaseVersion();
+		Date updated = new Date();
+
+		for (int i = 0; i < 40; i++) {
+			addFolderVersion(databaseVersion, FileHistoryId.secureRandomFileId(), "folder" + i, 1, FileStatus.NEW, updated);
+
+			for (int j = 0; j < 40; j++) {
+				addFolderVersion(databaseVersion, FileHistoryId.secureRandomFileId(), "folder" + i + "/sub" + j, 1, FileStatus.NEW, updated);
+
+				for (int k = 0; k < 15; k++) {
+					addFolderVersion(databaseVersion, FileHistoryId.secureRandomFileId(), "folder" + i + "/sub" + j + "/file" + k, 1, FileStatus.NEW, updated);
+				}
+			}
+		}
+
+		sqlDatabase.writeDatabaseVersion(databaseVersion);
+		sqlDatabase.commit();
+
+		// Run
+		long[] folderDurations = new long[2];
+		long[] rootDurations = new long[2];
+		long[] recursiveDurations = new long[2];
+
+		for (int round = 0; round < 3; round++) { // First rounds are warm-up
+			folderDurations[0] = timeGetFileList(sqlDatabase, "folder7/sub3/%", false, 15);
+			rootDurations[0] = timeGetFileList(sqlDatabase, "%", false, 40);
+			recursiveDurations[0] = timeGetFileList(sqlDatabase, "folder7/%", true, 40 * 16);
+
+			folderDurations[1] = timeUnindexedFileList(databaseConnection, "folder7/sub3/%", 2, 2, 15);
+			rootDurations[1] = timeUnindexedFileList(databaseConnection, "%", 0, 0, 40);
+			recursiveDurations[1] = timeUnindexedFileList(databaseConnection, "folder7/%", 0, Integer.MAX_VALUE, 40 * 16);
+		}
+
+		// Test
+		logger.log(Level.INFO, "Listed " + databaseVersion.getFileHistories().size() + " file versions: single folder in " + folderDurations[0] + " ms (indexed) vs. "
+				+ folderDurations[1] + " ms (like/substr_count); root folder in " + rootDurations[0] + " ms vs. " + rootDurations[1] + " ms; recursive in "
+				+ recursiveDurations[0] + " ms vs. " + recursiveDurations[1] + " ms");
+
+		// Tear down
+		sqlDatabase.getConnection().close(); // Keeps the database referenced, see SqlDatabase#finalize()
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	private long timeGetFileList(SqlDatabase sqlDatabase, String pathExpression, boolean recursive, int expectedCount) {
+		long startTime = System.currentTimeMillis();
+		assertEquals(expectedCount, sqlDatabase.getFileList(pathExpression, null, false, recursive, false, null).size());
+
+		return System.currentTimeMillis() - startTime;
+	}
+
+	private long timeUnindexedFileList(Connection databaseConnection, String pathExpression, int minSlashCount, int maxSlashCount, int expectedCount)
+			throws Exception {
+
+		// Query used by getFileList() before the depth column and the path range were introduced
+		String unindexedQuery = "select * from fileversion where status<>'DELETED' and path like ? and rawtohex(filehistory_id) like '%' "
+				+ "and substr_count(path, '/')>=? and substr_count(path, '/')<=? and (filehistory_id, version) in ("
+				+ "select filehistory_id, max(version) from fileversion_master group by filehistory_id)";
+
+		long startTime = System.currentTimeMillis();
+
+		try (PreparedStatement preparedStatement = databaseConnection.prepareStatement(unindexedQuery)) {
+			preparedStatement.setString(1, pathExpression);
+			preparedStatement.setInt(2, minSlashCount);
+			preparedStatement.setInt(3, maxSlashCount);
+
+			int count = 0;
+
+			try (ResultSet resultSet = preparedStatement.executeQuery()) {
+				while (resultSet.next()) {
+					count++;
+				}
+			}
+
+			assertEquals(expectedCount, count);
+		}
+
+		return System.currentTimeMillis() - startTime;
+	}
+
+	private void addFolderVersion(DatabaseVersion databaseVersion, FileHistoryId fileHistoryId, String path, long version, FileStatus status, Date updated) {
+		FileVersion fileVersion = createFolderVersion(path, version, status);
+		fileVersion.setUpdated(updated);
+
+		PartialFileHistory fileHistory = new PartialFileHistory(fileHistoryId);
+		fileHistory.addFileVersion(fileVersion);
+
+		databaseVersion.addFileHistory(fileHistory);
+	}
+
+	private Set<String> getPaths(List<FileVersion> fileVersions) {
+		Set<String> paths = new HashSet<String>();
+
+		for (FileVersion fileVersion : fileVersions) {
+			paths.add(fileVersion.getPath());
+		}
+
+		return paths;
+	}
+
+	private FileVersion createFolderVersion(String path, long version, FileStatus status) {
+		FileVersion fileVersion = TestDatabaseUtil.createFileVersion(path);
+
+		fileVersion.setType(FileType.FOLDER);
+		fileVersion.setChecksum(null);
+		fileVersion.setSize(0L);
+		fileVersion.setStatus(status);
+		fileVersion.setVersion(version);
+
+		return fileVersion;
+	}
+
+	private void assertCurrentFileVersionsEqualView(Connection databaseConnection) throws Exception {
+		String orderBy = " order by filehistory_id, version, databaseversion_id";
+
+		assertEquals(TestSqlUtil.runSqlSelect("select * from fileversion_master_last" + orderBy, databaseConnection),
+				TestSqlUtil.runSqlSelect("select * from fileversion_current" + orderBy, databaseConnection));
+	}
 }
@@ -24,22 +24,36 @@ import static org.junit.Assert.assertTrue;
 
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.junit.Test;
 import org.syncany.config.Config;
+import org.syncany.database.ChunkEntry;
 import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.DatabaseVersion;
+import org.syncany.database.FileContent;
 import org.syncany.database.FileContent.FileChecksum;
+import org.syncany.database.FileVersion;
 import org.syncany.database.MultiChunkEntry;
 import org.syncany.database.MultiChunkEntry.MultiChunkId;
+import org.syncany.database.PartialFileHistory;
+import org.syncany.database.PartialFileHistory.FileHistoryId;
+import org.syncany.database.SqlDatabase;
 import org.syncany.database.dao.MultiChunkSqlDao;
+import org.syncany.tests.unit.util.TestFileUtil;
 import org.syncany.tests.util.TestConfigUtil;
 import org.syncany.tests.util.TestDatabaseUtil;
 import org.syncany.tests.util.TestSqlUtil;
 import org.syncany.util.CollectionUtil;
 
 public class MultiChunkDaoTest {
+	private static final Logger logger = Logger.getLogger(MultiChunkDaoTest.class.getSimpleName());
+
 	@Test
 	public void testGetMultiChunkId() throws Exception {
 		// Setup
@@ -271,4 +285,149 @@ public class MultiChunkDaoTest {
 		databaseConnection.close();
 		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
 	}
+
+	@Test
+	public void testGetUnusedMultiChunksAndRemoveUnreferenced() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		SqlDatabase sqlDatabase = new SqlDatabase(testConfig);
+		Connection databaseConnection = sqlDatabase.getConnection();
+
+		// 10 files with 4 chunks each, 2 files per multichunk; file 9 has the same content as file 8
+		List<MultiChunkId> multiChunkIds = new ArrayList<MultiChunkId>();
+		List<PartialFileHistory> fileHistories = writeRepository(sqlDatabase, 10, 4, 2, multiChunkIds);
+
+		// Run
+		Map<FileHistoryId, List<FileVersion>> purgeFileVersions = new HashMap<FileHistoryId, List<FileVersion>>();
+
+		for (int i : new int[] { 0, 1, 2, 8 }) {
+			PartialFileHistory fileHistory = fileHistories.get(i);
+			purgeFileVersions.put(fileHistory.getFileHistoryId(), Arrays.asList(fileHistory.getLastVersion()));
+		}
+
+		sqlDatabase.removeFileVersions(purgeFileVersions);
+
+		Map<MultiChunkId, MultiChunkEntry> unusedMultiChunks = sqlDatabase.getUnusedMultiChunks();
+		sqlDatabase.removeUnreferencedDatabaseEntities();
+		sqlDatabase.commit();
+
+		// Test
+		assertEquals(1, unusedMultiChunks.size()); // Files 0 and 1; file 2 shares its multichunk with file 3, file 8 with file 9
+		assertTrue(unusedMultiChunks.containsKey(multiChunkIds.get(0)));
+		assertEquals(multiChunkIds.get(0), unusedMultiChunks.get(multiChunkIds.get(0)).getId());
+
+		assertEquals("6", TestSqlUtil.runSqlSelect("select count(*) from filecontent", databaseConnection)); // Files 3-7, 8/9
+		assertEquals("24", TestSqlUtil.runSqlSelect("select count(*) from filecontent_chunk", databaseConnection));
+		assertEquals("24", TestSqlUtil.runSqlSelect("select count(*) from chunk", databaseConnection));
+		assertEquals("4", TestSqlUtil.runSqlSelect("select count(*) from multichunk", databaseConnection));
+		assertEquals("24", TestSqlUtil.runSqlSelect("select count(*) from multichunk_chunk", databaseConnection));
+		assertEquals("0", TestSqlUtil.runSqlSelect("select count(*) from multichunk where id=X'" + multiChunkIds.get(0) + "'", databaseConnection));
+		assertEquals("4", TestSqlUtil.runSqlSelect("select count(*) from multichunk_chunk where multichunk_id=X'" + multiChunkIds.get(1) + "'", databaseConnection));
+
+		// Tear down
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testRemoveUnreferencedDatabaseEntitiesPerformance() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		SqlDatabase sqlDatabase = new SqlDatabase(testConfig);
+		Connection databaseConnection = sqlDatabase.getConnection();
+
+		int fileCount = 20000;
+		int filesPerMultiChunk = 25;
+
+		long writeStartTime = System.currentTimeMillis();
+		List<PartialFileHistory> fileHistories = writeRepository(sqlDatabase, fileCount, 4, filesPerMultiChunk, new ArrayList<MultiChunkId>());
+		long writeDuration = System.currentTimeMillis() - writeStartTime;
+
+		// Run: Purge 1% of the files, i.e. 8 multichunks
+		Map<FileHistoryId, List<FileVersion>> purgeFileVersions = new HashMap<FileHistoryId, List<FileVersion>>();
+
+		for (PartialFileHistory fileHistory : fileHistories.subList(0, fileCount / 100)) {
+			purgeFileVersions.put(fileHistory.getFileHistoryId(), Arrays.asList(fileHistory.getLastVersion()));
+		}
+
+		sqlDatabase.removeFileVersions(purgeFileVersions);
+
+		long unusedStartTime = System.currentTimeMillis();
+		Map<MultiChunkId, MultiChunkEntry> unusedMultiChunks = sqlDatabase.getUnusedMultiChunks();
+		long unusedDuration = System.currentTimeMillis() - unusedStartTime;
+
+		long removeStartTime = System.currentTimeMillis();
+		sqlDatabase.removeUnreferencedDatabaseEntities();
+		long removeDuration = System.currentTimeMillis() - removeStartTime;
+
+		sqlDatabase.commit();
+
+		// Test
+		logger.log(Level.INFO, "Wrote " + fileCount + " files (4 chunks each) in " + writeDuration + " ms; after purging 1%, getUnusedMultiChunks took "
+				+ unusedDuration + " ms, removeUnreferencedDatabaseEntities took " + removeDuration + " ms");
+
+		assertEquals(fileCount / 100 / filesPerMultiChunk, unusedMultiChunks.size());
+		assertEquals(Integer.toString(fileCount / filesPerMultiChunk - unusedMultiChunks.size()),
+				TestSqlUtil.runSqlSelect("select count(*) from multichunk", databaseConnection));
+		assertEquals(Integer.toString((fileCount - 1 - fileCount / 100) * 4), TestSqlUtil.runSqlSelect("select count(*) from chunk", databaseConnection));
+
+		// Tear down
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	/**
+	 * Writes a database version with the given number of files. Each file has its own
+	 * chunks, except the last file, which has the same content as the second to last file.
+	 * The chunks of <tt>filesPerMultiChunk</tt> consecutive files are stored in one multichunk,
+	 * whose identifiers are added to <tt>multiChunkIds</tt>.
+	 */
+	private List<PartialFileHistory> writeRepository(SqlDatabase sqlDatabase, int fileCount, int chunksPerFile, int filesPerMultiChunk,
+			List<MultiChunkId> multiChunkIds) throws Exception {
+
+		DatabaseVersion databaseVersion = TestDatabaseUtil.createDatabaseVersion();
+		List<PartialFileHistory> fileHistories = new ArrayList<PartialFileHistory>();
+
+		MultiChunkEntry multiChunk = null;
+		FileContent fileContent = null;
+
+		for (int i = 0; i < fileCount; i++) {
+			if (i % filesPerMultiChunk == 0) {
+				multiChunk = new MultiChunkEntry(new MultiChunkId(TestFileUtil.createRandomArray(20)), 1000);
+				databaseVersion.addMultiChunk(multiChunk);
+				multiChunkIds.add(multiChunk.getId());
+			}
+
+			if (i < fileCount - 1) {
+				fileContent = new FileContent();
+				fileContent.setChecksum(new FileChecksum(TestFileUtil.createRandomArray(20)));
+				fileContent.setSize(chunksPerFile * 100);
+
+				for (int j = 0; j < chunksPerFile; j++) {
+					ChunkEntry chunk = new ChunkEntry(new ChunkChecksum(TestFileUtil.createRandomArray(20)), 100);
+
+					databaseVersion.addChunk(chunk);
+					fileContent.addChunk(chunk.getChecksum());
+					multiChunk.addChunk(chunk.getChecksum());
+				}
+
+				databaseVersion.addFileContent(fileContent);
+			}
+
+			FileVersion fileVersion = TestDatabaseUtil.createFileVersion("file" + i);
+			fileVersion.setChecksum(fileContent.getChecksum());
+			fileVersion.setSize(fileContent.getSize());
+
+			PartialFileHistory fileHistory = new PartialFileHistory(FileHistoryId.secureRandomFileId());
+			fileHistory.addFileVersion(fileVersion);
+
+			databaseVersion.addFileHistory(fileHistory);
+			fileHistories.add(fileHistory);
+		}
+
+		sqlDatabase.writeDatabaseVersion(databaseVersion);
+		sqlDatabase.commit();
+
+		return fileHistories;
+	}
 }
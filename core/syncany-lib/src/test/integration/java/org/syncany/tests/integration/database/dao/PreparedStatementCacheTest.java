@@ -0,0 +1,225 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.integration.database.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+import org.syncany.config.Config;
+import org.syncany.database.ChunkEntry;
+import org.syncany.database.ChunkEntry.ChunkChecksum;
+import org.syncany.database.DatabaseConnectionFactory;
+import org.syncany.database.DatabaseVersion;
+import org.syncany.database.FileContent;
+import org.syncany.database.FileContent.FileChecksum;
+import org.syncany.database.MultiChunkEntry;
+import org.syncany.database.MultiChunkEntry.MultiChunkId;
+import org.syncany.database.SqlDatabase;
+import org.syncany.database.dao.PreparedStatementCache;
+import org.syncany.tests.util.TestConfigUtil;
+import org.syncany.tests.util.TestDatabaseUtil;
+import org.syncany.tests.util.TestSqlUtil;
+
+public class PreparedStatementCacheTest {
+	private static final Logger logger = Logger.getLogger(PreparedStatementCacheTest.class.getSimpleName());
+
+	@Test
+	public void testCachedStatementIsReusedAfterClose() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		Connection databaseConnection = testConfig.createDatabaseConnection();
+
+		TestSqlUtil.runSqlFromResource(databaseConnection, "test.insert.set3.sql");
+		PreparedStatementCache statementCache = new PreparedStatementCache(databaseConnection);
+
+		// Run
+		PreparedStatement statement1 = statementCache.getStatement("multichunk.select.all.getMultiChunkIdForChunk.sql");
+		statement1.setString(1, "615fba8c2281d5bee891eb092a252d235c237457");
+
+		ResultSet resultSet1 = statement1.executeQuery();
+		assertTrue(resultSet1.next());
+
+		PreparedStatement nestedStatement = statementCache.getStatement("multichunk.select.all.getMultiChunkIdForChunk.sql");
+		nestedStatement.close();
+
+		resultSet1.close();
+		statement1.close();
+
+		PreparedStatement statement2 = statementCache.getStatement("multichunk.select.all.getMultiChunkIdForChunk.sql");
+
+		// Test
+		assertNotSame(statement1, nestedStatement);
+		assertSame(statement1, statement2);
+		assertFalse(statement2.isClosed());
+		assertEquals(1, statementCache.size());
+
+		statement2.setString(1, "beefbeefbeefbeefbeefbeefbeefbeefbeefbeef");
+
+		try (ResultSet resultSet2 = statement2.executeQuery()) {
+			assertFalse(resultSet2.next());
+		}
+
+		statement2.close();
+		assertTrue(statement2.isClosed());
+
+		// Open result sets (e.g. lazy iterators) keep their statement; it is not reused
+		PreparedStatement statement3 = statementCache.getStatement("multichunk.select.all.getMultiChunkIdForChunk.sql");
+		statement3.setString(1, "615fba8c2281d5bee891eb092a252d235c237457");
+
+		ResultSet resultSet3 = statement3.executeQuery();
+		Statement handedOverStatement = resultSet3.getStatement();
+		statement3.close();
+
+		assertTrue(resultSet3.next());
+		assertEquals(0, statementCache.size());
+		assertNotSame(statement3, statementCache.getStatement("multichunk.select.all.getMultiChunkIdForChunk.sql"));
+		assertFalse(handedOverStatement.isClosed());
+
+		// Handed over statements are closed with their result set
+		resultSet3.close();
+		assertTrue(handedOverStatement.isClosed());
+
+		// Tear down
+		statementCache.clear();
+		databaseConnection.close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	@Test
+	public void testLookupsOnLargeDatabasePerformance() throws Exception {
+		// Setup
+		Config testConfig = TestConfigUtil.createTestLocalConfig();
+		SqlDatabase sqlDatabase = new SqlDatabase(testConfig);
+
+		Random random = new Random(4711);
+		List<ChunkChecksum> chunkChecksums = new ArrayList<ChunkChecksum>();
+
+		DatabaseVersion databaseVersion = new DatabaseVersion();
+		databaseVersion.setClient("A");
+		databaseVersion.setVectorClock(TestDatabaseUtil.createVectorClock("A1"));
+
+		for (int multiChunkIndex = 0; multiChunkIndex < 200; multiChunkIndex++) {
+			MultiChunkEntry multiChunk = new MultiChunkEntry(new MultiChunkId(randomBytes(random, 20)), 1000);
+			FileContent fileContent = new FileContent();
+
+			fileContent.setChecksum(new FileChecksum(randomBytes(random, 20)));
+			fileContent.setSize(1000);
+
+			for (int chunkIndex = 0; chunkIndex < 100; chunkIndex++) {
+				ChunkChecksum chunkChecksum = new ChunkChecksum(randomBytes(random, 20));
+
+				databaseVersion.addChunk(new ChunkEntry(chunkChecksum, 10));
+				multiChunk.addChunk(chunkChecksum);
+				fileContent.addChunk(chunkChecksum);
+
+				chunkChecksums.add(chunkChecksum);
+			}
+
+			databaseVersion.addMultiChunk(multiChunk);
+			databaseVersion.addFileContent(fileContent);
+		}
+
+		// Run
+		long writeStartTime = System.currentTimeMillis();
+
+		sqlDatabase.writeDatabaseVersion(databaseVersion);
+		sqlDatabase.commit();
+
+		long writeDuration = System.currentTimeMillis() - writeStartTime;
+
+		for (ChunkChecksum chunkChecksum : chunkChecksums.subList(0, 100)) {
+			assertEquals(databaseVersion.getMultiChunkId(chunkChecksum), sqlDatabase.getMultiChunkId(chunkChecksum));
+		}
+
+		Connection databaseConnection = sqlDatabase.getConnection();
+		PreparedStatementCache statementCache = new PreparedStatementCache(databaseConnection);
+
+		long cachedDuration = 0;
+		long uncachedDuration = 0;
+
+		Set<PreparedStatement> cachedStatements = new HashSet<PreparedStatement>();
+
+		for (int round = 0; round < 3; round++) { // First rounds are warm-up
+			long cachedStartTime = System.currentTimeMillis();
+
+			for (ChunkChecksum chunkChecksum : chunkChecksums) {
+				try (PreparedStatement preparedStatement = statementCache.getStatement("multichunk.select.all.getMultiChunkIdForChunk.sql")) {
+					assertTrue(lookupMultiChunkId(preparedStatement, chunkChecksum));
+					cachedStatements.add(preparedStatement);
+				}
+			}
+
+			cachedDuration = System.currentTimeMillis() - cachedStartTime;
+			long uncachedStartTime = System.currentTimeMillis();
+
+			for (ChunkChecksum chunkChecksum : chunkChecksums) {
+				String sqlQuery = DatabaseConnectionFactory.getStatement("multichunk.select.all.getMultiChunkIdForChunk.sql");
+
+				try (PreparedStatement preparedStatement = databaseConnection.prepareStatement(sqlQuery)) {
+					assertTrue(lookupMultiChunkId(preparedStatement, chunkChecksum));
+				}
+			}
+
+			uncachedDuration = System.currentTimeMillis() - uncachedStartTime;
+		}
+
+		logger.log(Level.INFO, "Wrote " + chunkChecksums.size() + " chunks in " + writeDuration + " ms; looked up all multichunk IDs in "
+				+ cachedDuration + " ms (cached statement) and " + uncachedDuration + " ms (statement prepared per query)");
+
+		// Test (all lookups reused a single prepared statement)
+		assertEquals(1, cachedStatements.size());
+		assertEquals(1, statementCache.size());
+
+		statementCache.clear();
+
+		// Tear down (through the database, so it is not finalized while its connection is in use)
+		sqlDatabase.getConnection().close();
+		TestConfigUtil.deleteTestLocalConfigAndData(testConfig);
+	}
+
+	private boolean lookupMultiChunkId(PreparedStatement preparedStatement, ChunkChecksum chunkChecksum) throws Exception {
+		preparedStatement.setString(1, chunkChecksum.toString());
+
+		try (ResultSet resultSet = preparedStatement.executeQuery()) {
+			return resultSet.next();
+		}
+	}
+
+	private byte[] randomBytes(Random random, int length) {
+		byte[] randomBytes = new byte[length];
+		random.nextBytes(randomBytes);
+
+		return randomBytes;
+	}
+}
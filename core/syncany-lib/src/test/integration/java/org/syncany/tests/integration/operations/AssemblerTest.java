@@ -27,6 +27,11 @@ import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 import org.syncany.chunk.Chunk;
 import org.syncany.chunk.MultiChunk;
+import org.syncany.config.Config;
+import org.syncany.database.FileVersion;
+import org.syncany.database.MultiChunkEntry.MultiChunkId;
+import org.syncany.database.SqlDatabase;
+import org.syncany.operations.Assembler;
 import org.syncany.plugins.local.LocalTransferSettings;
 import org.syncany.tests.util.TestClient;
 import org.syncany.tests.util.TestConfigUtil;
@@ -81,4 +86,61 @@ public class AssemblerTest {
 		clientA.deleteTestData();
 		clientB.deleteTestData();
 	}	
+	
+	/**
+	 * Simulates a partial multichunk in the cache that does not contain a chunk, 
+	 * because the chunk was expected to be read from a local file that has changed since.
+	 */
+	@Test
+	public void testAssemblerChunkMissingInCachedMultiChunk() throws Exception {
+		LocalTransferSettings testConnection = (LocalTransferSettings) TestConfigUtil.createTestLocalConnection();
+		
+		TestClient clientA = new TestClient("A", testConnection);
+		TestClient clientB = new TestClient("B", testConnection);
+		
+		clientA.createNewFile("file1.jpg", 20); // small, only one chunk, one multichunk
+		clientA.upWithForceChecksum();
+
+		clientA.createNewFile("file2.jpg", 20);
+		clientA.upWithForceChecksum();
+		
+		clientB.down();
+		
+		Config configB = clientB.getConfig();
+		SqlDatabase localDatabaseB = new SqlDatabase(configB);
+		
+		FileVersion fileVersion1 = localDatabaseB.getCurrentFileTree().get("file1.jpg");
+		FileVersion fileVersion2 = localDatabaseB.getCurrentFileTree().get("file2.jpg");
+		MultiChunkId multiChunkId1 = localDatabaseB.getMultiChunkIds(fileVersion1.getChecksum()).get(0);
+		MultiChunkId multiChunkId2 = localDatabaseB.getMultiChunkIds(fileVersion2.getChecksum()).get(0);
+		
+		// Read chunk of file 2, and write it to the cache as multichunk of file 1
+		File multiChunkFile2 = new File(testConnection.getPath(), "multichunks/multichunk-" + multiChunkId2);
+		
+		MultiChunk multiChunk2 = configB.getMultiChunker().createMultiChunk(
+			configB.getTransformer().createInputStream(new FileInputStream(multiChunkFile2)));
+		Chunk chunk2 = multiChunk2.read();
+		multiChunk2.close();
+		
+		MultiChunk cachedMultiChunk1 = configB.getMultiChunker().createMultiChunk(multiChunkId1, 
+			new FileOutputStream(configB.getCache().getDecryptedMultiChunkFile(multiChunkId1)));
+		
+		cachedMultiChunk1.write(chunk2);
+		cachedMultiChunk1.close();
+		
+		// Alter local file, so that its chunk cannot be used anymore
+		clientB.changeFile("file1.jpg");
+		
+		try {
+			new Assembler(configB, localDatabaseB).assembleToCache(fileVersion1);
+			fail("Assembling file with a missing chunk should have failed.");
+		}
+		catch (Exception e) {
+			assertFalse(e instanceof NullPointerException);
+			assertTrue(e.getMessage().contains(multiChunkId1.toString()));
+		}
+		
+		clientA.deleteTestData();
+		clientB.deleteTestData();
+	}
 }
@@ -18,6 +18,7 @@
 package org.syncany.tests.integration.operations;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -43,6 +44,7 @@ import org.syncany.operations.up.UpOperationResult;
 import org.syncany.operations.up.UpOperationResult.UpResultCode;
 import org.syncany.plugins.local.LocalTransferSettings;
 import org.syncany.plugins.unreliable_local.UnreliableLocalTransferSettings;
+import org.syncany.tests.unit.util.TestFileUtil;
 import org.syncany.tests.util.TestAssertUtil;
 import org.syncany.tests.util.TestClient;
 import org.syncany.tests.util.TestConfigUtil;
@@ -743,4 +745,113 @@ public class CleanupOperationTest {
 		// Tear down
 		clientA.deleteTestData();
 	}
+
+	@Test
+	public void testRepackMultiChunks() throws Exception {
+		// Setup
+		LocalTransferSettings testConnection = (LocalTransferSettings) TestConfigUtil.createTestLocalConnection();
+		TestClient clientA = new TestClient("A", testConnection);
+		TestClient clientB = new TestClient("B", testConnection);
+		TestClient clientC = new TestClient("C", testConnection);
+		java.sql.Connection databaseConnectionA = clientA.getConfig().createDatabaseConnection();
+		File repoMultiChunkDir = new File(testConnection.getPath() + "/multichunks/");
+
+		CleanupOperationOptions options = new CleanupOperationOptions();
+		options.setRemoveOldVersions(true);
+		options.setPurgeFileVersionSettings(new TreeMap<Long, TimeUnit>());
+		options.setMinKeepSeconds(0);
+		options.setMinSecondsBetweenCleanups(0);
+
+		// A: Both files' chunks will be in one multichunk
+		TestFileUtil.createRandomFile(clientA.getLocalFile("large-file.jpg"), 500 * 1024);
+		TestFileUtil.createRandomFile(clientA.getLocalFile("small-file.jpg"), 20 * 1024);
+		clientA.up();
+
+		File[] multiChunksBeforeCleanup = repoMultiChunkDir.listFiles();
+		assertEquals(1, multiChunksBeforeCleanup.length);
+		long multiChunkSizeBeforeCleanup = multiChunksBeforeCleanup[0].length();
+
+		// B: Sync down before cleanup
+		clientB.down();
+
+		// A: Delete the large file, so the multichunk is mostly unused
+		clientA.deleteFile("large-file.jpg");
+		clientA.up();
+
+		CleanupOperationResult cleanupOperationResult = clientA.cleanup(options);
+		assertEquals(CleanupResultCode.OK, cleanupOperationResult.getResultCode());
+		assertEquals(0, cleanupOperationResult.getRemovedMultiChunksCount());
+		assertEquals(1, cleanupOperationResult.getRepackedMultiChunksCount());
+		assertTrue(cleanupOperationResult.getRepackedMultiChunksFreedSize() >= 500 * 1024);
+
+		// One new (smaller) multichunk containing only the chunks of the small file
+		File[] multiChunksAfterCleanup = repoMultiChunkDir.listFiles();
+		assertEquals(1, multiChunksAfterCleanup.length);
+		assertFalse(multiChunksBeforeCleanup[0].getName().equals(multiChunksAfterCleanup[0].getName()));
+		assertTrue(multiChunksAfterCleanup[0].length() < multiChunkSizeBeforeCleanup / 10);
+
+		assertEquals("1", TestSqlUtil.runSqlSelect("select count(*) from multichunk", databaseConnectionA));
+		assertEquals("1", TestSqlUtil.runSqlSelect("select count(*) from fileversion", databaseConnectionA));
+		assertEquals(TestSqlUtil.runSqlSelect("select count(*) from chunk", databaseConnectionA),
+				TestSqlUtil.runSqlSelect("select refcount from multichunk", databaseConnectionA));
+
+		// A: Nothing left to repack
+		cleanupOperationResult = clientA.cleanup(options);
+		assertEquals(0, cleanupOperationResult.getRepackedMultiChunksCount());
+
+		// B: Sync down cleanup; C: Initial sync from repacked multichunk
+		clientB.down();
+		clientC.down();
+
+		TestAssertUtil.assertSqlDatabaseEquals(clientA.getDatabaseFile(), clientB.getDatabaseFile());
+		TestAssertUtil.assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientB.getLocalFilesExcludeLockedAndNoRead());
+		TestAssertUtil.assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientC.getLocalFilesExcludeLockedAndNoRead());
+
+		// Tear down
+		clientA.deleteTestData();
+		clientB.deleteTestData();
+		clientC.deleteTestData();
+	}
+
+	@Test
+	public void testCleanupMergeInBatches() throws Exception {
+		// Setup
+		LocalTransferSettings testConnection = (LocalTransferSettings) TestConfigUtil.createTestLocalConnection();
+		TestClient clientA = new TestClient("A", testConnection);
+		TestClient clientB = new TestClient("B", testConnection);
+
+		CleanupOperationOptions options = new CleanupOperationOptions();
+		options.setRemoveOldVersions(false);
+		options.setRemoveVersionsByInterval(false);
+		options.setMinSecondsBetweenCleanups(0);
+		options.setForce(true);
+		options.setMergeBatchSize(2); // Smaller than the number of database versions and entries
+
+		// A: Create some database versions with several files each
+		for (int i = 1; i <= 3; i++) {
+			for (int j = 1; j <= 5; j++) {
+				clientA.createNewFile("file-" + i + "-" + j + ".jpg");
+			}
+
+			clientA.upWithForceChecksum();
+		}
+
+		clientA.changeFile("file-1-1.jpg");
+		clientA.upWithForceChecksum();
+
+		// A: Cleanup (merges all database versions)
+		CleanupOperationResult cleanupOperationResult = clientA.cleanup(options);
+		assertEquals(CleanupResultCode.OK, cleanupOperationResult.getResultCode());
+		assertEquals(4, cleanupOperationResult.getMergedDatabaseFilesCount());
+
+		// B: Initial sync from merged database file
+		clientB.down();
+
+		TestAssertUtil.assertSqlDatabaseEquals(clientA.getDatabaseFile(), clientB.getDatabaseFile());
+		TestAssertUtil.assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientB.getLocalFilesExcludeLockedAndNoRead());
+
+		// Tear down
+		clientA.deleteTestData();
+		clientB.deleteTestData();
+	}
 }
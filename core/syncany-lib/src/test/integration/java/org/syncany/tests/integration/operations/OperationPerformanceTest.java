@@ -70,5 +70,5 @@ public class OperationPerformanceTest {
 		// Cleanup
 		TestConfigUtil.deleteTestLocalConfigAndData(configA);
 		TestConfigUtil.deleteTestLocalConfigAndData(configB);
-	}	
+	}
 }
@@ -0,0 +1,157 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.integration.scenarios;
+
+import static org.junit.Assert.assertEquals;
+import static org.syncany.tests.util.TestAssertUtil.assertFileListEquals;
+import static org.syncany.tests.util.TestAssertUtil.assertSqlDatabaseEquals;
+
+import org.junit.Test;
+import org.syncany.operations.cleanup.CleanupOperationOptions;
+import org.syncany.operations.down.DownOperationOptions;
+import org.syncany.operations.down.DownOperationResult.DownResultCode;
+import org.syncany.plugins.transfer.TransferSettings;
+import org.syncany.tests.util.TestClient;
+import org.syncany.tests.util.TestConfigUtil;
+
+public class BatchedDownScenarioTest {
+	@Test
+	public void testBatchedDownEqualsRegularDown() throws Exception {
+		// Setup
+		TransferSettings testConnection = TestConfigUtil.createTestLocalConnection();
+
+		TestClient clientA = new TestClient("A", testConnection);
+		TestClient clientB = new TestClient("B", testConnection);
+		TestClient clientC = new TestClient("C", testConnection);
+
+		DownOperationOptions batchedDownOptions = new DownOperationOptions();
+		batchedDownOptions.setBatchSize(3);
+
+		// A creates a history of 10 database versions
+		createHistory(clientA, "round1-");
+
+		// B down (batched) and C down (regular)
+		assertEquals(DownResultCode.OK_WITH_REMOTE_CHANGES, clientB.down(batchedDownOptions).getResultCode());
+		assertEquals(DownResultCode.OK_WITH_REMOTE_CHANGES, clientC.down().getResultCode());
+
+		assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientB.getLocalFilesExcludeLockedAndNoRead());
+		assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientC.getLocalFilesExcludeLockedAndNoRead());
+		assertSqlDatabaseEquals(clientA.getDatabaseFile(), clientB.getDatabaseFile());
+		assertSqlDatabaseEquals(clientA.getDatabaseFile(), clientC.getDatabaseFile());
+
+		// A changes existing files, B and C down again
+		createHistory(clientA, "round2-");
+
+		assertEquals(DownResultCode.OK_WITH_REMOTE_CHANGES, clientB.down(batchedDownOptions).getResultCode());
+		assertEquals(DownResultCode.OK_WITH_REMOTE_CHANGES, clientC.down().getResultCode());
+
+		assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientB.getLocalFilesExcludeLockedAndNoRead());
+		assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientC.getLocalFilesExcludeLockedAndNoRead());
+		assertSqlDatabaseEquals(clientA.getDatabaseFile(), clientB.getDatabaseFile());
+		assertSqlDatabaseEquals(clientA.getDatabaseFile(), clientC.getDatabaseFile());
+
+		// B up, then A down (batched, but branch is shorter than batch size)
+		clientB.deleteFile("round2-file1.jpg");
+		clientB.createFileWithContent("round2-file1.jpg", "changed by B");
+		clientB.up();
+
+		clientA.down(batchedDownOptions);
+
+		assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientB.getLocalFilesExcludeLockedAndNoRead());
+		assertSqlDatabaseEquals(clientA.getDatabaseFile(), clientB.getDatabaseFile());
+
+		// Tear down
+		clientA.deleteTestData();
+		clientB.deleteTestData();
+		clientC.deleteTestData();
+	}
+
+	@Test
+	public void testBatchedDownAfterCleanup() throws Exception {
+		// Setup
+		TransferSettings testConnection = TestConfigUtil.createTestLocalConnection();
+
+		TestClient clientA = new TestClient("A", testConnection);
+		TestClient clientB = new TestClient("B", testConnection);
+
+		DownOperationOptions batchedDownOptions = new DownOperationOptions();
+		batchedDownOptions.setBatchSize(2);
+
+		CleanupOperationOptions cleanupOptions = new CleanupOperationOptions();
+		cleanupOptions.setMinSecondsBetweenCleanups(0);
+		cleanupOptions.setMaxDatabaseFiles(3);
+
+		// A creates history, B syncs
+		createHistory(clientA, "round1-");
+		clientB.down(batchedDownOptions);
+
+		// A creates more history and cleans up; B has a local change
+		createHistory(clientA, "round2-");
+		clientA.cleanup(cleanupOptions);
+
+		clientB.createNewFile("B-file.jpg");
+
+		// B down (cleanup occurred, batched)
+		assertEquals(DownResultCode.OK_WITH_REMOTE_CHANGES, clientB.down(batchedDownOptions).getResultCode());
+		clientB.up();
+		clientA.down();
+
+		assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientB.getLocalFilesExcludeLockedAndNoRead());
+		assertSqlDatabaseEquals(clientA.getDatabaseFile(), clientB.getDatabaseFile());
+
+		// Tear down
+		clientA.deleteTestData();
+		clientB.deleteTestData();
+	}
+
+	private void createHistory(TestClient client, String prefix) throws Exception {
+		client.createNewFile(prefix + "file1.jpg", 50 * 1024);
+		client.createNewFile(prefix + "file2.jpg", 20 * 1024);
+		client.up();
+
+		client.deleteFile(prefix + "file1.jpg");
+		client.createFileWithContent(prefix + "file1.jpg", "changed content of file1");
+		client.up();
+
+		client.moveFile(prefix + "file2.jpg", prefix + "file2-moved.jpg");
+		client.up();
+
+		client.copyFile(prefix + "file1.jpg", prefix + "file1-copy.jpg");
+		client.up();
+
+		client.deleteFile(prefix + "file2-moved.jpg");
+		client.up();
+
+		client.createNewFolder(prefix + "folder");
+		client.createNewFile(prefix + "folder/file3.jpg", 10 * 1024);
+		client.up();
+
+		client.deleteFile(prefix + "file1-copy.jpg");
+		client.createFileWithContent(prefix + "file1-copy.jpg", "changed content of the copy of file1");
+		client.up();
+
+		client.moveFile(prefix + "folder", prefix + "folder-moved");
+		client.up();
+
+		client.deleteFile(prefix + "file1.jpg");
+		client.up();
+
+		client.createNewFile(prefix + "file1.jpg", 5 * 1024);
+		client.up();
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.integration.scenarios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.syncany.tests.util.TestAssertUtil.assertFileListEquals;
+import static org.syncany.tests.util.TestAssertUtil.assertSqlDatabaseEquals;
+
+import org.junit.Test;
+import org.syncany.operations.down.DownOperationResult;
+import org.syncany.plugins.transfer.TransferSettings;
+import org.syncany.tests.util.TestClient;
+import org.syncany.tests.util.TestConfigUtil;
+
+public class CopyNoDownloadMultiChunksScenarioTest {
+	@Test
+	public void testCopyDownloadedFileAndCheckIfMultiChunksAreDownloaded() throws Exception {
+		// Setup 
+		TransferSettings testConnection = TestConfigUtil.createTestLocalConnection();		
+		TestClient clientA = new TestClient("A", testConnection);
+		TestClient clientB = new TestClient("B", testConnection);
+
+		// Prepare, create file at A, sync it to B (B records chunk positions when assembling)
+		clientA.createNewFile("A-file1", 2*1024*1024);
+		clientA.sync();		
+		clientB.sync();
+				
+		// Now copy file, and sync; clear cache at B to make sure chunks are not taken from there
+		clientA.copyFile("A-file1", "A-file1-copy");
+		clientA.up();
+		
+		clientB.getConfig().getCache().clear(0);
+		
+		DownOperationResult downOperationResult = clientB.down();		
+		assertEquals("No multichunks should have been downloaded.", 0, downOperationResult.getDownloadedMultiChunks().size());
+		assertTrue("Copied file should exist.", clientB.getLocalFile("A-file1-copy").exists());		
+		assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientB.getLocalFilesExcludeLockedAndNoRead());
+		assertSqlDatabaseEquals(clientA.getDatabaseFile(), clientB.getDatabaseFile());
+		
+		// Tear down
+		clientA.deleteTestData();
+		clientB.deleteTestData();
+	}	
+	
+	@Test
+	public void testCopyIndexedFileAndCheckIfMultiChunksAreDownloaded() throws Exception {
+		// Setup 
+		TransferSettings testConnection = TestConfigUtil.createTestLocalConnection();		
+		TestClient clientA = new TestClient("A", testConnection);
+		TestClient clientB = new TestClient("B", testConnection);
+
+		// Prepare, create file at B (B records chunk positions when indexing), sync it to A
+		clientB.createNewFile("B-file1", 2*1024*1024);
+		clientB.sync();		
+		clientA.sync();
+				
+		// Now copy file at A, and sync
+		clientA.copyFile("B-file1", "B-file1-copy");
+		clientA.up();
+		
+		clientB.getConfig().getCache().clear(0);
+		
+		DownOperationResult downOperationResult = clientB.down();		
+		assertEquals("No multichunks should have been downloaded.", 0, downOperationResult.getDownloadedMultiChunks().size());
+		assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientB.getLocalFilesExcludeLockedAndNoRead());
+		assertSqlDatabaseEquals(clientA.getDatabaseFile(), clientB.getDatabaseFile());
+		
+		// Tear down
+		clientA.deleteTestData();
+		clientB.deleteTestData();
+	}	
+	
+	@Test
+	public void testCopyFileChangedLocallyAndCheckIfMultiChunksAreDownloaded() throws Exception {
+		// Setup 
+		TransferSettings testConnection = TestConfigUtil.createTestLocalConnection();		
+		TestClient clientA = new TestClient("A", testConnection);
+		TestClient clientB = new TestClient("B", testConnection);
+
+		// Prepare, create file at A, sync it to B
+		clientA.createNewFile("A-file1", 2*1024*1024);
+		clientA.sync();		
+		clientB.sync();
+				
+		// Copy file at A, and change the original file at B (without syncing); positions at B are stale
+		clientA.copyFile("A-file1", "A-file1-copy");
+		clientA.up();
+		
+		clientB.changeFile("A-file1");
+		clientB.getConfig().getCache().clear(0);
+		
+		DownOperationResult downOperationResult = clientB.down();		
+		assertTrue("Multichunks should have been downloaded.", downOperationResult.getDownloadedMultiChunks().size() > 0);
+		assertEquals("Copied file should match original file.", clientA.getLocalFile("A-file1-copy").length(), clientB.getLocalFile("A-file1-copy").length());
+		
+		clientB.upWithForceChecksum(); // Change may be within the modified date fuzziness
+		clientA.down();
+		
+		assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientB.getLocalFilesExcludeLockedAndNoRead());
+		
+		// Tear down
+		clientA.deleteTestData();
+		clientB.deleteTestData();
+	}	
+}
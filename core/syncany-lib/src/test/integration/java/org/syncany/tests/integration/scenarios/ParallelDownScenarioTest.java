@@ -0,0 +1,81 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.integration.scenarios;
+
+import static org.junit.Assert.assertEquals;
+import static org.syncany.tests.util.TestAssertUtil.assertFileListEquals;
+import static org.syncany.tests.util.TestAssertUtil.assertSqlDatabaseEquals;
+
+import org.junit.Test;
+import org.syncany.operations.down.DownOperationOptions;
+import org.syncany.operations.down.DownOperationResult;
+import org.syncany.operations.down.DownOperationResult.DownResultCode;
+import org.syncany.plugins.transfer.TransferSettings;
+import org.syncany.tests.util.TestClient;
+import org.syncany.tests.util.TestConfigUtil;
+
+public class ParallelDownScenarioTest {
+	@Test
+	public void testParallelDownEqualsSequentialDown() throws Exception {
+		// Setup
+		TransferSettings testConnection = TestConfigUtil.createTestLocalConnection();
+
+		TestClient clientA = new TestClient("A", testConnection);
+		TestClient clientB = new TestClient("B", testConnection);
+		TestClient clientC = new TestClient("C", testConnection);
+		TestClient clientD = new TestClient("D", testConnection);
+
+		DownOperationOptions parallelDownOptions = new DownOperationOptions();
+		parallelDownOptions.setParallelDownloads(3);
+
+		DownOperationOptions sequentialDownOptions = new DownOperationOptions();
+		sequentialDownOptions.setParallelDownloads(1);
+
+		// A, B and C create interleaved database files
+		for (int i = 0; i < 4; i++) {
+			for (TestClient client : new TestClient[] { clientA, clientB, clientC }) {
+				client.down(sequentialDownOptions);
+				client.createNewFile(client.getConfig().getMachineName() + "-file" + i + ".jpg", 10 * 1024);
+				client.up();
+			}
+		}
+
+		clientA.down(sequentialDownOptions);
+
+		// D downloads all twelve database files in parallel
+		DownOperationResult parallelDownResult = clientD.down(parallelDownOptions);
+
+		assertEquals(DownResultCode.OK_WITH_REMOTE_CHANGES, parallelDownResult.getResultCode());
+		assertEquals(12, parallelDownResult.getDownloadedUnknownDatabases().size());
+
+		assertFileListEquals(clientA.getLocalFilesExcludeLockedAndNoRead(), clientD.getLocalFilesExcludeLockedAndNoRead());
+		assertSqlDatabaseEquals(clientA.getDatabaseFile(), clientD.getDatabaseFile());
+
+		// C downloads the remaining database files sequentially
+		clientC.down(sequentialDownOptions);
+
+		assertFileListEquals(clientC.getLocalFilesExcludeLockedAndNoRead(), clientD.getLocalFilesExcludeLockedAndNoRead());
+		assertSqlDatabaseEquals(clientC.getDatabaseFile(), clientD.getDatabaseFile());
+
+		// Tear down
+		clientA.deleteTestData();
+		clientB.deleteTestData();
+		clientC.deleteTestData();
+		clientD.deleteTestData();
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com> 
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.integration.scenarios.longrunning;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+import org.syncany.config.Config;
+import org.syncany.database.DatabaseProfile;
+import org.syncany.operations.up.UpOperation;
+import org.syncany.plugins.transfer.TransferSettings;
+import org.syncany.tests.unit.util.TestFileUtil;
+import org.syncany.tests.util.TestConfigUtil;
+
+public class LongRunningDatabaseProfileScenarioTest {
+	private static final Logger logger = Logger.getLogger(LongRunningDatabaseProfileScenarioTest.class.getSimpleName());
+
+	@Test
+	public void testUpPerformanceWithDatabaseProfiles() throws Exception {
+		String[] profileNames = new String[] { DatabaseProfile.PROFILE_SAFE, DatabaseProfile.PROFILE_THROUGHPUT };
+		int fileCount = 2000;
+		int rounds = 2;
+
+		// Warm up
+		runUpWithDatabaseProfile(DatabaseProfile.PROFILE_SAFE, 100);
+
+		// Run (alternating profiles, so both are equally affected by the JIT and the file system cache)
+		long[] timeSyncUpTotal = new long[profileNames.length];
+
+		for (int round = 0; round < rounds; round++) {
+			for (int i = 0; i < profileNames.length; i++) {
+				timeSyncUpTotal[i] += runUpWithDatabaseProfile(profileNames[i], fileCount);
+			}
+		}
+
+		// Test
+		for (int i = 0; i < profileNames.length; i++) {
+			logger.log(Level.INFO, "Sync up performance with database profile '" + profileNames[i] + "' (" + fileCount + " files): "
+					+ timeSyncUpTotal[i] / rounds + " ms");
+		}
+	}
+
+	private long runUpWithDatabaseProfile(String profileName, int fileCount) throws Exception {
+		TransferSettings testConnection = TestConfigUtil.createTestLocalConnection();
+		Config config = TestConfigUtil.createTestLocalConfig("A", testConnection);
+
+		config.setDatabaseProfile(DatabaseProfile.getProfile(profileName));
+		TestFileUtil.createRandomFilesInDirectory(config.getLocalDir(), 4 * 1024, fileCount);
+
+		long timeSyncUpStart = System.currentTimeMillis();
+		new UpOperation(config).execute();
+		long timeSyncUpTotal = System.currentTimeMillis() - timeSyncUpStart;
+
+		TestConfigUtil.deleteTestLocalConfigAndData(config);
+		return timeSyncUpTotal;
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.unit.chunk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.syncany.chunk.AdaptiveTransformer;
+import org.syncany.chunk.GzipTransformer;
+import org.syncany.chunk.Transformer;
+import org.syncany.config.Logging;
+import org.syncany.tests.unit.util.TestFileUtil;
+
+public class AdaptiveTransformerTest {
+	private static final Logger logger = Logger.getLogger(AdaptiveTransformerTest.class.getSimpleName());
+
+	static {
+		Logging.init();
+	}
+
+	@Test
+	public void testCompressibleData() throws Exception {
+		byte[] originalData = createCompressibleArray(1024 * 1024);
+		byte[] transformedData = transform(new AdaptiveTransformer(), originalData);
+
+		assertTrue("Compressible data should be compressed.", transformedData.length < originalData.length / 2);
+		assertArrayEquals(originalData, untransform(new AdaptiveTransformer(), transformedData));
+	}
+
+	@Test
+	public void testIncompressibleData() throws Exception {
+		byte[] originalData = TestFileUtil.createRandomArray(1024 * 1024 + 17);
+		byte[] transformedData = transform(new AdaptiveTransformer(), originalData);
+
+		int blockCount = originalData.length / AdaptiveTransformer.BLOCK_SIZE + 1;
+		int maxOverhead = 5 + blockCount * 5 + 1; // Header, block headers, end marker
+
+		assertTrue("Random data should be stored raw.", transformedData.length <= originalData.length + maxOverhead);
+		assertArrayEquals(originalData, untransform(new AdaptiveTransformer(), transformedData));
+	}
+
+	@Test
+	public void testMixedDataAndSmallWrites() throws Exception {
+		byte[] compressibleData = createCompressibleArray(300 * 1024);
+		byte[] randomData = TestFileUtil.createRandomArray(300 * 1024);
+
+		ByteArrayOutputStream transformedOutputStream = new ByteArrayOutputStream();
+		OutputStream adaptiveOutputStream = new AdaptiveTransformer().createOutputStream(transformedOutputStream);
+
+		for (int i = 0; i < 1000; i++) {
+			adaptiveOutputStream.write(i % 256);
+		}
+
+		adaptiveOutputStream.write(compressibleData);
+		adaptiveOutputStream.write(randomData);
+		adaptiveOutputStream.write(compressibleData, 100, 5000);
+		adaptiveOutputStream.close();
+
+		ByteArrayOutputStream expectedOutputStream = new ByteArrayOutputStream();
+
+		for (int i = 0; i < 1000; i++) {
+			expectedOutputStream.write(i % 256);
+		}
+
+		expectedOutputStream.write(compressibleData);
+		expectedOutputStream.write(randomData);
+		expectedOutputStream.write(compressibleData, 100, 5000);
+
+		byte[] untransformedData = untransform(new AdaptiveTransformer(), transformedOutputStream.toByteArray());
+		assertArrayEquals(expectedOutputStream.toByteArray(), untransformedData);
+	}
+
+	@Test
+	public void testEmptyStream() throws Exception {
+		byte[] transformedData = transform(new AdaptiveTransformer(), new byte[0]);
+
+		assertEquals(6, transformedData.length);
+		assertEquals(0, untransform(new AdaptiveTransformer(), transformedData).length);
+	}
+
+	@Test
+	public void testTruncatedStream() throws Exception {
+		byte[] transformedData = transform(new AdaptiveTransformer(), createCompressibleArray(200 * 1024));
+		byte[] truncatedData = Arrays.copyOf(transformedData, transformedData.length - 1);
+
+		try {
+			untransform(new AdaptiveTransformer(), truncatedData);
+			fail("Truncated stream should not be readable.");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testInitSettings() throws Exception {
+		Map<String, String> settings = new HashMap<String, String>();
+		settings.put(AdaptiveTransformer.PROPERTY_LEVEL, "6");
+		settings.put(AdaptiveTransformer.PROPERTY_THRESHOLD, "75");
+
+		AdaptiveTransformer adaptiveTransformer = new AdaptiveTransformer();
+		adaptiveTransformer.init(settings);
+
+		assertEquals(6, adaptiveTransformer.getLevel());
+		assertEquals(75, adaptiveTransformer.getThreshold());
+
+		byte[] originalData = createCompressibleArray(200 * 1024);
+		assertArrayEquals(originalData, untransform(new AdaptiveTransformer(), transform(adaptiveTransformer, originalData)));
+
+		try {
+			settings.put(AdaptiveTransformer.PROPERTY_LEVEL, "10");
+			new AdaptiveTransformer().init(settings);
+
+			fail("Invalid level should not be accepted.");
+		}
+		catch (Exception e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testPerformanceComparedToGzip() throws Exception {
+		// Mixed corpus: 50% text-like data, 50% already compressed (random) data
+		ByteArrayOutputStream corpusOutputStream = new ByteArrayOutputStream();
+
+		for (int i = 0; i < 8; i++) {
+			corpusOutputStream.write(createCompressibleArray(1024 * 1024));
+			corpusOutputStream.write(TestFileUtil.createRandomArray(1024 * 1024));
+		}
+
+		byte[] corpus = corpusOutputStream.toByteArray();
+
+		// Warm up
+		transform(new GzipTransformer(), corpus);
+		transform(new AdaptiveTransformer(), corpus);
+
+		// Measure
+		long gzipStartTime = System.currentTimeMillis();
+		byte[] gzipData = transform(new GzipTransformer(), corpus);
+		long gzipDuration = System.currentTimeMillis() - gzipStartTime;
+
+		long adaptiveStartTime = System.currentTimeMillis();
+		byte[] adaptiveData = transform(new AdaptiveTransformer(), corpus);
+		long adaptiveDuration = System.currentTimeMillis() - adaptiveStartTime;
+
+		logger.log(Level.INFO, "Gzip transformer:     " + corpus.length + " bytes -> " + gzipData.length + " bytes ("
+				+ (100 * gzipData.length / corpus.length) + "%) in " + gzipDuration + " ms");
+		logger.log(Level.INFO, "Adaptive transformer: " + corpus.length + " bytes -> " + adaptiveData.length + " bytes ("
+				+ (100 * adaptiveData.length / corpus.length) + "%) in " + adaptiveDuration + " ms");
+
+		assertTrue("Adaptive transformer should compress mixed corpus.", adaptiveData.length < corpus.length * 3 / 4);
+		assertArrayEquals(corpus, untransform(new AdaptiveTransformer(), adaptiveData));
+	}
+
+	private byte[] transform(Transformer transformer, byte[] data) throws IOException {
+		ByteArrayOutputStream transformedOutputStream = new ByteArrayOutputStream();
+
+		OutputStream outputStream = transformer.createOutputStream(transformedOutputStream);
+		outputStream.write(data);
+		outputStream.close();
+
+		return transformedOutputStream.toByteArray();
+	}
+
+	private byte[] untransform(Transformer transformer, byte[] data) throws IOException {
+		InputStream inputStream = transformer.createInputStream(new ByteArrayInputStream(data));
+		byte[] untransformedData = IOUtils.toByteArray(inputStream);
+
+		inputStream.close();
+		return untransformedData;
+	}
+
+	private byte[] createCompressibleArray(int size) {
+		String[] words = new String[] { "syncany", "file", "chunk", "multichunk", "database", "version", "the", "a", "of", "sync", "up",
+				"down", "remote", "local", "repository", "\n" };
+
+		Random random = new Random(size);
+		StringBuilder text = new StringBuilder(size + 20);
+
+		while (text.length() < size) {
+			text.append(words[random.nextInt(words.length)]);
+			text.append(' ');
+		}
+
+		return text.substring(0, size).getBytes();
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.unit.chunk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.syncany.chunk.AdaptiveTransformer;
+import org.syncany.chunk.GzipTransformer;
+import org.syncany.chunk.Lz4Codec;
+import org.syncany.chunk.Lz4Transformer;
+import org.syncany.chunk.Transformer;
+import org.syncany.config.Logging;
+import org.syncany.tests.unit.util.TestFileUtil;
+
+public class Lz4TransformerTest {
+	private static final Logger logger = Logger.getLogger(Lz4TransformerTest.class.getSimpleName());
+
+	static {
+		Logging.init();
+	}
+
+	@Test
+	public void testCodecRoundTripSmallInputs() throws Exception {
+		Lz4Codec lz4Codec = new Lz4Codec();
+		Random random = new Random(1);
+
+		for (int length = 0; length < 300; length++) {
+			byte[] originalData = new byte[length];
+
+			for (int i = 0; i < length; i++) {
+				originalData[i] = (byte) random.nextInt(4); // Small alphabet to create matches
+			}
+
+			assertArrayEquals(originalData, codecRoundTrip(lz4Codec, originalData));
+		}
+	}
+
+	@Test
+	public void testCodecRoundTripLongRunsAndRandomData() throws Exception {
+		Lz4Codec lz4Codec = new Lz4Codec();
+
+		byte[] runData = new byte[100 * 1024];
+		Arrays.fill(runData, (byte) 'x');
+
+		byte[] compressedRunData = new byte[runData.length];
+		int compressedRunLength = lz4Codec.compress(runData, 0, runData.length, compressedRunData, 0, compressedRunData.length);
+
+		assertTrue("Runs should compress very well.", compressedRunLength > 0 && compressedRunLength < 1024);
+		assertArrayEquals(runData, codecRoundTrip(lz4Codec, runData));
+
+		byte[] randomData = TestFileUtil.createRandomArray(100 * 1024);
+		byte[] compressedRandomData = new byte[randomData.length];
+
+		assertEquals("Random data should not fit into the raw size.", -1,
+				lz4Codec.compress(randomData, 0, randomData.length, compressedRandomData, 0, compressedRandomData.length));
+
+		assertArrayEquals(randomData, codecRoundTrip(lz4Codec, randomData));
+		assertArrayEquals(createCompressibleArray(100 * 1024), codecRoundTrip(lz4Codec, createCompressibleArray(100 * 1024)));
+	}
+
+	@Test
+	public void testCodecMalformedInput() throws Exception {
+		byte[] originalData = createCompressibleArray(10 * 1024);
+		byte[] compressedData = new byte[originalData.length];
+		int compressedLength = new Lz4Codec().compress(originalData, 0, originalData.length, compressedData, 0, compressedData.length);
+
+		try {
+			Lz4Codec.decompress(compressedData, 0, compressedLength - 1, new byte[originalData.length], 0, originalData.length);
+			fail("Truncated block should not be decompressable.");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+
+		try {
+			Lz4Codec.decompress(compressedData, 0, compressedLength, new byte[originalData.length - 1], 0, originalData.length - 1);
+			fail("Block should not decompress into a smaller buffer.");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+
+		try {
+			Lz4Codec.decompress(new byte[] { 0x0f, 0x10, 0x00 }, 0, 3, new byte[100], 0, 100);
+			fail("Match offset before the start of the output should be rejected.");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testCompressibleData() throws Exception {
+		byte[] originalData = createCompressibleArray(1024 * 1024);
+		byte[] transformedData = transform(new Lz4Transformer(), originalData);
+
+		assertTrue("Compressible data should be compressed.", transformedData.length < originalData.length / 2);
+		assertArrayEquals(originalData, untransform(new Lz4Transformer(), transformedData));
+
+		// The adaptive transformer can read LZ4 blocks as well
+		assertArrayEquals(originalData, untransform(new AdaptiveTransformer(), transformedData));
+	}
+
+	@Test
+	public void testMixedData() throws Exception {
+		ByteArrayOutputStream originalOutputStream = new ByteArrayOutputStream();
+		originalOutputStream.write(createCompressibleArray(300 * 1024));
+		originalOutputStream.write(TestFileUtil.createRandomArray(300 * 1024));
+		originalOutputStream.write(createCompressibleArray(5000));
+
+		byte[] originalData = originalOutputStream.toByteArray();
+		assertArrayEquals(originalData, untransform(new Lz4Transformer(), transform(new Lz4Transformer(), originalData)));
+	}
+
+	@Test
+	public void testReadGzipStream() throws Exception {
+		byte[] originalData = createCompressibleArray(500 * 1024);
+		byte[] gzipData = transform(new GzipTransformer(), originalData);
+
+		assertArrayEquals(originalData, untransform(new Lz4Transformer(), gzipData));
+		assertArrayEquals(originalData, untransform(new AdaptiveTransformer(), gzipData));
+	}
+
+	@Test
+	public void testThroughputComparedToGzip() throws Exception {
+		// Mixed corpus: 50% text-like data, 50% already compressed (random) data
+		ByteArrayOutputStream corpusOutputStream = new ByteArrayOutputStream();
+
+		for (int i = 0; i < 8; i++) {
+			corpusOutputStream.write(createCompressibleArray(1024 * 1024));
+			corpusOutputStream.write(TestFileUtil.createRandomArray(1024 * 1024));
+		}
+
+		byte[] corpus = corpusOutputStream.toByteArray();
+
+		Transformer[] transformers = new Transformer[] { new GzipTransformer(), new AdaptiveTransformer(), new Lz4Transformer() };
+		byte[] lz4Data = null;
+
+		for (Transformer transformer : transformers) {
+			// Warm up
+			untransform(transformer, transform(transformer, corpus));
+
+			// Measure
+			long compressStartTime = System.nanoTime();
+			byte[] transformedData = transform(transformer, corpus);
+			long compressDuration = System.nanoTime() - compressStartTime;
+
+			long decompressStartTime = System.nanoTime();
+			byte[] untransformedData = untransform(transformer, transformedData);
+			long decompressDuration = System.nanoTime() - decompressStartTime;
+
+			logger.log(Level.INFO, String.format("%-8s transformer: %d bytes -> %d bytes (%d%%), compress %.1f MB/s, decompress %.1f MB/s",
+					transformer, corpus.length, transformedData.length, 100L * transformedData.length / corpus.length,
+					toMegabytesPerSecond(corpus.length, compressDuration), toMegabytesPerSecond(corpus.length, decompressDuration)));
+
+			assertArrayEquals(corpus, untransformedData);
+
+			if (transformer instanceof Lz4Transformer) {
+				lz4Data = transformedData;
+			}
+		}
+
+		assertTrue("LZ4 transformer should compress mixed corpus.", lz4Data.length < corpus.length * 3 / 4);
+	}
+
+	private byte[] codecRoundTrip(Lz4Codec lz4Codec, byte[] data) throws IOException {
+		byte[] compressedData = new byte[data.length + data.length / 255 + 16];
+		int compressedLength = lz4Codec.compress(data, 0, data.length, compressedData, 0, compressedData.length);
+
+		assertTrue("Compression into a large enough buffer must succeed.", compressedLength > 0);
+
+		byte[] decompressedData = new byte[data.length];
+		Lz4Codec.decompress(compressedData, 0, compressedLength, decompressedData, 0, data.length);
+
+		return decompressedData;
+	}
+
+	private double toMegabytesPerSecond(long bytes, long durationNanos) {
+		return (bytes / 1024.0 / 1024.0) / (durationNanos / 1000000000.0);
+	}
+
+	private byte[] transform(Transformer transformer, byte[] data) throws IOException {
+		ByteArrayOutputStream transformedOutputStream = new ByteArrayOutputStream();
+
+		OutputStream outputStream = transformer.createOutputStream(transformedOutputStream);
+		outputStream.write(data);
+		outputStream.close();
+
+		return transformedOutputStream.toByteArray();
+	}
+
+	private byte[] untransform(Transformer transformer, byte[] data) throws IOException {
+		InputStream inputStream = transformer.createInputStream(new ByteArrayInputStream(data));
+		byte[] untransformedData = IOUtils.toByteArray(inputStream);
+
+		inputStream.close();
+		return untransformedData;
+	}
+
+	private byte[] createCompressibleArray(int size) {
+		String[] words = new String[] { "syncany", "file", "chunk", "multichunk", "database", "version", "the", "a", "of", "sync", "up",
+				"down", "remote", "local", "repository", "\n" };
+
+		Random random = new Random(size);
+		StringBuilder text = new StringBuilder(size + 20);
+
+		while (text.length() < size) {
+			text.append(words[random.nextInt(words.length)]);
+			text.append(' ');
+		}
+
+		return text.substring(0, size).getBytes();
+	}
+}
@@ -0,0 +1,282 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.unit.chunk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.syncany.chunk.Chunk;
+import org.syncany.chunk.CipherTransformer;
+import org.syncany.chunk.FixedChunker;
+import org.syncany.chunk.GzipTransformer;
+import org.syncany.chunk.MultiChunk;
+import org.syncany.chunk.NoTransformer;
+import org.syncany.chunk.SeekableMultiChunk;
+import org.syncany.chunk.SeekableMultiChunk.ChunkRange;
+import org.syncany.chunk.SeekableMultiChunker;
+import org.syncany.chunk.Transformer;
+import org.syncany.config.Logging;
+import org.syncany.crypto.CipherSpec;
+import org.syncany.crypto.CipherSpecs;
+import org.syncany.crypto.CipherUtil;
+import org.syncany.crypto.SaltedSecretKey;
+import org.syncany.database.MultiChunkEntry.MultiChunkId;
+import org.syncany.tests.unit.util.TestFileUtil;
+
+public class SeekableMultiChunkTest {
+	private static SaltedSecretKey masterKey;
+	private File tempDir;
+
+	static {
+		Logging.init();
+	}
+
+	@BeforeClass
+	public static void initMasterKey() throws Exception {
+		masterKey = CipherUtil.createMasterKey("some password");
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		tempDir = TestFileUtil.createTempDirectoryInSystemTemp();
+	}
+
+	@After
+	public void tearDown() {
+		TestFileUtil.deleteDirectory(tempDir);
+	}
+
+	@Test
+	public void testWriteAndReadWithTransformers() throws Exception {
+		for (Transformer transformer : createTransformers()) {
+			List<ExpectedChunk> chunks = new ArrayList<ExpectedChunk>();
+			File multiChunkFile = writeMultiChunk(chunks, 20, 16 * 1024, transformer);
+
+			// Random access from file
+			SeekableMultiChunker multiChunker = new SeekableMultiChunker(512, transformer);
+			MultiChunk multiChunk = multiChunker.createMultiChunk(multiChunkFile);
+
+			for (int i = chunks.size() - 1; i >= 0; i--) {
+				InputStream chunkInputStream = multiChunk.getChunkInputStream(chunks.get(i).checksum);
+				assertArrayEquals("Chunk data differs for " + transformer, chunks.get(i).content, IOUtils.toByteArray(chunkInputStream));
+				chunkInputStream.close();
+			}
+
+			assertNull(multiChunk.getChunkInputStream(new byte[] { 1, 2, 3 }));
+			multiChunk.close();
+
+			// Sequential read from input stream
+			MultiChunk sequentialMultiChunk = multiChunker.createMultiChunk(new FileInputStream(multiChunkFile));
+
+			for (ExpectedChunk expectedChunk : chunks) {
+				Chunk actualChunk = sequentialMultiChunk.read();
+
+				assertNotNull(actualChunk);
+				assertArrayEquals(expectedChunk.checksum, actualChunk.getChecksum());
+				assertArrayEquals(expectedChunk.content, actualChunk.getContent());
+			}
+
+			assertNull(sequentialMultiChunk.read());
+			sequentialMultiChunk.close();
+		}
+	}
+
+	@Test
+	public void testPartialCopyFromRanges() throws Exception {
+		Transformer transformer = new GzipTransformer(new CipherTransformer(createCipherSpecs(), masterKey));
+
+		List<ExpectedChunk> chunks = new ArrayList<ExpectedChunk>();
+		File multiChunkFile = writeMultiChunk(chunks, 10, 8 * 1024, transformer);
+
+		// Read trailer and index like a ranged download would
+		byte[] multiChunkBytes = FileUtils.readFileToByteArray(multiChunkFile);
+		byte[] trailer = Arrays.copyOfRange(multiChunkBytes, multiChunkBytes.length - SeekableMultiChunk.TRAILER_SIZE, multiChunkBytes.length);
+
+		ChunkRange indexRange = SeekableMultiChunk.readTrailer(trailer);
+		byte[] transformedIndex = Arrays.copyOfRange(multiChunkBytes, (int) indexRange.getOffset(), (int) (indexRange.getOffset() + indexRange.getLength()));
+		List<ChunkRange> chunkRanges = SeekableMultiChunk.readIndex(transformedIndex, transformer);
+
+		assertEquals(chunks.size(), chunkRanges.size());
+
+		// Copy chunks 2 and 7 to partial multichunk
+		File partialMultiChunkFile = new File(tempDir, "partial-multichunk");
+		SeekableMultiChunk partialMultiChunk = new SeekableMultiChunk(MultiChunkId.secureRandomMultiChunkId(), 0, new FileOutputStream(
+				partialMultiChunkFile), transformer);
+
+		for (int i : new int[] { 2, 7 }) {
+			ChunkRange chunkRange = chunkRanges.get(i);
+			byte[] record = Arrays.copyOfRange(multiChunkBytes, (int) chunkRange.getOffset(), (int) (chunkRange.getOffset() + chunkRange.getLength()));
+
+			partialMultiChunk.writeTransformed(chunkRange.getChecksum(), record);
+		}
+
+		partialMultiChunk.close();
+
+		// Read partial multichunk
+		SeekableMultiChunk readPartialMultiChunk = new SeekableMultiChunk(partialMultiChunkFile, transformer);
+
+		assertTrue(readPartialMultiChunk.containsChunk(chunks.get(2).checksum));
+		assertTrue(readPartialMultiChunk.containsChunk(chunks.get(7).checksum));
+		assertFalse(readPartialMultiChunk.containsChunk(chunks.get(3).checksum));
+
+		assertArrayEquals(chunks.get(7).content, IOUtils.toByteArray(readPartialMultiChunk.getChunkInputStream(chunks.get(7).checksum)));
+		assertArrayEquals(chunks.get(2).content, IOUtils.toByteArray(readPartialMultiChunk.getChunkInputStream(chunks.get(2).checksum)));
+
+		readPartialMultiChunk.close();
+	}
+
+	@Test
+	public void testTamperedChunkFailsToDecrypt() throws Exception {
+		Transformer transformer = new CipherTransformer(createCipherSpecs(), masterKey);
+
+		List<ExpectedChunk> chunks = new ArrayList<ExpectedChunk>();
+		File multiChunkFile = writeMultiChunk(chunks, 3, 8 * 1024, transformer);
+
+		// Alter last byte of the second record
+		SeekableMultiChunk multiChunk = new SeekableMultiChunk(multiChunkFile, transformer);
+		ChunkRange secondChunkRange = multiChunk.getChunkRanges().get(1);
+		multiChunk.close();
+
+		flipByte(multiChunkFile, secondChunkRange.getOffset() + secondChunkRange.getLength() - 1);
+
+		// First chunk must still be readable, second must fail
+		multiChunk = new SeekableMultiChunk(multiChunkFile, transformer);
+		assertArrayEquals(chunks.get(0).content, IOUtils.toByteArray(multiChunk.getChunkInputStream(chunks.get(0).checksum)));
+
+		try {
+			IOUtils.toByteArray(multiChunk.getChunkInputStream(chunks.get(1).checksum));
+			fail("Reading tampered chunk should have failed.");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+		finally {
+			multiChunk.close();
+		}
+	}
+
+	@Test
+	public void testTamperedIndexFailsToOpen() throws Exception {
+		Transformer transformer = new CipherTransformer(createCipherSpecs(), masterKey);
+		File multiChunkFile = writeMultiChunk(new ArrayList<ExpectedChunk>(), 3, 8 * 1024, transformer);
+
+		// Alter a byte in the index (right before the trailer)
+		flipByte(multiChunkFile, multiChunkFile.length() - SeekableMultiChunk.TRAILER_SIZE - 1);
+
+		try {
+			new SeekableMultiChunk(multiChunkFile, transformer);
+			fail("Opening multichunk with tampered index should have failed.");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidTrailer() throws Exception {
+		SeekableMultiChunk.readTrailer(new byte[SeekableMultiChunk.TRAILER_SIZE]);
+	}
+
+	private File writeMultiChunk(List<ExpectedChunk> chunks, int chunkCount, int chunkSize, Transformer transformer) throws IOException {
+		File inputFile = TestFileUtil.createRandomFileInDirectory(tempDir, chunkCount * chunkSize);
+
+		MultiChunkId multiChunkId = MultiChunkId.secureRandomMultiChunkId();
+		File multiChunkFile = new File(tempDir, "multichunk-" + multiChunkId);
+
+		SeekableMultiChunker multiChunker = new SeekableMultiChunker(512, transformer);
+		MultiChunk multiChunk = multiChunker.createMultiChunk(multiChunkId, new FileOutputStream(multiChunkFile));
+
+		Enumeration<Chunk> chunkEnumeration = new FixedChunker(chunkSize).createChunks(inputFile);
+
+		while (chunkEnumeration.hasMoreElements()) {
+			Chunk chunk = chunkEnumeration.nextElement();
+			multiChunk.write(chunk);
+
+			// Chunker reuses its buffer, so the content must be copied
+			chunks.add(new ExpectedChunk(chunk.getChecksum(), Arrays.copyOf(chunk.getContent(), chunk.getSize())));
+		}
+
+		multiChunk.close();
+
+		return multiChunkFile;
+	}
+
+	private List<Transformer> createTransformers() throws Exception {
+		List<Transformer> transformers = new ArrayList<Transformer>();
+
+		transformers.add(new NoTransformer());
+		transformers.add(new GzipTransformer());
+		transformers.add(new CipherTransformer(createCipherSpecs(), masterKey));
+		transformers.add(new GzipTransformer(new CipherTransformer(createCipherSpecs(), masterKey)));
+
+		return transformers;
+	}
+
+	private List<CipherSpec> createCipherSpecs() {
+		List<CipherSpec> cipherSpecs = new ArrayList<CipherSpec>();
+
+		cipherSpecs.add(CipherSpecs.getCipherSpec(CipherSpecs.AES_128_GCM));
+		cipherSpecs.add(CipherSpecs.getCipherSpec(CipherSpecs.TWOFISH_128_GCM));
+
+		return cipherSpecs;
+	}
+
+	private void flipByte(File file, long position) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+
+		randomAccessFile.seek(position);
+		int originalByte = randomAccessFile.read();
+
+		randomAccessFile.seek(position);
+		randomAccessFile.write(originalByte ^ 0xff);
+
+		randomAccessFile.close();
+	}
+
+	private static class ExpectedChunk {
+		private byte[] checksum;
+		private byte[] content;
+
+		public ExpectedChunk(byte[] checksum, byte[] content) {
+			this.checksum = checksum;
+			this.content = content;
+		}
+	}
+}
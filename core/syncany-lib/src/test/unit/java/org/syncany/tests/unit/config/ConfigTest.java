@@ -33,9 +33,11 @@ import org.junit.Test;
 import org.syncany.config.Config;
 import org.syncany.config.ConfigException;
 import org.syncany.config.to.ConfigTO;
+import org.syncany.config.to.DatabaseTO;
 import org.syncany.config.to.RepoTO;
 import org.syncany.config.to.RepoTO.TransformerTO;
 import org.syncany.crypto.SaltedSecretKey;
+import org.syncany.database.DatabaseProfile;
 import org.syncany.tests.util.TestAssertUtil;
 import org.syncany.tests.util.TestConfigUtil;
 import org.syncany.util.StringUtil;
@@ -303,6 +305,87 @@ public class ConfigTest {
 		}
 	}
 
+	@Test
+	public void testConfigDatabaseProfileDefault() throws Exception {
+		// Setup
+		File localDir = new File("/some/folder");
+		ConfigTO configTO = new ConfigTO();
+		RepoTO repoTO = new RepoTO();
+
+		configTO.setMachineName("somevalidmachinename"); // <<< valid
+
+		repoTO.setChunkerTO(TestConfigUtil.createFixedChunkerTO()); // <<< valid
+		repoTO.setMultiChunker(TestConfigUtil.createZipMultiChunkerTO()); // <<< valid
+		repoTO.setRepoId(new byte[] { 0x01, 0x02 }); // <<< valid
+
+		// Run!
+		Config config = new Config(localDir, configTO, repoTO);
+
+		// Test
+		assertEquals(DatabaseProfile.PROFILE_SAFE, config.getDatabaseProfile().getName());
+		assertEquals(0, config.getDatabaseProfile().getWriteDelayMillis());
+	}
+
+	@Test
+	public void testConfigDatabaseProfileWithOverrides() throws Exception {
+		// Setup
+		File localDir = new File("/some/folder");
+		ConfigTO configTO = new ConfigTO();
+		RepoTO repoTO = new RepoTO();
+		DatabaseTO databaseTO = new DatabaseTO();
+
+		configTO.setMachineName("somevalidmachinename"); // <<< valid
+
+		repoTO.setChunkerTO(TestConfigUtil.createFixedChunkerTO()); // <<< valid
+		repoTO.setMultiChunker(TestConfigUtil.createZipMultiChunkerTO()); // <<< valid
+		repoTO.setRepoId(new byte[] { 0x01, 0x02 }); // <<< valid
+
+		databaseTO.setProfile(DatabaseProfile.PROFILE_THROUGHPUT);
+		databaseTO.setCacheRows(500000);
+		databaseTO.setNioDataFile(false);
+		configTO.setDatabase(databaseTO);
+
+		// Run!
+		Config config = new Config(localDir, configTO, repoTO);
+
+		// Test
+		DatabaseProfile throughputProfile = DatabaseProfile.getProfile(DatabaseProfile.PROFILE_THROUGHPUT);
+
+		assertEquals(DatabaseProfile.PROFILE_THROUGHPUT, config.getDatabaseProfile().getName());
+		assertEquals(500000, config.getDatabaseProfile().getCacheRows());
+		assertEquals(false, config.getDatabaseProfile().isNioDataFile());
+		assertEquals(throughputProfile.getCacheSizeKb(), config.getDatabaseProfile().getCacheSizeKb());
+		assertEquals(throughputProfile.getWriteDelayMillis(), config.getDatabaseProfile().getWriteDelayMillis());
+		assertEquals(throughputProfile.getDefragLimit(), config.getDatabaseProfile().getDefragLimit());
+	}
+
+	@Test
+	public void testConfigDatabaseProfileInvalid() throws Exception {
+		// Setup
+		File localDir = new File("/some/folder");
+		ConfigTO configTO = new ConfigTO();
+		RepoTO repoTO = new RepoTO();
+		DatabaseTO databaseTO = new DatabaseTO();
+
+		configTO.setMachineName("somevalidmachinename"); // <<< valid
+
+		repoTO.setChunkerTO(TestConfigUtil.createFixedChunkerTO()); // <<< valid
+		repoTO.setMultiChunker(TestConfigUtil.createZipMultiChunkerTO()); // <<< valid
+		repoTO.setRepoId(new byte[] { 0x01, 0x02 }); // <<< valid
+
+		databaseTO.setProfile("INVALIDXXXX"); // <<< INVALID !
+		configTO.setDatabase(databaseTO);
+
+		// Run!
+		try {
+			new Config(localDir, configTO, repoTO);
+			fail("Database profile should not have been accepted.");
+		}
+		catch (ConfigException e) {
+			TestAssertUtil.assertErrorStackTraceContains("INVALIDXXXX", e);
+		}
+	}
+
 	private SaltedSecretKey createDummyMasterKey() {
 		return new SaltedSecretKey(
 				new SecretKeySpec(
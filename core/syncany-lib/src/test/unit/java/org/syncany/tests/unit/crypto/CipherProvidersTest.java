@@ -0,0 +1,175 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.unit.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.syncany.config.Logging;
+import org.syncany.crypto.CipherProviders;
+import org.syncany.crypto.CipherSession;
+import org.syncany.crypto.CipherSpec;
+import org.syncany.crypto.CipherSpecs;
+import org.syncany.crypto.CipherUtil;
+import org.syncany.crypto.MultiCipherInputStream;
+import org.syncany.crypto.MultiCipherOutputStream;
+import org.syncany.crypto.SaltedSecretKey;
+import org.syncany.util.StringUtil;
+
+public class CipherProvidersTest {
+	private static final Logger logger = Logger.getLogger(CipherProvidersTest.class.getSimpleName());
+	private static final String[] PROVIDERS = new String[] { "SunJCE", "BC", CipherProviders.PROVIDER_BC_LIGHTWEIGHT };
+
+	static {
+		Logging.init();
+		CipherUtil.init();
+	}
+
+	@After
+	public void resetPreferredProvider() {
+		CipherProviders.setPreferredProvider(null);
+	}
+
+	@Test
+	public void testProviderSelection() throws Exception {
+		CipherSpec aes128 = CipherSpecs.getCipherSpec(CipherSpecs.AES_128_GCM);
+		CipherSpec twofish128 = CipherSpecs.getCipherSpec(CipherSpecs.TWOFISH_128_GCM);
+
+		// JDK does not implement Twofish
+		assertFalse(CipherProviders.isProviderUsable(twofish128, "SunJCE"));
+		assertFalse(CipherProviders.isProviderUsable(aes128, "NonExistingProvider"));
+
+		assertTrue(CipherProviders.isProviderUsable(aes128, "SunJCE"));
+		assertEquals("SunJCE", CipherProviders.getProvider(aes128));
+
+		// Override
+		CipherProviders.setPreferredProvider(CipherProviders.PROVIDER_BC_LIGHTWEIGHT);
+		assertNull(CipherProviders.getProvider(aes128));
+
+		CipherProviders.setPreferredProvider("NonExistingProvider");
+		assertEquals("SunJCE", CipherProviders.getProvider(aes128));
+	}
+
+	@Test
+	public void testSameFormatAcrossProviders() throws Exception {
+		List<CipherSpec> cipherSpecs = Arrays.asList(new CipherSpec[] { CipherSpecs.getCipherSpec(CipherSpecs.AES_128_GCM),
+				CipherSpecs.getCipherSpec(CipherSpecs.TWOFISH_128_GCM) });
+
+		byte[] srcData = CipherUtil.createRandomArray(200 * 1024 + 13);
+		byte[] streamVersions = new byte[] { MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE, MultiCipherOutputStream.STREAM_VERSION_SEGMENTED };
+
+		for (byte streamVersion : streamVersions) {
+			for (String encryptProvider : PROVIDERS) {
+				CipherProviders.setPreferredProvider(encryptProvider);
+				byte[] encryptedData = encrypt(srcData, cipherSpecs, streamVersion);
+
+				for (String decryptProvider : PROVIDERS) {
+					CipherProviders.setPreferredProvider(decryptProvider);
+					assertArrayEquals("Version " + streamVersion + ", encrypted with " + encryptProvider + ", decrypted with " + decryptProvider, 
+							srcData, decrypt(encryptedData));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testThroughputAcrossProviders() throws Exception {
+		byte[] srcData = CipherUtil.createRandomArray(16 * 1024 * 1024);
+
+		for (CipherSpec cipherSpec : CipherSpecs.getAvailableCipherSpecs().values()) {
+			for (String provider : PROVIDERS) {
+				boolean lightweight = CipherProviders.PROVIDER_BC_LIGHTWEIGHT.equals(provider);
+
+				if (!lightweight && !CipherProviders.isProviderUsable(cipherSpec, provider)) {
+					logger.log(Level.INFO, String.format("%-25s %-15s not available", cipherSpec, provider));
+					continue;
+				}
+
+				CipherProviders.setPreferredProvider(provider);
+				List<CipherSpec> cipherSpecs = Arrays.asList(new CipherSpec[] { cipherSpec });
+
+				// Warm up
+				decrypt(encrypt(srcData, cipherSpecs, MultiCipherOutputStream.STREAM_VERSION));
+
+				// Measure
+				long encryptStartTime = System.nanoTime();
+				byte[] encryptedData = encrypt(srcData, cipherSpecs, MultiCipherOutputStream.STREAM_VERSION);
+				long encryptDuration = System.nanoTime() - encryptStartTime;
+
+				long decryptStartTime = System.nanoTime();
+				byte[] decryptedData = decrypt(encryptedData);
+				long decryptDuration = System.nanoTime() - decryptStartTime;
+
+				logger.log(Level.INFO, String.format("%-25s %-15s encrypt %6.1f MB/s, decrypt %6.1f MB/s", cipherSpec, provider,
+						toMegabytesPerSecond(srcData.length, encryptDuration), toMegabytesPerSecond(srcData.length, decryptDuration)));
+
+				assertArrayEquals(srcData, decryptedData);
+			}
+		}
+	}
+
+	private byte[] encrypt(byte[] srcData, List<CipherSpec> cipherSpecs, byte streamVersion) throws Exception {
+		ByteArrayOutputStream encryptedOutputStream = new ByteArrayOutputStream();
+		OutputStream outputStream = new MultiCipherOutputStream(encryptedOutputStream, cipherSpecs, new CipherSession(createDummyMasterKey()),
+				streamVersion, MultiCipherOutputStream.DEFAULT_SEGMENT_SIZE);
+
+		outputStream.write(srcData);
+		outputStream.close();
+
+		return encryptedOutputStream.toByteArray();
+	}
+
+	private byte[] decrypt(byte[] encryptedData) throws Exception {
+		InputStream inputStream = new MultiCipherInputStream(new ByteArrayInputStream(encryptedData), new CipherSession(createDummyMasterKey()));
+		byte[] decryptedData = IOUtils.toByteArray(inputStream);
+
+		inputStream.close();
+		return decryptedData;
+	}
+
+	private double toMegabytesPerSecond(long bytes, long durationNanos) {
+		return (bytes / 1024.0 / 1024.0) / (durationNanos / 1000000000.0);
+	}
+
+	private SaltedSecretKey createDummyMasterKey() {
+		return new SaltedSecretKey(
+			new SecretKeySpec(
+				StringUtil.fromHex("44fda24d53b29828b62c362529bd9df5c8a92c2736bcae3a28b3d7b44488e36e246106aa5334813028abb2048eeb5e177df1c702d93cf82aeb7b6d59a8534ff0"),
+				"AnyAlgorithm"
+			),
+			StringUtil.fromHex("157599349e0f1bc713afff442db9d4c3201324073d51cb33407600f305500aa3fdb31136cb1f37bd51a48f183844257d42010a36133b32b424dd02bc63b349bc")
+		);
+	}
+}
@@ -19,6 +19,15 @@ package org.syncany.tests.unit.crypto;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.crypto.spec.SecretKeySpec;
 
@@ -80,9 +89,76 @@ public class CipherSessionTest {
 		assertNotSame(readSecretKey1Aes128, readSecretKey3Aes128);
 		assertNotSame(readSecretKey2Aes128, readSecretKey3Aes128);
 		
-		// TODO [medium] This does NOT TEST the actual read cache. How to test this. The cache is completely hidden/private?!
+		assertEquals(3, cipherSession.getReadCacheMissCount());
+		assertTrue(cipherSession.getReadCacheSize() <= 2);
+		assertTrue(cipherSession.getReadCacheEvictionCount() >= 1);
 	}	
 	
+	@Test
+	public void testCipherSessionReadKeyCacheHits() throws Exception {
+		SaltedSecretKey masterKey = createDummyMasterKey();		
+		CipherSession cipherSession = new CipherSession(masterKey);
+		
+		CipherSpec cipherSpecAes128 = CipherSpecs.getCipherSpec(CipherSpecs.AES_128_GCM);
+		CipherSpec cipherSpecTwofish128 = CipherSpecs.getCipherSpec(CipherSpecs.TWOFISH_128_GCM);
+		
+		byte[] readKeySalt = CipherUtil.createRandomArray(12);
+		
+		SaltedSecretKey readSecretKey1Aes128 = cipherSession.getReadSecretKey(cipherSpecAes128, readKeySalt);
+		SaltedSecretKey readSecretKey2Aes128 = cipherSession.getReadSecretKey(cipherSpecAes128, readKeySalt.clone());
+		SaltedSecretKey readSecretKeyTwofish128 = cipherSession.getReadSecretKey(cipherSpecTwofish128, readKeySalt);
+		
+		assertSame(readSecretKey1Aes128, readSecretKey2Aes128);
+		assertNotSame(readSecretKey1Aes128, readSecretKeyTwofish128);
+		
+		assertEquals(1, cipherSession.getReadCacheHitCount());
+		assertEquals(2, cipherSession.getReadCacheMissCount());
+		assertEquals(2, cipherSession.getReadCacheSize());
+	}
+	
+	@Test
+	public void testCipherSessionConcurrentAccess() throws Exception {
+		final SaltedSecretKey masterKey = createDummyMasterKey();		
+		final CipherSession cipherSession = new CipherSession(masterKey, 1000, 10);
+		final CipherSpec cipherSpecAes128 = CipherSpecs.getCipherSpec(CipherSpecs.AES_128_GCM);
+		
+		final List<byte[]> readKeySalts = new ArrayList<byte[]>();
+		
+		for (int i = 0; i < 50; i++) {
+			readKeySalts.add(CipherUtil.createRandomArray(12));
+		}
+		
+		ExecutorService executorService = Executors.newFixedThreadPool(8);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		
+		for (int thread = 0; thread < 8; thread++) {
+			futures.add(executorService.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					for (int i = 0; i < 200; i++) {
+						cipherSession.getReadSecretKey(cipherSpecAes128, readKeySalts.get(i % readKeySalts.size()));
+						cipherSession.getWriteSecretKey(cipherSpecAes128);
+					}
+					
+					return null;
+				}
+			}));
+		}
+		
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+		
+		executorService.shutdown();
+		
+		// Every key is derived exactly once, no matter how many threads requested it
+		assertEquals(50, cipherSession.getReadKeyCreateCount());
+		assertEquals(8 * 200, cipherSession.getReadCacheHitCount() + cipherSession.getReadCacheMissCount());
+		
+		// 1600 write key requests with a reuse count of 10
+		assertEquals(160, cipherSession.getWriteKeyCreateCount());
+	}
+	
 	private SaltedSecretKey createDummyMasterKey() {
 		return new SaltedSecretKey(
 			new SecretKeySpec(
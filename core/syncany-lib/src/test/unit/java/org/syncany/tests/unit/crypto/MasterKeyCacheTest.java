@@ -0,0 +1,151 @@
+/*
+ * Syncany, www.syncany.org
+ * Copyright (C) 2011-2015 Philipp C. Heckel <philipp.heckel@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.syncany.tests.unit.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.syncany.config.Logging;
+import org.syncany.crypto.CipherSession;
+import org.syncany.crypto.CipherSpecs;
+import org.syncany.crypto.CipherUtil;
+import org.syncany.crypto.MasterKeyCache;
+import org.syncany.crypto.SaltedSecretKey;
+
+public class MasterKeyCacheTest {
+	private static final Logger logger = Logger.getLogger(MasterKeyCacheTest.class.getSimpleName());
+
+	static {
+		Logging.init();
+	}
+
+	@Before
+	@After
+	public void clearCache() {
+		// Other tests (e.g. via CipherTransformer) may have filled the process-wide cache
+		MasterKeyCache.clear();
+	}
+
+	@Test
+	public void testCreateMasterKeyUsesCache() throws Exception {
+		// Seed the cache instead of deriving a key, to not run a full PBKDF2 round in this test
+		byte[] salt = new byte[] { 7, 8, 9 };
+		SaltedSecretKey seededMasterKey = CipherUtil.toSaltedSecretKey(CipherUtil.createRandomArray(64), salt, "PBKDF2WithHmacSHA1");
+
+		MasterKeyCache.putMasterKey("CachedPassword", seededMasterKey);
+
+		long timeStart = System.currentTimeMillis();
+		SaltedSecretKey masterKey = CipherUtil.createMasterKey("CachedPassword", salt);
+		long duration = System.currentTimeMillis() - timeStart;
+
+		logger.log(Level.INFO, "Creating (cached) master key took " + duration + " ms");
+
+		assertArrayEquals(seededMasterKey.getEncoded(), masterKey.getEncoded());
+		assertArrayEquals(salt, masterKey.getSalt());
+		assertEquals("PBKDF2WithHmacSHA1", masterKey.getAlgorithm());
+		assertEquals(1, MasterKeyCache.getMasterKeyCount());
+		assertTrue(duration < 1000);
+
+		// Different password or salt must not hit the cache
+		assertNull(MasterKeyCache.getMasterKey("OtherPassword", salt));
+		assertNull(MasterKeyCache.getMasterKey("CachedPassword", new byte[] { 7, 8, 10 }));
+	}
+
+	@Test
+	public void testClearZeroesCachedKeys() throws Exception {
+		byte[] salt = new byte[] { 1, 1, 1 };
+		byte[] expectedKeyBytes = CipherUtil.createRandomArray(64);
+		SaltedSecretKey masterKey = CipherUtil.toSaltedSecretKey(expectedKeyBytes.clone(), salt, "PBKDF2WithHmacSHA1");
+
+		MasterKeyCache.putMasterKey("ClearedPassword", masterKey);
+		SaltedSecretKey cachedMasterKey = MasterKeyCache.getMasterKey("ClearedPassword", salt);
+
+		MasterKeyCache.getCipherSession(masterKey, 10, 60, 5);
+		assertEquals(1, MasterKeyCache.getCipherSessionCount());
+
+		MasterKeyCache.clear();
+
+		assertEquals(0, MasterKeyCache.getMasterKeyCount());
+		assertEquals(0, MasterKeyCache.getCipherSessionCount());
+		assertNull(MasterKeyCache.getMasterKey("ClearedPassword", salt));
+
+		// Keys handed out before clearing are copies and remain usable
+		assertArrayEquals(expectedKeyBytes, masterKey.getEncoded());
+		assertArrayEquals(expectedKeyBytes, cachedMasterKey.getEncoded());
+		assertFalse(Arrays.equals(new byte[expectedKeyBytes.length], expectedKeyBytes));
+	}
+
+	@Test
+	public void testCipherSessionSharedPerMasterKey() throws Exception {
+		SaltedSecretKey masterKey = CipherUtil.toSaltedSecretKey(CipherUtil.createRandomArray(64), new byte[] { 1, 2, 3, 4 }, "RAW");
+		SaltedSecretKey otherMasterKey = CipherUtil.toSaltedSecretKey(CipherUtil.createRandomArray(64), new byte[] { 5, 6, 7, 8 }, "RAW");
+
+		CipherSession session1 = MasterKeyCache.getCipherSession(masterKey, 100, 60, 5);
+		CipherSession session2 = MasterKeyCache.getCipherSession(masterKey, 100, 60, 5);
+		CipherSession session3 = MasterKeyCache.getCipherSession(otherMasterKey, 100, 60, 5);
+		CipherSession session4 = MasterKeyCache.getCipherSession(masterKey, 200, 60, 5);
+
+		assertSame(session1, session2);
+		assertNotSame(session1, session3);
+		assertNotSame(session1, session4);
+		assertEquals(3, MasterKeyCache.getCipherSessionCount());
+	}
+
+	@Test
+	public void testClearZeroesCipherSessionKeys() throws Exception {
+		SaltedSecretKey masterKey = CipherUtil.toSaltedSecretKey(CipherUtil.createRandomArray(64), new byte[] { 2, 2, 2 }, "RAW");
+		CipherSession cipherSession = MasterKeyCache.getCipherSession(masterKey, 10, 60, 5);
+
+		SaltedSecretKey writeSecretKey = cipherSession.getWriteSecretKey(CipherSpecs.getCipherSpec(CipherSpecs.AES_128_GCM));
+		SaltedSecretKey readSecretKey = cipherSession.getReadSecretKey(CipherSpecs.getCipherSpec(CipherSpecs.AES_128_GCM), new byte[] { 3, 3, 3 });
+
+		assertFalse(Arrays.equals(new byte[16], writeSecretKey.getEncoded()));
+		assertFalse(Arrays.equals(new byte[16], readSecretKey.getEncoded()));
+
+		MasterKeyCache.clear();
+
+		assertArrayEquals(new byte[16], writeSecretKey.getEncoded());
+		assertArrayEquals(new byte[16], readSecretKey.getEncoded());
+		assertEquals(0, cipherSession.getReadCacheSize());
+	}
+
+	@Test
+	public void testCipherSessionCountBounded() throws Exception {
+		SaltedSecretKey masterKey = CipherUtil.toSaltedSecretKey(CipherUtil.createRandomArray(64), new byte[] { 4, 4, 4 }, "RAW");
+		CipherSession firstCipherSession = MasterKeyCache.getCipherSession(masterKey, 1, 60, 5);
+
+		for (int i = 2; i <= MasterKeyCache.MAX_CIPHER_SESSIONS + 1; i++) {
+			MasterKeyCache.getCipherSession(masterKey, i, 60, 5);
+		}
+
+		assertEquals(MasterKeyCache.MAX_CIPHER_SESSIONS, MasterKeyCache.getCipherSessionCount());
+		assertNotSame(firstCipherSession, MasterKeyCache.getCipherSession(masterKey, 1, 60, 5));
+	}
+}
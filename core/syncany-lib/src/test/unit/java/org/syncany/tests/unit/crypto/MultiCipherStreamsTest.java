@@ -17,8 +17,11 @@
  */
 package org.syncany.tests.unit.crypto;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -39,14 +42,17 @@ import javax.crypto.spec.SecretKeySpec;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.syncany.chunk.CipherTransformer;
 import org.syncany.chunk.Transformer;
 import org.syncany.config.Logging;
 import org.syncany.crypto.CipherException;
+import org.syncany.crypto.CipherSession;
 import org.syncany.crypto.CipherSpec;
 import org.syncany.crypto.CipherSpecs;
+import org.syncany.crypto.MultiCipherInputStream;
 import org.syncany.crypto.MultiCipherOutputStream;
 import org.syncany.crypto.SaltedSecretKey;
 import org.syncany.util.StringUtil;
@@ -87,6 +93,154 @@ public class MultiCipherStreamsTest {
 		);
 	}	
 	
+	@Test
+	public void testSegmentedStreamBoundaries() throws Exception {
+		List<CipherSpec> cipherSpecs = Arrays.asList(new CipherSpec[] { CipherSpecs.getCipherSpec(1), CipherSpecs.getCipherSpec(2) });
+		int segmentSize = 1000;
+		
+		for (int length : new int[] { 0, 1, segmentSize - 1, segmentSize, segmentSize + 1, 3 * segmentSize, 3 * segmentSize + 17 }) {
+			byte[] srcData = createTestData(length);
+			byte[] encryptedData = doEncryptSegmented(srcData, cipherSpecs, MultiCipherOutputStream.STREAM_VERSION_SEGMENTED, segmentSize);
+			
+			assertArrayEquals("Decrypted data differs for length " + length, srcData, doDecrypt(encryptedData));
+		}
+	}
+	
+	@Test
+	public void testSegmentedStreamDetectsTruncation() throws Exception {
+		List<CipherSpec> cipherSpecs = Arrays.asList(new CipherSpec[] { CipherSpecs.getCipherSpec(1) });
+		int segmentSize = 1000;
+		
+		byte[] encryptedData = doEncryptSegmented(createTestData(3 * segmentSize), cipherSpecs, MultiCipherOutputStream.STREAM_VERSION_SEGMENTED, segmentSize);		
+		int ciphertextSegmentSize = segmentSize + 16;
+		
+		// Cut off the last segment exactly at a segment boundary
+		byte[] truncatedData = Arrays.copyOf(encryptedData, encryptedData.length - ciphertextSegmentSize);
+		
+		try {
+			doDecrypt(truncatedData);
+			fail("Stream truncated at a segment boundary should not be readable.");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+	}
+	
+	@Test
+	public void testSegmentedStreamAuthenticatesVersion() throws Exception {
+		List<CipherSpec> cipherSpecs = Arrays.asList(new CipherSpec[] { CipherSpecs.getCipherSpec(1) });
+		int segmentSize = 1000;
+		
+		byte[] encryptedData = doEncryptSegmented(createTestData(3 * segmentSize), cipherSpecs, MultiCipherOutputStream.STREAM_VERSION_SEGMENTED, segmentSize);		
+
+		// Downgrade to version 1
+		encryptedData[MultiCipherOutputStream.STREAM_MAGIC.length] = MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE;
+		
+		try {
+			doDecrypt(encryptedData);
+			fail("Stream with modified version should not be readable.");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+	}
+	
+	@Test
+	public void testSegmentedStreamVerifiesIncrementally() throws Exception {
+		List<CipherSpec> cipherSpecs = Arrays.asList(new CipherSpec[] { CipherSpecs.getCipherSpec(1) });
+		int segmentSize = 1000;
+		
+		byte[] srcData = createTestData(3 * segmentSize);
+		byte[] encryptedData = doEncryptSegmented(srcData, cipherSpecs, MultiCipherOutputStream.STREAM_VERSION_SEGMENTED, segmentSize);		
+
+		// Tamper with the last segment
+		encryptedData[encryptedData.length - 20] ^= 0x01;
+		
+		InputStream inputStream = new MultiCipherInputStream(new ByteArrayInputStream(encryptedData), new CipherSession(masterKey));
+		byte[] firstSegment = new byte[segmentSize];
+		
+		assertEquals(segmentSize, IOUtils.read(inputStream, firstSegment));
+		assertArrayEquals(Arrays.copyOf(srcData, segmentSize), firstSegment);
+		
+		try {
+			IOUtils.toByteArray(inputStream);
+			fail("Tampered segment should not be readable.");
+		}
+		catch (IOException e) {
+			// Expected
+		}
+		
+		inputStream.close();
+	}
+	
+	@Test
+	public void testSegmentedStreamSkip() throws Exception {
+		List<CipherSpec> cipherSpecs = Arrays.asList(new CipherSpec[] { CipherSpecs.getCipherSpec(1), CipherSpecs.getCipherSpec(2) });
+		int segmentSize = 1000;
+		
+		byte[] srcData = createTestData(10 * segmentSize + 500);
+		byte[] encryptedData = doEncryptSegmented(srcData, cipherSpecs, MultiCipherOutputStream.STREAM_VERSION_SEGMENTED, segmentSize);		
+		
+		InputStream inputStream = new MultiCipherInputStream(new ByteArrayInputStream(encryptedData), new CipherSession(masterKey));
+		
+		assertEquals(7 * segmentSize + 123, inputStream.skip(7 * segmentSize + 123));
+		assertArrayEquals(Arrays.copyOfRange(srcData, 7 * segmentSize + 123, srcData.length), IOUtils.toByteArray(inputStream));
+		
+		inputStream.close();
+	}
+	
+	@Test
+	public void testReadSingleMessageStream() throws Exception {
+		List<CipherSpec> cipherSpecs = Arrays.asList(new CipherSpec[] { CipherSpecs.getCipherSpec(1), CipherSpecs.getCipherSpec(2) });
+		
+		byte[] srcData = createTestData(100 * 1024);
+		byte[] encryptedData = doEncryptSegmented(srcData, cipherSpecs, MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE, 
+				MultiCipherOutputStream.DEFAULT_SEGMENT_SIZE);
+		
+		assertEquals(MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE, encryptedData[MultiCipherOutputStream.STREAM_MAGIC.length]);
+		assertArrayEquals(srcData, doDecrypt(encryptedData));
+	}
+	
+	@Test
+	public void testCipherTransformerStreamVersion() throws Exception {
+		List<CipherSpec> cipherSpecs = Arrays.asList(new CipherSpec[] { CipherSpecs.getCipherSpec(1) });
+		byte[] srcData = createTestData(100 * 1024);
+		
+		// Single message is the default, segmented has to be enabled explicitly
+		byte[] defaultEncryptedData = doEncrypt(srcData, new CipherTransformer(cipherSpecs, masterKey));
+		byte[] segmentedEncryptedData = doEncrypt(srcData, new CipherTransformer(cipherSpecs, masterKey, MultiCipherOutputStream.STREAM_VERSION_SEGMENTED));
+		
+		assertEquals(MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE, defaultEncryptedData[MultiCipherOutputStream.STREAM_MAGIC.length]);
+		assertEquals(MultiCipherOutputStream.STREAM_VERSION_SEGMENTED, segmentedEncryptedData[MultiCipherOutputStream.STREAM_MAGIC.length]);
+		
+		assertArrayEquals(srcData, doDecrypt(defaultEncryptedData));
+		assertArrayEquals(srcData, doDecrypt(segmentedEncryptedData));
+	}
+	
+	@Test
+	public void testSegmentedStreamPerformance() throws Exception {
+		List<CipherSpec> cipherSpecs = Arrays.asList(new CipherSpec[] { CipherSpecs.getCipherSpec(1) });
+		byte[] srcData = createTestData(8 * 1024 * 1024);
+		
+		for (byte streamVersion : new byte[] { MultiCipherOutputStream.STREAM_VERSION_SINGLE_MESSAGE, MultiCipherOutputStream.STREAM_VERSION_SEGMENTED }) {
+			doDecrypt(doEncryptSegmented(srcData, cipherSpecs, streamVersion, MultiCipherOutputStream.DEFAULT_SEGMENT_SIZE)); // Warm up
+			
+			long encryptStartTime = System.currentTimeMillis();
+			byte[] encryptedData = doEncryptSegmented(srcData, cipherSpecs, streamVersion, MultiCipherOutputStream.DEFAULT_SEGMENT_SIZE);
+			long encryptDuration = System.currentTimeMillis() - encryptStartTime;
+			
+			long decryptStartTime = System.currentTimeMillis();
+			byte[] decryptedData = doDecrypt(encryptedData);
+			long decryptDuration = System.currentTimeMillis() - decryptStartTime;
+			
+			logger.log(Level.INFO, "Stream version " + streamVersion + ": " + srcData.length + " bytes -> " + encryptedData.length + " bytes, encrypt " 
+					+ encryptDuration + " ms, decrypt " + decryptDuration + " ms");
+			
+			assertTrue(encryptedData.length > srcData.length);
+			assertArrayEquals(srcData, decryptedData);
+		}
+	}
+	
 	@Test
 	public void testHmacAvailability() throws Exception {
 		Mac.getInstance(MultiCipherOutputStream.HMAC_SPEC.getAlgorithm());
@@ -201,6 +355,34 @@ public class MultiCipherStreamsTest {
 		return decryptedData;
 	}	
 	
+	private byte[] doEncryptSegmented(byte[] srcData, List<CipherSpec> cipherSpecs, byte streamVersion, int segmentSize) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		OutputStream os = new MultiCipherOutputStream(bos, cipherSpecs, new CipherSession(masterKey), streamVersion, segmentSize);
+		
+		os.write(srcData, 0, srcData.length);
+		os.close();
+		
+		return bos.toByteArray();
+	}
+	
+	private byte[] doDecrypt(byte[] encryptedData) throws IOException {
+		InputStream is = new MultiCipherInputStream(new ByteArrayInputStream(encryptedData), new CipherSession(masterKey));		
+		byte[] decryptedData = IOUtils.toByteArray(is);
+		
+		is.close();
+		return decryptedData;
+	}
+	
+	private byte[] createTestData(int length) {
+		byte[] srcData = new byte[length];
+		
+		for (int i = 0; i < srcData.length; i++) {
+			srcData[i] = (byte) (i * 31 + (i >> 8));
+		}
+		
+		return srcData;
+	}
+	
 	private SaltedSecretKey createDummyMasterKey() {
 		return new SaltedSecretKey(
 			new SecretKeySpec(
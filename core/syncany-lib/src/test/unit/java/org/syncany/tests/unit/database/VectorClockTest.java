@@ -18,12 +18,25 @@
 package org.syncany.tests.unit.database;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.junit.Test;
+import org.syncany.database.CompactVectorClock;
 import org.syncany.database.VectorClock;
 import org.syncany.database.VectorClock.VectorClockComparison;
 
 public class VectorClockTest {
+	private static final Logger logger = Logger.getLogger(VectorClockTest.class.getSimpleName());
+
 	@Test
 	public void testNormalVectorClockUsage() {
 		VectorClock vc = new  VectorClock();
@@ -182,4 +195,116 @@ public class VectorClockTest {
 		assertEquals("Expected clock value of cloned clock to be different.", 4L, (long) vc2.getClock("UnitA"));
 		assertEquals("Expected clock value of cloned clock to be different.", 5L, (long) vc2.getClock("UnitB"));
 	}	
+
+	@Test
+	public void testCompactParseAndToString() {
+		CompactVectorClock cvc1 = CompactVectorClock.parseCompactVectorClock("(UnitBBB5,UnitAAA4)");
+		CompactVectorClock cvc2 = CompactVectorClock.parseCompactVectorClock("()");
+
+		assertEquals(4L, cvc1.getClock("UnitAAA"));
+		assertEquals(5L, cvc1.getClock("UnitBBB"));
+		assertEquals(0L, cvc1.getClock("UnitCCC"));
+		assertEquals("(UnitAAA4,UnitBBB5)", cvc1.toString());
+		assertEquals("()", cvc2.toString());
+		assertEquals(0, cvc2.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCompactParseInvalidEntry() {
+		CompactVectorClock.parseCompactVectorClock("(UnitA1,2B)");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseInvalidClock() {
+		VectorClock.parseVectorClock("UnitA1,UnitB2");
+	}
+
+	@Test
+	public void testCompactEqualsAndHashCodeMatchMap() {
+		VectorClock vc1 = new VectorClock();
+		vc1.setClock("UnitB", 5000000000L);
+		vc1.setClock("UnitA", 4L);
+
+		VectorClock vc2 = VectorClock.parseVectorClock("(UnitA4,UnitB5000000000)");
+
+		Map<String, Long> plainMap = new HashMap<String, Long>(vc1);
+
+		assertEquals(vc1, vc2);
+		assertEquals(vc1.hashCode(), vc2.hashCode());
+		assertEquals(plainMap.hashCode(), vc1.hashCode());
+		assertTrue(vc1.equals(plainMap));
+		assertEquals(vc1.toCompactVectorClock(), vc2.toCompactVectorClock());
+		assertEquals(vc1, vc2.toCompactVectorClock().toVectorClock());
+	}
+
+	@Test
+	public void testCompactClockInvalidatedOnChange() {
+		VectorClock vc1 = VectorClock.parseVectorClock("(UnitA4,UnitB5)");
+		VectorClock vc2 = vc1.clone();
+
+		CompactVectorClock compactBefore = vc1.toCompactVectorClock();
+		assertSame(compactBefore, vc1.toCompactVectorClock());
+
+		vc1.incrementClock("UnitA");
+
+		assertNotEquals(compactBefore, vc1.toCompactVectorClock());
+		assertNotEquals(vc1, vc2);
+		assertEquals(VectorClockComparison.GREATER, VectorClock.compare(vc1, vc2));
+
+		vc1.remove("UnitA");
+		vc2.remove("UnitA");
+
+		assertEquals(vc1, vc2);
+		assertEquals("(UnitB5)", vc1.toString());
+	}
+
+	@Test
+	public void testCompareTreatsMissingEntriesAsZero() {
+		VectorClock vc1 = VectorClock.parseVectorClock("(UnitA1)");
+		VectorClock vc2 = VectorClock.parseVectorClock("(UnitA1,UnitB0)");
+		VectorClock vc3 = VectorClock.parseVectorClock("(UnitB1)");
+
+		assertFalse(vc1.equals(vc2));
+		assertEquals(VectorClockComparison.EQUAL, VectorClock.compare(vc1, vc2));
+		assertEquals(VectorClockComparison.SIMULTANEOUS, VectorClock.compare(vc1, vc3));
+		assertEquals(VectorClockComparison.SMALLER, VectorClock.compare(vc2, VectorClock.parseVectorClock("(UnitA1,UnitB1)")));
+		assertEquals(VectorClockComparison.GREATER, VectorClock.compare(VectorClock.parseVectorClock("(UnitA1,UnitC1)"), vc2));
+	}
+
+	@Test
+	public void testCompareManyClientsPerformance() {
+		String[] clientNames = new String[50];
+
+		for (int i = 0; i < clientNames.length; i++) {
+			clientNames[i] = "Client" + (char) ('A' + i / 26) + (char) ('a' + i % 26);
+		}
+
+		Random random = new Random(4711);
+		VectorClock[] vectorClocks = new VectorClock[2000];
+
+		for (int i = 0; i < vectorClocks.length; i++) {
+			vectorClocks[i] = new VectorClock();
+
+			for (String clientName : clientNames) {
+				vectorClocks[i].setClock(clientName, random.nextInt(1000));
+			}
+		}
+
+		int equalCount = 0;
+		long startTime = System.currentTimeMillis();
+
+		for (int i = 0; i < vectorClocks.length; i++) {
+			for (int j = 0; j < vectorClocks.length; j++) {
+				if (VectorClock.compare(vectorClocks[i], vectorClocks[j]) == VectorClockComparison.EQUAL) {
+					equalCount++;
+				}
+			}
+		}
+
+		long duration = System.currentTimeMillis() - startTime;
+		logger.log(Level.INFO, "Compared " + vectorClocks.length * vectorClocks.length + " vector clocks with " + clientNames.length
+				+ " clients in " + duration + " ms");
+
+		assertEquals(vectorClocks.length, equalCount);
+	}
 }
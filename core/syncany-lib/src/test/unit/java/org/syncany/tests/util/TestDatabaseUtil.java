@@ -34,7 +34,7 @@ import org.syncany.database.FileVersion.FileType;
 import org.syncany.database.MemoryDatabase;
 import org.syncany.database.VectorClock;
 import org.syncany.database.dao.DatabaseXmlSerializer;
-import org.syncany.database.dao.DatabaseXmlSerializer.DatabaseReadType;
+import org.syncany.database.dao.DatabaseSerializer.DatabaseReadType;
 import org.syncany.operations.down.DatabaseBranch;
 import org.syncany.tests.unit.util.TestFileUtil;
 
@@ -150,8 +150,6 @@ public class TestDatabaseUtil {
 		return fileVersion;
 	}
 
-	// TODO [medium] Add performance tests for the cache and optimize Database.addDatabaseVersion()-cache handling
-
 	public static DatabaseVersion createDatabaseVersion() {
 		return createDatabaseVersion(null, new Date());
 	}